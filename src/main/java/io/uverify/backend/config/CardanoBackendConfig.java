@@ -0,0 +1,128 @@
+/*
+ * UVerify Backend
+ * Copyright (C) 2025 Fabian Bormann
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.uverify.backend.config;
+
+import com.bloxbean.cardano.client.backend.api.BackendService;
+import com.bloxbean.cardano.client.backend.blockfrost.service.BFBackendService;
+import com.bloxbean.cardano.client.backend.koios.Constants;
+import com.bloxbean.cardano.client.backend.koios.KoiosBackendService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.uverify.backend.util.ImmutableQueryCache;
+import io.uverify.backend.util.InstrumentedBackendService;
+import io.uverify.backend.util.RoutingBackendService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Provides the Cardano provider clients shared by all services. Each backend
+ * keeps its HTTP client and connection pool for the lifetime of the
+ * application instead of one per service.
+ */
+@Configuration
+@Slf4j
+public class CardanoBackendConfig {
+
+    public static final String QUERY_BACKEND_SERVICE = "queryBackendService";
+
+    @Bean
+    public ImmutableQueryCache immutableQueryCache(@Value("${cardano.backend.cache.maximum-size:10000}") long cacheMaximumSize,
+                                                   @Value("${cardano.backend.cache.negative-ttl-seconds:10}") long negativeTtlSeconds,
+                                                   MeterRegistry meterRegistry) {
+        return ImmutableQueryCache.create(cacheMaximumSize, Duration.ofSeconds(negativeTtlSeconds), meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public BackendService backendService(@Value("${cardano.backend.service.type}") String cardanoBackendServiceType,
+                                         @Value("${cardano.backend.blockfrost.baseUrl}") String blockfrostBaseUrl,
+                                         @Value("${cardano.backend.blockfrost.projectId}") String blockfrostProjectId,
+                                         @Value("${cardano.backend.query.baseUrl:}") String queryBaseUrl,
+                                         @Value("${cardano.backend.query.projectId:}") String queryProjectId,
+                                         @Value("${cardano.backend.routing.enabled:false}") boolean routingEnabled,
+                                         @Value("${cardano.backend.routing.koios-url:}") String routingKoiosUrl,
+                                         @Value("${cardano.backend.routing.min-hedge-delay-ms:50}") long minHedgeDelayMs,
+                                         @Value("${cardano.backend.routing.max-hedge-delay-ms:2000}") long maxHedgeDelayMs,
+                                         @Value("${cardano.backend.routing.failure-threshold:5}") int failureThreshold,
+                                         @Value("${cardano.backend.routing.open-seconds:30}") long openSeconds,
+                                         ImmutableQueryCache immutableQueryCache,
+                                         MeterRegistry meterRegistry) {
+        BackendService backendService = InstrumentedBackendService.wrap(
+                createBackendService(cardanoBackendServiceType, blockfrostBaseUrl, blockfrostProjectId),
+                meterRegistry, cardanoBackendServiceType);
+
+        if (routingEnabled) {
+            Map<String, BackendService> providers = new LinkedHashMap<>();
+            providers.put(cardanoBackendServiceType, backendService);
+            if (!queryBaseUrl.isEmpty()) {
+                providers.put("query", queryBackend(queryBaseUrl, queryProjectId, meterRegistry));
+            }
+            if (!routingKoiosUrl.isEmpty() && !cardanoBackendServiceType.equals("koios")) {
+                providers.put("koios", InstrumentedBackendService.wrap(
+                        new KoiosBackendService(routingKoiosUrl), meterRegistry, "koios"));
+            }
+            log.info("Routing Cardano provider reads across {}", providers.keySet());
+            backendService = RoutingBackendService.create(providers, new RoutingBackendService.Settings(
+                    0.2, Duration.ofMillis(minHedgeDelayMs), Duration.ofMillis(maxHedgeDelayMs),
+                    failureThreshold, Duration.ofSeconds(openSeconds)));
+        }
+        // Cache outside the instrumentation, so the metrics only count real provider calls.
+        return immutableQueryCache.wrap(backendService);
+    }
+
+    /**
+     * Read-only backend for UTxO lookups during transaction builds. Falls
+     * back to the main backend if no dedicated query endpoint is configured,
+     * or if the main backend already routes across the query endpoint.
+     */
+    @Bean(QUERY_BACKEND_SERVICE)
+    public BackendService queryBackendService(@Value("${cardano.backend.query.baseUrl:}") String queryBaseUrl,
+                                              @Value("${cardano.backend.query.projectId:}") String queryProjectId,
+                                              @Value("${cardano.backend.routing.enabled:false}") boolean routingEnabled,
+                                              BackendService backendService,
+                                              MeterRegistry meterRegistry) {
+        if (queryBaseUrl.isEmpty() || routingEnabled) {
+            return backendService;
+        }
+        return queryBackend(queryBaseUrl, queryProjectId, meterRegistry);
+    }
+
+    private static BackendService createBackendService(String type, String blockfrostBaseUrl, String blockfrostProjectId) {
+        if (type.equals("blockfrost")) {
+            if (blockfrostProjectId == null || blockfrostProjectId.isEmpty()) {
+                throw new IllegalArgumentException("Blockfrost projectId is required when using Blockfrost backend service");
+            }
+            return new BFBackendService(blockfrostBaseUrl, blockfrostProjectId);
+        } else if (type.equals("koios")) {
+            return new KoiosBackendService(Constants.KOIOS_PREPROD_URL);
+        }
+        throw new IllegalArgumentException("Unsupported backend service type: " + type);
+    }
+
+    private static BackendService queryBackend(String queryBaseUrl, String queryProjectId, MeterRegistry meterRegistry) {
+        String projectId = queryProjectId.isEmpty() ? "localtest" : queryProjectId;
+        return InstrumentedBackendService.wrap(new BFBackendService(queryBaseUrl, projectId), meterRegistry, "query");
+    }
+}
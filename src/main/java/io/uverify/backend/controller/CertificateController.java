@@ -26,11 +26,9 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import io.uverify.backend.dto.CertificateResponse;
 import io.uverify.backend.entity.UVerifyCertificateEntity;
-import io.uverify.backend.enums.CardanoNetwork;
-import io.uverify.backend.mapper.CertificateMapper;
+import io.uverify.backend.service.MerkleBatchService;
 import io.uverify.backend.service.UVerifyCertificateService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -46,20 +44,20 @@ import java.util.List;
 public class CertificateController {
 
     private final UVerifyCertificateService UVerifyCertificateService;
-
-    private final CardanoNetwork network;
+    private final MerkleBatchService merkleBatchService;
 
     @Autowired
-    public CertificateController(@Value("${cardano.network}") String network, UVerifyCertificateService UVerifyCertificateService) {
-        this.network = CardanoNetwork.valueOf(network);
+    public CertificateController(UVerifyCertificateService UVerifyCertificateService, MerkleBatchService merkleBatchService) {
         this.UVerifyCertificateService = UVerifyCertificateService;
+        this.merkleBatchService = merkleBatchService;
     }
 
     @GetMapping("/{hash}")
     @Operation(
             summary = "Retrieve certificates by data hash",
             description = "Retrieves a list of certificates associated with the provided data hash. "
-                    + "The `hash` is the data hash (e.g., SHA-256 or SHA-512) of the file or text that was certified."
+                    + "The `hash` is the data hash (e.g., SHA-256 or SHA-512) of the file or text that was certified. "
+                    + "Hashes anchored in a Merkle batch resolve to the root certificate with an `inclusionProof`."
     )
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Certificates retrieved successfully",
@@ -69,12 +67,15 @@ public class CertificateController {
     })
     public ResponseEntity<List<CertificateResponse>> getCertificateByHash(
             @PathVariable String hash) {
-        List<UVerifyCertificateEntity> UVerifyCertificateEntities = UVerifyCertificateService.getCertificatesByHash(hash);
+        List<CertificateResponse> certificateResponses = UVerifyCertificateService.getCertificateResponsesByHash(hash);
+        if (certificateResponses.isEmpty()) {
+            certificateResponses = merkleBatchService.getCertificateResponsesByLeafHash(hash);
+        }
 
-        if (UVerifyCertificateEntities.isEmpty()) {
+        if (certificateResponses.isEmpty()) {
             return ResponseEntity.notFound().build();
         }
-        return ResponseEntity.ok(UVerifyCertificateEntities.stream().map(entity -> CertificateMapper.fromCertificate(entity, network)).toList());
+        return ResponseEntity.ok(certificateResponses);
     }
 
     @GetMapping("/by-transaction-hash/{transactionHash}/{dataHash}")
@@ -18,14 +18,12 @@
 
 package io.uverify.backend.controller;
 
-import com.bloxbean.cardano.client.address.AddressProvider;
-import com.bloxbean.cardano.client.address.Credential;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import io.uverify.backend.entity.UVerifyCertificateEntity;
+import io.uverify.backend.dto.CertificateView;
 import io.uverify.backend.enums.CardanoNetwork;
+import io.uverify.backend.mapper.CertificateMapper;
 import io.uverify.backend.service.ShortLinkService;
 import io.uverify.backend.service.UVerifyCertificateService;
+import io.uverify.backend.util.CertificateMetadataView;
 import io.uverify.backend.util.OgDataFactory;
 import io.uverify.backend.util.OgDataFactory.OgData;
 import io.uverify.backend.util.TemplateIdResolver;
@@ -50,8 +48,6 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
-import static io.uverify.backend.util.CardanoUtils.fromCardanoNetwork;
-
 @Slf4j
 @RestController
 @RequestMapping("/api/v1/resolve")
@@ -62,7 +58,6 @@ public class ShortLinkController {
     private final String frontendUrl;
     private final ShortLinkService shortLinkService;
     private final UVerifyCertificateService certificateService;
-    private final ObjectMapper objectMapper = new ObjectMapper();
 
     public ShortLinkController(@Value("${cardano.network}") String network,
                                @Value("${shortlink.domain}") String shortLinkDomain,
@@ -83,8 +78,8 @@ public class ShortLinkController {
             return ResponseEntity.status(404).contentType(MediaType.TEXT_HTML).body(notFoundPage());
         }
 
-        List<PolicyCertificate> submissions = certificateService.getCertificatesByHash(hash.get()).stream()
-                .sorted(Comparator.comparing(UVerifyCertificateEntity::getSlot))
+        List<PolicyCertificate> submissions = certificateService.getCertificateViewsByHash(hash.get()).stream()
+                .sorted(Comparator.comparing(CertificateView::slot))
                 .map(this::toPolicyCertificate)
                 .toList();
         List<PolicyCertificate> displayed = UpdatePolicyResolver.applyPolicy(
@@ -108,20 +103,13 @@ public class ShortLinkController {
                 .body(previewPage(ogData, ogUrl, redirectUrl));
     }
 
-    private PolicyCertificate toPolicyCertificate(UVerifyCertificateEntity entity) {
-        Map<String, Object> metadata;
-        try {
-            metadata = objectMapper.readValue(entity.getExtra(), new TypeReference<>() {
-            });
-        } catch (Exception exception) {
-            metadata = Map.of();
-        }
+    private PolicyCertificate toPolicyCertificate(CertificateView certificateView) {
+        Map<String, Object> metadata = new CertificateMetadataView(certificateView.extraFields(), certificateView.extra());
         String issuer;
         try {
-            issuer = AddressProvider.getEntAddress(
-                    Credential.fromKey(entity.getPaymentCredential()), fromCardanoNetwork(network)).toBech32();
+            issuer = CertificateMapper.issuerAddress(certificateView.paymentCredential(), network);
         } catch (Exception exception) {
-            issuer = entity.getPaymentCredential();
+            issuer = certificateView.paymentCredential();
         }
         return new PolicyCertificate(issuer, metadata);
     }
@@ -25,19 +25,35 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import io.uverify.backend.dto.BuildJobStatus;
 import io.uverify.backend.dto.BuildTransactionRequest;
+import io.uverify.backend.dto.BulkTransaction;
 import io.uverify.backend.dto.BuildTransactionResponse;
 import io.uverify.backend.dto.ProxyInitResponse;
 import io.uverify.backend.dto.SubmitTransactionRequest;
 import jakarta.validation.Valid;
 import io.uverify.backend.enums.BuildStatusCode;
+import io.uverify.backend.enums.BulkInputFormat;
 import io.uverify.backend.enums.TransactionType;
 import org.springframework.http.HttpStatus;
+import io.uverify.backend.service.BuildJobService;
+import io.uverify.backend.service.BulkIssuanceService;
 import io.uverify.backend.service.UVerifyTransactionService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Map;
+import java.util.Optional;
 
 @RestController
 @SuppressWarnings("unused")
@@ -47,6 +63,12 @@ import org.springframework.web.bind.annotation.*;
 public class UVerifyTransactionController {
     @Autowired
     private UVerifyTransactionService transactionService;
+    @Autowired
+    private BulkIssuanceService bulkIssuanceService;
+    @Autowired
+    private BuildJobService buildJobService;
+    @Value("${build.jobs.event-timeout-ms:120000}")
+    private long buildJobEventTimeoutMillis;
 
     @GetMapping("/confirm/{hash}")
     @Operation(
@@ -84,7 +106,8 @@ public class UVerifyTransactionController {
                     - **DEFAULT**: Submits UVerify certificates to the blockchain using the cheapest options. If no state is initialized, it forks a new state from the bootstrap datum with the best service fee conditions. If a user state exists with a valid transaction countdown and no service fee is required, it will be reused.
                     - **BOOTSTRAP**: Initializes a new bootstrap token and datum for forking states. Requires a whitelisted credential to sign the transaction.
                     - **INIT**: Init a new proxy script for UVerify certificate management.
-                    - **CUSTOM**: Allows the user to specify a bootstrap datum to fork or consume a state related to a specific bootstrap datum. This is useful for use cases requiring a 'partner datum' and may result in a different certificate UI on the client side."""
+                    - **CUSTOM**: Allows the user to specify a bootstrap datum to fork or consume a state related to a specific bootstrap datum. This is useful for use cases requiring a 'partner datum' and may result in a different certificate UI on the client side.
+                    - **MERKLE**: Anchors the hashes of all given certificates as the root of a Merkle tree, which goes on chain as a single certificate. Verifying a certificate hash returns the root certificate with an inclusion proof."""
     )
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Transaction built successfully",
@@ -94,29 +117,122 @@ public class UVerifyTransactionController {
     })
     public ResponseEntity<?> buildTransaction(@Valid @RequestBody BuildTransactionRequest request) {
         try {
-            if (request.getType().equals(TransactionType.DEFAULT)) {
-                String bootstrapDatumName = request.getBootstrapDatum() != null ? request.getBootstrapDatum().getName() : null;
-                return toResponse(transactionService.buildUVerifyTransaction(request.getCertificates(), request.getAddress(), bootstrapDatumName));
-            } else if (request.getType().equals(TransactionType.BOOTSTRAP)) {
-                return toResponse(transactionService.buildBootstrapDatum(request.getBootstrapDatum()));
-            } else if (request.getType().equals(TransactionType.CUSTOM)) {
-                return toResponse(transactionService.buildCustomTransaction(request.getCertificates(), request.getAddress(), request.getBootstrapDatum().getName()));
-            } else if (request.getType().equals(TransactionType.INIT)) {
-                ProxyInitResponse proxyInitResponse = transactionService.buildInitProxyTx();
-                if (proxyInitResponse.getStatus().getCode().equals(BuildStatusCode.SUCCESS)) {
-                    return ResponseEntity.ok(proxyInitResponse);
-                } else {
-                    return ResponseEntity.badRequest().body(proxyInitResponse);
-                }
-            } else {
-                return ResponseEntity.badRequest().body("Unknown transaction type. Allowed types are: DEFAULT, BOOTSTRAP, CUSTOM.");
-            }
+            return build(request);
         } catch (Exception e) {
             log.error("Error building transaction: {}", e.getMessage(), e);
             return ResponseEntity.internalServerError().build();
         }
     }
 
+    private ResponseEntity<?> build(BuildTransactionRequest request) {
+        if (request.getType().equals(TransactionType.DEFAULT)) {
+            String bootstrapDatumName = request.getBootstrapDatum() != null ? request.getBootstrapDatum().getName() : null;
+            return toResponse(transactionService.buildUVerifyTransaction(request.getCertificates(), request.getAddress(), bootstrapDatumName));
+        } else if (request.getType().equals(TransactionType.BOOTSTRAP)) {
+            return toResponse(transactionService.buildBootstrapDatum(request.getBootstrapDatum()));
+        } else if (request.getType().equals(TransactionType.CUSTOM)) {
+            return toResponse(transactionService.buildCustomTransaction(request.getCertificates(), request.getAddress(), request.getBootstrapDatum().getName()));
+        } else if (request.getType().equals(TransactionType.MERKLE)) {
+            String bootstrapDatumName = request.getBootstrapDatum() != null ? request.getBootstrapDatum().getName() : null;
+            return toResponse(transactionService.buildMerkleTransaction(request.getCertificates(), request.getAddress(), bootstrapDatumName));
+        } else if (request.getType().equals(TransactionType.INIT)) {
+            ProxyInitResponse proxyInitResponse = transactionService.buildInitProxyTx();
+            if (proxyInitResponse.getStatus().getCode().equals(BuildStatusCode.SUCCESS)) {
+                return ResponseEntity.ok(proxyInitResponse);
+            } else {
+                return ResponseEntity.badRequest().body(proxyInitResponse);
+            }
+        } else {
+            return ResponseEntity.badRequest().body("Unknown transaction type. Allowed types are: DEFAULT, BOOTSTRAP, CUSTOM, MERKLE.");
+        }
+    }
+
+    @PostMapping("/jobs")
+    @Operation(
+            summary = "Queue a transaction build",
+            description = """
+                    Queues the same build as `/build` and returns the job right away. Poll `/jobs/{id}` or listen to `/jobs/{id}/events` for its progress. Once the job finished, its `statusCode` and `result` are the status and body `/build` would have returned. Builds with a status other than 2xx fail.
+                    When the build queue is full, the request is rejected with 503 and a `Retry-After` header."""
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Build job queued",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = BuildJobStatus.class))),
+            @ApiResponse(responseCode = "503", description = "Build queue is full, retry after the given number of seconds")
+    })
+    public ResponseEntity<?> queueBuildTransaction(@Valid @RequestBody BuildTransactionRequest request) {
+        Optional<BuildJobStatus> job = buildJobService.submit(() -> build(request));
+        if (job.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(buildJobService.getRetryAfter().toSeconds()))
+                    .body(Map.of("error", "Build queue is full"));
+        }
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/v1/transaction/jobs/" + job.get().getId()))
+                .body(job.get());
+    }
+
+    @GetMapping("/jobs/{id}")
+    @Operation(summary = "Get a build job", description = "Returns the state of a queued build job and its result once it finished.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Build job found",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = BuildJobStatus.class))),
+            @ApiResponse(responseCode = "404", description = "Unknown or expired build job")
+    })
+    public ResponseEntity<BuildJobStatus> getBuildJob(@PathVariable String id) {
+        return ResponseEntity.of(buildJobService.getStatus(id));
+    }
+
+    @GetMapping(value = "/jobs/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Follow a build job",
+            description = "Streams the build job as server-sent events, one per state change. The stream ends once the job succeeded or failed.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Event stream of the build job"),
+            @ApiResponse(responseCode = "404", description = "Unknown or expired build job")
+    })
+    public ResponseEntity<SseEmitter> followBuildJob(@PathVariable String id) {
+        SseEmitter emitter = new SseEmitter(buildJobEventTimeoutMillis);
+        Optional<Runnable> unsubscribe = buildJobService.subscribe(id, status -> {
+            try {
+                emitter.send(SseEmitter.event()
+                        .name(status.getState().name().toLowerCase())
+                        .data(status, MediaType.APPLICATION_JSON));
+                if (status.getState().isFinished()) {
+                    emitter.complete();
+                }
+            } catch (IOException | IllegalStateException exception) {
+                emitter.completeWithError(exception);
+            }
+        });
+        if (unsubscribe.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        emitter.onTimeout(unsubscribe.get());
+        emitter.onCompletion(unsubscribe.get());
+        emitter.onError(exception -> unsubscribe.get().run());
+        return ResponseEntity.ok(emitter);
+    }
+
+    @PostMapping(value = "/bulk", consumes = {BulkIssuanceService.NDJSON_MEDIA_TYPE, "text/csv"})
+    @Operation(
+            summary = "Plan a bulk issuance",
+            description = """
+                    Splits a stream of certificates into chained state update transactions for the given address. The request body is either NDJSON with one certificate object per line or CSV with a header line naming the hash, algorithm and metadata columns.
+                    The response is NDJSON with one line per transaction, in the order the transactions have to be signed and submitted. Each line names the offset and count of the input certificates it carries. Planning stops at the first line with a status other than SUCCESS."""
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Transactions are streamed as they are planned",
+                    content = @Content(mediaType = BulkIssuanceService.NDJSON_MEDIA_TYPE, schema = @Schema(implementation = BulkTransaction.class)))
+    })
+    public void planBulkIssuance(@RequestParam String address,
+                                 @RequestParam(required = false) String bootstrapDatum,
+                                 HttpServletRequest request,
+                                 HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(BulkIssuanceService.NDJSON_MEDIA_TYPE);
+        bulkIssuanceService.plan(address, bootstrapDatum, BulkInputFormat.fromContentType(request.getContentType()),
+                request.getInputStream(), response.getOutputStream());
+    }
+
     @PostMapping("/submit")
     @Operation(
             summary = "Submit a transaction",
@@ -0,0 +1,36 @@
+/*
+ * UVerify Backend
+ * Copyright (C) 2025 Fabian Bormann
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.uverify.backend.dto;
+
+import lombok.*;
+
+/**
+ * Describes the part of a batched transaction that belongs to one build
+ * request. All requests of a batch receive the same unsigned transaction,
+ * their certificates are the {@code count} entries starting at
+ * {@code offset}.
+ */
+@Data
+@Builder
+public class BatchShare {
+    private int requests;
+    private int certificates;
+    private int offset;
+    private int count;
+}
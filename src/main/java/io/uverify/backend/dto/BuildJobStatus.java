@@ -0,0 +1,48 @@
+/*
+ * UVerify Backend
+ * Copyright (C) 2025 Fabian Bormann
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.uverify.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.uverify.backend.enums.BuildJobState;
+import lombok.*;
+
+/**
+ * Snapshot of an asynchronous build job. Once the job finished,
+ * {@code statusCode} and {@code result} hold the status and body the
+ * synchronous build endpoint would have returned. Builds that return a
+ * status other than 2xx fail.
+ */
+@Data
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BuildJobStatus {
+    private String id;
+    private BuildJobState state;
+    @JsonAlias({"createdAt", "created_at"})
+    private Long createdAt;
+    @JsonAlias({"startedAt", "started_at"})
+    private Long startedAt;
+    @JsonAlias({"finishedAt", "finished_at"})
+    private Long finishedAt;
+    @JsonAlias({"statusCode", "status_code"})
+    private Integer statusCode;
+    private Object result;
+    private String error;
+}
@@ -19,6 +19,7 @@
 package io.uverify.backend.dto;
 
 import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import io.uverify.backend.enums.TransactionType;
 import lombok.*;
 
@@ -29,4 +30,9 @@ public class BuildTransactionResponse {
     private String unsignedTransaction;
     private TransactionType type;
     private BuildStatus status;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private BatchShare batch;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonAlias({"merkleRoot", "merkle_root"})
+    private String merkleRoot;
 }
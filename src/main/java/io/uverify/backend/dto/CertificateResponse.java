@@ -19,6 +19,7 @@
 package io.uverify.backend.dto;
 
 import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.*;
 
@@ -39,4 +40,7 @@ public class CertificateResponse {
     private String issuer;
     @JsonAlias({"bootstrapTokenName", "bootstrap_token_name"})
     private String bootstrapTokenName;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonAlias({"inclusionProof", "inclusion_proof"})
+    private InclusionProof inclusionProof;
 }
@@ -0,0 +1,39 @@
+/*
+ * UVerify Backend
+ * Copyright (C) 2025 Fabian Bormann
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.uverify.backend.dto;
+
+import io.uverify.backend.entity.CertificateExtraFields;
+
+import java.util.Date;
+
+/**
+ * Flat read model of a certificate row and its bootstrap token name, loaded
+ * with one joined select instead of the entity graph.
+ */
+public record CertificateView(String hash,
+                              String paymentCredential,
+                              String blockHash,
+                              Long blockNumber,
+                              String transactionId,
+                              Date creationTime,
+                              Long slot,
+                              String extra,
+                              CertificateExtraFields extraFields,
+                              String bootstrapTokenName) {
+}
@@ -0,0 +1,61 @@
+/*
+ * UVerify Backend
+ * Copyright (C) 2025 Fabian Bormann
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.uverify.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * Proves that {@code leaf} is part of the Merkle tree anchored as the
+ * certificate with hash {@code root}. Hashing the leaf with the path entries,
+ * from the leaf level upwards, yields the root.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class InclusionProof {
+    private String leaf;
+    private String root;
+    private String algorithm;
+    @JsonAlias({"leafIndex", "leaf_index"})
+    private int leafIndex;
+    @JsonAlias({"leafCount", "leaf_count"})
+    private int leafCount;
+    private List<Step> path;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Step {
+        private String hash;
+        private Position position;
+    }
+
+    public enum Position {
+        @JsonProperty("left")
+        LEFT,
+        @JsonProperty("right")
+        RIGHT
+    }
+}
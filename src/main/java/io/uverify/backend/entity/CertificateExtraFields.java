@@ -0,0 +1,158 @@
+/*
+ * UVerify Backend
+ * Copyright (C) 2025 Fabian Bormann
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.uverify.backend.entity;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.uverify.backend.enums.UseCaseCategory;
+import io.uverify.backend.util.TemplateIdResolver;
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import lombok.*;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Values derived from a certificate's {@code extra} JSON. They are extracted
+ * once when the certificate is indexed, so read paths can use them without
+ * deserializing the metadata again.
+ */
+@Embeddable
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CertificateExtraFields {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final Set<String> DERIVED_KEYS = Set.of(
+            TemplateIdResolver.TEMPLATE_ID_KEY, TemplateIdResolver.LEGACY_TEMPLATE_ID_KEY,
+            "uverify_update_policy", "uverify_policy", "uverify_owner", "uverify_update_whitelist",
+            "uverify_transfer_ownership", "uverify_whitelist_add", "uverify_whitelist_remove", "uverify_freeze",
+            "uv_og_title", "uv_og_desc", "uv_og_img");
+
+    @Column(name = "template_id")
+    private String templateId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "use_case_category", length = 32)
+    private UseCaseCategory useCaseCategory;
+
+    @Column(name = "update_policy")
+    private String updatePolicy;
+
+    @Column(name = "update_policy_alias")
+    private String updatePolicyAlias;
+
+    @Column(name = "update_owner")
+    private String owner;
+
+    @Column(name = "update_whitelist")
+    private String updateWhitelist;
+
+    @Column(name = "transfer_ownership")
+    private String transferOwnership;
+
+    @Column(name = "whitelist_add")
+    private String whitelistAdd;
+
+    @Column(name = "whitelist_remove")
+    private String whitelistRemove;
+
+    @Column(name = "update_freeze", nullable = false)
+    private boolean freeze;
+
+    @Column(name = "og_title")
+    private String ogTitle;
+
+    @Column(name = "og_description")
+    private String ogDescription;
+
+    @Column(name = "og_image")
+    private String ogImage;
+
+    public static CertificateExtraFields fromExtra(String extra) {
+        if (extra == null || extra.isBlank()) {
+            return fromMetadata(Map.of());
+        }
+        try {
+            return fromMetadata(MAPPER.readValue(extra, new TypeReference<Map<String, Object>>() {
+            }));
+        } catch (Exception exception) {
+            return fromMetadata(Map.of());
+        }
+    }
+
+    public static CertificateExtraFields fromMetadata(Map<String, Object> metadata) {
+        String templateId = TemplateIdResolver.resolveTemplateId(metadata);
+        Object freeze = metadata.get("uverify_freeze");
+        return CertificateExtraFields.builder()
+                .templateId(templateId)
+                .useCaseCategory(UseCaseCategory.fromTemplateId(templateId))
+                .updatePolicy(stringValue(metadata.get("uverify_update_policy")))
+                .updatePolicyAlias(stringValue(metadata.get("uverify_policy")))
+                .owner(stringValue(metadata.get("uverify_owner")))
+                .updateWhitelist(stringValue(metadata.get("uverify_update_whitelist")))
+                .transferOwnership(stringValue(metadata.get("uverify_transfer_ownership")))
+                .whitelistAdd(stringValue(metadata.get("uverify_whitelist_add")))
+                .whitelistRemove(stringValue(metadata.get("uverify_whitelist_remove")))
+                .freeze(Boolean.TRUE.equals(freeze) || "true".equals(freeze))
+                .ogTitle(textValue(metadata.get("uv_og_title")))
+                .ogDescription(textValue(metadata.get("uv_og_desc")))
+                .ogImage(textValue(metadata.get("uv_og_img")))
+                .build();
+    }
+
+    public static boolean isDerivedKey(String key) {
+        return DERIVED_KEYS.contains(key);
+    }
+
+    /**
+     * Answers a metadata lookup for one of the derived keys. Both template id
+     * keys answer with the resolved template id.
+     */
+    public Object metadataValue(String key) {
+        return switch (key) {
+            case TemplateIdResolver.TEMPLATE_ID_KEY, TemplateIdResolver.LEGACY_TEMPLATE_ID_KEY -> templateId;
+            case "uverify_update_policy" -> updatePolicy;
+            case "uverify_policy" -> updatePolicyAlias;
+            case "uverify_owner" -> owner;
+            case "uverify_update_whitelist" -> updateWhitelist;
+            case "uverify_transfer_ownership" -> transferOwnership;
+            case "uverify_whitelist_add" -> whitelistAdd;
+            case "uverify_whitelist_remove" -> whitelistRemove;
+            case "uverify_freeze" -> freeze ? Boolean.TRUE : null;
+            case "uv_og_title" -> ogTitle;
+            case "uv_og_desc" -> ogDescription;
+            case "uv_og_img" -> ogImage;
+            default -> throw new IllegalArgumentException("Not a derived metadata key: " + key);
+        };
+    }
+
+    private static String stringValue(Object value) {
+        return value == null ? null : String.valueOf(value);
+    }
+
+    private static String textValue(Object value) {
+        return value instanceof String text ? text : null;
+    }
+}
@@ -47,4 +47,18 @@ public class LibraryEntity {
 
     @Column(name = "output_index", nullable = false)
     private Integer outputIndex;
+
+    // Output details of the reference script UTxO. Missing for entries
+    // indexed before they were recorded.
+    @Column(name = "address")
+    private String address;
+
+    @Column(name = "lovelace")
+    private Long lovelace;
+
+    @Column(name = "datum_hash", length = 64)
+    private String datumHash;
+
+    @Column(name = "inline_datum", columnDefinition = "TEXT")
+    private String inlineDatum;
 }
@@ -49,11 +49,14 @@ public class StateDatumEntity {
 
     @Column(name = "transaction_id", nullable = false)
     private String transactionId;
+    // Append-only history, written by IndexBulkWriter. The row above always
+    // carries the latest countdown and transaction id, so the collection is
+    // never loaded on the indexing path and only cascades deletes.
     @Builder.Default
     @OneToMany(
             mappedBy = "stateDatum",
-            cascade = CascadeType.ALL,
-            orphanRemoval = true
+            cascade = CascadeType.REMOVE,
+            fetch = FetchType.LAZY
     )
     private List<StateDatumUpdateEntity> updates = new ArrayList<>();
 
@@ -89,9 +92,4 @@ public class StateDatumEntity {
                 .bootstrapDatum(bootstrapDatumEntity)
                 .build();
     }
-
-    public void addUpdate(StateDatumUpdateEntity update) {
-        updates.add(update);
-        update.setStateDatum(this);
-    }
 }
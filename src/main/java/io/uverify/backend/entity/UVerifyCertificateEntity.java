@@ -64,6 +64,9 @@ public class UVerifyCertificateEntity {
     @Column(name = "hash_algorithm", nullable = false, length = 100)
     private String hashAlgorithm;
 
+    @Embedded
+    private CertificateExtraFields extraFields;
+
     @ManyToOne
     @JoinColumn(name = "state_datum_id")
     private StateDatumEntity stateDatum;
@@ -74,6 +77,7 @@ public class UVerifyCertificateEntity {
                 .paymentCredential(uVerifyCertificate.getIssuer())
                 .creationTime(Date.from(Instant.now()))
                 .extra(uVerifyCertificate.getExtra())
+                .extraFields(CertificateExtraFields.fromExtra(uVerifyCertificate.getExtra()))
                 .hashAlgorithm(uVerifyCertificate.getAlgorithm())
                 .build();
     }
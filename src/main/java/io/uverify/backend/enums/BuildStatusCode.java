@@ -26,4 +26,5 @@ public enum BuildStatusCode {
     PENDING_TRANSACTION,
     COLLATERAL_REQUIRED,
     COLLATERAL_ALREADY_AVAILABLE,
+    TRANSACTION_TOO_LARGE,
 }
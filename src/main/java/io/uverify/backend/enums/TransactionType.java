@@ -28,7 +28,8 @@ public enum TransactionType {
     BURN_STATE("burn_state"),
     BURN_BOOTSTRAP("burn_bootstrap"),
     INIT("init"),
-    DEPLOY("deploy");
+    DEPLOY("deploy"),
+    MERKLE("merkle");
 
     private final String value;
 
@@ -34,4 +34,17 @@ public enum UseCaseCategory {
     public String getDisplayName() {
         return displayName;
     }
+
+    public static UseCaseCategory fromTemplateId(String templateId) {
+        if (templateId == null) {
+            return NOTARY;
+        }
+        return switch (templateId) {
+            case "tadamon" -> IDENTITY;
+            case "socialHub", "linktree", "productVerification" -> CONNECTED_GOODS;
+            case "diploma" -> STUDENT_CERTIFICATION;
+            case "blockforce" -> CROSS_CHAIN_ATTESTATION;
+            default -> NOTARY;
+        };
+    }
 }
@@ -27,9 +27,6 @@ import com.bloxbean.cardano.client.api.model.Utxo;
 import com.bloxbean.cardano.client.backend.api.BackendService;
 import com.bloxbean.cardano.client.backend.api.DefaultUtxoSupplier;
 import com.bloxbean.cardano.client.backend.api.UtxoService;
-import com.bloxbean.cardano.client.backend.blockfrost.service.BFBackendService;
-import com.bloxbean.cardano.client.backend.koios.Constants;
-import com.bloxbean.cardano.client.backend.koios.KoiosBackendService;
 import com.bloxbean.cardano.client.common.model.Network;
 import com.bloxbean.cardano.client.exception.CborSerializationException;
 import com.bloxbean.cardano.client.plutus.spec.ConstrPlutusData;
@@ -64,6 +61,7 @@ import io.uverify.backend.extension.validators.converter.ConnectedGoodsDatumItem
 import io.uverify.backend.extension.validators.converter.SocialHubDatumConverter;
 import io.uverify.backend.extension.validators.converter.SocialHubRedeemerConverter;
 import io.uverify.backend.repository.TransactionRepository;
+import io.uverify.backend.service.ProtocolParamsCache;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -103,6 +101,8 @@ public class ConnectedGoodsService implements UVerifyServiceExtension {
 
     @Autowired
     private final TransactionRepository transactionRepository;
+    @Autowired
+    private final ProtocolParamsCache protocolParamsCache;
 
     private final Network network;
     private final String salt;
@@ -110,33 +110,22 @@ public class ConnectedGoodsService implements UVerifyServiceExtension {
 
     @Autowired
     public ConnectedGoodsService(
-            @Value("${cardano.backend.service.type}") String cardanoBackendServiceType,
-            @Value("${cardano.backend.blockfrost.baseUrl}") String blockfrostBaseUrl,
-            @Value("${cardano.backend.blockfrost.projectId}") String blockfrostProjectId,
             @Value("${extensions.connected-goods.encryption.salt}") String salt,
             @Value("${cardano.network}") String network,
+            BackendService backendService,
             ConnectedGoodsRepository connectedGoodsRepository, SocialHubRepository socialHubRepository,
             @Autowired ExtensionManager extensionManager, ConnectedGoodUpdateRepository connectedGoodUpdateRepository,
-            @Autowired TransactionRepository transactionRepository) {
+            @Autowired TransactionRepository transactionRepository,
+            ProtocolParamsCache protocolParamsCache) {
         this.connectedGoodsRepository = connectedGoodsRepository;
         this.connectedGoodUpdateRepository = connectedGoodUpdateRepository;
         this.socialHubRepository = socialHubRepository;
         this.transactionRepository = transactionRepository;
+        this.protocolParamsCache = protocolParamsCache;
         this.salt = salt;
         this.network = fromCardanoNetwork(CardanoNetwork.valueOf(network));
         extensionManager.registerExtension(this);
-
-        if (cardanoBackendServiceType.equals("blockfrost")) {
-            if (blockfrostProjectId == null || blockfrostProjectId.isEmpty()) {
-                throw new IllegalArgumentException("Blockfrost projectId is required when using Blockfrost backend service");
-            }
-
-            this.backendService = new BFBackendService(
-                    blockfrostBaseUrl,
-                    blockfrostProjectId);
-        } else if (cardanoBackendServiceType.equals("koios")) {
-            this.backendService = new KoiosBackendService(Constants.KOIOS_PREPROD_URL);
-        }
+        this.backendService = backendService;
     }
 
     public void setBackendService(BackendService backendService) {
@@ -399,7 +388,7 @@ public class ConnectedGoodsService implements UVerifyServiceExtension {
                 .collectFrom(utxo, redeemer)
                 .payToContract(scriptAddress, utxo.getAmount(), datum);
 
-        QuickTxBuilder quickTxBuilder = new QuickTxBuilder(backendService);
+        QuickTxBuilder quickTxBuilder = protocolParamsCache.quickTxBuilder(backendService);
         return quickTxBuilder.compose(transaction)
                 .collateralPayer(userAddress)
                 .feePayer(userAddress)
@@ -459,7 +448,7 @@ public class ConnectedGoodsService implements UVerifyServiceExtension {
                 .collectFrom(List.of(utxo))
                 .mintAsset(connectedGoodsScript, List.of(asset), PlutusData.unit(), scriptAddress, datum);
 
-        QuickTxBuilder quickTxBuilder = new QuickTxBuilder(backendService);
+        QuickTxBuilder quickTxBuilder = protocolParamsCache.quickTxBuilder(backendService);
         Transaction unsignedTransaction = quickTxBuilder.compose(mintTransaction)
                 .collateralPayer(userAddress)
                 .feePayer(userAddress)
@@ -496,7 +485,7 @@ public class ConnectedGoodsService implements UVerifyServiceExtension {
                 .collectFrom(utxo, redeemer)
                 .payToContract(socialHubScriptAddress, utxo.getAmount(), datum);
 
-        QuickTxBuilder quickTxBuilder = new QuickTxBuilder(backendService);
+        QuickTxBuilder quickTxBuilder = protocolParamsCache.quickTxBuilder(backendService);
         Address address = new Address(userAddress);
 
         return quickTxBuilder.compose(transaction)
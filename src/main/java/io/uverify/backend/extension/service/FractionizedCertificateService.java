@@ -26,12 +26,8 @@ import com.bloxbean.cardano.client.api.model.Result;
 import com.bloxbean.cardano.client.api.model.Utxo;
 import com.bloxbean.cardano.client.api.util.AssetUtil;
 import com.bloxbean.cardano.client.backend.api.BackendService;
-import com.bloxbean.cardano.client.backend.blockfrost.service.BFBackendService;
-import com.bloxbean.cardano.client.backend.koios.Constants;
-import com.bloxbean.cardano.client.backend.koios.KoiosBackendService;
 import com.bloxbean.cardano.client.exception.CborSerializationException;
 import com.bloxbean.cardano.client.plutus.spec.*;
-import com.bloxbean.cardano.client.quicktx.QuickTxBuilder;
 import com.bloxbean.cardano.client.quicktx.ScriptTx;
 import com.bloxbean.cardano.client.transaction.spec.Asset;
 import com.bloxbean.cardano.client.transaction.spec.Transaction;
@@ -44,8 +40,9 @@ import io.uverify.backend.extension.validators.fractionized.FractionizedConfig;
 import io.uverify.backend.extension.validators.fractionized.FractionizedDatum;
 import io.uverify.backend.model.UVerifyCertificate;
 import io.uverify.backend.service.CardanoBlockchainService;
+import io.uverify.backend.service.ChainTipTracker;
+import io.uverify.backend.service.ProtocolParamsCache;
 import io.uverify.backend.service.StateDatumService;
-import io.uverify.backend.util.CardanoUtils;
 import io.uverify.backend.util.ValidatorHelper;
 import io.uverify.backend.util.ValidatorUtils;
 import lombok.extern.slf4j.Slf4j;
@@ -82,21 +79,18 @@ public class FractionizedCertificateService {
     private StateDatumService stateDatumService;
     @Autowired
     private CardanoBlockchainService cardanoBlockchainService;
+    @Autowired
+    private ChainTipTracker chainTipTracker;
+    @Autowired
+    private ProtocolParamsCache protocolParamsCache;
 
     @Autowired
     public FractionizedCertificateService(
             @Value("${cardano.network}") String network,
-            @Value("${cardano.backend.service.type}") String cardanoBackendServiceType,
-            @Value("${cardano.backend.blockfrost.baseUrl}") String blockfrostBaseUrl,
-            @Value("${cardano.backend.blockfrost.projectId}") String blockfrostProjectId) {
+            BackendService backendService) {
 
         this.cardanoNetwork = CardanoNetwork.valueOf(network);
-
-        if (cardanoBackendServiceType.equals("blockfrost")) {
-            this.backendService = new BFBackendService(blockfrostBaseUrl, blockfrostProjectId);
-        } else if (cardanoBackendServiceType.equals("koios")) {
-            this.backendService = new KoiosBackendService(Constants.KOIOS_PREPROD_URL);
-        }
+        this.backendService = backendService;
     }
 
     public String buildTransaction(FractionizedBuildRequest req) throws ApiException, CborSerializationException {
@@ -225,8 +219,8 @@ public class FractionizedCertificateService {
                 .payToContract(fractionizedAddress, Amount.asset(AssetUtil.getUnit(fractionizedScript.getPolicyId(), headToken), 1L), headDatum.toPlutusData())
                 .payToContract(fractionizedAddress, Amount.asset(AssetUtil.getUnit(fractionizedScript.getPolicyId(), nodeToken), 1L), nodeDatum.toPlutusData());
 
-        long currentSlot = CardanoUtils.getLatestSlot(backendService);
-        Transaction unsignedTx = new QuickTxBuilder(backendService)
+        long currentSlot = chainTipTracker.getLatestSlot(backendService);
+        Transaction unsignedTx = protocolParamsCache.quickTxBuilder(backendService)
                 .compose(fractionizedMintTx)
                 .feePayer(req.getDeployerAddress())
                 .collateralPayer(req.getDeployerAddress())
@@ -246,7 +240,7 @@ public class FractionizedCertificateService {
 
         fractionizedMintTx = fractionizedMintTx.collectFrom(initUtxo);
 
-        unsignedTx = new QuickTxBuilder(backendService)
+        unsignedTx = protocolParamsCache.quickTxBuilder(backendService)
                 .compose(fractionizedMintTx)
                 .feePayer(req.getDeployerAddress())
                 .collateralPayer(req.getDeployerAddress())
@@ -330,9 +324,9 @@ public class FractionizedCertificateService {
                 .mintAsset(fractionizedScript, List.of(nodeToken), insertMintRedeemer,
                         fractionizedAddress, newNodeDatum.toPlutusData());
 
-        long currentSlot = CardanoUtils.getLatestSlot(backendService);
+        long currentSlot = chainTipTracker.getLatestSlot(backendService);
         Address inserterAddress = new Address(req.getInserterAddress());
-        Transaction unsignedTx = new QuickTxBuilder(backendService)
+        Transaction unsignedTx = protocolParamsCache.quickTxBuilder(backendService)
                 .compose(fractionizedMintTx)
                 .feePayer(req.getInserterAddress())
                 .collateralPayer(req.getInserterAddress())
@@ -397,8 +391,8 @@ public class FractionizedCertificateService {
                 .mintAsset(script, List.of(fungibleToken), claimMintRedeemer,
                         req.getClaimerAddress(), PlutusData.unit());
 
-        long currentSlot = CardanoUtils.getLatestSlot(backendService);
-        Transaction unsignedTx = new QuickTxBuilder(backendService)
+        long currentSlot = chainTipTracker.getLatestSlot(backendService);
+        Transaction unsignedTx = protocolParamsCache.quickTxBuilder(backendService)
                 .compose(tx)
                 .feePayer(req.getClaimerAddress())
                 .collateralPayer(req.getClaimerAddress())
@@ -584,8 +578,8 @@ public class FractionizedCertificateService {
                         fractionizedAddress, newNodeDatum.toPlutusData())
                 .mintAsset(fractionizedScript, List.of(certToken), insertMintRedeemer);
 
-        long currentSlot = CardanoUtils.getLatestSlot(backendService);
-        Transaction unsignedTx = new QuickTxBuilder(backendService)
+        long currentSlot = chainTipTracker.getLatestSlot(backendService);
+        Transaction unsignedTx = protocolParamsCache.quickTxBuilder(backendService)
                 .compose(fractionizedMintTx, uverifyCertificateTx)
                 .feePayer(req.getInserterAddress())
                 .collateralPayer(req.getInserterAddress())
@@ -28,15 +28,11 @@ import com.bloxbean.cardano.client.api.model.Utxo;
 import com.bloxbean.cardano.client.api.util.AssetUtil;
 import com.bloxbean.cardano.client.backend.api.BackendService;
 import com.bloxbean.cardano.client.backend.api.DefaultUtxoSupplier;
-import com.bloxbean.cardano.client.backend.blockfrost.service.BFBackendService;
-import com.bloxbean.cardano.client.backend.koios.Constants;
-import com.bloxbean.cardano.client.backend.koios.KoiosBackendService;
 import com.bloxbean.cardano.client.backend.model.TxContentUtxo;
 import com.bloxbean.cardano.client.backend.model.TxContentUtxoOutputs;
 import com.bloxbean.cardano.client.common.model.Network;
 import com.bloxbean.cardano.client.exception.CborSerializationException;
 import com.bloxbean.cardano.client.plutus.spec.*;
-import com.bloxbean.cardano.client.quicktx.QuickTxBuilder;
 import com.bloxbean.cardano.client.quicktx.ScriptTx;
 import com.bloxbean.cardano.client.transaction.spec.Asset;
 import com.bloxbean.cardano.client.transaction.spec.Transaction;
@@ -56,6 +52,8 @@ import io.uverify.backend.model.UVerifyCertificate;
 import io.uverify.backend.model.converter.ProxyRedeemerConverter;
 import io.uverify.backend.service.BootstrapDatumService;
 import io.uverify.backend.service.CardanoBlockchainService;
+import io.uverify.backend.service.ChainTipTracker;
+import io.uverify.backend.service.ProtocolParamsCache;
 import io.uverify.backend.service.LibraryService;
 import io.uverify.backend.service.StateDatumService;
 import io.uverify.backend.util.CardanoUtils;
@@ -169,22 +167,19 @@ public class TokenizableCertificateService {
     private BootstrapDatumService bootstrapDatumService;
     @Autowired
     private CardanoBlockchainService cardanoBlockchainService;
+    @Autowired
+    private ChainTipTracker chainTipTracker;
+    @Autowired
+    private ProtocolParamsCache protocolParamsCache;
 
     @Autowired
     public TokenizableCertificateService(
             @Value("${cardano.network}") String network,
-            @Value("${cardano.backend.service.type}") String cardanoBackendServiceType,
-            @Value("${cardano.backend.blockfrost.baseUrl}") String blockfrostBaseUrl,
-            @Value("${cardano.backend.blockfrost.projectId}") String blockfrostProjectId) {
+            BackendService backendService) {
 
         this.cardanoNetwork = CardanoNetwork.valueOf(network);
         this.network = fromCardanoNetwork(this.cardanoNetwork);
-
-        if (cardanoBackendServiceType.equals("blockfrost")) {
-            this.backendService = new BFBackendService(blockfrostBaseUrl, blockfrostProjectId);
-        } else if (cardanoBackendServiceType.equals("koios")) {
-            this.backendService = new KoiosBackendService(Constants.KOIOS_PREPROD_URL);
-        }
+        this.backendService = backendService;
     }
 
     public String buildTransaction(TokenizableBuildRequest req) throws ApiException, CborSerializationException {
@@ -310,8 +305,8 @@ public class TokenizableCertificateService {
                 .payToContract(tokenizableAddress, Amount.asset(AssetUtil.getUnit(tokenizableScript.getPolicyId(), headToken), 1L), headDatum.toPlutusData())
                 .payToContract(tokenizableAddress, Amount.asset(AssetUtil.getUnit(tokenizableScript.getPolicyId(), nodeToken), 1L), nodeDatum.toPlutusData());
 
-        long currentSlot = CardanoUtils.getLatestSlot(backendService);
-        Transaction unsignedTx = new QuickTxBuilder(backendService)
+        long currentSlot = chainTipTracker.getLatestSlot(backendService);
+        Transaction unsignedTx = protocolParamsCache.quickTxBuilder(backendService)
                 .compose(tokenizableMintTx)
                 .feePayer(req.getDeployerAddress())
                 .collateralPayer(req.getDeployerAddress())
@@ -332,7 +327,7 @@ public class TokenizableCertificateService {
 
         tokenizableMintTx = tokenizableMintTx.collectFrom(initUtxo);
 
-        unsignedTx = new QuickTxBuilder(backendService)
+        unsignedTx = protocolParamsCache.quickTxBuilder(backendService)
                 .compose(tokenizableMintTx)
                 .feePayer(req.getDeployerAddress())
                 .collateralPayer(req.getDeployerAddress())
@@ -415,9 +410,9 @@ public class TokenizableCertificateService {
                 .mintAsset(tokenizableScript, List.of(nodeToken), insertMintRedeemer,
                         tokenizableAddress, newNodeDatum.toPlutusData());
 
-        long currentSlot = CardanoUtils.getLatestSlot(backendService);
+        long currentSlot = chainTipTracker.getLatestSlot(backendService);
         Address inserterAddress = new Address(req.getInserterAddress());
-        Transaction unsignedTx = new QuickTxBuilder(backendService)
+        Transaction unsignedTx = protocolParamsCache.quickTxBuilder(backendService)
                 .compose(tokenizableInsertTx)
                 .feePayer(req.getInserterAddress())
                 .collateralPayer(req.getInserterAddress())
@@ -504,8 +499,8 @@ public class TokenizableCertificateService {
                             PlutusData.unit());
         }
 
-        long currentSlot = CardanoUtils.getLatestSlot(backendService);
-        Transaction unsignedTx = new QuickTxBuilder(backendService)
+        long currentSlot = chainTipTracker.getLatestSlot(backendService);
+        Transaction unsignedTx = protocolParamsCache.quickTxBuilder(backendService)
                 .compose(tx)
                 .feePayer(req.getOwnerAddress())
                 .collateralPayer(req.getOwnerAddress())
@@ -775,8 +770,8 @@ public class TokenizableCertificateService {
             }
         }
 
-        long currentSlot = CardanoUtils.getLatestSlot(backendService);
-        Transaction unsignedTx = new QuickTxBuilder(backendService)
+        long currentSlot = chainTipTracker.getLatestSlot(backendService);
+        Transaction unsignedTx = protocolParamsCache.quickTxBuilder(backendService)
                 .compose(tx)
                 .feePayer(req.getInserterAddress())
                 .collateralPayer(req.getInserterAddress())
@@ -20,7 +20,10 @@ package io.uverify.backend.mapper;
 
 import com.bloxbean.cardano.client.address.AddressProvider;
 import com.bloxbean.cardano.client.address.Credential;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import io.uverify.backend.dto.CertificateResponse;
+import io.uverify.backend.dto.CertificateView;
 import io.uverify.backend.entity.UVerifyCertificateEntity;
 import io.uverify.backend.enums.CardanoNetwork;
 import lombok.extern.slf4j.Slf4j;
@@ -29,6 +32,32 @@ import static io.uverify.backend.util.CardanoUtils.fromCardanoNetwork;
 
 @Slf4j
 public class CertificateMapper {
+    // Deriving the bech32 address hashes and encodes the credential on every
+    // call, while the same issuers show up over and over.
+    private static final Cache<String, String> ISSUER_ADDRESSES = Caffeine.newBuilder()
+            .maximumSize(100_000)
+            .build();
+
+    public static CertificateResponse fromCertificateView(CertificateView certificateView, CardanoNetwork network) {
+        CertificateResponse certificateResponse = new CertificateResponse();
+        certificateResponse.setBlockHash(certificateView.blockHash());
+        certificateResponse.setBlockNumber(certificateView.blockNumber());
+        certificateResponse.setHash(certificateView.hash());
+        certificateResponse.setSlot(certificateView.slot());
+        certificateResponse.setAddress(certificateView.paymentCredential());
+        certificateResponse.setTransactionHash(certificateView.transactionId());
+        certificateResponse.setCreationTime(certificateView.creationTime().getTime());
+        certificateResponse.setMetadata(certificateView.extra());
+        certificateResponse.setIssuer(issuerAddress(certificateView.paymentCredential(), network));
+        certificateResponse.setBootstrapTokenName(certificateView.bootstrapTokenName());
+        return certificateResponse;
+    }
+
+    public static String issuerAddress(String paymentCredential, CardanoNetwork network) {
+        return ISSUER_ADDRESSES.get(network.name() + ":" + paymentCredential, ignored ->
+                AddressProvider.getEntAddress(Credential.fromKey(paymentCredential), fromCardanoNetwork(network)).toBech32());
+    }
+
     public static CertificateResponse fromCertificate(UVerifyCertificateEntity UVerifyCertificateEntity, CardanoNetwork network) {
         CertificateResponse certificateResponse = new CertificateResponse();
         certificateResponse.setBlockHash(UVerifyCertificateEntity.getBlockHash());
@@ -39,7 +68,7 @@ public class CertificateMapper {
         certificateResponse.setTransactionHash(UVerifyCertificateEntity.getTransactionId());
         certificateResponse.setCreationTime(UVerifyCertificateEntity.getCreationTime().getTime());
         certificateResponse.setMetadata(UVerifyCertificateEntity.getExtra());
-        certificateResponse.setIssuer(AddressProvider.getEntAddress(Credential.fromKey(UVerifyCertificateEntity.getPaymentCredential()), fromCardanoNetwork(network)).toBech32());
+        certificateResponse.setIssuer(issuerAddress(UVerifyCertificateEntity.getPaymentCredential(), network));
         if (UVerifyCertificateEntity.getStateDatum() != null &&
                 UVerifyCertificateEntity.getStateDatum().getBootstrapDatum() != null) {
             certificateResponse.setBootstrapTokenName(
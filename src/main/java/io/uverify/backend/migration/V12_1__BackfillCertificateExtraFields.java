@@ -0,0 +1,94 @@
+/*
+ * UVerify Backend
+ * Copyright (C) 2025 Fabian Bormann
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.uverify.backend.migration;
+
+import io.uverify.backend.entity.CertificateExtraFields;
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+/**
+ * Fills the certificate columns added in V12 from the stored {@code extra}
+ * JSON. Rows are read in id order, one batch at a time, so the table is never
+ * loaded into memory at once.
+ */
+@Slf4j
+@Component
+public class V12_1__BackfillCertificateExtraFields extends BaseJavaMigration {
+    private static final int BATCH_SIZE = 1000;
+
+    private static final String SELECT_BATCH = "SELECT id, extra FROM uverify_certificate "
+            + "WHERE id > ? ORDER BY id LIMIT " + BATCH_SIZE;
+
+    private static final String UPDATE_ROW = "UPDATE uverify_certificate SET "
+            + "template_id = ?, use_case_category = ?, update_policy = ?, update_policy_alias = ?, "
+            + "update_owner = ?, update_whitelist = ?, transfer_ownership = ?, whitelist_add = ?, "
+            + "whitelist_remove = ?, update_freeze = ?, og_title = ?, og_description = ?, og_image = ? "
+            + "WHERE id = ?";
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        long lastId = 0;
+        long total = 0;
+        try (PreparedStatement select = connection.prepareStatement(SELECT_BATCH);
+             PreparedStatement update = connection.prepareStatement(UPDATE_ROW)) {
+            while (true) {
+                select.setLong(1, lastId);
+                int rows = 0;
+                try (ResultSet resultSet = select.executeQuery()) {
+                    while (resultSet.next()) {
+                        lastId = resultSet.getLong("id");
+                        bindRow(update, lastId, CertificateExtraFields.fromExtra(resultSet.getString("extra")));
+                        update.addBatch();
+                        rows++;
+                    }
+                }
+                if (rows == 0) {
+                    break;
+                }
+                update.executeBatch();
+                total += rows;
+            }
+        }
+        log.info("Backfilled derived fields of {} certificates", total);
+    }
+
+    private static void bindRow(PreparedStatement update, long id, CertificateExtraFields fields) throws Exception {
+        update.setString(1, fields.getTemplateId());
+        update.setString(2, fields.getUseCaseCategory().name());
+        update.setString(3, fields.getUpdatePolicy());
+        update.setString(4, fields.getUpdatePolicyAlias());
+        update.setString(5, fields.getOwner());
+        update.setString(6, fields.getUpdateWhitelist());
+        update.setString(7, fields.getTransferOwnership());
+        update.setString(8, fields.getWhitelistAdd());
+        update.setString(9, fields.getWhitelistRemove());
+        update.setBoolean(10, fields.isFreeze());
+        update.setString(11, fields.getOgTitle());
+        update.setString(12, fields.getOgDescription());
+        update.setString(13, fields.getOgImage());
+        update.setLong(14, id);
+    }
+}
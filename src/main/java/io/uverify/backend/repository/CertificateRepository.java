@@ -18,6 +18,7 @@
 
 package io.uverify.backend.repository;
 
+import io.uverify.backend.dto.CertificateView;
 import io.uverify.backend.entity.UVerifyCertificateEntity;
 import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -32,11 +33,22 @@ import java.util.stream.Stream;
 
 @Repository
 public interface CertificateRepository extends JpaRepository<UVerifyCertificateEntity, String> {
-    List<UVerifyCertificateEntity> findAllByHash(String hash);
+    @Query("SELECT new io.uverify.backend.dto.CertificateView(c.hash, c.paymentCredential, c.blockHash, "
+            + "c.blockNumber, c.transactionId, c.creationTime, c.slot, c.extra, c.extraFields, b.tokenName) "
+            + "FROM UVerifyCertificateEntity c LEFT JOIN c.stateDatum s LEFT JOIN s.bootstrapDatum b "
+            + "WHERE c.hash = :hash")
+    List<CertificateView> findViewsByHash(@Param("hash") String hash);
 
     @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
-    @Query("SELECT c.extra FROM UVerifyCertificateEntity c")
-    Stream<String> streamAllExtra();
+    @Query("SELECT c.hash FROM UVerifyCertificateEntity c")
+    Stream<String> streamAllHashes();
+
+    @Query("SELECT c.extraFields.useCaseCategory, COUNT(c) FROM UVerifyCertificateEntity c "
+            + "GROUP BY c.extraFields.useCaseCategory")
+    List<Object[]> countByUseCaseCategory();
+
+    @Query("SELECT DISTINCT c.hash FROM UVerifyCertificateEntity c WHERE c.slot > :target")
+    List<String> findHashesAfterSlot(@Param("target") long target);
 
     @Modifying
     @Query("DELETE FROM UVerifyCertificateEntity WHERE slot > :target")
@@ -0,0 +1,173 @@
+/*
+ * UVerify Backend
+ * Copyright (C) 2025 Fabian Bormann
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.uverify.backend.repository;
+
+import io.uverify.backend.entity.CertificateExtraFields;
+import io.uverify.backend.entity.StateDatumUpdateEntity;
+import io.uverify.backend.entity.UVerifyCertificateEntity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.InsertValuesStepN;
+import org.jooq.Record;
+import org.jooq.SQLDialect;
+import org.jooq.Table;
+import org.jooq.impl.DSL;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.io.StringReader;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Append-only bulk inserts for the indexer's high-volume tables. Postgres
+ * receives the rows through a single {@code COPY ... FROM STDIN}, every other
+ * database through chunked multi-row {@code INSERT} statements. Both run on
+ * the connection of the surrounding JPA transaction.
+ */
+@Slf4j
+@Repository
+public class IndexBulkWriter {
+    private static final int INSERT_CHUNK_SIZE = 500;
+
+    private static final List<String> CERTIFICATE_COLUMNS = List.of(
+            "hash", "payment_credential", "block_hash", "block_number", "transaction_id",
+            "creation_time", "slot", "extra", "hash_algorithm", "state_datum_id",
+            "template_id", "use_case_category", "update_policy", "update_policy_alias", "update_owner",
+            "update_whitelist", "transfer_ownership", "whitelist_add", "whitelist_remove", "update_freeze",
+            "og_title", "og_description", "og_image");
+
+    private static final List<String> STATE_DATUM_UPDATE_COLUMNS = List.of(
+            "slot", "countdown", "transaction_id", "state_datum_id");
+
+    private final DSLContext dsl;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    public IndexBulkWriter(DSLContext dsl) {
+        this.dsl = dsl;
+    }
+
+    @Transactional
+    public void insertCertificates(List<UVerifyCertificateEntity> certificates) {
+        insert("uverify_certificate", CERTIFICATE_COLUMNS, certificates, certificate -> {
+            CertificateExtraFields fields = certificate.getExtraFields();
+            return new Object[]{
+                    certificate.getHash(),
+                    certificate.getPaymentCredential(),
+                    certificate.getBlockHash(),
+                    certificate.getBlockNumber(),
+                    certificate.getTransactionId(),
+                    certificate.getCreationTime() == null ? null : new Timestamp(certificate.getCreationTime().getTime()),
+                    certificate.getSlot(),
+                    certificate.getExtra(),
+                    certificate.getHashAlgorithm(),
+                    certificate.getStateDatum() == null ? null : certificate.getStateDatum().getId(),
+                    fields.getTemplateId(),
+                    fields.getUseCaseCategory().name(),
+                    fields.getUpdatePolicy(),
+                    fields.getUpdatePolicyAlias(),
+                    fields.getOwner(),
+                    fields.getUpdateWhitelist(),
+                    fields.getTransferOwnership(),
+                    fields.getWhitelistAdd(),
+                    fields.getWhitelistRemove(),
+                    fields.isFreeze(),
+                    fields.getOgTitle(),
+                    fields.getOgDescription(),
+                    fields.getOgImage()
+            };
+        });
+    }
+
+    @Transactional
+    public void insertStateDatumUpdates(List<StateDatumUpdateEntity> updates) {
+        insert("state_datum_update", STATE_DATUM_UPDATE_COLUMNS, updates, update -> new Object[]{
+                update.getSlot(),
+                update.getCountdown(),
+                update.getTransactionId(),
+                update.getStateDatum().getId()
+        });
+    }
+
+    private <T> void insert(String tableName, List<String> columns, List<T> rows, Function<T, Object[]> toRow) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        // Rows reference state datums that may still be pending in the
+        // persistence context.
+        entityManager.flush();
+
+        if (dsl.dialect().family() == SQLDialect.POSTGRES) {
+            copyIn(tableName, columns, rows, toRow);
+            return;
+        }
+
+        Table<Record> table = DSL.table(DSL.unquotedName(tableName));
+        List<Field<Object>> fields = columns.stream()
+                .map(column -> DSL.field(DSL.unquotedName(column)))
+                .toList();
+        for (int offset = 0; offset < rows.size(); offset += INSERT_CHUNK_SIZE) {
+            InsertValuesStepN<Record> insert = dsl.insertInto(table, fields);
+            for (T row : rows.subList(offset, Math.min(rows.size(), offset + INSERT_CHUNK_SIZE))) {
+                insert = insert.values(Arrays.asList(toRow.apply(row)));
+            }
+            insert.execute();
+        }
+    }
+
+    private <T> void copyIn(String tableName, List<String> columns, List<T> rows, Function<T, Object[]> toRow) {
+        StringBuilder csv = new StringBuilder();
+        for (T row : rows) {
+            Object[] values = toRow.apply(row);
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    csv.append(',');
+                }
+                appendCsvValue(csv, values[i]);
+            }
+            csv.append('\n');
+        }
+
+        String copySql = "COPY " + tableName + " (" + String.join(", ", columns) + ") FROM STDIN WITH (FORMAT csv)";
+        dsl.connection(connection -> {
+            long copied = connection.unwrap(PGConnection.class).getCopyAPI()
+                    .copyIn(copySql, new StringReader(csv.toString()));
+            log.debug("Copied {} rows into {}", copied, tableName);
+        });
+    }
+
+    private static void appendCsvValue(StringBuilder csv, Object value) {
+        // An unquoted empty field is NULL in the csv format, a quoted one is
+        // an empty string.
+        if (value == null) {
+            return;
+        }
+        csv.append('"').append(value.toString().replace("\"", "\"\"")).append('"');
+    }
+}
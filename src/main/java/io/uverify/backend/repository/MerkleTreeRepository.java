@@ -0,0 +1,221 @@
+/*
+ * UVerify Backend
+ * Copyright (C) 2025 Fabian Bormann
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.uverify.backend.repository;
+
+import io.uverify.backend.util.MerkleTree;
+import jakarta.transaction.Transactional;
+import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.InsertValuesStep3;
+import org.jooq.Record;
+import org.jooq.Record1;
+import org.jooq.Table;
+import org.jooq.impl.DSL;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Stores Merkle trees of batch anchored certificates. Every tree level is one
+ * row of concatenated 32 byte nodes, so a proof only reads one sibling slice
+ * per level instead of loading the whole tree.
+ * <p>
+ * Levels and leaves are stored once per root. Each transaction built for a
+ * root adds a {@code merkle_tree} row, which is pending until the indexer
+ * sees the root certificate of that transaction and anchored afterwards.
+ */
+@Repository
+public class MerkleTreeRepository {
+    private static final int INSERT_CHUNK_SIZE = 500;
+
+    private static final Table<Record> MERKLE_TREE = DSL.table(DSL.unquotedName("merkle_tree"));
+    private static final Table<Record> MERKLE_LEVEL = DSL.table(DSL.unquotedName("merkle_level"));
+    private static final Table<Record> MERKLE_LEAF = DSL.table(DSL.unquotedName("merkle_leaf"));
+
+    private static final Field<String> ROOT_HASH = DSL.field(DSL.unquotedName("root_hash"), String.class);
+    private static final Field<Integer> LEAF_COUNT = DSL.field(DSL.unquotedName("leaf_count"), Integer.class);
+    private static final Field<String> TRANSACTION_ID = DSL.field(DSL.unquotedName("transaction_id"), String.class);
+    private static final Field<Long> SLOT = DSL.field(DSL.unquotedName("slot"), Long.class);
+    private static final Field<Long> VALID_UNTIL_SLOT = DSL.field(DSL.unquotedName("valid_until_slot"), Long.class);
+    private static final Field<Integer> TREE_LEVEL = DSL.field(DSL.unquotedName("tree_level"), Integer.class);
+    private static final Field<byte[]> NODES = DSL.field(DSL.unquotedName("nodes"), byte[].class);
+    private static final Field<String> LEAF_HASH = DSL.field(DSL.unquotedName("leaf_hash"), String.class);
+    private static final Field<Integer> LEAF_INDEX = DSL.field(DSL.unquotedName("leaf_index"), Integer.class);
+    private static final Field<String> TREE_ROOT_HASH = DSL.field(DSL.unquotedName("merkle_tree", "root_hash"), String.class);
+    private static final Field<String> LEAF_ROOT_HASH = DSL.field(DSL.unquotedName("merkle_leaf", "root_hash"), String.class);
+    private static final Field<Long> TREE_SLOT = DSL.field(DSL.unquotedName("merkle_tree", "slot"), Long.class);
+
+    private final DSLContext dsl;
+
+    public record LeafPosition(String rootHash, int leafIndex, int leafCount) {
+    }
+
+    public record StoredTree(String rootHash, String transactionId) {
+    }
+
+    @Autowired
+    public MerkleTreeRepository(DSLContext dsl) {
+        this.dsl = dsl;
+    }
+
+    /**
+     * Stores the tree built for {@code transactionId} as pending. The levels
+     * and leaves are only written if no other transaction carries the same
+     * root. {@code validUntilSlot} is the end of the transaction validity
+     * interval, null if it has none.
+     */
+    @Transactional
+    public void savePending(MerkleTree tree, List<String> leafHashes, String transactionId, Long validUntilSlot) {
+        String rootHash = tree.getRootHex();
+        dsl.insertInto(MERKLE_TREE, ROOT_HASH, TRANSACTION_ID, LEAF_COUNT, VALID_UNTIL_SLOT)
+                .values(rootHash, transactionId, tree.getLeafCount(), validUntilSlot)
+                .onConflict(ROOT_HASH, TRANSACTION_ID).doNothing()
+                .execute();
+        if (dsl.fetchExists(MERKLE_LEVEL, ROOT_HASH.eq(rootHash))) {
+            return;
+        }
+
+        List<byte[]> levels = tree.getLevels();
+        InsertValuesStep3<Record, String, Integer, byte[]> levelInsert = dsl.insertInto(MERKLE_LEVEL, ROOT_HASH, TREE_LEVEL, NODES);
+        for (int level = 0; level < levels.size(); level++) {
+            levelInsert = levelInsert.values(rootHash, level, levels.get(level));
+        }
+        levelInsert.execute();
+
+        for (int offset = 0; offset < leafHashes.size(); offset += INSERT_CHUNK_SIZE) {
+            InsertValuesStep3<Record, String, String, Integer> leafInsert = dsl.insertInto(MERKLE_LEAF, LEAF_HASH, ROOT_HASH, LEAF_INDEX);
+            for (int index = offset; index < Math.min(leafHashes.size(), offset + INSERT_CHUNK_SIZE); index++) {
+                leafInsert = leafInsert.values(leafHashes.get(index), rootHash, index);
+            }
+            leafInsert.execute();
+        }
+    }
+
+    public List<StoredTree> findPendingTrees(Collection<String> transactionIds) {
+        if (transactionIds.isEmpty()) {
+            return List.of();
+        }
+        return dsl.select(ROOT_HASH, TRANSACTION_ID)
+                .from(MERKLE_TREE)
+                .where(TRANSACTION_ID.in(transactionIds))
+                .and(SLOT.isNull())
+                .fetch(record -> new StoredTree(record.value1(), record.value2()));
+    }
+
+    public void markAnchored(String rootHash, String transactionId, long slot) {
+        dsl.update(MERKLE_TREE)
+                .set(SLOT, slot)
+                .where(ROOT_HASH.eq(rootHash))
+                .and(TRANSACTION_ID.eq(transactionId))
+                .execute();
+    }
+
+    /**
+     * Turns trees anchored after {@code slot} back into pending ones.
+     */
+    public int unanchorAfterSlot(long slot) {
+        return dsl.update(MERKLE_TREE)
+                .set(SLOT, (Long) null)
+                .where(SLOT.gt(slot))
+                .execute();
+    }
+
+    /**
+     * Deletes the pending trees whose transaction can no longer be included
+     * once the chain reached {@code slot}, together with levels and leaves
+     * no other transaction refers to.
+     */
+    @Transactional
+    public int deleteExpiredPending(long slot) {
+        Condition expired = SLOT.isNull().and(VALID_UNTIL_SLOT.lt(slot));
+        List<String> rootHashes = dsl.selectDistinct(ROOT_HASH).from(MERKLE_TREE).where(expired).fetch(ROOT_HASH);
+        if (rootHashes.isEmpty()) {
+            return 0;
+        }
+        int deleted = dsl.deleteFrom(MERKLE_TREE).where(expired).execute();
+        List<String> orphaned = new ArrayList<>(rootHashes);
+        orphaned.removeAll(dsl.selectDistinct(ROOT_HASH).from(MERKLE_TREE).where(ROOT_HASH.in(rootHashes)).fetch(ROOT_HASH));
+        if (!orphaned.isEmpty()) {
+            dsl.deleteFrom(MERKLE_LEAF).where(ROOT_HASH.in(orphaned)).execute();
+            dsl.deleteFrom(MERKLE_LEVEL).where(ROOT_HASH.in(orphaned)).execute();
+        }
+        return deleted;
+    }
+
+    public long countLeaves() {
+        return dsl.fetchCount(MERKLE_LEAF);
+    }
+
+    /**
+     * Streams every stored leaf hash. Has to be closed by the caller.
+     */
+    public Stream<String> streamAllLeafHashes() {
+        return dsl.select(LEAF_HASH)
+                .from(MERKLE_LEAF)
+                .fetchSize(10_000)
+                .fetchStream()
+                .map(Record1::value1);
+    }
+
+    /**
+     * Finds the anchored trees that contain {@code leafHash}.
+     */
+    public List<LeafPosition> findLeafPositions(String leafHash) {
+        return dsl.selectDistinct(LEAF_ROOT_HASH, LEAF_INDEX, LEAF_COUNT)
+                .from(MERKLE_LEAF)
+                .join(MERKLE_TREE).on(TREE_ROOT_HASH.eq(LEAF_ROOT_HASH))
+                .where(LEAF_HASH.eq(leafHash))
+                .and(TREE_SLOT.isNotNull())
+                .fetch(record -> new LeafPosition(record.value1(), record.value2(), record.value3()));
+    }
+
+    /**
+     * Reads the nodes at {@code indexes[level]} of every level in one round
+     * trip. Levels with a negative index are skipped and yield null.
+     */
+    public List<byte[]> findNodes(String rootHash, int[] indexes) {
+        List<String> selects = new ArrayList<>();
+        List<Object> bindings = new ArrayList<>();
+        for (int level = 0; level < indexes.length; level++) {
+            if (indexes[level] < 0) {
+                continue;
+            }
+            selects.add("SELECT tree_level, SUBSTRING(nodes FROM " + (indexes[level] * MerkleTree.NODE_SIZE + 1)
+                    + " FOR " + MerkleTree.NODE_SIZE + ") AS node FROM merkle_level WHERE root_hash = ? AND tree_level = ?");
+            bindings.add(rootHash);
+            bindings.add(level);
+        }
+
+        List<byte[]> nodes = new ArrayList<>();
+        for (int level = 0; level < indexes.length; level++) {
+            nodes.add(null);
+        }
+        if (selects.isEmpty()) {
+            return nodes;
+        }
+        dsl.fetch(String.join(" UNION ALL ", selects), bindings.toArray())
+                .forEach(record -> nodes.set(record.get(0, Integer.class), record.get(1, byte[].class)));
+        return nodes;
+    }
+}
@@ -27,6 +27,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -38,44 +39,39 @@ public interface StateDatumRepository extends JpaRepository<StateDatumEntity, St
     @Query("DELETE FROM StateDatumEntity WHERE creationSlot > :target")
     void deleteAllAfterSlot(@Param("target") long target);
 
+    /**
+     * Resets countdown and transaction id of the given states to their latest
+     * remaining update. Meant to run after the updates past the rollback slot
+     * were deleted, for the states that had such updates only.
+     */
     @Modifying
     @Transactional
     @Query(value = """
             UPDATE state_datum
             SET
                 countdown = (
-                    SELECT countdown FROM state_datum_update
-                    WHERE id = (
-                        SELECT MAX(id) FROM state_datum_update
-                        WHERE state_datum_id = state_datum.id
-                          AND slot = (
-                            SELECT MAX(slot) FROM state_datum_update
-                            WHERE state_datum_id = state_datum.id
-                          )
-                    )
+                    SELECT latest.countdown FROM state_datum_update latest
+                    WHERE latest.state_datum_id = state_datum.id
+                    ORDER BY latest.slot DESC, latest.id DESC
+                    LIMIT 1
                 ),
                 transaction_id = (
-                    SELECT transaction_id FROM state_datum_update
-                    WHERE id = (
-                        SELECT MAX(id) FROM state_datum_update
-                        WHERE state_datum_id = state_datum.id
-                          AND slot = (
-                            SELECT MAX(slot) FROM state_datum_update
-                            WHERE state_datum_id = state_datum.id
-                          )
-                    )
+                    SELECT latest.transaction_id FROM state_datum_update latest
+                    WHERE latest.state_datum_id = state_datum.id
+                    ORDER BY latest.slot DESC, latest.id DESC
+                    LIMIT 1
                 )
-            WHERE EXISTS (
+            WHERE state_datum.id IN (:ids)
+              AND EXISTS (
                 SELECT 1 FROM state_datum_update
                 WHERE state_datum_id = state_datum.id
             )
             """, nativeQuery = true)
-    void handleRollback();
+    int handleRollback(@Param("ids") Collection<String> ids);
 
     @Query("""
-                SELECT DISTINCT stateDatum
+                SELECT stateDatum
                 FROM StateDatumEntity stateDatum
-                LEFT JOIN FETCH stateDatum.updates
                 WHERE stateDatum.id = :id
                   AND stateDatum.invalidationSlot IS NULL
                   AND stateDatum.countdown > 0
@@ -83,6 +79,11 @@ public interface StateDatumRepository extends JpaRepository<StateDatumEntity, St
     @NotNull
     Optional<StateDatumEntity> findById(@NotNull String id);
 
+    @Modifying
+    @Query("UPDATE StateDatumEntity SET countdown = :countdown, transactionId = :transactionId WHERE id = :id")
+    int updateLatestState(@Param("id") String id, @Param("countdown") int countdown,
+                          @Param("transactionId") String transactionId);
+
     @Modifying
     @Query("UPDATE StateDatumEntity SET invalidationSlot = NULL WHERE invalidationSlot > :slot")
     void undoInvalidationBeforeSlot(long slot);
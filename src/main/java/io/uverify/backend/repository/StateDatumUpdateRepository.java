@@ -26,10 +26,15 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface StateDatumUpdateRepository extends JpaRepository<StateDatumUpdateEntity, String> {
     @Modifying
     @Transactional
     @Query("DELETE FROM StateDatumUpdateEntity WHERE slot > :target")
     void deleteAllAfterSlot(@Param("target") long target);
+
+    @Query("SELECT DISTINCT stateDatumUpdate.stateDatum.id FROM StateDatumUpdateEntity stateDatumUpdate WHERE stateDatumUpdate.slot > :target")
+    List<String> findStateDatumIdsAfterSlot(@Param("target") long target);
 }
@@ -0,0 +1,47 @@
+/*
+ * UVerify Backend
+ * Copyright (C) 2025 Fabian Bormann
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.uverify.backend.repository;
+
+import io.uverify.backend.entity.StatisticDeltaEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface StatisticDeltaRepository extends JpaRepository<StatisticDeltaEntity, Long> {
+
+    @Query("""
+            SELECT delta.statisticKey, SUM(delta.statisticDelta)
+            FROM StatisticDeltaEntity delta
+            WHERE delta.slot > :slot
+            GROUP BY delta.statisticKey
+            """)
+    List<Object[]> sumDeltasAfterSlot(@Param("slot") long slot);
+
+    @Modifying
+    @Query("DELETE FROM StatisticDeltaEntity WHERE slot > :slot")
+    void deleteAllAfterSlot(@Param("slot") long slot);
+
+    @Modifying
+    @Query("DELETE FROM StatisticDeltaEntity WHERE slot < :slot")
+    void deleteAllBeforeSlot(@Param("slot") long slot);
+}
@@ -20,11 +20,23 @@ package io.uverify.backend.repository;
 
 import io.uverify.backend.entity.StatisticEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
 import java.util.List;
 
 @Repository
 public interface StatisticRepository extends JpaRepository<StatisticEntity, String> {
     List<StatisticEntity> findByStatisticKeyStartingWith(String prefix);
+
+    @Modifying
+    @Query("""
+            UPDATE StatisticEntity statistic
+            SET statistic.statisticValue = statistic.statisticValue + :delta, statistic.updatedAt = :now
+            WHERE statistic.statisticKey = :key
+            """)
+    int increment(@Param("key") String key, @Param("delta") long delta, @Param("now") Instant now);
 }
@@ -0,0 +1,357 @@
+/*
+ * UVerify Backend
+ * Copyright (C) 2025 Fabian Bormann
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.uverify.backend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.uverify.backend.dto.BuildJobStatus;
+import io.uverify.backend.enums.BuildJobState;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Runs transaction builds as jobs off the request thread.
+ * <p>
+ * At most {@code build.jobs.concurrency} builds run at once, on virtual
+ * threads, and up to {@code build.jobs.queue-limit} more wait in line. Jobs
+ * beyond that are rejected right away, so a slow provider backs up into
+ * rejected requests instead of piling up threads and database connections.
+ * Finished jobs are kept for {@code build.jobs.retention-seconds}.
+ */
+@Service
+@Slf4j
+public class BuildJobService {
+
+    public static final String QUEUED_METRIC = "uverify.build.jobs.queued";
+    public static final String RUNNING_METRIC = "uverify.build.jobs.running";
+    public static final String WAIT_METRIC = "uverify.build.jobs.wait";
+    public static final String DURATION_METRIC = "uverify.build.jobs.duration";
+    public static final String REJECTED_METRIC = "uverify.build.jobs.rejected";
+
+    private final ThreadPoolExecutor executor;
+    private final ExecutorService notifier = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("build-job-events-", 0).factory());
+    private final Cache<String, Job> jobs;
+    private final Duration retryAfter;
+    private final Timer queueWait;
+    private final Timer succeeded;
+    private final Timer failed;
+    private final Counter rejected;
+
+    @Autowired
+    public BuildJobService(@Value("${build.jobs.concurrency:32}") int concurrency,
+                           @Value("${build.jobs.queue-limit:256}") int queueLimit,
+                           @Value("${build.jobs.retention-seconds:600}") long retentionSeconds,
+                           @Value("${build.jobs.retry-after-seconds:5}") long retryAfterSeconds,
+                           MeterRegistry meterRegistry) {
+        this(concurrency, queueLimit, Duration.ofSeconds(retentionSeconds), Duration.ofSeconds(retryAfterSeconds), meterRegistry);
+    }
+
+    BuildJobService(int concurrency, int queueLimit, Duration retention, Duration retryAfter, MeterRegistry meterRegistry) {
+        if (concurrency <= 0 || queueLimit <= 0) {
+            throw new IllegalArgumentException("build.jobs.concurrency and build.jobs.queue-limit must be positive");
+        }
+        this.executor = new ThreadPoolExecutor(concurrency, concurrency, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueLimit), Thread.ofVirtual().name("build-job-", 0).factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+        this.retryAfter = retryAfter;
+        this.jobs = Caffeine.newBuilder()
+                .expireAfterWrite(retention)
+                .build();
+
+        Gauge.builder(QUEUED_METRIC, executor, pool -> pool.getQueue().size())
+                .description("Build jobs waiting for a free slot")
+                .register(meterRegistry);
+        Gauge.builder(RUNNING_METRIC, executor, ThreadPoolExecutor::getActiveCount)
+                .description("Build jobs currently running")
+                .register(meterRegistry);
+        this.queueWait = Timer.builder(WAIT_METRIC)
+                .description("Time build jobs spend waiting in the queue")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.succeeded = buildDuration("succeeded", meterRegistry);
+        this.failed = buildDuration("failed", meterRegistry);
+        this.rejected = Counter.builder(REJECTED_METRIC)
+                .description("Build jobs rejected because the queue was full")
+                .register(meterRegistry);
+    }
+
+    private static Timer buildDuration(String outcome, MeterRegistry meterRegistry) {
+        return Timer.builder(DURATION_METRIC)
+                .description("Time a build job takes once it runs")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * Time clients are asked to wait before retrying a rejected job.
+     */
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    /**
+     * Queues the build and returns the job, or empty if the queue is full.
+     * The body of the response returned by {@code build} becomes the result
+     * of the job, which fails unless the response status is 2xx.
+     */
+    public Optional<BuildJobStatus> submit(Callable<? extends ResponseEntity<?>> build) {
+        Job job = new Job(UUID.randomUUID().toString());
+        jobs.put(job.id, job);
+        try {
+            executor.execute(() -> run(job, build));
+        } catch (RejectedExecutionException exception) {
+            jobs.invalidate(job.id);
+            rejected.increment();
+            return Optional.empty();
+        }
+        return Optional.of(job.status());
+    }
+
+    public Optional<BuildJobStatus> getStatus(String id) {
+        return Optional.ofNullable(jobs.getIfPresent(id)).map(Job::status);
+    }
+
+    /**
+     * Passes the current snapshot of the job and every later change to
+     * {@code listener}, the last one being the finished job. Events are
+     * delivered in order on a separate virtual thread per subscriber, so a
+     * slow listener never holds up the build. Returns the handle that removes
+     * the listener again, or empty if the job is unknown.
+     */
+    public Optional<Runnable> subscribe(String id, Consumer<BuildJobStatus> listener) {
+        Job job = jobs.getIfPresent(id);
+        if (job == null) {
+            return Optional.empty();
+        }
+        Subscriber subscriber = new Subscriber(listener, notifier);
+        job.subscribe(subscriber);
+        return Optional.of(() -> job.unsubscribe(subscriber));
+    }
+
+    private void run(Job job, Callable<? extends ResponseEntity<?>> build) {
+        long started = System.nanoTime();
+        queueWait.record(started - job.queuedNanos, TimeUnit.NANOSECONDS);
+        job.start();
+        try {
+            ResponseEntity<?> response = build.call();
+            int statusCode = response.getStatusCode().value();
+            if (response.getStatusCode().is2xxSuccessful()) {
+                succeeded.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                job.finish(BuildJobState.SUCCEEDED, statusCode, response.getBody(), null);
+            } else {
+                failed.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                job.finish(BuildJobState.FAILED, statusCode, response.getBody(), "Build returned status " + statusCode);
+            }
+        } catch (Exception exception) {
+            log.error("Build job {} failed: {}", job.id, exception.getMessage(), exception);
+            failed.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            job.finish(BuildJobState.FAILED, null, null, exception.getMessage());
+        }
+        // Keep the result for the full retention after the job finished.
+        jobs.put(job.id, job);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+        notifier.shutdownNow();
+    }
+
+    /**
+     * Queues the events of one listener and delivers them one after another
+     * on the notifier, outside of the job lock.
+     */
+    private static final class Subscriber {
+        private final Consumer<BuildJobStatus> listener;
+        private final ExecutorService notifier;
+        private final Queue<BuildJobStatus> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean cancelled;
+
+        private Subscriber(Consumer<BuildJobStatus> listener, ExecutorService notifier) {
+            this.listener = listener;
+            this.notifier = notifier;
+        }
+
+        private void enqueue(BuildJobStatus status) {
+            if (!cancelled) {
+                pending.add(status);
+            }
+        }
+
+        private void deliver() {
+            if (!draining.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                notifier.execute(this::drain);
+            } catch (RejectedExecutionException exception) {
+                draining.set(false);
+            }
+        }
+
+        private void drain() {
+            do {
+                BuildJobStatus status;
+                while (!cancelled && (status = pending.poll()) != null) {
+                    try {
+                        listener.accept(status);
+                    } catch (RuntimeException exception) {
+                        log.debug("Build job listener failed: {}", exception.getMessage());
+                        cancel();
+                    }
+                }
+                draining.set(false);
+                // An event queued after the last poll but before the flag was
+                // cleared found the drain still running and did not start one.
+            } while (!cancelled && !pending.isEmpty() && draining.compareAndSet(false, true));
+        }
+
+        private void cancel() {
+            cancelled = true;
+            pending.clear();
+        }
+    }
+
+    private static final class Job {
+        private final String id;
+        private final long createdAt = System.currentTimeMillis();
+        private final long queuedNanos = System.nanoTime();
+        private final ReentrantLock lock = new ReentrantLock();
+        private final List<Subscriber> subscribers = new ArrayList<>();
+        private BuildJobState state = BuildJobState.QUEUED;
+        private Long startedAt;
+        private Long finishedAt;
+        private Integer statusCode;
+        private Object result;
+        private String error;
+
+        private Job(String id) {
+            this.id = id;
+        }
+
+        private BuildJobStatus status() {
+            lock.lock();
+            try {
+                return BuildJobStatus.builder()
+                        .id(id)
+                        .state(state)
+                        .createdAt(createdAt)
+                        .startedAt(startedAt)
+                        .finishedAt(finishedAt)
+                        .statusCode(statusCode)
+                        .result(result)
+                        .error(error)
+                        .build();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void subscribe(Subscriber subscriber) {
+            lock.lock();
+            try {
+                subscriber.enqueue(status());
+                if (!state.isFinished()) {
+                    subscribers.add(subscriber);
+                }
+            } finally {
+                lock.unlock();
+            }
+            subscriber.deliver();
+        }
+
+        private void unsubscribe(Subscriber subscriber) {
+            subscriber.cancel();
+            lock.lock();
+            try {
+                subscribers.remove(subscriber);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void start() {
+            List<Subscriber> notified;
+            lock.lock();
+            try {
+                state = BuildJobState.RUNNING;
+                startedAt = System.currentTimeMillis();
+                notified = enqueueStatus();
+            } finally {
+                lock.unlock();
+            }
+            notified.forEach(Subscriber::deliver);
+        }
+
+        private void finish(BuildJobState finalState, Integer finalStatusCode, Object finalResult, String finalError) {
+            List<Subscriber> notified;
+            lock.lock();
+            try {
+                state = finalState;
+                finishedAt = System.currentTimeMillis();
+                statusCode = finalStatusCode;
+                result = finalResult;
+                error = finalError;
+                notified = enqueueStatus();
+                subscribers.clear();
+            } finally {
+                lock.unlock();
+            }
+            notified.forEach(Subscriber::deliver);
+        }
+
+        // Callers hold the lock, so every subscriber queues the changes in
+        // order. Delivery happens after the lock is released.
+        private List<Subscriber> enqueueStatus() {
+            BuildJobStatus status = status();
+            subscribers.forEach(subscriber -> subscriber.enqueue(status));
+            return List.copyOf(subscribers);
+        }
+    }
+}
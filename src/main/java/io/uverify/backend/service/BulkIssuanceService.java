@@ -0,0 +1,321 @@
+/*
+ * UVerify Backend
+ * Copyright (C) 2025 Fabian Bormann
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.uverify.backend.service;
+
+import com.bloxbean.cardano.client.transaction.spec.Transaction;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.uverify.backend.dto.BuildStatus;
+import io.uverify.backend.dto.BulkTransaction;
+import io.uverify.backend.dto.CertificateData;
+import io.uverify.backend.entity.StateDatumEntity;
+import io.uverify.backend.enums.BuildStatusCode;
+import io.uverify.backend.enums.BulkInputFormat;
+import io.uverify.backend.exception.UVerifyTransactionException;
+import io.uverify.backend.model.UVerifyCertificate;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Plans the issuance of a large certificate stream as a sequence of chained
+ * state updates.
+ * <p>
+ * Certificates are read from an NDJSON or CSV stream and split into
+ * transactions of at most the batch size of the state. A transaction that
+ * exceeds the maximum transaction size or execution budget is split in half
+ * and the smaller size is kept for the rest of the stream. Each transaction
+ * spends the state UTxO and the change of its predecessor through the
+ * {@link PendingTransactionCache}, and is written to the output as soon as it
+ * is planned. The whole plan runs in one {@link StateBuildLocks} scope, so the
+ * state stays locked until the last transaction is planned and other builds
+ * cannot spend it in between. Only the certificates of the transaction being planned are held
+ * in memory, and lines longer than {@code build.bulk.max-line-length}
+ * characters are rejected before they are buffered in full.
+ */
+@Service
+@Slf4j
+public class BulkIssuanceService {
+
+    public static final String NDJSON_MEDIA_TYPE = "application/x-ndjson";
+
+    private final CardanoBlockchainService cardanoBlockchainService;
+    private final UVerifyTransactionService transactionService;
+    private final StateDatumService stateDatumService;
+    private final StateBuildLocks stateBuildLocks;
+    private final int maxLineLength;
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    @Autowired
+    public BulkIssuanceService(CardanoBlockchainService cardanoBlockchainService,
+                               UVerifyTransactionService transactionService,
+                               StateDatumService stateDatumService,
+                               StateBuildLocks stateBuildLocks,
+                               @Value("${build.bulk.max-line-length:16384}") int maxLineLength) {
+        this.cardanoBlockchainService = cardanoBlockchainService;
+        this.transactionService = transactionService;
+        this.stateDatumService = stateDatumService;
+        this.stateBuildLocks = stateBuildLocks;
+        this.maxLineLength = maxLineLength;
+    }
+
+    public void plan(String address, String bootstrapDatumName, BulkInputFormat format,
+                     InputStream input, OutputStream output) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        CertificateReader certificates = new CertificateReader(reader, format, address);
+        Deque<UVerifyCertificate> pending = new ArrayDeque<>();
+        int index = 0;
+        long offset = 0;
+        try (StateBuildLocks.Scope ignored = stateBuildLocks.open()) {
+            Optional<StateDatumEntity> state = resolveState(address, bootstrapDatumName);
+            int transactionSize = transactionService.maxCertificatesPerTransaction(address, bootstrapDatumName);
+            while (true) {
+                fill(pending, certificates, transactionSize);
+                if (pending.isEmpty()) {
+                    break;
+                }
+                List<UVerifyCertificate> chunk = new ArrayList<>(pending).subList(0, Math.min(transactionSize, pending.size()));
+                Transaction transaction;
+                try {
+                    transaction = build(address, bootstrapDatumName, state, chunk);
+                } catch (UVerifyTransactionException exception) {
+                    if (exception.getStatusCode() != BuildStatusCode.TRANSACTION_TOO_LARGE || chunk.size() == 1) {
+                        throw exception;
+                    }
+                    transactionSize = chunk.size() / 2;
+                    log.debug("Transaction with {} certificates is too large, retrying with {}", chunk.size(), transactionSize);
+                    continue;
+                }
+                chunk.forEach(ignored -> pending.removeFirst());
+                write(output, BulkTransaction.builder()
+                        .index(index++)
+                        .offset(offset)
+                        .count(chunk.size())
+                        .unsignedTransaction(transaction.serializeToHex())
+                        .status(BuildStatus.builder().code(BuildStatusCode.SUCCESS).build())
+                        .build());
+                offset += chunk.size();
+
+                if (state.isEmpty()) {
+                    // Updates of a new state need its indexed entity, they can
+                    // only be planned once the fork is confirmed.
+                    fill(pending, certificates, 1);
+                    if (!pending.isEmpty()) {
+                        write(output, status(index, offset, BuildStatusCode.PENDING_TRANSACTION,
+                                "The first transaction creates a new state. Submit it and send the certificates from offset "
+                                        + offset + " again once it is confirmed."));
+                    }
+                    break;
+                }
+            }
+        } catch (UVerifyTransactionException exception) {
+            write(output, status(index, offset, exception.getStatusCode(), exception.getMessage()));
+        } catch (IllegalArgumentException | IllegalStateException exception) {
+            write(output, status(index, offset, BuildStatusCode.ERROR, exception.getMessage()));
+        } catch (Exception exception) {
+            log.error("Error planning bulk issuance: {}", exception.getMessage(), exception);
+            write(output, status(index, offset, BuildStatusCode.UNKNOWN_ERROR, exception.getMessage()));
+        }
+    }
+
+    private Optional<StateDatumEntity> resolveState(String address, String bootstrapDatumName) {
+        Optional<StateDatumEntity> state;
+        if (bootstrapDatumName != null && !bootstrapDatumName.isEmpty()) {
+            state = stateDatumService.findByUserAndBootstrapToken(address, bootstrapDatumName);
+        } else {
+            List<StateDatumEntity> states = stateDatumService.findByOwner(address, 2);
+            state = states.isEmpty() ? Optional.empty() : Optional.of(stateDatumService.selectCheapestStateDatum(states));
+        }
+        if (state.isPresent() && state.get().getVersion() == 1) {
+            throw new IllegalArgumentException("No applicable state datum found for user account");
+        }
+        return state;
+    }
+
+    private Transaction build(String address, String bootstrapDatumName, Optional<StateDatumEntity> state,
+                              List<UVerifyCertificate> certificates) throws Exception {
+        if (state.isPresent()) {
+            return cardanoBlockchainService.updateStateDatumChained(address, state.get(), certificates);
+        }
+        if (bootstrapDatumName != null && !bootstrapDatumName.isEmpty()) {
+            return cardanoBlockchainService.persistUVerifyCertificates(address, certificates, bootstrapDatumName);
+        }
+        return cardanoBlockchainService.persistUVerifyCertificates(address, certificates);
+    }
+
+    private static void fill(Deque<UVerifyCertificate> pending, CertificateReader certificates, int size) throws IOException {
+        while (pending.size() < size) {
+            UVerifyCertificate certificate = certificates.next();
+            if (certificate == null) {
+                return;
+            }
+            pending.addLast(certificate);
+        }
+    }
+
+    private static BulkTransaction status(int index, long offset, BuildStatusCode code, String message) {
+        return BulkTransaction.builder()
+                .index(index)
+                .offset(offset)
+                .status(BuildStatus.builder().code(code).message(message).build())
+                .build();
+    }
+
+    private void write(OutputStream output, BulkTransaction line) throws IOException {
+        output.write(objectMapper.writeValueAsBytes(line));
+        output.write('\n');
+        output.flush();
+    }
+
+    private final class CertificateReader {
+        private final BufferedReader reader;
+        private final BulkInputFormat format;
+        private final String address;
+        private List<String> columns;
+        private long lineNumber;
+
+        private CertificateReader(BufferedReader reader, BulkInputFormat format, String address) {
+            this.reader = reader;
+            this.format = format;
+            this.address = address;
+        }
+
+        /**
+         * Returns the next certificate of the stream or null at its end.
+         */
+        UVerifyCertificate next() throws IOException {
+            String line;
+            do {
+                line = readLine();
+                lineNumber++;
+                if (line == null) {
+                    return null;
+                }
+            } while (line.isBlank());
+
+            CertificateData certificateData;
+            if (format == BulkInputFormat.CSV) {
+                if (columns == null) {
+                    columns = parseCsvLine(line).stream().map(column -> column.trim().toLowerCase()).toList();
+                    if (!columns.contains("hash")) {
+                        throw new IllegalArgumentException("CSV header must contain a hash column");
+                    }
+                    return next();
+                }
+                certificateData = fromCsv(parseCsvLine(line));
+            } else {
+                try {
+                    certificateData = objectMapper.readValue(line, CertificateData.class);
+                } catch (JsonProcessingException exception) {
+                    throw new IllegalArgumentException("Invalid certificate (line " + lineNumber + "): " + exception.getOriginalMessage());
+                }
+            }
+            if (certificateData.getHash() == null || certificateData.getHash().isBlank()) {
+                throw new IllegalArgumentException("hash is required (line " + lineNumber + ")");
+            }
+            return UVerifyCertificate.fromCertificateData(certificateData, address);
+        }
+
+        /**
+         * Like {@link BufferedReader#readLine()}, but stops reading once a line
+         * is longer than the maximum instead of buffering it in full.
+         */
+        private String readLine() throws IOException {
+            StringBuilder line = new StringBuilder();
+            int character;
+            while ((character = reader.read()) != -1) {
+                if (character == '\n') {
+                    break;
+                }
+                if (line.length() == maxLineLength) {
+                    throw new IllegalArgumentException("Line " + (lineNumber + 1) + " exceeds the maximum length of "
+                            + maxLineLength + " characters");
+                }
+                line.append((char) character);
+            }
+            if (character == -1 && line.isEmpty()) {
+                return null;
+            }
+            int end = line.length();
+            if (end > 0 && line.charAt(end - 1) == '\r') {
+                line.setLength(end - 1);
+            }
+            return line.toString();
+        }
+
+        private CertificateData fromCsv(List<String> values) {
+            CertificateData certificateData = new CertificateData();
+            for (int column = 0; column < columns.size() && column < values.size(); column++) {
+                String value = values.get(column);
+                switch (columns.get(column)) {
+                    case "hash" -> certificateData.setHash(value);
+                    case "algorithm" -> certificateData.setAlgorithm(value);
+                    case "metadata" -> certificateData.setMetadata(value.isEmpty() ? null : value);
+                    default -> {
+                    }
+                }
+            }
+            return certificateData;
+        }
+    }
+
+    // RFC 4180 fields on a single line, quoted fields may contain commas and "" escapes.
+    static List<String> parseCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int position = 0; position < line.length(); position++) {
+            char character = line.charAt(position);
+            if (quoted) {
+                if (character == '"' && position + 1 < line.length() && line.charAt(position + 1) == '"') {
+                    value.append('"');
+                    position++;
+                } else if (character == '"') {
+                    quoted = false;
+                } else {
+                    value.append(character);
+                }
+            } else if (character == '"') {
+                quoted = true;
+            } else if (character == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(character);
+            }
+        }
+        values.add(value.toString());
+        return values;
+    }
+}
@@ -25,16 +25,13 @@ import com.bloxbean.cardano.client.address.Credential;
 import com.bloxbean.cardano.client.api.UtxoSupplier;
 import com.bloxbean.cardano.client.api.exception.ApiException;
 import com.bloxbean.cardano.client.api.model.Amount;
+import com.bloxbean.cardano.client.api.model.ProtocolParams;
 import com.bloxbean.cardano.client.api.model.Result;
 import com.bloxbean.cardano.client.api.model.Utxo;
 import com.bloxbean.cardano.client.backend.api.BackendService;
 import com.bloxbean.cardano.client.backend.api.DefaultUtxoSupplier;
-import com.bloxbean.cardano.client.backend.blockfrost.service.BFBackendService;
-import com.bloxbean.cardano.client.backend.koios.Constants;
-import com.bloxbean.cardano.client.backend.koios.KoiosBackendService;
 import com.bloxbean.cardano.client.backend.model.TxContentUtxo;
 import com.bloxbean.cardano.client.backend.model.TxContentUtxoOutputs;
-import com.bloxbean.cardano.client.crypto.Blake2bUtil;
 import com.bloxbean.cardano.client.exception.CborSerializationException;
 import com.bloxbean.cardano.client.plutus.blueprint.PlutusBlueprintUtil;
 import com.bloxbean.cardano.client.plutus.blueprint.model.PlutusVersion;
@@ -55,6 +52,7 @@ import com.bloxbean.cardano.yaci.core.model.TransactionOutput;
 import com.bloxbean.cardano.yaci.store.common.domain.AddressUtxo;
 import com.bloxbean.cardano.yaci.store.events.EventMetadata;
 import com.bloxbean.cardano.yaci.store.events.TransactionEvent;
+import io.uverify.backend.config.CardanoBackendConfig;
 import io.uverify.backend.dto.BuildStatus;
 import io.uverify.backend.dto.BuildTransactionResponse;
 import io.uverify.backend.dto.ProxyInitResponse;
@@ -69,12 +67,15 @@ import io.uverify.backend.enums.UVerifyScriptPurpose;
 import io.uverify.backend.model.*;
 import io.uverify.backend.model.converter.ProxyRedeemerConverter;
 import io.uverify.backend.util.CardanoUtils;
+import io.uverify.backend.util.ImmutableQueryCache;
+import io.uverify.backend.util.UVerifyMatchContext;
 import io.uverify.backend.util.ValidatorHelper;
 import io.uverify.backend.util.ValidatorUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
@@ -82,7 +83,9 @@ import java.math.BigInteger;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 import static io.uverify.backend.util.CardanoUtils.fromCardanoNetwork;
 import static io.uverify.backend.util.ValidatorUtils.*;
@@ -90,6 +93,7 @@ import static io.uverify.backend.util.ValidatorUtils.*;
 @Service
 @Slf4j
 public class CardanoBlockchainService {
+    private static final int UNSIGNED_WITNESS_ALLOWANCE_BYTES = 256;
     @Autowired
     private final BootstrapDatumService bootstrapDatumService;
     @Autowired
@@ -104,22 +108,40 @@ public class CardanoBlockchainService {
     private final LibraryService libraryService;
     @Autowired
     private final PendingTransactionCache pendingTransactionCache;
+    @Autowired
+    private final UsageStatisticsRecorder usageStatisticsRecorder;
+    @Autowired
+    private final ChainTipTracker chainTipTracker;
+    @Autowired
+    private final ProtocolParamsCache protocolParamsCache;
+    @Autowired
+    private final ConcurrentLookups concurrentLookups;
+    @Autowired
+    private final StateBuildLocks stateBuildLocks;
+
+    private final StateStripeSelector stateStripeSelector;
+    private final ImmutableQueryCache immutableQueryCache;
     private BackendService backendService;
     private BackendService queryBackendService;
+    private final Queue<BufferedWrite> parallelBuffer = new ConcurrentLinkedQueue<>();
 
     @Autowired
     public CardanoBlockchainService(@Value("${cardano.service.user.address}") String serviceUserAddress,
-                                    @Value("${cardano.backend.service.type}") String cardanoBackendServiceType,
-                                    @Value("${cardano.backend.blockfrost.baseUrl}") String blockfrostBaseUrl,
-                                    @Value("${cardano.backend.blockfrost.projectId}") String blockfrostProjectId,
-                                    @Value("${cardano.backend.query.baseUrl:}") String queryBaseUrl,
-                                    @Value("${cardano.backend.query.projectId:}") String queryProjectId,
                                     @Value("${cardano.network}") String network,
+                                    BackendService backendService,
+                                    @Qualifier(CardanoBackendConfig.QUERY_BACKEND_SERVICE) BackendService queryBackendService,
                                     UVerifyCertificateService uVerifyCertificateService,
                                     ValidatorHelper validatorHelper,
                                     BootstrapDatumService bootstrapDatumService, StateDatumService stateDatumService,
                                     LibraryService libraryService,
-                                    PendingTransactionCache pendingTransactionCache
+                                    PendingTransactionCache pendingTransactionCache,
+                                    UsageStatisticsRecorder usageStatisticsRecorder,
+                                    ChainTipTracker chainTipTracker,
+                                    ProtocolParamsCache protocolParamsCache,
+                                    ConcurrentLookups concurrentLookups,
+                                    StateBuildLocks stateBuildLocks,
+                                    StateStripeSelector stateStripeSelector,
+                                    ImmutableQueryCache immutableQueryCache
     ) {
         this.bootstrapDatumService = bootstrapDatumService;
         this.stateDatumService = stateDatumService;
@@ -129,25 +151,16 @@ public class CardanoBlockchainService {
         this.validatorHelper = validatorHelper;
         this.libraryService = libraryService;
         this.pendingTransactionCache = pendingTransactionCache;
+        this.usageStatisticsRecorder = usageStatisticsRecorder;
+        this.chainTipTracker = chainTipTracker;
+        this.protocolParamsCache = protocolParamsCache;
+        this.concurrentLookups = concurrentLookups;
+        this.stateBuildLocks = stateBuildLocks;
+        this.stateStripeSelector = stateStripeSelector;
+        this.immutableQueryCache = immutableQueryCache;
 
-        if (cardanoBackendServiceType.equals("blockfrost")) {
-            if (blockfrostProjectId == null || blockfrostProjectId.isEmpty()) {
-                throw new IllegalArgumentException("Blockfrost projectId is required when using Blockfrost backend service");
-            }
-
-            this.backendService = new BFBackendService(
-                    blockfrostBaseUrl,
-                    blockfrostProjectId);
-        } else if (cardanoBackendServiceType.equals("koios")) {
-            this.backendService = new KoiosBackendService(Constants.KOIOS_PREPROD_URL);
-        }
-
-        if (!queryBaseUrl.isEmpty()) {
-            String projectId = queryProjectId.isEmpty() ? "localtest" : queryProjectId;
-            this.queryBackendService = new BFBackendService(queryBaseUrl, projectId);
-        } else {
-            this.queryBackendService = this.backendService;
-        }
+        this.backendService = backendService;
+        this.queryBackendService = queryBackendService;
     }
 
     public Result<String> submitTransaction(Transaction transaction, Account signer) throws CborSerializationException, ApiException {
@@ -207,7 +220,13 @@ public class CardanoBlockchainService {
             if (existingState.isPresent()) {
                 try {
                     log.debug("Found existing state datum for bootstrap token " + bootstrapDatumName + ". Updating.");
-                    return buildUpdateStateDatumScriptTx(address, existingState.get(), uVerifyCertificates);
+                    StripeChoice stripe = chooseStripe(address, uVerifyCertificates, existingState.get(), stateStripeSelector.isEnabled()
+                            ? stateDatumService.findAllByUserAndBootstrapToken(address, bootstrapDatumName)
+                            : List.of(existingState.get()));
+                    if (stripe.state() == null) {
+                        return stripe.fork();
+                    }
+                    return buildUpdateStateDatumScriptTx(address, stripe.state(), uVerifyCertificates);
                 } catch (IllegalStateException e) {
                     log.debug("On-chain state exhausted (stale DB), forking new state for bootstrap {}", bootstrapDatumName);
                 }
@@ -234,7 +253,12 @@ public class CardanoBlockchainService {
             return buildForkProxyStateDatumScriptTx(address, uVerifyCertificates, optionalBootstrapDatum.get().getTokenName());
         } else {
             try {
-                StateDatumEntity stateDatumEntity = stateDatumService.selectCheapestStateDatum(stateDatumEntities);
+                StripeChoice stripe = chooseStripe(address, uVerifyCertificates,
+                        stateDatumService.selectCheapestStateDatum(stateDatumEntities), stateDatumEntities);
+                if (stripe.state() == null) {
+                    return stripe.fork();
+                }
+                StateDatumEntity stateDatumEntity = stripe.state();
                 boolean needsToPayFee = stateDatumEntity.getCountdown() % stateDatumEntity.getBootstrapDatum().getFeeInterval() == 0;
                 if (needsToPayFee) {
                     log.debug("Fee required for updating state datum. Checking for better conditions.");
@@ -276,80 +300,124 @@ public class CardanoBlockchainService {
         }
     }
 
-    public Transaction persistUVerifyCertificates(String address, List<UVerifyCertificate> uVerifyCertificates, String bootstrapDatumName) throws ApiException, CborSerializationException {
-        ScriptTx scriptTx = buildUVerifyCertificateScriptTx(address, uVerifyCertificates, bootstrapDatumName);
-        Address userAddress = new Address(address);
-        PlutusScript stateContract = validatorHelper.getParameterizedUVerifyStateContract();
-        PlutusScript proxyContract = validatorHelper.getParameterizedProxyContract();
-        String proxyContractAddress = validatorHelper.getProxyContractAddress();
-        String proxyScriptHash = ValidatorUtils.validatorToScriptHash(proxyContract);
-        long currentSlot = CardanoUtils.getLatestSlot(backendService);
-        AtomicReference<Transaction> captured = new AtomicReference<>();
-        Transaction transaction;
+    private record StripeChoice(StateDatumEntity state, ScriptTx fork) {
+    }
+
+    /**
+     * Picks one of the parallel states sharing the bootstrap datum of
+     * {@code preferred}, or forks a new one from it while all of them are
+     * busy. Falls back to a busy state if no wallet UTxO is free for a fork.
+     */
+    private StripeChoice chooseStripe(String address, List<UVerifyCertificate> uVerifyCertificates,
+                                      StateDatumEntity preferred, List<StateDatumEntity> states) throws ApiException, CborSerializationException {
+        String proxyScriptHash = validatorHelper.getProxyScriptHash();
+        Optional<StateDatumEntity> stripe = stateStripeSelector.select(proxyScriptHash, preferred, states, true);
+        if (stripe.isPresent()) {
+            return new StripeChoice(stripe.get(), null);
+        }
         try {
-            transaction = new QuickTxBuilder(backendService)
-                    .compose(scriptTx)
-                    .validFrom(currentSlot - 10)
-                    .validTo(currentSlot + 600)
-                    .collateralPayer(address)
-                    .feePayer(address)
-                    .withRequiredSigners(userAddress)
-                    .withReferenceScripts(stateContract, proxyContract)
-                    .postBalanceTx((TxBuilder) (ctx, tx) -> captured.set(tx))
-                    .build();
-        } catch (UVerifyTransactionException transactionException) {
-            throw transactionException;
-        } catch (Exception exception) {
-            String exceptionMessage = exception.getMessage() != null ? exception.getMessage().toLowerCase() : "";
-            if (exceptionMessage.contains("collateral")) {
-                throw new UVerifyTransactionException(BuildStatusCode.COLLATERAL_REQUIRED, exception.getMessage());
+            return new StripeChoice(null, buildForkProxyStateDatumScriptTx(address, uVerifyCertificates,
+                    preferred.getBootstrapDatum().getTokenName(),
+                    stateId -> stateStripeSelector.recordFork(preferred, proxyScriptHash + stateId)));
+        } catch (UVerifyTransactionException exception) {
+            if (exception.getStatusCode() != BuildStatusCode.PENDING_TRANSACTION) {
+                throw exception;
             }
-            if (exception instanceof ApiException apiException) throw apiException;
-            if (exception instanceof CborSerializationException cborSerializationException) throw cborSerializationException;
-            throw new RuntimeException(exception);
+            log.debug("No free wallet UTxO to fork another state, chaining on a busy one");
+            return new StripeChoice(stateStripeSelector.select(proxyScriptHash, preferred, states, false).orElseThrow(), null);
+        }
+    }
+
+    public Transaction persistUVerifyCertificates(String address, List<UVerifyCertificate> uVerifyCertificates, String bootstrapDatumName) throws ApiException, CborSerializationException {
+        try (StateBuildLocks.Scope ignored = stateBuildLocks.open()) {
+            ScriptTx scriptTx;
+            long currentSlot;
+            try (ConcurrentLookups.Phase phase = concurrentLookups.open("latest-slot")) {
+                ConcurrentLookups.Forked<Long> latestSlot = phase.fork(() -> chainTipTracker.getLatestSlot(backendService));
+                scriptTx = buildUVerifyCertificateScriptTx(address, uVerifyCertificates, bootstrapDatumName);
+                phase.join();
+                currentSlot = latestSlot.get();
+            }
+            Address userAddress = new Address(address);
+            PlutusScript stateContract = validatorHelper.getParameterizedUVerifyStateContract();
+            PlutusScript proxyContract = validatorHelper.getParameterizedProxyContract();
+            String proxyContractAddress = validatorHelper.getProxyContractAddress();
+            String proxyScriptHash = validatorHelper.getProxyScriptHash();
+            AtomicReference<Transaction> captured = new AtomicReference<>();
+            Transaction transaction;
+            try {
+                transaction = protocolParamsCache.quickTxBuilder(backendService)
+                        .compose(scriptTx)
+                        .validFrom(currentSlot - 10)
+                        .validTo(currentSlot + 600)
+                        .collateralPayer(address)
+                        .feePayer(address)
+                        .withRequiredSigners(userAddress)
+                        .withReferenceScripts(stateContract, proxyContract)
+                        .postBalanceTx((TxBuilder) (ctx, tx) -> captured.set(tx))
+                        .build();
+            } catch (UVerifyTransactionException transactionException) {
+                throw transactionException;
+            } catch (Exception exception) {
+                String exceptionMessage = exception.getMessage() != null ? exception.getMessage().toLowerCase() : "";
+                if (exceptionMessage.contains("collateral")) {
+                    throw new UVerifyTransactionException(BuildStatusCode.COLLATERAL_REQUIRED, exception.getMessage());
+                }
+                if (exception instanceof ApiException apiException) throw apiException;
+                if (exception instanceof CborSerializationException cborSerializationException) throw cborSerializationException;
+                throw new RuntimeException(exception);
+            }
+            pendingTransactionCache.populate(
+                    captured.get() != null ? captured.get() : transaction,
+                    proxyContractAddress, proxyScriptHash);
+            return transaction;
         }
-        pendingTransactionCache.populate(
-                captured.get() != null ? captured.get() : transaction,
-                proxyContractAddress, proxyScriptHash);
-        return transaction;
     }
 
     public Transaction persistUVerifyCertificates(String address, List<UVerifyCertificate> uVerifyCertificates) throws ApiException, CborSerializationException {
-        ScriptTx scriptTx = buildUVerifyCertificateScriptTx(address, uVerifyCertificates);
-        Address userAddress = new Address(address);
-        PlutusScript stateContract = validatorHelper.getParameterizedUVerifyStateContract();
-        PlutusScript proxyContract = validatorHelper.getParameterizedProxyContract();
-        String proxyContractAddress = validatorHelper.getProxyContractAddress();
-        String proxyScriptHash = ValidatorUtils.validatorToScriptHash(proxyContract);
-        long currentSlot = CardanoUtils.getLatestSlot(backendService);
-        AtomicReference<Transaction> captured = new AtomicReference<>();
-        Transaction transaction;
-        try {
-            transaction = new QuickTxBuilder(backendService)
-                    .compose(scriptTx)
-                    .validFrom(currentSlot - 10)
-                    .validTo(currentSlot + 600)
-                    .collateralPayer(address)
-                    .feePayer(address)
-                    .withRequiredSigners(userAddress)
-                    .withReferenceScripts(stateContract, proxyContract)
-                    .postBalanceTx((TxBuilder) (ctx, tx) -> captured.set(tx))
-                    .build();
-        } catch (UVerifyTransactionException transactionException) {
-            throw transactionException;
-        } catch (Exception exception) {
-            String exceptionMessage = exception.getMessage() != null ? exception.getMessage().toLowerCase() : "";
-            if (exceptionMessage.contains("collateral")) {
-                throw new UVerifyTransactionException(BuildStatusCode.COLLATERAL_REQUIRED, exception.getMessage());
+        try (StateBuildLocks.Scope ignored = stateBuildLocks.open()) {
+            ScriptTx scriptTx;
+            long currentSlot;
+            try (ConcurrentLookups.Phase phase = concurrentLookups.open("latest-slot")) {
+                ConcurrentLookups.Forked<Long> latestSlot = phase.fork(() -> chainTipTracker.getLatestSlot(backendService));
+                scriptTx = buildUVerifyCertificateScriptTx(address, uVerifyCertificates);
+                phase.join();
+                currentSlot = latestSlot.get();
             }
-            if (exception instanceof ApiException apiException) throw apiException;
-            if (exception instanceof CborSerializationException cborSerializationException) throw cborSerializationException;
-            throw new RuntimeException(exception);
+            Address userAddress = new Address(address);
+            PlutusScript stateContract = validatorHelper.getParameterizedUVerifyStateContract();
+            PlutusScript proxyContract = validatorHelper.getParameterizedProxyContract();
+            String proxyContractAddress = validatorHelper.getProxyContractAddress();
+            String proxyScriptHash = validatorHelper.getProxyScriptHash();
+            AtomicReference<Transaction> captured = new AtomicReference<>();
+            Transaction transaction;
+            try {
+                transaction = protocolParamsCache.quickTxBuilder(backendService)
+                        .compose(scriptTx)
+                        .validFrom(currentSlot - 10)
+                        .validTo(currentSlot + 600)
+                        .collateralPayer(address)
+                        .feePayer(address)
+                        .withRequiredSigners(userAddress)
+                        .withReferenceScripts(stateContract, proxyContract)
+                        .postBalanceTx((TxBuilder) (ctx, tx) -> captured.set(tx))
+                        .build();
+            } catch (UVerifyTransactionException transactionException) {
+                throw transactionException;
+            } catch (Exception exception) {
+                String exceptionMessage = exception.getMessage() != null ? exception.getMessage().toLowerCase() : "";
+                if (exceptionMessage.contains("collateral")) {
+                    throw new UVerifyTransactionException(BuildStatusCode.COLLATERAL_REQUIRED, exception.getMessage());
+                }
+                if (exception instanceof ApiException apiException) throw apiException;
+                if (exception instanceof CborSerializationException cborSerializationException) throw cborSerializationException;
+                throw new RuntimeException(exception);
+            }
+            pendingTransactionCache.populate(
+                    captured.get() != null ? captured.get() : transaction,
+                    proxyContractAddress, proxyScriptHash);
+            return transaction;
         }
-        pendingTransactionCache.populate(
-                captured.get() != null ? captured.get() : transaction,
-                proxyContractAddress, proxyScriptHash);
-        return transaction;
     }
 
     public ProxyInitResponse initProxyContract() throws ApiException, CborSerializationException {
@@ -357,7 +425,7 @@ public class CardanoBlockchainService {
         proxyInitResponse.setStatus(BuildStatus.builder()
                 .code(BuildStatusCode.ERROR)
                 .build());
-        QuickTxBuilder quickTxBuilder = new QuickTxBuilder(backendService);
+        QuickTxBuilder quickTxBuilder = protocolParamsCache.quickTxBuilder(backendService);
         String serviceAddress = this.serviceUserAddress.getAddress();
         PlutusScript stateContract;
         String existingProxyTxHash = validatorHelper.getProxyTransactionHash();
@@ -422,17 +490,45 @@ public class CardanoBlockchainService {
     }
 
     public ScriptTx buildUpdateStateDatumScriptTx(String address, StateDatumEntity stateDatum, List<UVerifyCertificate> uVerifyCertificates) throws ApiException {
-        PlutusScript uverifyProxyContract = validatorHelper.getParameterizedProxyContract();
-        String proxyScriptHash = validatorToScriptHash(uverifyProxyContract);
+        String proxyScriptHash = validatorHelper.getProxyScriptHash();
         PlutusScript uverifyStateContract = validatorHelper.getParameterizedUVerifyStateContract();
 
         String unit = proxyScriptHash + stateDatum.getId();
-        String proxyScriptAddress = AddressProvider.getEntAddress(uverifyProxyContract, fromCardanoNetwork(network)).toBech32();
-        Optional<Utxo> optionalUtxo = pendingTransactionCache.getPendingStateUtxo(unit);
-        if (optionalUtxo.isEmpty()) {
-            optionalUtxo = ValidatorUtils.getCurrentUtxoByUnit(proxyScriptAddress, unit, queryBackendService);
-        } else {
-            log.debug("Using pending chained UTxO for unit {} (skipping chain query)", unit);
+        String proxyScriptAddress = validatorHelper.getProxyContractAddress();
+        // Held until the calling build populated the pending cache, so the
+        // next build for this state chains off its output.
+        stateBuildLocks.lock(unit);
+
+        // The state UTxO, the proxy state UTxO and the library reference
+        // UTxOs are independent, resolve them concurrently.
+        Optional<Utxo> optionalUtxo;
+        Utxo proxyStateUtxo;
+        Utxo stateLibraryUtxo;
+        Utxo proxyLibraryUtxo;
+        try (ConcurrentLookups.Phase phase = concurrentLookups.open("update-state")) {
+            ConcurrentLookups.Forked<Optional<Utxo>> stateUtxoLookup = phase.fork(() -> {
+                Optional<Utxo> pendingUtxo = pendingTransactionCache.getPendingStateUtxo(unit);
+                if (pendingUtxo.isPresent()) {
+                    log.debug("Using pending chained UTxO for unit {} (skipping chain query)", unit);
+                    return pendingUtxo;
+                }
+                return ValidatorUtils.getCurrentUtxoByUnit(proxyScriptAddress, unit, queryBackendService);
+            });
+            ConcurrentLookups.Forked<Utxo> proxyStateUtxoLookup = phase.fork(() -> {
+                try {
+                    return validatorHelper.resolveProxyStateUtxo(backendService);
+                } catch (Exception exception) {
+                    log.error("Unable to fetch proxy state utxo: " + exception.getMessage());
+                    return null;
+                }
+            });
+            ConcurrentLookups.Forked<Utxo> stateLibraryUtxoLookup = phase.fork(libraryService::getStateLibraryUtxo);
+            ConcurrentLookups.Forked<Utxo> proxyLibraryUtxoLookup = phase.fork(libraryService::getProxyLibraryUtxo);
+            phase.join();
+            optionalUtxo = stateUtxoLookup.get();
+            proxyStateUtxo = proxyStateUtxoLookup.get();
+            stateLibraryUtxo = stateLibraryUtxoLookup.get();
+            proxyLibraryUtxo = proxyLibraryUtxoLookup.get();
         }
 
         if (optionalUtxo.isEmpty()) {
@@ -447,11 +543,7 @@ public class CardanoBlockchainService {
         }
         nextStateDatum.setCertificates(uVerifyCertificates);
 
-        Utxo proxyStateUtxo;
-        try {
-            proxyStateUtxo = validatorHelper.resolveProxyStateUtxo(backendService);
-        } catch (Exception exception) {
-            log.error("Unable to fetch proxy state utxo: " + exception.getMessage());
+        if (proxyStateUtxo == null) {
             return null;
         }
 
@@ -463,9 +555,6 @@ public class CardanoBlockchainService {
         PlutusData spendProxyRedeemer = new ProxyRedeemerConverter().toPlutusData(ProxyRedeemer.USER_ACTION);
         String stateScriptRewardAddress = AddressProvider.getRewardAddress(uverifyStateContract, fromCardanoNetwork(network)).toBech32();
 
-        Utxo stateLibraryUtxo = libraryService.getStateLibraryUtxo();
-        Utxo proxyLibraryUtxo = libraryService.getProxyLibraryUtxo();
-
         ScriptTx updateStateTokenTx = new ScriptTx()
                 .readFrom(proxyStateUtxo, stateLibraryUtxo, proxyLibraryUtxo)
                 .collectFrom(utxo, spendProxyRedeemer)
@@ -473,7 +562,10 @@ public class CardanoBlockchainService {
                 .withdraw(stateScriptRewardAddress, BigInteger.valueOf(0), redeemer.toPlutusData());
 
         BootstrapDatumEntity bootstrapDatum = stateDatum.getBootstrapDatum();
-        if (stateDatum.getCountdown() % bootstrapDatum.getFeeInterval() == 0) {
+        // Countdown of the spent UTxO, which is ahead of the indexed state
+        // when the build chains off a pending transaction.
+        long spentCountdown = nextStateDatum.getCountdown() + 1;
+        if (spentCountdown % bootstrapDatum.getFeeInterval() == 0) {
             long fee = bootstrapDatum.getFee() / bootstrapDatum.getFeeReceivers().size();
             for (FeeReceiverEntity feeReceiver : bootstrapDatum.getFeeReceivers()) {
                 Credential credential = Credential.fromKey(feeReceiver.getCredential());
@@ -486,46 +578,100 @@ public class CardanoBlockchainService {
     }
 
     public Transaction updateStateDatum(String address, StateDatumEntity stateDatum, List<UVerifyCertificate> uVerifyCertificates) throws ApiException, CborSerializationException {
-        Address userAddress = new Address(address);
-        PlutusScript uverifyStateContract = validatorHelper.getParameterizedUVerifyStateContract();
-        PlutusScript uverifyProxyContract = validatorHelper.getParameterizedProxyContract();
-
-        ScriptTx updateStateTokenTx = buildUpdateStateDatumScriptTx(address, stateDatum, uVerifyCertificates);
+        return updateStateDatum(address, stateDatum, uVerifyCertificates, false);
+    }
 
-        long currentSlot = CardanoUtils.getLatestSlot(backendService);
-        long validFrom = currentSlot - 10;
-        long transactionTtl = currentSlot + 600; // 10 minutes
+    /**
+     * Builds the next transaction of a planned sequence of state updates,
+     * e.g. a bulk issuance. Fee inputs chain off the change of the previous
+     * transaction of the sequence, and a transaction exceeding the protocol
+     * limits is rejected with {@link BuildStatusCode#TRANSACTION_TOO_LARGE}
+     * before it is added to the pending cache.
+     */
+    public Transaction updateStateDatumChained(String address, StateDatumEntity stateDatum, List<UVerifyCertificate> uVerifyCertificates) throws ApiException, CborSerializationException {
+        return updateStateDatum(address, stateDatum, uVerifyCertificates, true);
+    }
 
-        String proxyContractAddress = validatorHelper.getProxyContractAddress();
-        String proxyScriptHash = ValidatorUtils.validatorToScriptHash(uverifyProxyContract);
-        AtomicReference<Transaction> captured = new AtomicReference<>();
-        Transaction transaction;
-        try {
-            transaction = new QuickTxBuilder(backendService)
-                    .compose(updateStateTokenTx)
-                    .validFrom(validFrom)
-                    .validTo(transactionTtl)
-                    .collateralPayer(address)
-                    .feePayer(address)
-                    .withRequiredSigners(userAddress)
-                    .withReferenceScripts(uverifyStateContract, uverifyProxyContract)
-                    .postBalanceTx((TxBuilder) (ctx, tx) -> captured.set(tx))
-                    .build();
-        } catch (UVerifyTransactionException transactionException) {
-            throw transactionException;
-        } catch (Exception exception) {
-            String exceptionMessage = exception.getMessage() != null ? exception.getMessage().toLowerCase() : "";
-            if (exceptionMessage.contains("collateral")) {
-                throw new UVerifyTransactionException(BuildStatusCode.COLLATERAL_REQUIRED, exception.getMessage());
+    private Transaction updateStateDatum(String address, StateDatumEntity stateDatum, List<UVerifyCertificate> uVerifyCertificates,
+                                         boolean chained) throws ApiException, CborSerializationException {
+        try (StateBuildLocks.Scope ignored = stateBuildLocks.open()) {
+            Address userAddress = new Address(address);
+            PlutusScript uverifyStateContract = validatorHelper.getParameterizedUVerifyStateContract();
+            PlutusScript uverifyProxyContract = validatorHelper.getParameterizedProxyContract();
+
+            ScriptTx updateStateTokenTx;
+            long currentSlot;
+            try (ConcurrentLookups.Phase phase = concurrentLookups.open("latest-slot")) {
+                ConcurrentLookups.Forked<Long> latestSlot = phase.fork(() -> chainTipTracker.getLatestSlot(backendService));
+                updateStateTokenTx = buildUpdateStateDatumScriptTx(address, stateDatum, uVerifyCertificates);
+                phase.join();
+                currentSlot = latestSlot.get();
             }
-            if (exception instanceof ApiException apiException) throw apiException;
-            if (exception instanceof CborSerializationException cborSerializationException) throw cborSerializationException;
-            throw new RuntimeException(exception);
+            long validFrom = currentSlot - 10;
+            long transactionTtl = currentSlot + 600; // 10 minutes
+
+            String proxyContractAddress = validatorHelper.getProxyContractAddress();
+            String proxyScriptHash = validatorHelper.getProxyScriptHash();
+            AtomicReference<Transaction> captured = new AtomicReference<>();
+            Transaction transaction;
+            UtxoSupplier utxoSupplier = new DefaultUtxoSupplier(backendService.getUtxoService());
+            if (chained) {
+                utxoSupplier = pendingTransactionCache.chainingUtxoSupplier(utxoSupplier);
+            }
+            try {
+                transaction = protocolParamsCache.quickTxBuilder(backendService, utxoSupplier)
+                        .compose(updateStateTokenTx)
+                        .validFrom(validFrom)
+                        .validTo(transactionTtl)
+                        .collateralPayer(address)
+                        .feePayer(address)
+                        .withRequiredSigners(userAddress)
+                        .withReferenceScripts(uverifyStateContract, uverifyProxyContract)
+                        .postBalanceTx((TxBuilder) (ctx, tx) -> captured.set(tx))
+                        .build();
+            } catch (UVerifyTransactionException transactionException) {
+                throw transactionException;
+            } catch (Exception exception) {
+                String exceptionMessage = exception.getMessage() != null ? exception.getMessage().toLowerCase() : "";
+                if (exceptionMessage.contains("collateral")) {
+                    throw new UVerifyTransactionException(BuildStatusCode.COLLATERAL_REQUIRED, exception.getMessage());
+                }
+                if (exception instanceof ApiException apiException) throw apiException;
+                if (exception instanceof CborSerializationException cborSerializationException) throw cborSerializationException;
+                throw new RuntimeException(exception);
+            }
+            if (chained) {
+                ensureWithinProtocolLimits(transaction);
+            }
+            pendingTransactionCache.populate(
+                    captured.get() != null ? captured.get() : transaction,
+                    proxyContractAddress, proxyScriptHash);
+            return transaction;
+        }
+    }
+
+    private void ensureWithinProtocolLimits(Transaction transaction) throws CborSerializationException {
+        ProtocolParams protocolParams = protocolParamsCache.getProtocolParams(backendService);
+        // The user's vkey witness is only added when signing.
+        int size = transaction.serialize().length + UNSIGNED_WITNESS_ALLOWANCE_BYTES;
+        if (protocolParams.getMaxTxSize() != null && size > protocolParams.getMaxTxSize()) {
+            throw new UVerifyTransactionException(BuildStatusCode.TRANSACTION_TOO_LARGE,
+                    "Transaction size " + size + " exceeds the maximum of " + protocolParams.getMaxTxSize() + " bytes");
+        }
+        if (transaction.getWitnessSet() == null || transaction.getWitnessSet().getRedeemers() == null) {
+            return;
+        }
+        BigInteger memory = BigInteger.ZERO;
+        BigInteger steps = BigInteger.ZERO;
+        for (com.bloxbean.cardano.client.plutus.spec.Redeemer redeemer : transaction.getWitnessSet().getRedeemers()) {
+            memory = memory.add(redeemer.getExUnits().getMem());
+            steps = steps.add(redeemer.getExUnits().getSteps());
+        }
+        if ((protocolParams.getMaxTxExMem() != null && memory.compareTo(new BigInteger(protocolParams.getMaxTxExMem())) > 0)
+                || (protocolParams.getMaxTxExSteps() != null && steps.compareTo(new BigInteger(protocolParams.getMaxTxExSteps())) > 0)) {
+            throw new UVerifyTransactionException(BuildStatusCode.TRANSACTION_TOO_LARGE,
+                    "Transaction exceeds the execution budget (memory " + memory + ", steps " + steps + ")");
         }
-        pendingTransactionCache.populate(
-                captured.get() != null ? captured.get() : transaction,
-                proxyContractAddress, proxyScriptHash);
-        return transaction;
     }
 
     public Transaction invalidateState(Address userAddress, String transactionId) throws ApiException {
@@ -558,11 +704,11 @@ public class CardanoBlockchainService {
                 .attachSpendingValidator(updateTestStateTokenScript)
                 .mintAsset(mintStateTokenScript, List.of(userStateToken), PlutusData.unit());
 
-        long currentSlot = CardanoUtils.getLatestSlot(backendService);
+        long currentSlot = chainTipTracker.getLatestSlot(backendService);
         long validFrom = currentSlot - 10;
         long transactionTtl = currentSlot + 600; // 10 minutes
 
-        QuickTxBuilder quickTxBuilder = new QuickTxBuilder(backendService);
+        QuickTxBuilder quickTxBuilder = protocolParamsCache.quickTxBuilder(backendService);
         return quickTxBuilder.compose(updateStateTokenTx)
                 .validFrom(validFrom)
                 .validTo(transactionTtl)
@@ -572,7 +718,7 @@ public class CardanoBlockchainService {
     }
 
     public void processUVerifyProxyTx(StateRedeemer stateRedeemer, String txHash, String blockHash, long blockNumber,
-                                      long blockTime, long slot, String inlineDatum) {
+                                      long blockTime, long slot, String inlineDatum, BigInteger fee) {
         if (stateRedeemer.getPurpose().equals(UVerifyScriptPurpose.MINT_STATE)) {
             StateDatum stateDatum = StateDatum.fromUtxoDatum(inlineDatum);
             stateDatum.setCertificates(stateRedeemer.getCertificates());
@@ -604,6 +750,7 @@ public class CardanoBlockchainService {
                 uVerifyCertificatesEntities.add(uVerifyCertificateEntity);
             }
             uVerifyCertificateService.saveAllCertificates(uVerifyCertificatesEntities);
+            usageStatisticsRecorder.recordCertificates(uVerifyCertificatesEntities, fee, slot);
         } else if (stateRedeemer.getPurpose().equals(UVerifyScriptPurpose.MINT_BOOTSTRAP)) {
             BootstrapDatumEntity bootstrapDatumEntity = BootstrapDatumEntity.fromInlineDatum(inlineDatum, txHash, slot, network);
             bootstrapDatumService.save(bootstrapDatumEntity);
@@ -636,6 +783,7 @@ public class CardanoBlockchainService {
                 uVerifyCertificatesEntities.add(uVerifyCertificateEntity);
             }
             uVerifyCertificateService.saveAllCertificates(uVerifyCertificatesEntities);
+            usageStatisticsRecorder.recordCertificates(uVerifyCertificatesEntities, fee, slot);
         }
     }
 
@@ -687,6 +835,7 @@ public class CardanoBlockchainService {
                         uVerifyCertificatesEntities.add(uVerifyCertificateEntity);
                     }
                     uVerifyCertificateService.saveAllCertificates(uVerifyCertificatesEntities);
+                    usageStatisticsRecorder.recordLegacyCertificates(uVerifyCertificatesEntities, addressUtxo.getTxHash(), addressUtxo.getSlot());
                     processedUtxos.add(addressUtxo);
                 }
             }
@@ -695,12 +844,16 @@ public class CardanoBlockchainService {
     }
 
     public void handleRollbackToSlot(long slot) {
+        parallelBuffer.removeIf(entry -> entry.slot() > slot);
         bootstrapDatumService.undoInvalidationBeforeSlot(slot);
         uVerifyCertificateService.deleteAllCertificatesAfterSlot(slot);
         stateDatumService.undoInvalidationBeforeSlot(slot);
         stateDatumService.handleRollbackToSlot(slot);
         bootstrapDatumService.deleteAllAfterSlot(slot);
         libraryService.rollbackToSlot(slot);
+        usageStatisticsRecorder.rollbackToSlot(slot);
+        validatorHelper.invalidateProxyStateUtxo();
+        immutableQueryCache.invalidateAll();
     }
 
     public Transaction invalidateStates(Address userAddress, List<String> transactionIds) throws ApiException {
@@ -734,11 +887,11 @@ public class CardanoBlockchainService {
                     .mintAsset(mintStateTokenScript, List.of(userStateToken), PlutusData.unit()));
         }
 
-        long currentSlot = CardanoUtils.getLatestSlot(backendService);
+        long currentSlot = chainTipTracker.getLatestSlot(backendService);
         long validFrom = currentSlot - 10;
         long transactionTtl = currentSlot + 600; // 10 minutes
 
-        QuickTxBuilder quickTxBuilder = new QuickTxBuilder(backendService);
+        QuickTxBuilder quickTxBuilder = protocolParamsCache.quickTxBuilder(backendService);
         return quickTxBuilder.compose(invalidateStateTransactions.toArray(new ScriptTx[0]))
                 .validFrom(validFrom)
                 .validTo(transactionTtl)
@@ -748,7 +901,7 @@ public class CardanoBlockchainService {
     }
 
     public Long getLatestSlot() throws ApiException {
-        return CardanoUtils.getLatestSlot(backendService);
+        return chainTipTracker.getLatestSlot(backendService);
     }
 
     public Transaction mintProxyBootstrapDatum(BootstrapDatum bootstrapDatum) {
@@ -759,7 +912,7 @@ public class CardanoBlockchainService {
         PlutusScript proxyContract = validatorHelper.getParameterizedProxyContract();
         PlutusScript stateContract = validatorHelper.getParameterizedUVerifyStateContract();
 
-        QuickTxBuilder quickTxBuilder = new QuickTxBuilder(backendService);
+        QuickTxBuilder quickTxBuilder = protocolParamsCache.quickTxBuilder(backendService);
 
         Asset authorizationToken = Asset.builder()
                 .name(bootstrapDatum.getTokenName())
@@ -801,6 +954,11 @@ public class CardanoBlockchainService {
     }
 
     public ScriptTx buildForkProxyStateDatumScriptTx(String address, List<UVerifyCertificate> uVerifyCertificates, String bootstrapTokenName) throws ApiException, CborSerializationException {
+        return buildForkProxyStateDatumScriptTx(address, uVerifyCertificates, bootstrapTokenName, stateId -> {});
+    }
+
+    private ScriptTx buildForkProxyStateDatumScriptTx(String address, List<UVerifyCertificate> uVerifyCertificates, String bootstrapTokenName,
+                                                      Consumer<String> forkedStateId) throws ApiException, CborSerializationException {
         Optional<BootstrapDatumEntity> optionalBootstrapDatumEntity = bootstrapDatumService.getBootstrapDatum(bootstrapTokenName, 2);
 
         if (optionalBootstrapDatumEntity.isEmpty()) {
@@ -857,6 +1015,7 @@ public class CardanoBlockchainService {
                 .array());
 
         stateDatum.setId(DigestUtils.sha256Hex(HexUtil.decodeHexString(userUtxo.getTxHash() + index)));
+        forkedStateId.accept(stateDatum.getId());
 
         Asset userStateToken = Asset.builder()
                 .name("0x" + stateDatum.getId())
@@ -910,16 +1069,16 @@ public class CardanoBlockchainService {
         PlutusScript stateContract = validatorHelper.getParameterizedUVerifyStateContract();
         PlutusScript proxyContract = validatorHelper.getParameterizedProxyContract();
 
-        long currentSlot = CardanoUtils.getLatestSlot(backendService);
+        long currentSlot = chainTipTracker.getLatestSlot(backendService);
         long validFrom = currentSlot - 10;
         long transactionTtl = currentSlot + 600; // 10 minutes
 
         String proxyContractAddress = validatorHelper.getProxyContractAddress();
-        String proxyScriptHash = ValidatorUtils.validatorToScriptHash(proxyContract);
+        String proxyScriptHash = validatorHelper.getProxyScriptHash();
         AtomicReference<Transaction> captured = new AtomicReference<>();
         Transaction transaction;
         try {
-            transaction = new QuickTxBuilder(backendService)
+            transaction = protocolParamsCache.quickTxBuilder(backendService)
                     .compose(scriptTransaction)
                     .validFrom(validFrom)
                     .validTo(transactionTtl)
@@ -946,14 +1105,14 @@ public class CardanoBlockchainService {
         return transaction;
     }
 
-    private Optional<StateRedeemer> findWithdrawalRedeemer(Map<String, BigInteger> withdrawals, List<Redeemer> redeemers, Address address) {
+    private Optional<StateRedeemer> findWithdrawalRedeemer(Map<String, BigInteger> withdrawals, List<Redeemer> redeemers, String rewardAddress) {
         if (withdrawals == null || withdrawals.size() == 0)
             return Optional.empty();
 
         ArrayList<String> rewardAddresses = new ArrayList<>(withdrawals.keySet().stream().map(String::toLowerCase).toList());
         Collections.sort(rewardAddresses);
 
-        int redeemerIndex = rewardAddresses.indexOf(HexUtil.encodeHexString(address.getBytes()).toLowerCase());
+        int redeemerIndex = rewardAddresses.indexOf(rewardAddress.toLowerCase());
         Optional<Redeemer> optionalRedeemer = redeemers.stream().filter(redeemer -> redeemer.getIndex() == redeemerIndex).findFirst();
         if (optionalRedeemer.isEmpty()) {
             return Optional.empty();
@@ -968,18 +1127,10 @@ public class CardanoBlockchainService {
         }
     }
 
-    private boolean signedByAddress(com.bloxbean.cardano.yaci.helper.model.Transaction transaction, String address) {
-        return transaction.getWitnesses().getVkeyWitnesses().stream()
-                .anyMatch(vkeyWitness -> {
-                    byte[] vkeyHash = Blake2bUtil.blake2bHash224(HexUtil.decodeHexString(vkeyWitness.getKey()));
-                    Optional<byte[]> paymentCredentialHash = new Address(address).getPaymentCredentialHash();
-                    return paymentCredentialHash.isPresent() && Arrays.equals(vkeyHash, paymentCredentialHash.get());
-                });
-    }
-
     public void processTransactionEvent(TransactionEvent transactionEvent) {
         EventMetadata metadata = transactionEvent.getMetadata();
         if (metadata.isParallelMode()) {
+            bufferTransactionEvent(transactionEvent);
             return;
         }
 
@@ -988,117 +1139,220 @@ public class CardanoBlockchainService {
                 continue;
 
             pendingTransactionCache.clearLocksForTransaction(transaction.getTxHash());
+            validatorHelper.trackProxyStateUtxo(transaction);
 
-            final String libraryContractAddress = libraryService.getLibraryAddress();
-            boolean hasLibraryInteraction = transaction.getBody().getOutputs() != null && transaction.getBody().getOutputs().stream().anyMatch(utxo -> utxo.getAddress().equals(libraryContractAddress));
-
-            if (!hasLibraryInteraction && (transaction.getWitnesses().getRedeemers() == null || transaction.getWitnesses().getRedeemers().size() == 0))
+            // Re-read per transaction: a library deployment earlier in the
+            // same block replaces the context.
+            UVerifyMatchContext matchContext = libraryService.getMatchContext();
+            if (!matchContext.isRelevant(transaction))
                 continue;
 
-            final String proxyTxHash = validatorHelper.getProxyTransactionHash();
-            final Integer proxyOutputIndex = validatorHelper.getProxyOutputIndex();
+            classifyTransaction(transaction, matchContext)
+                    .ifPresent(action -> applyIndexAction(transaction, metadata, action));
+        }
+    }
+
+    /**
+     * Parallel sync delivers blocks out of order and from several threads at
+     * once. Transactions are classified right away on the delivering thread
+     * and kept until the batch commits, so the database writes still happen
+     * in chain order.
+     */
+    private void bufferTransactionEvent(TransactionEvent transactionEvent) {
+        EventMetadata metadata = transactionEvent.getMetadata();
+        UVerifyMatchContext matchContext = libraryService.getMatchContext();
+        List<com.bloxbean.cardano.yaci.helper.model.Transaction> transactions = transactionEvent.getTransactions();
+
+        for (int position = 0; position < transactions.size(); position++) {
+            com.bloxbean.cardano.yaci.helper.model.Transaction transaction = transactions.get(position);
+            if (transaction.isInvalid())
+                continue;
 
-            final PlutusScript uverifyProxyContract = getUverifyProxyContract(proxyTxHash, proxyOutputIndex);
-            final String uverifyProxyScriptHash = ValidatorUtils.validatorToScriptHash(uverifyProxyContract);
+            pendingTransactionCache.clearLocksForTransaction(transaction.getTxHash());
 
-            // Match against every state script version ever deployed to the
-            // library, not just the latest one, so certificates issued under
-            // previous versions are recognized when syncing from scratch.
-            Set<String> stateContractRewardAddresses = libraryService.getStateContractRewardAddresses();
-            Optional<String> matchedStateContractAddress = transaction.getBody().getWithdrawals() == null
-                    ? Optional.empty()
-                    : transaction.getBody().getWithdrawals().keySet().stream()
-                    .filter(rewardAddress -> stateContractRewardAddresses.contains(rewardAddress.toLowerCase()))
-                    .findFirst();
+            if (matchContext.isRelevant(transaction)) {
+                Optional<IndexAction> action = classifyTransaction(transaction, matchContext);
+                if (action.isPresent()) {
+                    IndexAction indexAction = action.get();
+                    parallelBuffer.add(new BufferedWrite(metadata.getSlot(), position,
+                            () -> applyBufferedTransaction(transaction, metadata, matchContext, indexAction)));
+                }
+            } else if (mayWithdrawFromStateScript(transaction)) {
+                // A library deployment earlier in the batch may add a state
+                // script this snapshot does not know yet. Keep the transaction
+                // so it can be matched again once the batch is applied.
+                parallelBuffer.add(new BufferedWrite(metadata.getSlot(), position,
+                        () -> applyBufferedTransaction(transaction, metadata, matchContext, null)));
+            }
+        }
+    }
 
-            List<com.bloxbean.cardano.yaci.core.model.Amount> mints = transaction.getBody().getMint();
+    /**
+     * Keeps a write of a block delivered by parallel sync until the batch
+     * commits. It runs before the buffered transactions of the same block.
+     */
+    public void bufferUntilCommit(long slot, Runnable write) {
+        parallelBuffer.add(new BufferedWrite(slot, -1, write));
+    }
 
-            Optional<com.bloxbean.cardano.yaci.core.model.Amount> maybeMint = mints.stream().filter(amount -> amount.getPolicyId().equals(uverifyProxyScriptHash)).findFirst();
-            boolean hasStateContractInteraction = matchedStateContractAddress.isPresent();
+    /**
+     * Applies every write buffered by parallel sync in slot order. Called at
+     * the end of each yaci-store batch.
+     */
+    public void applyBufferedTransactions() {
+        List<BufferedWrite> buffered = new ArrayList<>();
+        BufferedWrite next;
+        while ((next = parallelBuffer.poll()) != null) {
+            buffered.add(next);
+        }
+        if (buffered.isEmpty()) {
+            return;
+        }
+        buffered.sort(Comparator.comparingLong(BufferedWrite::slot).thenComparingInt(BufferedWrite::position));
 
-            Optional<byte[]> optionalUserPaymentCredential = serviceUserAddress.getPaymentCredentialHash();
+        for (BufferedWrite entry : buffered) {
+            entry.write().run();
+        }
+        log.debug("Applied {} buffered writes from parallel sync", buffered.size());
+    }
 
-            if (optionalUserPaymentCredential.isEmpty()) {
-                throw new IllegalArgumentException("Invalid Cardano payment address");
-            }
+    private void applyBufferedTransaction(com.bloxbean.cardano.yaci.helper.model.Transaction transaction, EventMetadata metadata,
+                                          UVerifyMatchContext bufferedMatchContext, IndexAction bufferedAction) {
+        // Proxy upgrades write to the library, so they are always buffered.
+        validatorHelper.trackProxyStateUtxo(transaction);
+        UVerifyMatchContext matchContext = libraryService.getMatchContext();
+        Optional<IndexAction> action;
+        if (bufferedMatchContext == matchContext) {
+            action = Optional.ofNullable(bufferedAction);
+        } else if (matchContext.isRelevant(transaction)) {
+            action = classifyTransaction(transaction, matchContext);
+        } else {
+            action = Optional.empty();
+        }
+        action.ifPresent(indexAction -> applyIndexAction(transaction, metadata, indexAction));
+    }
 
-            if (maybeMint.isPresent()) {
-                com.bloxbean.cardano.yaci.core.model.Amount mint = maybeMint.get();
+    private static boolean mayWithdrawFromStateScript(com.bloxbean.cardano.yaci.helper.model.Transaction transaction) {
+        Map<String, BigInteger> withdrawals = transaction.getBody().getWithdrawals();
+        List<Redeemer> redeemers = transaction.getWitnesses().getRedeemers();
+        return withdrawals != null && !withdrawals.isEmpty() && redeemers != null && !redeemers.isEmpty();
+    }
 
-                List<String> distinctPolicies = transaction.getBody().getMint().stream()
-                        .map(com.bloxbean.cardano.yaci.core.model.Amount::getPolicyId)
-                        .distinct().toList();
+    /**
+     * Decodes the redeemers and datums of a relevant transaction without
+     * touching the database. Safe to call from several threads.
+     */
+    private Optional<IndexAction> classifyTransaction(com.bloxbean.cardano.yaci.helper.model.Transaction transaction,
+                                                      UVerifyMatchContext matchContext) {
+        final String libraryContractAddress = matchContext.getLibraryAddress();
+        final boolean hasLibraryInteraction = matchContext.touchesLibrary(transaction);
+        final String uverifyProxyScriptHash = matchContext.getProxyPolicyId();
 
-                int redeemerIndex = distinctPolicies.indexOf(mint.getPolicyId());
-                Optional<Redeemer> optionalRedeemer = transaction.getWitnesses().getRedeemers().stream().filter(redeemer -> redeemer.getTag().equals(RedeemerTag.Mint) && redeemer.getIndex() == redeemerIndex).findFirst();
+        // Match against every state script version ever deployed to the
+        // library, not just the latest one, so certificates issued under
+        // previous versions are recognized when syncing from scratch.
+        Optional<String> matchedStateContractAddress = matchContext.matchStateRewardAddress(transaction.getBody().getWithdrawals());
 
-                if (optionalRedeemer.isEmpty()) {
-                    log.warn("No redeemer found for minting UVerify Proxy Token in tx: {}", transaction.getTxHash());
-                    continue;
-                }
+        List<com.bloxbean.cardano.yaci.core.model.Amount> mints = transaction.getBody().getMint();
 
-                Redeemer redeemer = optionalRedeemer.get();
-                ProxyRedeemer proxyRedeemer = new ProxyRedeemerConverter().deserialize(redeemer.getData().getCbor());
+        Optional<com.bloxbean.cardano.yaci.core.model.Amount> maybeMint = mints == null ? Optional.empty() : mints.stream().filter(amount -> amount.getPolicyId().equals(uverifyProxyScriptHash)).findFirst();
+        boolean hasStateContractInteraction = matchedStateContractAddress.isPresent();
 
-                Map<String, BigInteger> withdrawals = transaction.getBody().getWithdrawals();
-                List<Redeemer> rewardRedeemers = transaction.getWitnesses().getRedeemers().stream().filter(potentialRedeemer -> potentialRedeemer.getTag().equals(RedeemerTag.Reward)).toList();
-                Optional<StateRedeemer> stateRedeemer = matchedStateContractAddress.flatMap(rewardAddress ->
-                        findWithdrawalRedeemer(withdrawals, rewardRedeemers, new Address(HexUtil.decodeHexString(rewardAddress))));
+        StateRedeemer proxyStateRedeemer = null;
+        String proxyInlineDatum = null;
+        if (maybeMint.isPresent()) {
+            com.bloxbean.cardano.yaci.core.model.Amount mint = maybeMint.get();
 
-                if (stateRedeemer.isEmpty()) {
-                    log.warn("No StateRedeemer found for withdrawal in tx: {}", transaction.getTxHash());
-                    continue;
-                }
+            List<String> distinctPolicies = transaction.getBody().getMint().stream()
+                    .map(com.bloxbean.cardano.yaci.core.model.Amount::getPolicyId)
+                    .distinct().toList();
 
-                if (proxyRedeemer.equals(ProxyRedeemer.USER_ACTION)) {
-                    Optional<TransactionOutput> optionalUtxo = transaction.getBody().getOutputs().stream().filter(utxo -> utxo.getAmounts().stream()
-                            .anyMatch(amount -> amount.getPolicyId() != null &&
-                                    amount.getPolicyId().equals(uverifyProxyScriptHash))).findFirst();
-                    if (optionalUtxo.isEmpty()) {
-                        log.warn("No UTXO found with UVerify Proxy Token in tx: {}", transaction.getTxHash());
-                        continue;
-                    }
-                    TransactionOutput utxo = optionalUtxo.get();
-                    processUVerifyProxyTx(stateRedeemer.get(), transaction.getTxHash(),
-                            metadata.getBlockHash(), transaction.getBlockNumber(), metadata.getBlockTime(), metadata.getSlot(), utxo.getInlineDatum());
-                }
-            } else if (hasStateContractInteraction) {
-                final String proxyContractAddress = validatorHelper.getProxyContractAddress();
-                Optional<TransactionOutput> maybeTransactionOutput = transaction.getBody().getOutputs().stream().filter(txOutput -> txOutput.getAddress().equals(proxyContractAddress)
-                        && txOutput.getAmounts().stream().anyMatch(amount -> amount.getPolicyId() != null && amount.getPolicyId().equals(uverifyProxyScriptHash))).findFirst();
-
-                if (maybeTransactionOutput.isEmpty()) {
-                    log.warn("No output found with UVerify Proxy Token in tx: {}", transaction.getTxHash());
-                    continue;
-                }
+            int redeemerIndex = distinctPolicies.indexOf(mint.getPolicyId());
+            Optional<Redeemer> optionalRedeemer = transaction.getWitnesses().getRedeemers().stream().filter(redeemer -> redeemer.getTag().equals(RedeemerTag.Mint) && redeemer.getIndex() == redeemerIndex).findFirst();
 
-                Map<String, BigInteger> withdrawals = transaction.getBody().getWithdrawals();
-                List<Redeemer> rewardRedeemers = transaction.getWitnesses().getRedeemers().stream().filter(potentialRedeemer -> potentialRedeemer.getTag().equals(RedeemerTag.Reward)).toList();
+            if (optionalRedeemer.isEmpty()) {
+                log.warn("No redeemer found for minting UVerify Proxy Token in tx: {}", transaction.getTxHash());
+                return Optional.empty();
+            }
 
-                Optional<StateRedeemer> stateRedeemer = matchedStateContractAddress.flatMap(rewardAddress ->
-                        findWithdrawalRedeemer(withdrawals, rewardRedeemers, new Address(HexUtil.decodeHexString(rewardAddress))));
+            Redeemer redeemer = optionalRedeemer.get();
+            ProxyRedeemer proxyRedeemer = new ProxyRedeemerConverter().deserialize(redeemer.getData().getCbor());
 
-                if (stateRedeemer.isEmpty()) {
-                    log.warn("No StateRedeemer found for withdrawal in tx: {}", transaction.getTxHash());
-                    continue;
-                }
+            Map<String, BigInteger> withdrawals = transaction.getBody().getWithdrawals();
+            List<Redeemer> rewardRedeemers = transaction.getWitnesses().getRedeemers().stream().filter(potentialRedeemer -> potentialRedeemer.getTag().equals(RedeemerTag.Reward)).toList();
+            Optional<StateRedeemer> stateRedeemer = matchedStateContractAddress.flatMap(rewardAddress ->
+                    findWithdrawalRedeemer(withdrawals, rewardRedeemers, rewardAddress));
 
-                TransactionOutput transactionOutput = maybeTransactionOutput.get();
-                processUVerifyProxyTx(stateRedeemer.get(), transaction.getTxHash(),
-                        metadata.getBlockHash(), transaction.getBlockNumber(), metadata.getBlockTime(), metadata.getSlot(), transactionOutput.getInlineDatum());
+            if (stateRedeemer.isEmpty()) {
+                log.warn("No StateRedeemer found for withdrawal in tx: {}", transaction.getTxHash());
+                return Optional.empty();
             }
 
-            if (hasLibraryInteraction) {
-                boolean signedByServiceUser = signedByAddress(transaction, serviceUserAddress.getAddress());
-                if (signedByServiceUser) {
-                    ArrayList<com.bloxbean.cardano.yaci.helper.model.Utxo> utxos = new ArrayList<>(transaction.getUtxos().stream()
-                            .filter(utxo -> utxo.getAddress().equals(libraryContractAddress)).toList());
-                    if (utxos.size() > 0) {
-                        libraryService.deployToLibrary(utxos, transaction.getSlot());
-                    }
+            if (proxyRedeemer.equals(ProxyRedeemer.USER_ACTION)) {
+                Optional<TransactionOutput> optionalUtxo = transaction.getBody().getOutputs().stream().filter(utxo -> utxo.getAmounts().stream()
+                        .anyMatch(amount -> amount.getPolicyId() != null &&
+                                amount.getPolicyId().equals(uverifyProxyScriptHash))).findFirst();
+                if (optionalUtxo.isEmpty()) {
+                    log.warn("No UTXO found with UVerify Proxy Token in tx: {}", transaction.getTxHash());
+                    return Optional.empty();
                 }
+                proxyStateRedeemer = stateRedeemer.get();
+                proxyInlineDatum = optionalUtxo.get().getInlineDatum();
             }
+        } else if (hasStateContractInteraction) {
+            final String proxyContractAddress = matchContext.getProxyContractAddress();
+            Optional<TransactionOutput> maybeTransactionOutput = transaction.getBody().getOutputs().stream().filter(txOutput -> txOutput.getAddress().equals(proxyContractAddress)
+                    && txOutput.getAmounts().stream().anyMatch(amount -> amount.getPolicyId() != null && amount.getPolicyId().equals(uverifyProxyScriptHash))).findFirst();
+
+            if (maybeTransactionOutput.isEmpty()) {
+                log.warn("No output found with UVerify Proxy Token in tx: {}", transaction.getTxHash());
+                return Optional.empty();
+            }
+
+            Map<String, BigInteger> withdrawals = transaction.getBody().getWithdrawals();
+            List<Redeemer> rewardRedeemers = transaction.getWitnesses().getRedeemers().stream().filter(potentialRedeemer -> potentialRedeemer.getTag().equals(RedeemerTag.Reward)).toList();
+
+            Optional<StateRedeemer> stateRedeemer = matchedStateContractAddress.flatMap(rewardAddress ->
+                    findWithdrawalRedeemer(withdrawals, rewardRedeemers, rewardAddress));
+
+            if (stateRedeemer.isEmpty()) {
+                log.warn("No StateRedeemer found for withdrawal in tx: {}", transaction.getTxHash());
+                return Optional.empty();
+            }
+
+            proxyStateRedeemer = stateRedeemer.get();
+            proxyInlineDatum = maybeTransactionOutput.get().getInlineDatum();
         }
+
+        List<com.bloxbean.cardano.yaci.helper.model.Utxo> libraryUtxos = List.of();
+        if (hasLibraryInteraction && matchContext.isSignedByServiceUser(transaction)) {
+            libraryUtxos = transaction.getUtxos().stream()
+                    .filter(utxo -> utxo.getAddress().equals(libraryContractAddress)).toList();
+        }
+
+        if (proxyStateRedeemer == null && libraryUtxos.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(new IndexAction(proxyStateRedeemer, proxyInlineDatum, libraryUtxos));
+    }
+
+    private void applyIndexAction(com.bloxbean.cardano.yaci.helper.model.Transaction transaction, EventMetadata metadata,
+                                  IndexAction action) {
+        if (action.stateRedeemer() != null) {
+            processUVerifyProxyTx(action.stateRedeemer(), transaction.getTxHash(),
+                    metadata.getBlockHash(), transaction.getBlockNumber(), metadata.getBlockTime(), metadata.getSlot(), action.inlineDatum(),
+                    transaction.getBody().getFee());
+        }
+        if (!action.libraryUtxos().isEmpty()) {
+            libraryService.deployToLibrary(new ArrayList<>(action.libraryUtxos()), transaction.getSlot());
+        }
+    }
+
+    private record IndexAction(StateRedeemer stateRedeemer, String inlineDatum,
+                               List<com.bloxbean.cardano.yaci.helper.model.Utxo> libraryUtxos) {
+    }
+
+    private record BufferedWrite(long slot, int position, Runnable write) {
     }
 
     public BuildTransactionResponse buildPrepareCollateralTx(String senderAddress) throws ApiException, CborSerializationException {
@@ -1142,12 +1396,12 @@ public class CardanoBlockchainService {
                     .build();
         }
 
-        long currentSlot = CardanoUtils.getLatestSlot(backendService);
+        long currentSlot = chainTipTracker.getLatestSlot(backendService);
         Tx splitTx = new Tx()
                 .payToAddress(senderAddress, Amount.lovelace(minCollateralLovelace))
                 .from(senderAddress);
 
-        Transaction unsignedTx = new QuickTxBuilder(backendService)
+        Transaction unsignedTx = protocolParamsCache.quickTxBuilder(backendService)
                 .compose(splitTx)
                 .feePayer(senderAddress)
                 .mergeOutputs(false)
@@ -1183,7 +1437,7 @@ public class CardanoBlockchainService {
         }
         tx.from(senderAccount.baseAddress());
 
-        Transaction unsignedTx = new QuickTxBuilder(backendService)
+        Transaction unsignedTx = protocolParamsCache.quickTxBuilder(backendService)
                 .compose(tx)
                 .feePayer(senderAccount.baseAddress())
                 .mergeOutputs(false)
@@ -0,0 +1,257 @@
+/*
+ * UVerify Backend
+ * Copyright (C) 2025 Fabian Bormann
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.uverify.backend.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.uverify.backend.dto.BatchShare;
+import io.uverify.backend.dto.BuildStatus;
+import io.uverify.backend.dto.BuildTransactionResponse;
+import io.uverify.backend.enums.BuildStatusCode;
+import io.uverify.backend.model.UVerifyCertificate;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Collects certificate build requests for the same state into one
+ * transaction.
+ * <p>
+ * Every build spends one countdown tick of the state, no matter how many
+ * certificates it carries. With {@code build.batching.enabled} requests with
+ * the same key (build type, address and bootstrap token) are held for up to
+ * {@code build.batching.window-ms} and built together, up to the batch size
+ * the state accepts. Every caller receives the same unsigned transaction and a
+ * {@link BatchShare} telling which of its certificates are theirs. A caller
+ * whose batch did not start building within {@code build.batching.timeout-ms}
+ * is taken out of the batch and receives an error response instead.
+ */
+@Component
+@Slf4j
+public class CertificateBatcher {
+
+    public static final String BATCH_REQUESTS_METRIC = "uverify.build.batch.requests";
+
+    private final boolean enabled;
+    private final Duration window;
+    private final Duration timeout;
+    private final DistributionSummary batchRequests;
+    private final ConcurrentHashMap<String, Batch> openBatches = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "certificate-batcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ExecutorService builders = Executors.newVirtualThreadPerTaskExecutor();
+
+    @FunctionalInterface
+    public interface BatchBuild {
+        BuildTransactionResponse build(List<UVerifyCertificate> certificates);
+    }
+
+    @Autowired
+    public CertificateBatcher(@Value("${build.batching.enabled:false}") boolean enabled,
+                              @Value("${build.batching.window-ms:200}") long windowMillis,
+                              @Value("${build.batching.timeout-ms:60000}") long timeoutMillis,
+                              MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.window = Duration.ofMillis(windowMillis);
+        this.timeout = Duration.ofMillis(timeoutMillis);
+        this.batchRequests = DistributionSummary.builder(BATCH_REQUESTS_METRIC)
+                .description("Build requests combined into one transaction")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Builds the certificates of one request, batched with other requests of
+     * the same key if batching is enabled. {@code capacity} is the number of
+     * certificates the state accepts in one update. Blocks until the batch
+     * was built, or until the timeout passed before the build started.
+     */
+    public BuildTransactionResponse submit(String key, List<UVerifyCertificate> certificates, int capacity,
+                                           BatchBuild build) {
+        if (!enabled || certificates.size() >= capacity) {
+            return build.build(certificates);
+        }
+
+        Member member = new Member(certificates);
+        while (true) {
+            Batch batch = openBatches.computeIfAbsent(key, ignored -> open(key, capacity, build));
+            synchronized (batch) {
+                if (batch.closed) {
+                    continue;
+                }
+                if (batch.certificates + certificates.size() > batch.capacity) {
+                    flush(batch);
+                    continue;
+                }
+                batch.members.add(member);
+                batch.certificates += certificates.size();
+                if (batch.certificates == batch.capacity) {
+                    flush(batch);
+                }
+            }
+            return await(batch, member);
+        }
+    }
+
+    private BuildTransactionResponse await(Batch batch, Member member) {
+        try {
+            try {
+                return member.response.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException exception) {
+                synchronized (batch) {
+                    // Leave the batch, so the certificates are not anchored
+                    // by a transaction this caller never receives.
+                    if (!batch.started) {
+                        batch.members.remove(member);
+                        batch.certificates -= member.certificates.size();
+                        log.warn("Batched build did not start within {} ms", timeout.toMillis());
+                        return error(BuildStatusCode.ERROR,
+                                "Batched build did not start within " + timeout.toMillis() + " ms");
+                    }
+                }
+                // The certificates are part of the transaction being built.
+                return member.response.get();
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            return error(BuildStatusCode.UNKNOWN_ERROR, "Interrupted while waiting for the batched build");
+        } catch (ExecutionException exception) {
+            return error(BuildStatusCode.UNKNOWN_ERROR, exception.getCause().getMessage());
+        }
+    }
+
+    private static BuildTransactionResponse error(BuildStatusCode code, String message) {
+        return BuildTransactionResponse.builder()
+                .status(BuildStatus.builder()
+                        .code(code)
+                        .message(message)
+                        .build())
+                .build();
+    }
+
+    private Batch open(String key, int capacity, BatchBuild build) {
+        Batch batch = new Batch(key, capacity, build);
+        scheduler.schedule(() -> {
+            synchronized (batch) {
+                flush(batch);
+            }
+        }, window.toNanos(), TimeUnit.NANOSECONDS);
+        return batch;
+    }
+
+    // Callers hold the monitor of the batch.
+    private void flush(Batch batch) {
+        if (batch.closed) {
+            return;
+        }
+        batch.closed = true;
+        openBatches.remove(batch.key, batch);
+        if (!batch.members.isEmpty()) {
+            builders.execute(() -> build(batch));
+        }
+    }
+
+    private void build(Batch batch) {
+        List<UVerifyCertificate> certificates = new ArrayList<>();
+        synchronized (batch) {
+            batch.started = true;
+            batch.members.forEach(member -> certificates.addAll(member.certificates));
+        }
+        if (batch.members.isEmpty()) {
+            return;
+        }
+        batchRequests.record(batch.members.size());
+        log.debug("Building {} certificates of {} requests for {} in one transaction",
+                certificates.size(), batch.members.size(), batch.key);
+
+        BuildTransactionResponse response;
+        try {
+            response = batch.build.build(certificates);
+        } catch (RuntimeException exception) {
+            response = error(BuildStatusCode.UNKNOWN_ERROR, exception.getMessage());
+        }
+
+        int offset = 0;
+        for (Member member : batch.members) {
+            member.response.complete(BuildTransactionResponse.builder()
+                    .unsignedTransaction(response.getUnsignedTransaction())
+                    .type(response.getType())
+                    .status(response.getStatus())
+                    .batch(BatchShare.builder()
+                            .requests(batch.members.size())
+                            .certificates(certificates.size())
+                            .offset(offset)
+                            .count(member.certificates.size())
+                            .build())
+                    .build());
+            offset += member.certificates.size();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+        builders.shutdown();
+    }
+
+    private static final class Batch {
+        private final String key;
+        private final int capacity;
+        private final BatchBuild build;
+        private final List<Member> members = new ArrayList<>();
+        private int certificates;
+        private boolean closed;
+        private boolean started;
+
+        private Batch(String key, int capacity, BatchBuild build) {
+            this.key = key;
+            this.capacity = capacity;
+            this.build = build;
+        }
+    }
+
+    private static final class Member {
+        private final List<UVerifyCertificate> certificates;
+        private final CompletableFuture<BuildTransactionResponse> response = new CompletableFuture<>();
+
+        private Member(List<UVerifyCertificate> certificates) {
+            this.certificates = certificates;
+        }
+    }
+}
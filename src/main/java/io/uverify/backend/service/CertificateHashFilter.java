@@ -0,0 +1,121 @@
+/*
+ * UVerify Backend
+ * Copyright (C) 2025 Fabian Bormann
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.uverify.backend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.uverify.backend.repository.CertificateRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Collection;
+
+/**
+ * Bloom filter over all certificate hashes, used to answer lookups for hashes
+ * that were never certified without a database round trip.
+ * <p>
+ * The filter is built by streaming the hash column once the application is
+ * ready and the indexer adds every hash it writes. It is rebuilt periodically
+ * to drop rolled back certificates, see {@link RebuildableBloomFilter}.
+ */
+@Component
+public class CertificateHashFilter {
+
+    private final CertificateRepository certificateRepository;
+    private final RebuildableBloomFilter filter;
+
+    private final Counter skippedLookups;
+    private final Counter falsePositives;
+    private final Counter confirmedLookups;
+
+    public CertificateHashFilter(CertificateRepository certificateRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${verify.bloom-filter.enabled:true}") boolean enabled,
+                                 @Value("${verify.bloom-filter.minimum-capacity:1000000}") long minimumCapacity,
+                                 @Value("${verify.bloom-filter.false-positive-probability:0.01}") double falsePositiveProbability) {
+        this.certificateRepository = certificateRepository;
+        this.filter = new RebuildableBloomFilter("certificate hash filter", transactionManager, enabled,
+                minimumCapacity, falsePositiveProbability);
+
+        this.skippedLookups = Counter.builder("uverify.certificate.bloom.lookups")
+                .tag("result", "absent").register(meterRegistry);
+        this.falsePositives = Counter.builder("uverify.certificate.bloom.lookups")
+                .tag("result", "false_positive").register(meterRegistry);
+        this.confirmedLookups = Counter.builder("uverify.certificate.bloom.lookups")
+                .tag("result", "present").register(meterRegistry);
+        Gauge.builder("uverify.certificate.bloom.false.positive.rate", this, CertificateHashFilter::observedFalsePositiveRate)
+                .description("Share of lookups for uncertified hashes that the filter let through")
+                .register(meterRegistry);
+        Gauge.builder("uverify.certificate.bloom.expected.false.positive.rate", filter,
+                        RebuildableBloomFilter::expectedFalsePositiveProbability)
+                .register(meterRegistry);
+        Gauge.builder("uverify.certificate.bloom.memory", filter, RebuildableBloomFilter::sizeInBytes)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns false only if no certificate with the given hash exists.
+     */
+    public boolean mightContain(String hash) {
+        if (!filter.mightContain(hash)) {
+            skippedLookups.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Reports the outcome of a lookup the filter let through, for the false
+     * positive rate metric.
+     */
+    public void recordLookup(boolean found) {
+        if (!filter.isBuilt()) {
+            return;
+        }
+        (found ? confirmedLookups : falsePositives).increment();
+    }
+
+    public void addAll(Collection<String> hashes) {
+        filter.addAll(hashes);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${verify.bloom-filter.rebuild-interval-ms:21600000}",
+            initialDelayString = "${verify.bloom-filter.rebuild-interval-ms:21600000}")
+    public void rebuild() {
+        filter.rebuild(certificateRepository::count, certificateRepository::streamAllHashes);
+    }
+
+    private double observedFalsePositiveRate() {
+        double positives = falsePositives.count();
+        double negatives = skippedLookups.count() + positives;
+        return negatives == 0 ? 0 : positives / negatives;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * UVerify Backend
+ * Copyright (C) 2025 Fabian Bormann
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.uverify.backend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.uverify.backend.dto.CertificateResponse;
+import io.uverify.backend.dto.CertificateView;
+import io.uverify.backend.enums.CardanoNetwork;
+import io.uverify.backend.mapper.CertificateMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Bounded cache of the mapped verification responses per data hash, including
+ * empty results for unknown hashes. Entries are never stale by time: the
+ * indexer invalidates a hash whenever certificates for it are written or
+ * rolled back.
+ */
+@Component
+@Slf4j
+public class CertificateResponseCache {
+
+    private final CardanoNetwork network;
+    private final Cache<String, List<CertificateResponse>> responses;
+
+    public CertificateResponseCache(@Value("${cardano.network}") String network,
+                                    @Value("${verify.cache.maximum-size:50000}") long maximumSize,
+                                    MeterRegistry meterRegistry) {
+        this.network = CardanoNetwork.valueOf(network.toUpperCase());
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, responses, "certificate-responses");
+    }
+
+    public List<CertificateResponse> get(String hash, Function<String, List<CertificateView>> loader) {
+        return responses.get(hash, key -> loader.apply(key).stream()
+                .map(certificateView -> CertificateMapper.fromCertificateView(certificateView, network))
+                .toList());
+    }
+
+    /**
+     * Drops the given hashes right away and once more after the surrounding
+     * transaction commits, so a read racing the indexer cannot leave the
+     * pre-commit state behind.
+     */
+    public void invalidate(Collection<String> hashes) {
+        if (hashes.isEmpty()) {
+            return;
+        }
+        Set<String> keys = Set.copyOf(hashes);
+        responses.invalidateAll(keys);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    responses.invalidateAll(keys);
+                }
+            });
+        }
+        log.debug("Invalidated {} cached verification responses", keys.size());
+    }
+}
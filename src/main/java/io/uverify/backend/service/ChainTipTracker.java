@@ -0,0 +1,114 @@
+/*
+ * UVerify Backend
+ * Copyright (C) 2025 Fabian Bormann
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.uverify.backend.service;
+
+import com.bloxbean.cardano.client.api.exception.ApiException;
+import com.bloxbean.cardano.client.backend.api.BackendService;
+import com.bloxbean.cardano.yaci.store.events.BlockHeaderEvent;
+import com.bloxbean.cardano.yaci.store.events.RollbackEvent;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.uverify.backend.util.CardanoUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+
+/**
+ * Tracks the chain tip from the blocks the indexer receives, so transaction
+ * builders can compute their validity interval without asking the provider
+ * for the latest block.
+ * <p>
+ * The tracked tip is only used while its block is younger than
+ * {@code chain-tip.max-age-seconds}. Without a running indexer (the
+ * {@code disable-indexer} profile), while syncing old blocks or after the
+ * node connection stalls, the latest slot is read from the provider.
+ */
+@Component
+@Slf4j
+public class ChainTipTracker {
+
+    private record Tip(long slot, long blockTime) {
+    }
+
+    private final long maxAgeSeconds;
+    private final Clock clock;
+    private volatile Tip tip;
+
+    public ChainTipTracker(@Value("${chain-tip.max-age-seconds:300}") long maxAgeSeconds,
+                           MeterRegistry meterRegistry) {
+        this(maxAgeSeconds, meterRegistry, Clock.systemUTC());
+    }
+
+    ChainTipTracker(long maxAgeSeconds, MeterRegistry meterRegistry, Clock clock) {
+        this.maxAgeSeconds = maxAgeSeconds;
+        this.clock = clock;
+        Gauge.builder("uverify.chain.tip.age", this, ChainTipTracker::tipAgeSeconds)
+                .description("Seconds since the block time of the latest block seen by the indexer")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    @EventListener
+    public void onBlockHeader(BlockHeaderEvent blockHeaderEvent) {
+        update(blockHeaderEvent.getMetadata().getSlot(), blockHeaderEvent.getMetadata().getBlockTime());
+    }
+
+    @EventListener
+    public void onRollback(RollbackEvent rollbackEvent) {
+        Tip current = tip;
+        long rollbackSlot = rollbackEvent.getRollbackTo().getSlot();
+        if (current != null && current.slot() > rollbackSlot) {
+            // The block time of the rollback point is unknown. Keep the old
+            // one, the slot distance is at most a few blocks.
+            tip = new Tip(rollbackSlot, current.blockTime());
+        }
+    }
+
+    void update(long slot, long blockTime) {
+        Tip current = tip;
+        if (current == null || slot >= current.slot()) {
+            tip = new Tip(slot, blockTime);
+        }
+    }
+
+    /**
+     * Returns the slot of the latest block, from the indexer if its tip is
+     * recent enough, otherwise from the given provider.
+     */
+    public long getLatestSlot(BackendService fallback) throws ApiException {
+        Tip current = tip;
+        if (current != null && ageSeconds(current) <= maxAgeSeconds) {
+            return current.slot();
+        }
+        log.debug("Chain tip {} is missing or stale, asking the provider", current);
+        return CardanoUtils.getLatestSlot(fallback);
+    }
+
+    private double tipAgeSeconds() {
+        Tip current = tip;
+        return current == null ? Double.NaN : ageSeconds(current);
+    }
+
+    private long ageSeconds(Tip current) {
+        return clock.instant().getEpochSecond() - current.blockTime();
+    }
+}
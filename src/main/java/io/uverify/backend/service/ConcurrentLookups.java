@@ -0,0 +1,150 @@
+/*
+ * UVerify Backend
+ * Copyright (C) 2025 Fabian Bormann
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.uverify.backend.service;
+
+import com.bloxbean.cardano.client.api.exception.ApiException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs independent provider lookups of a transaction build concurrently on
+ * virtual threads.
+ * <p>
+ * Lookups are grouped into phases. A phase fails as soon as one of its
+ * lookups fails or the phase timeout ({@code build.lookup-timeout-ms})
+ * elapses, and the remaining lookups of the phase are cancelled. Closing a
+ * phase cancels every lookup that was not joined.
+ */
+@Component
+@Slf4j
+public class ConcurrentLookups {
+
+    private final Duration timeout;
+
+    @Autowired
+    public ConcurrentLookups(@Value("${build.lookup-timeout-ms:20000}") long timeoutMillis) {
+        this(Duration.ofMillis(timeoutMillis));
+    }
+
+    ConcurrentLookups(Duration timeout) {
+        this.timeout = timeout;
+    }
+
+    public Phase open(String name) {
+        return new Phase(name, timeout);
+    }
+
+    @FunctionalInterface
+    public interface Lookup<T> {
+        T call() throws Exception;
+    }
+
+    public static final class Forked<T> {
+        private final Future<T> future;
+
+        private Forked(Future<T> future) {
+            this.future = future;
+        }
+
+        /**
+         * Returns the value of a lookup of a joined phase.
+         */
+        public T get() {
+            if (future.state() != Future.State.SUCCESS) {
+                throw new IllegalStateException("Lookup has not completed, join the phase first");
+            }
+            return future.resultNow();
+        }
+    }
+
+    public static final class Phase implements AutoCloseable {
+        private final String name;
+        private final Duration timeout;
+        private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        private final CompletionService<Object> completionService = new ExecutorCompletionService<>(executor);
+        private final List<Future<?>> futures = new ArrayList<>();
+
+        private Phase(String name, Duration timeout) {
+            this.name = name;
+            this.timeout = timeout;
+        }
+
+        @SuppressWarnings("unchecked")
+        public <T> Forked<T> fork(Lookup<T> lookup) {
+            Future<Object> future = completionService.submit((Callable<Object>) lookup::call);
+            futures.add(future);
+            return new Forked<>((Future<T>) future);
+        }
+
+        /**
+         * Waits for all forked lookups. Rethrows the first failure as is if it
+         * is an {@link ApiException} or unchecked, and cancels the other
+         * lookups of the phase.
+         */
+        public void join() throws ApiException {
+            long deadline = System.nanoTime() + timeout.toNanos();
+            try {
+                for (int pending = futures.size(); pending > 0; pending--) {
+                    Future<Object> completed = completionService.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (completed == null) {
+                        cancelAll();
+                        log.warn("Lookups of phase {} timed out after {} ms", name, timeout.toMillis());
+                        throw new ApiException("Lookups of phase " + name + " timed out after " + timeout.toMillis() + " ms");
+                    }
+                    completed.get();
+                }
+            } catch (ExecutionException executionException) {
+                cancelAll();
+                Throwable cause = executionException.getCause();
+                if (cause instanceof ApiException apiException) throw apiException;
+                if (cause instanceof RuntimeException runtimeException) throw runtimeException;
+                if (cause instanceof Error error) throw error;
+                throw new ApiException("Lookup of phase " + name + " failed: " + cause.getMessage(), cause);
+            } catch (InterruptedException interruptedException) {
+                cancelAll();
+                Thread.currentThread().interrupt();
+                throw new ApiException("Interrupted while waiting for lookups of phase " + name, interruptedException);
+            }
+        }
+
+        private void cancelAll() {
+            futures.forEach(future -> future.cancel(true));
+        }
+
+        @Override
+        public void close() {
+            cancelAll();
+            executor.shutdownNow();
+        }
+    }
+}
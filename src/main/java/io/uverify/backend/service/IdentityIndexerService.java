@@ -23,7 +23,6 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import io.uverify.backend.entity.UVerifyCertificateEntity;
 import io.uverify.backend.entity.UVerifyCredentialEntity;
 import io.uverify.backend.repository.CredentialRepository;
-import io.uverify.backend.util.TemplateIdResolver;
 import jakarta.transaction.Transactional;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -89,17 +88,12 @@ public class IdentityIndexerService {
     }
 
     private void processOneCertificate(UVerifyCertificateEntity cert) throws Exception {
-        String extra = cert.getExtra();
-        if (extra == null || extra.isBlank()) {
+        if (!IDENTITY_AUTH_TEMPLATE_ID.equals(cert.getExtraFields().getTemplateId())) {
             return;
         }
-        Map<String, Object> fields = objectMapper.readValue(extra, new TypeReference<>() {
+        Map<String, Object> fields = objectMapper.readValue(cert.getExtra(), new TypeReference<>() {
         });
 
-        if (!IDENTITY_AUTH_TEMPLATE_ID.equals(TemplateIdResolver.resolveTemplateId(fields))) {
-            return;
-        }
-
         String type = (String) fields.get("t");
         if (type == null) {
             return;
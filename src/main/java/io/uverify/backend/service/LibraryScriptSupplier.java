@@ -0,0 +1,49 @@
+/*
+ * UVerify Backend
+ * Copyright (C) 2025 Fabian Bormann
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.uverify.backend.service;
+
+import com.bloxbean.cardano.client.api.ScriptSupplier;
+import com.bloxbean.cardano.client.plutus.spec.PlutusScript;
+import com.bloxbean.cardano.client.plutus.spec.PlutusV3Script;
+import io.uverify.backend.repository.LibraryRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Resolves reference scripts deployed to the library from the compiled code
+ * in the local library table, so fee calculation for library reference
+ * UTxOs does not call the provider. Other scripts are passed on to the
+ * provider supplier.
+ */
+@Component
+public class LibraryScriptSupplier {
+
+    private final LibraryRepository libraryRepository;
+
+    @Autowired
+    public LibraryScriptSupplier(LibraryRepository libraryRepository) {
+        this.libraryRepository = libraryRepository;
+    }
+
+    public ScriptSupplier withFallback(ScriptSupplier providerScripts) {
+        return scriptHash -> libraryRepository.findFirstByHash(scriptHash)
+                .<PlutusScript>map(entry -> PlutusV3Script.builder().cborHex(entry.getCompiledCode()).build())
+                .or(() -> providerScripts.getScript(scriptHash));
+    }
+}
@@ -25,9 +25,6 @@ import com.bloxbean.cardano.client.api.model.Amount;
 import com.bloxbean.cardano.client.api.model.Result;
 import com.bloxbean.cardano.client.api.model.Utxo;
 import com.bloxbean.cardano.client.backend.api.BackendService;
-import com.bloxbean.cardano.client.backend.blockfrost.service.BFBackendService;
-import com.bloxbean.cardano.client.backend.koios.Constants;
-import com.bloxbean.cardano.client.backend.koios.KoiosBackendService;
 import com.bloxbean.cardano.client.common.model.Network;
 import com.bloxbean.cardano.client.exception.CborSerializationException;
 import com.bloxbean.cardano.client.plutus.blueprint.PlutusBlueprintUtil;
@@ -50,6 +47,7 @@ import io.uverify.backend.enums.CardanoNetwork;
 import io.uverify.backend.enums.TransactionType;
 import io.uverify.backend.model.ProxyDatum;
 import io.uverify.backend.repository.LibraryRepository;
+import io.uverify.backend.util.UVerifyMatchContext;
 import io.uverify.backend.util.ValidatorHelper;
 import io.uverify.backend.util.ValidatorUtils;
 import lombok.extern.slf4j.Slf4j;
@@ -58,6 +56,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedHashSet;
@@ -66,6 +65,7 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+import static com.bloxbean.cardano.client.common.CardanoConstants.LOVELACE;
 import static io.uverify.backend.util.ValidatorUtils.*;
 
 @Service
@@ -79,37 +79,31 @@ public class LibraryService {
     private final PlutusScript libraryContract;
     @Autowired
     private final LibraryRepository libraryRepository;
+    @Autowired
+    private final ProtocolParamsCache protocolParamsCache;
     private final Network network;
-    private Utxo proxyLibraryUtxo;
-    private Utxo stateLibraryUtxo;
+    // Replaced as a whole, so readers never see the proxy reference of one
+    // library state together with the state reference of another.
+    private volatile LibraryUtxos libraryUtxos;
     private Set<String> stateContractRewardAddressCache;
+    private volatile UVerifyMatchContext matchContext;
     private BackendService backendService;
 
     @Autowired
     public LibraryService(@Value("${cardano.service.user.address}") String serviceUserAddress,
-                          @Value("${cardano.backend.service.type}") String cardanoBackendServiceType,
-                          @Value("${cardano.backend.blockfrost.baseUrl}") String blockfrostBaseUrl,
-                          @Value("${cardano.backend.blockfrost.projectId}") String blockfrostProjectId,
                           @Value("${cardano.network}") String network,
+                          BackendService backendService,
                           ValidatorHelper validatorHelper,
-                          LibraryRepository libraryRepository
+                          LibraryRepository libraryRepository,
+                          ProtocolParamsCache protocolParamsCache
     ) {
         this.serviceUserAddress = new Address(serviceUserAddress);
         this.validatorHelper = validatorHelper;
         this.libraryRepository = libraryRepository;
+        this.protocolParamsCache = protocolParamsCache;
         this.network = CardanoNetwork.valueOf(network).toCardaoNetwork();
 
-        if (cardanoBackendServiceType.equals("blockfrost")) {
-            if (blockfrostProjectId == null || blockfrostProjectId.isEmpty()) {
-                throw new IllegalArgumentException("Blockfrost projectId is required when using Blockfrost backend service");
-            }
-
-            this.backendService = new BFBackendService(
-                    blockfrostBaseUrl,
-                    blockfrostProjectId);
-        } else if (cardanoBackendServiceType.equals("koios")) {
-            this.backendService = new KoiosBackendService(Constants.KOIOS_PREPROD_URL);
-        }
+        this.backendService = backendService;
 
         Optional<byte[]> optionalUserPaymentCredential = this.serviceUserAddress.getPaymentCredentialHash();
 
@@ -119,25 +113,29 @@ public class LibraryService {
 
         this.libraryContract = getLibraryContract(optionalUserPaymentCredential.get());
         this.libraryContractAddress = AddressProvider.getEntAddress(libraryContract, this.network).toBech32();
-        reloadLibraryCache();
     }
 
     public void setBackendService(BackendService backendService) {
         this.backendService = backendService;
     }
 
+    private record LibraryUtxos(Utxo proxy, Utxo state) {
+    }
+
     public Utxo getProxyLibraryUtxo() {
-        if (proxyLibraryUtxo == null) {
-            reloadLibraryCache();
+        LibraryUtxos current = libraryUtxos;
+        if (current == null || current.proxy() == null) {
+            current = reloadLibraryCache();
         }
-        return proxyLibraryUtxo;
+        return current == null ? null : current.proxy();
     }
 
     public Utxo getStateLibraryUtxo() {
-        if (stateLibraryUtxo == null) {
-            reloadLibraryCache();
+        LibraryUtxos current = libraryUtxos;
+        if (current == null || current.state() == null) {
+            current = reloadLibraryCache();
         }
-        return stateLibraryUtxo;
+        return current == null ? null : current.state();
     }
 
     /**
@@ -148,7 +146,7 @@ public class LibraryService {
      */
     public synchronized Set<String> getStateContractRewardAddresses() {
         if (stateContractRewardAddressCache == null) {
-            String proxyScriptHash = ValidatorUtils.validatorToScriptHash(validatorHelper.getParameterizedProxyContract());
+            String proxyScriptHash = validatorHelper.getProxyScriptHash();
             LinkedHashSet<String> rewardAddresses = new LinkedHashSet<>();
             for (LibraryEntity entry : libraryRepository.getAllScriptVersions(proxyScriptHash)) {
                 PlutusScript script = PlutusV3Script.builder().cborHex(entry.getCompiledCode()).build();
@@ -164,10 +162,53 @@ public class LibraryService {
         return stateContractRewardAddressCache;
     }
 
+    /**
+     * Returns the transaction match context for the current proxy and library
+     * state. The context is rebuilt only after a library deployment, a
+     * rollback or a proxy change.
+     */
+    public UVerifyMatchContext getMatchContext() {
+        UVerifyMatchContext context = matchContext;
+        if (context != null && context.isForProxy(validatorHelper.getProxyTransactionHash(), validatorHelper.getProxyOutputIndex())) {
+            return context;
+        }
+        return rebuildMatchContext();
+    }
+
+    private synchronized UVerifyMatchContext rebuildMatchContext() {
+        String proxyTransactionHash = validatorHelper.getProxyTransactionHash();
+        Integer proxyOutputIndex = validatorHelper.getProxyOutputIndex();
+        if (matchContext != null && matchContext.isForProxy(proxyTransactionHash, proxyOutputIndex)) {
+            return matchContext;
+        }
+        if (matchContext != null) {
+            // The proxy was switched, every script derived from it is stale.
+            invalidateScriptCaches();
+        } else {
+            stateContractRewardAddressCache = null;
+        }
+
+        Optional<byte[]> serviceCredential = serviceUserAddress.getPaymentCredentialHash();
+        if (serviceCredential.isEmpty()) {
+            throw new IllegalArgumentException("Invalid Cardano payment address");
+        }
+
+        UVerifyMatchContext context = new UVerifyMatchContext(
+                proxyTransactionHash,
+                proxyOutputIndex,
+                validatorHelper.getProxyScriptHash(),
+                validatorHelper.getProxyContractAddress(),
+                libraryContractAddress,
+                getStateContractRewardAddresses(),
+                serviceCredential.get());
+        matchContext = context;
+        return context;
+    }
+
     private synchronized void invalidateScriptCaches() {
+        matchContext = null;
         stateContractRewardAddressCache = null;
-        proxyLibraryUtxo = null;
-        stateLibraryUtxo = null;
+        libraryUtxos = null;
     }
 
     public void rollbackToSlot(long slot) {
@@ -201,7 +242,7 @@ public class LibraryService {
                 .payToContract(libraryContractAddress, Amount.ada(1L), PlutusData.unit(), uverifyStateContract)
                 .registerStakeAddress(AddressProvider.getRewardAddress(uverifyStateContract, network).toBech32());
 
-        QuickTxBuilder quickTxBuilder = new QuickTxBuilder(backendService);
+        QuickTxBuilder quickTxBuilder = protocolParamsCache.quickTxBuilder(backendService);
         return quickTxBuilder.compose(tx)
                 .feePayer(serviceUserAddress.getAddress())
                 .withRequiredSigners(serviceUserAddress)
@@ -277,7 +318,7 @@ public class LibraryService {
                 .collectFrom(proxyStateUtxo, PlutusData.unit())
                 .payToContract(proxyScriptAddress, proxyStateUtxo.getAmount(), proxyDatum.toPlutusData());
 
-        QuickTxBuilder quickTxBuilder = new QuickTxBuilder(backendService);
+        QuickTxBuilder quickTxBuilder = protocolParamsCache.quickTxBuilder(backendService);
         return quickTxBuilder.compose(tx, scriptTx)
                 .feePayer(serviceUserAddress.getAddress())
                 .withRequiredSigners(serviceUserAddress)
@@ -285,21 +326,55 @@ public class LibraryService {
                 .build();
     }
 
-    private void reloadLibraryCache() {
-        String proxyScriptHash = ValidatorUtils.validatorToScriptHash(validatorHelper.getParameterizedProxyContract());
+    private synchronized LibraryUtxos reloadLibraryCache() {
+        String proxyScriptHash = validatorHelper.getProxyScriptHash();
         Optional<LibraryEntity> proxyEntry = libraryRepository.findFirstByHash(proxyScriptHash);
         Optional<LibraryEntity> stateEntry = libraryRepository.getLatestScript(proxyScriptHash);
 
         if (proxyEntry.isPresent() && stateEntry.isPresent()) {
             try {
-                this.proxyLibraryUtxo = resolveUtxo(proxyEntry.get().getTransactionId(), proxyEntry.get().getOutputIndex());
-                this.stateLibraryUtxo = resolveUtxo(stateEntry.get().getTransactionId(), stateEntry.get().getOutputIndex());
+                libraryUtxos = new LibraryUtxos(toReferenceUtxo(proxyEntry.get()), toReferenceUtxo(stateEntry.get()));
             } catch (Exception e) {
                 log.error("Failed to reload library cache: {}", e.getMessage());
             }
         } else {
             log.error("Failed to reload library cache: Missing library entries in the database.");
         }
+        return libraryUtxos;
+    }
+
+    /**
+     * Builds the reference script UTxO of a library entry from the indexed
+     * output. Entries indexed before the output was recorded are resolved
+     * once through the provider and completed in the database.
+     */
+    private Utxo toReferenceUtxo(LibraryEntity entry) {
+        if (entry.getAddress() == null || entry.getLovelace() == null) {
+            Utxo resolved = resolveUtxo(entry.getTransactionId(), entry.getOutputIndex());
+            if (resolved == null) {
+                return null;
+            }
+            entry.setAddress(resolved.getAddress());
+            entry.setLovelace(resolved.getAmount().stream()
+                    .filter(amount -> LOVELACE.equals(amount.getUnit()))
+                    .map(amount -> amount.getQuantity().longValue())
+                    .findFirst()
+                    .orElse(0L));
+            entry.setDatumHash(resolved.getDataHash());
+            entry.setInlineDatum(resolved.getInlineDatum());
+            libraryRepository.save(entry);
+            return resolved;
+        }
+
+        return Utxo.builder()
+                .txHash(entry.getTransactionId())
+                .outputIndex(entry.getOutputIndex())
+                .address(entry.getAddress())
+                .amount(List.of(Amount.lovelace(BigInteger.valueOf(entry.getLovelace()))))
+                .dataHash(entry.getDatumHash())
+                .inlineDatum(entry.getInlineDatum())
+                .referenceScriptHash(entry.getHash())
+                .build();
     }
 
     private Utxo resolveUtxo(String transactionId, Integer outputIndex) {
@@ -328,7 +403,7 @@ public class LibraryService {
             log.error("Error fetching UTXOs for library contract address {}: {}", libraryContractAddress, e.getMessage());
         }
 
-        String proxyScriptHash = ValidatorUtils.validatorToScriptHash(validatorHelper.getParameterizedProxyContract());
+        String proxyScriptHash = validatorHelper.getProxyScriptHash();
         String stateScriptHash = ValidatorUtils.validatorToScriptHash(validatorHelper.getParameterizedUVerifyStateContract());
 
         ArrayList<LibraryEntry> entries = new ArrayList<>();
@@ -400,7 +475,7 @@ public class LibraryService {
                                     .flatMap(Collection::stream)
                                     .collect(Collectors.toList()));
 
-            QuickTxBuilder quickTxBuilder = new QuickTxBuilder(backendService);
+            QuickTxBuilder quickTxBuilder = protocolParamsCache.quickTxBuilder(backendService);
 
             Transaction unsignedTx = quickTxBuilder.compose(tx)
                     .feePayer(serviceUserAddress.getAddress())
@@ -474,7 +549,7 @@ public class LibraryService {
                 .payToAddress(serviceUserAddress.getAddress(),
                         utxoToUndeploy.getAmount());
 
-        QuickTxBuilder quickTxBuilder = new QuickTxBuilder(backendService);
+        QuickTxBuilder quickTxBuilder = protocolParamsCache.quickTxBuilder(backendService);
         Transaction unsignedTx = quickTxBuilder.compose(tx)
                 .feePayer(serviceUserAddress.getAddress())
                 .withRequiredSigners(serviceUserAddress)
@@ -530,7 +605,16 @@ public class LibraryService {
                     .transactionId(utxo.getTxHash())
                     .outputIndex(utxo.getIndex())
                     .compiledCode(script.getCborHex())
-                    .hash(script.getPolicyId()).build();
+                    .hash(script.getPolicyId())
+                    .address(utxo.getAddress())
+                    .lovelace(utxo.getAmounts().stream()
+                            .filter(amount -> amount.getPolicyId() == null)
+                            .map(amount -> amount.getQuantity().longValue())
+                            .findFirst()
+                            .orElse(0L))
+                    .datumHash(utxo.getDatumHash())
+                    .inlineDatum(utxo.getInlineDatum())
+                    .build();
             libraryRepository.save(libraryEntity);
             invalidateScriptCaches();
         } catch (Exception e) {
@@ -0,0 +1,175 @@
+/*
+ * UVerify Backend
+ * Copyright (C) 2025 Fabian Bormann
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.uverify.backend.service;
+
+import com.bloxbean.cardano.client.transaction.spec.Transaction;
+import com.bloxbean.cardano.client.transaction.util.TransactionUtil;
+import com.bloxbean.cardano.client.util.HexUtil;
+import io.uverify.backend.dto.CertificateResponse;
+import io.uverify.backend.dto.InclusionProof;
+import io.uverify.backend.repository.MerkleTreeRepository;
+import io.uverify.backend.repository.MerkleTreeRepository.LeafPosition;
+import io.uverify.backend.util.MerkleTree;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Anchors batches of certificate hashes as the root of a Merkle tree and
+ * resolves leaf hashes to the root certificate together with an inclusion
+ * proof. Proofs are read from the stored tree levels, one node per level.
+ * Trees are stored by {@link PendingMerkleTrees} once their root is indexed.
+ */
+@Slf4j
+@Service
+public class MerkleBatchService {
+    private static final Pattern HEX = Pattern.compile("([0-9a-f]{2})+");
+    private static final int MAX_LEAF_HASH_LENGTH = 128;
+
+    private final MerkleTreeRepository merkleTreeRepository;
+    private final UVerifyCertificateService uVerifyCertificateService;
+    private final PendingMerkleTrees pendingMerkleTrees;
+    private final MerkleLeafFilter merkleLeafFilter;
+
+    @Autowired
+    public MerkleBatchService(MerkleTreeRepository merkleTreeRepository,
+                              UVerifyCertificateService uVerifyCertificateService,
+                              PendingMerkleTrees pendingMerkleTrees,
+                              MerkleLeafFilter merkleLeafFilter) {
+        this.merkleTreeRepository = merkleTreeRepository;
+        this.uVerifyCertificateService = uVerifyCertificateService;
+        this.pendingMerkleTrees = pendingMerkleTrees;
+        this.merkleLeafFilter = merkleLeafFilter;
+    }
+
+    public record MerkleBatch(MerkleTree tree, List<String> leaves) {
+    }
+
+    /**
+     * Builds the tree over the given leaf hashes. Hashes are lower-cased and
+     * duplicates are dropped, keeping the first occurrence.
+     */
+    public MerkleBatch build(List<String> leafHashes) {
+        List<String> leaves = normalize(leafHashes);
+        return new MerkleBatch(MerkleTree.build(leaves.stream().map(HexUtil::decodeHexString).toList()), leaves);
+    }
+
+    /**
+     * Stores the tree as pending until the indexer sees the root certificate
+     * of the given transaction on chain. The tree is kept until the
+     * transaction validity interval has passed.
+     */
+    public void awaitIndexing(String unsignedTransaction, MerkleBatch batch) {
+        try {
+            byte[] transactionBytes = HexUtil.decodeHexString(unsignedTransaction);
+            long ttl = Transaction.deserialize(transactionBytes).getBody().getTtl();
+            pendingMerkleTrees.register(TransactionUtil.getTxHash(transactionBytes), ttl > 0 ? ttl : null,
+                    batch.tree(), batch.leaves());
+        } catch (Exception exception) {
+            throw new IllegalStateException("Unable to read the Merkle batch transaction: " + exception.getMessage(), exception);
+        }
+    }
+
+    /**
+     * Returns the certificates anchoring a tree that contains {@code leafHash},
+     * each with the inclusion proof of the leaf. Roots that are not indexed
+     * yet, e.g. because their transaction was never submitted, are skipped.
+     * Hashes the leaf filter rules out are answered without a query.
+     */
+    public List<CertificateResponse> getCertificateResponsesByLeafHash(String leafHash) {
+        String leaf = leafHash.toLowerCase(Locale.ROOT);
+        if (!merkleLeafFilter.mightContain(leaf)) {
+            return List.of();
+        }
+        List<CertificateResponse> responses = new ArrayList<>();
+        for (LeafPosition position : merkleTreeRepository.findLeafPositions(leaf)) {
+            List<CertificateResponse> rootCertificates = uVerifyCertificateService.getCertificateResponsesByHash(position.rootHash());
+            if (rootCertificates.isEmpty()) {
+                continue;
+            }
+            InclusionProof proof = proof(leaf, position);
+            for (CertificateResponse rootCertificate : rootCertificates) {
+                // Cached responses are shared and must not be modified.
+                CertificateResponse response = new CertificateResponse();
+                BeanUtils.copyProperties(rootCertificate, response);
+                response.setInclusionProof(proof);
+                responses.add(response);
+            }
+        }
+        return responses;
+    }
+
+    InclusionProof proof(String leaf, LeafPosition position) {
+        int levels = MerkleTree.levelCount(position.leafCount());
+        int[] siblings = new int[levels - 1];
+        int index = position.leafIndex();
+        for (int level = 0; level < siblings.length; level++) {
+            siblings[level] = MerkleTree.siblingIndex(index, MerkleTree.levelSize(position.leafCount(), level));
+            index /= 2;
+        }
+
+        List<byte[]> nodes = merkleTreeRepository.findNodes(position.rootHash(), siblings);
+        List<InclusionProof.Step> path = new ArrayList<>();
+        for (int level = 0; level < siblings.length; level++) {
+            if (siblings[level] < 0) {
+                continue;
+            }
+            byte[] node = nodes.get(level);
+            if (node == null || node.length != MerkleTree.NODE_SIZE) {
+                throw new IllegalStateException("Merkle tree " + position.rootHash() + " is missing level " + level);
+            }
+            path.add(InclusionProof.Step.builder()
+                    .hash(HexUtil.encodeHexString(node))
+                    .position(siblings[level] < (position.leafIndex() >> level)
+                            ? InclusionProof.Position.LEFT : InclusionProof.Position.RIGHT)
+                    .build());
+        }
+
+        return InclusionProof.builder()
+                .leaf(leaf)
+                .root(position.rootHash())
+                .algorithm(MerkleTree.ALGORITHM)
+                .leafIndex(position.leafIndex())
+                .leafCount(position.leafCount())
+                .path(path)
+                .build();
+    }
+
+    static List<String> normalize(List<String> leafHashes) {
+        if (leafHashes == null || leafHashes.isEmpty()) {
+            throw new IllegalArgumentException("A Merkle batch needs at least one certificate hash");
+        }
+        LinkedHashSet<String> leaves = new LinkedHashSet<>();
+        for (String leafHash : leafHashes) {
+            String leaf = leafHash == null ? "" : leafHash.toLowerCase(Locale.ROOT);
+            if (leaf.length() > MAX_LEAF_HASH_LENGTH || !HEX.matcher(leaf).matches()) {
+                throw new IllegalArgumentException("Invalid certificate hash for a Merkle batch: " + leafHash);
+            }
+            leaves.add(leaf);
+        }
+        return List.copyOf(leaves);
+    }
+}
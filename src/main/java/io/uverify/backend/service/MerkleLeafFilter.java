@@ -0,0 +1,84 @@
+/*
+ * UVerify Backend
+ * Copyright (C) 2025 Fabian Bormann
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.uverify.backend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.uverify.backend.repository.MerkleTreeRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Collection;
+
+/**
+ * Bloom filter over all stored Merkle leaf hashes, so lookups of unknown
+ * hashes that miss the certificate table do not query the leaf table too.
+ */
+@Component
+public class MerkleLeafFilter {
+
+    private final MerkleTreeRepository merkleTreeRepository;
+    private final RebuildableBloomFilter filter;
+
+    private final Counter skippedLookups;
+
+    public MerkleLeafFilter(MerkleTreeRepository merkleTreeRepository,
+                            PlatformTransactionManager transactionManager,
+                            MeterRegistry meterRegistry,
+                            @Value("${verify.merkle-leaf-filter.enabled:true}") boolean enabled,
+                            @Value("${verify.merkle-leaf-filter.minimum-capacity:1000000}") long minimumCapacity,
+                            @Value("${verify.merkle-leaf-filter.false-positive-probability:0.01}") double falsePositiveProbability) {
+        this.merkleTreeRepository = merkleTreeRepository;
+        this.filter = new RebuildableBloomFilter("Merkle leaf filter", transactionManager, enabled,
+                minimumCapacity, falsePositiveProbability);
+
+        this.skippedLookups = Counter.builder("uverify.merkle.leaf.bloom.lookups")
+                .tag("result", "absent").register(meterRegistry);
+    }
+
+    /**
+     * Returns false only if no stored Merkle tree has the given leaf hash.
+     */
+    public boolean mightContain(String leafHash) {
+        if (!filter.mightContain(leafHash)) {
+            skippedLookups.increment();
+            return false;
+        }
+        return true;
+    }
+
+    public void addAll(Collection<String> leafHashes) {
+        filter.addAll(leafHashes);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${verify.merkle-leaf-filter.rebuild-interval-ms:21600000}",
+            initialDelayString = "${verify.merkle-leaf-filter.rebuild-interval-ms:21600000}")
+    public void rebuild() {
+        filter.rebuild(merkleTreeRepository::countLeaves, merkleTreeRepository::streamAllLeafHashes);
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * UVerify Backend
+ * Copyright (C) 2025 Fabian Bormann
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.uverify.backend.service;
+
+import com.bloxbean.cardano.yaci.store.events.internal.CommitEvent;
+import io.uverify.backend.entity.UVerifyCertificateEntity;
+import io.uverify.backend.repository.MerkleTreeRepository;
+import io.uverify.backend.repository.MerkleTreeRepository.StoredTree;
+import io.uverify.backend.util.MerkleTree;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Merkle trees of built batch transactions. A tree is stored as pending, keyed
+ * by transaction hash and root, as soon as its transaction is built, and is
+ * anchored once the indexer writes its root certificate. Pending trees of
+ * transactions that can no longer be included are deleted, and trees of
+ * rolled back roots become pending again.
+ */
+@Component
+@Slf4j
+public class PendingMerkleTrees {
+
+    private final MerkleTreeRepository merkleTreeRepository;
+    private final MerkleLeafFilter merkleLeafFilter;
+
+    public PendingMerkleTrees(MerkleTreeRepository merkleTreeRepository, MerkleLeafFilter merkleLeafFilter) {
+        this.merkleTreeRepository = merkleTreeRepository;
+        this.merkleLeafFilter = merkleLeafFilter;
+    }
+
+    /**
+     * Stores the tree built for {@code transactionId}. {@code validUntilSlot}
+     * is the end of the transaction validity interval, null if it has none.
+     */
+    public void register(String transactionId, Long validUntilSlot, MerkleTree tree, List<String> leaves) {
+        merkleTreeRepository.savePending(tree, leaves, transactionId, validUntilSlot);
+        merkleLeafFilter.addAll(leaves);
+    }
+
+    /**
+     * Anchors the pending trees whose root certificate is among the indexed
+     * certificates.
+     */
+    public void persistIndexed(List<UVerifyCertificateEntity> certificates) {
+        List<String> transactionIds = certificates.stream()
+                .map(UVerifyCertificateEntity::getTransactionId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+        List<StoredTree> pendingTrees = merkleTreeRepository.findPendingTrees(transactionIds);
+        if (pendingTrees.isEmpty()) {
+            return;
+        }
+        for (UVerifyCertificateEntity certificate : certificates) {
+            if (certificate.getHash() == null) {
+                continue;
+            }
+            String rootHash = certificate.getHash().toLowerCase(Locale.ROOT);
+            for (StoredTree pendingTree : pendingTrees) {
+                if (pendingTree.rootHash().equals(rootHash)
+                        && pendingTree.transactionId().equals(certificate.getTransactionId())) {
+                    merkleTreeRepository.markAnchored(rootHash, pendingTree.transactionId(), certificate.getSlot());
+                }
+            }
+        }
+    }
+
+    /**
+     * Turns the trees whose root was indexed after {@code slot} back into
+     * pending ones, in case their transaction is included again.
+     */
+    public void rollbackToSlot(long slot) {
+        int rolledBack = merkleTreeRepository.unanchorAfterSlot(slot);
+        if (rolledBack > 0) {
+            log.info("Rolled back {} Merkle trees after slot {}", rolledBack, slot);
+        }
+    }
+
+    @EventListener
+    @SuppressWarnings({"unused", "rawtypes"})
+    public void deleteExpiredTrees(CommitEvent commitEvent) {
+        int deleted = merkleTreeRepository.deleteExpiredPending(commitEvent.getMetadata().getSlot());
+        if (deleted > 0) {
+            log.debug("Deleted {} expired pending Merkle trees", deleted);
+        }
+    }
+}
@@ -19,6 +19,8 @@
 package io.uverify.backend.service;
 
 import com.bloxbean.cardano.client.api.model.Amount;
+import com.bloxbean.cardano.client.api.UtxoSupplier;
+import com.bloxbean.cardano.client.api.common.OrderEnum;
 import com.bloxbean.cardano.client.api.model.Utxo;
 import com.bloxbean.cardano.client.transaction.spec.MultiAsset;
 import com.bloxbean.cardano.client.transaction.spec.Transaction;
@@ -32,6 +34,7 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -41,11 +44,16 @@ import java.util.concurrent.ConcurrentHashMap;
  * transaction confirms. This cache lets subsequent builds "chain" off the output of an in-flight
  * transaction instead of querying stale chain state.
  *
- * Two concerns are tracked:
+ * Three concerns are tracked:
  *  - State token UTxOs: the specific UTxO holding the user's state token, which the contract
  *    requires to be spent-and-recreated on every certificate update.
  *  - Wallet UTxOs: regular ADA inputs consumed during a fork (new state datum creation), which
  *    must not be reused across concurrent forks.
+ *  - Wallet outputs: change and other regular outputs of pending transactions, which planned
+ *    transaction sequences spend through {@link #chainingUtxoSupplier}.
+ *
+ * For issuers with several parallel states, the pending transactions and the last use of each
+ * state token, as well as forks of new states that are not indexed yet, are tracked as well.
  *
  * Entries expire after TTL_MINUTES. The TTL matches the transaction validity window
  * (validTo = currentSlot + 600, ~10 minutes), with a small buffer.
@@ -75,6 +83,10 @@ public class PendingTransactionCache {
     private final ConcurrentHashMap<String, PendingEntry<Utxo>> pendingStateUtxos = new ConcurrentHashMap<>();
     private final ConcurrentHashMap<String, Instant> lockedWalletUtxos = new ConcurrentHashMap<>();
     private final ConcurrentHashMap<String, Instant> lockedCollateralUtxos = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, PendingEntry<Utxo>> pendingWalletOutputs = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, Instant>> pendingStateTransactions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Instant> lastStateUse = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, Instant>> pendingForks = new ConcurrentHashMap<>();
 
     /**
      * Returns the chained state token UTxO for the given unit if a pending transaction
@@ -91,10 +103,62 @@ public class PendingTransactionCache {
     }
 
     public void putPendingStateUtxo(String unit, Utxo utxo) {
-        pendingStateUtxos.put(unit, new PendingEntry<>(utxo, Instant.now().plus(ttl)));
+        Instant now = Instant.now();
+        pendingStateUtxos.put(unit, new PendingEntry<>(utxo, now.plus(ttl)));
+        pendingStateTransactions.computeIfAbsent(unit, ignored -> new ConcurrentHashMap<>())
+                .put(utxo.getTxHash(), now.plus(ttl));
+        lastStateUse.put(unit, now);
         log.debug("Cached pending state UTxO for unit {} → {}:{}", unit, utxo.getTxHash(), utxo.getOutputIndex());
     }
 
+    /**
+     * Number of pending transactions that advance the given state token.
+     */
+    public int getPendingTransactionCount(String unit) {
+        ConcurrentHashMap<String, Instant> transactions = pendingStateTransactions.get(unit);
+        if (transactions == null) return 0;
+        Instant now = Instant.now();
+        transactions.entrySet().removeIf(e -> now.isAfter(e.getValue()));
+        return transactions.size();
+    }
+
+    /**
+     * Time the last pending transaction for the given state token was built,
+     * or {@link Instant#EPOCH} if none was built within the TTL.
+     */
+    public Instant getLastStateUse(String unit) {
+        Instant lastUse = lastStateUse.get(unit);
+        if (lastUse == null) return Instant.EPOCH;
+        if (Instant.now().isAfter(lastUse.plus(ttl))) {
+            lastStateUse.remove(unit, lastUse);
+            return Instant.EPOCH;
+        }
+        return lastUse;
+    }
+
+    /**
+     * Records a fork of a new state token for the given group of parallel
+     * states, which counts until the state is indexed or the entry expires.
+     */
+    public void putPendingFork(String group, String unit) {
+        pendingForks.computeIfAbsent(group, ignored -> new ConcurrentHashMap<>()).put(unit, Instant.now().plus(ttl));
+    }
+
+    /**
+     * Number of pending forks for the given group, forgetting the ones that
+     * are among the {@code indexedUnits} already.
+     */
+    public int countPendingForks(String group, Set<String> indexedUnits) {
+        ConcurrentHashMap<String, Instant> forks = pendingForks.get(group);
+        if (forks == null) return 0;
+        Instant now = Instant.now();
+        forks.entrySet().removeIf(e -> indexedUnits.contains(e.getKey()) || now.isAfter(e.getValue()));
+        if (forks.isEmpty()) {
+            pendingForks.remove(group, forks);
+        }
+        return forks.size();
+    }
+
     public void lockWalletUtxo(String txHash, int index) {
         lockedWalletUtxos.put(walletKey(txHash, index), Instant.now().plus(ttl));
     }
@@ -128,6 +192,60 @@ public class PendingTransactionCache {
         lockedWalletUtxos.entrySet().removeIf(e -> e.getKey().startsWith(prefix));
         lockedCollateralUtxos.entrySet().removeIf(e -> e.getKey().startsWith(prefix));
         pendingStateUtxos.entrySet().removeIf(e -> e.getValue().value().getTxHash().equalsIgnoreCase(txHash));
+        pendingWalletOutputs.entrySet().removeIf(e -> e.getKey().startsWith(prefix));
+        pendingStateTransactions.forEach((unit, transactions) -> {
+            transactions.keySet().removeIf(hash -> hash.equalsIgnoreCase(txHash));
+            if (transactions.isEmpty()) {
+                pendingStateTransactions.remove(unit, transactions);
+            }
+        });
+    }
+
+    /**
+     * Wraps a UTxO supplier so transactions built with it chain off pending
+     * transactions: inputs spent by a pending transaction are hidden and the
+     * outputs it pays to regular addresses, e.g. the fee change, are offered
+     * as if they were on chain. Used for planned sequences of transactions
+     * that are submitted in order.
+     */
+    public UtxoSupplier chainingUtxoSupplier(UtxoSupplier delegate) {
+        return new UtxoSupplier() {
+            @Override
+            public List<Utxo> getPage(String address, Integer nrOfItems, Integer page, OrderEnum order) {
+                List<Utxo> utxos = new ArrayList<>();
+                for (Utxo utxo : delegate.getPage(address, nrOfItems, page, order)) {
+                    if (!isWalletUtxoLocked(utxo.getTxHash(), utxo.getOutputIndex())) {
+                        utxos.add(utxo);
+                    }
+                }
+                if (page == null || page == 0) {
+                    utxos.addAll(getPendingWalletOutputs(address));
+                }
+                return utxos;
+            }
+
+            @Override
+            public Optional<Utxo> getTxOutput(String txHash, int outputIndex) {
+                PendingEntry<Utxo> entry = pendingWalletOutputs.get(walletKey(txHash, outputIndex));
+                if (entry != null && !entry.isExpired()) {
+                    return Optional.of(entry.value());
+                }
+                return delegate.getTxOutput(txHash, outputIndex);
+            }
+        };
+    }
+
+    List<Utxo> getPendingWalletOutputs(String address) {
+        List<Utxo> utxos = new ArrayList<>();
+        pendingWalletOutputs.forEach((key, entry) -> {
+            if (entry.isExpired()) {
+                pendingWalletOutputs.remove(key, entry);
+            } else if (entry.value().getAddress().equals(address)
+                    && !isWalletUtxoLocked(entry.value().getTxHash(), entry.value().getOutputIndex())) {
+                utxos.add(entry.value());
+            }
+        });
+        return utxos;
     }
 
     /**
@@ -169,6 +287,14 @@ public class PendingTransactionCache {
 
         for (int i = 0; i < outputs.size(); i++) {
             com.bloxbean.cardano.client.transaction.spec.TransactionOutput output = outputs.get(i);
+            if (output.getValue() != null && !proxyScriptAddress.equals(output.getAddress())) {
+                pendingWalletOutputs.put(walletKey(txHash, i), new PendingEntry<>(Utxo.builder()
+                        .txHash(txHash)
+                        .outputIndex(i)
+                        .address(output.getAddress())
+                        .amount(buildAmounts(output))
+                        .build(), Instant.now().plus(ttl)));
+            }
             if (output.getValue() == null || output.getValue().getMultiAssets() == null) continue;
 
             Optional<MultiAsset> maybeStateAsset = output.getValue().getMultiAssets().stream()
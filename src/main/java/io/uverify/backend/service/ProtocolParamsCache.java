@@ -0,0 +1,173 @@
+/*
+ * UVerify Backend
+ * Copyright (C) 2025 Fabian Bormann
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.uverify.backend.service;
+
+import com.bloxbean.cardano.client.api.ProtocolParamsSupplier;
+import com.bloxbean.cardano.client.api.UtxoSupplier;
+import com.bloxbean.cardano.client.api.exception.ApiException;
+import com.bloxbean.cardano.client.api.exception.ApiRuntimeException;
+import com.bloxbean.cardano.client.api.model.ProtocolParams;
+import com.bloxbean.cardano.client.api.model.Result;
+import com.bloxbean.cardano.client.backend.api.BackendService;
+import com.bloxbean.cardano.client.backend.api.DefaultScriptSupplier;
+import com.bloxbean.cardano.client.backend.api.DefaultTransactionProcessor;
+import com.bloxbean.cardano.client.backend.api.DefaultUtxoSupplier;
+import com.bloxbean.cardano.client.backend.model.EpochContent;
+import com.bloxbean.cardano.client.quicktx.QuickTxBuilder;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+
+/**
+ * Shares protocol parameters between all transaction builders.
+ * <p>
+ * {@code new QuickTxBuilder(backendService)} asks the provider for the
+ * protocol parameters on every build, although they only change at epoch
+ * boundaries. Parameters are cached per backend until the end of the epoch
+ * they were fetched in, or for {@code protocol-params.max-age-seconds} if the
+ * provider does not report the epoch end. Entries that ran out are reloaded
+ * in the background so builds rarely wait for the provider after a boundary.
+ * <p>
+ * {@link #quickTxBuilder} hands out builders wired to these parameters and
+ * to the {@link LibraryScriptSupplier}.
+ */
+@Component
+@Slf4j
+public class ProtocolParamsCache {
+
+    private static final long RETRY_DELAY_SECONDS = 60;
+
+    private record Entry(int epoch, ProtocolParams protocolParams, long expiresAt) {
+    }
+
+    private final long maxAgeSeconds;
+    private final Clock clock;
+    private final LibraryScriptSupplier libraryScriptSupplier;
+    // Weak keys compare by identity, so a swapped backend gets its own entry.
+    private final Cache<BackendService, Entry> entries = Caffeine.newBuilder().weakKeys().build();
+
+    @Autowired
+    public ProtocolParamsCache(@Value("${protocol-params.max-age-seconds:3600}") long maxAgeSeconds,
+                               LibraryScriptSupplier libraryScriptSupplier) {
+        this(maxAgeSeconds, Clock.systemUTC(), libraryScriptSupplier);
+    }
+
+    ProtocolParamsCache(long maxAgeSeconds, Clock clock, LibraryScriptSupplier libraryScriptSupplier) {
+        this.maxAgeSeconds = maxAgeSeconds;
+        this.clock = clock;
+        this.libraryScriptSupplier = libraryScriptSupplier;
+    }
+
+    /**
+     * Creates a transaction builder for the given backend that takes its
+     * protocol parameters from this cache.
+     */
+    public QuickTxBuilder quickTxBuilder(BackendService backendService) {
+        return quickTxBuilder(backendService, new DefaultUtxoSupplier(backendService.getUtxoService()));
+    }
+
+    public QuickTxBuilder quickTxBuilder(BackendService backendService, UtxoSupplier utxoSupplier) {
+        return new QuickTxBuilder(
+                utxoSupplier,
+                supplierFor(backendService),
+                libraryScriptSupplier.withFallback(new DefaultScriptSupplier(backendService.getScriptService())),
+                new DefaultTransactionProcessor(backendService.getTransactionService()));
+    }
+
+    public ProtocolParamsSupplier supplierFor(BackendService backendService) {
+        return () -> getProtocolParams(backendService);
+    }
+
+    public ProtocolParams getProtocolParams(BackendService backendService) {
+        Entry entry = entries.getIfPresent(backendService);
+        if (entry != null && !isExpired(entry)) {
+            return entry.protocolParams();
+        }
+        return entries.asMap().compute(backendService, (backend, current) ->
+                current != null && !isExpired(current) ? current : reload(backend, current)).protocolParams();
+    }
+
+    @Scheduled(fixedDelayString = "${protocol-params.refresh-interval-ms:30000}")
+    public void refreshExpired() {
+        entries.asMap().forEach((backendService, entry) -> {
+            if (isExpired(entry)) {
+                try {
+                    getProtocolParams(backendService);
+                } catch (RuntimeException exception) {
+                    log.warn("Could not refresh protocol parameters: {}", exception.getMessage());
+                }
+            }
+        });
+    }
+
+    private Entry reload(BackendService backendService, Entry current) {
+        try {
+            Entry loaded = load(backendService);
+            if (current == null || current.epoch() != loaded.epoch()) {
+                log.info("Loaded protocol parameters for epoch {}", loaded.epoch());
+            }
+            return loaded;
+        } catch (ApiException | RuntimeException exception) {
+            if (current == null) {
+                throw exception instanceof RuntimeException runtimeException
+                        ? runtimeException
+                        : new ApiRuntimeException(exception.getMessage(), exception);
+            }
+            // Parameters of the last epoch are almost always still valid.
+            // Keep serving them for a while instead of failing every build.
+            log.warn("Could not reload protocol parameters, keeping those of epoch {}: {}",
+                    current.epoch(), exception.getMessage());
+            return new Entry(current.epoch(), current.protocolParams(),
+                    clock.instant().getEpochSecond() + RETRY_DELAY_SECONDS);
+        }
+    }
+
+    private Entry load(BackendService backendService) throws ApiException {
+        Result<EpochContent> latestEpoch = backendService.getEpochService().getLatestEpoch();
+        if (!latestEpoch.isSuccessful() || latestEpoch.getValue() == null) {
+            throw new ApiException("Failed to get latest epoch: " + latestEpoch.getResponse());
+        }
+        EpochContent epoch = latestEpoch.getValue();
+        Result<ProtocolParams> protocolParams = backendService.getEpochService().getProtocolParameters(epoch.getEpoch());
+        if (!protocolParams.isSuccessful() || protocolParams.getValue() == null) {
+            throw new ApiException("Failed to get protocol parameters: " + protocolParams.getResponse());
+        }
+
+        long now = clock.instant().getEpochSecond();
+        long expiresAt = now + maxAgeSeconds;
+        if (epoch.getEndTime() != null) {
+            // Right after a boundary the provider may still report the old
+            // epoch. Ask again soon instead of serving it for the full age.
+            expiresAt = epoch.getEndTime() > now
+                    ? Math.min(expiresAt, epoch.getEndTime())
+                    : now + RETRY_DELAY_SECONDS;
+        }
+        return new Entry(epoch.getEpoch(), protocolParams.getValue(), expiresAt);
+    }
+
+    private boolean isExpired(Entry entry) {
+        return clock.instant().getEpochSecond() >= entry.expiresAt();
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * UVerify Backend
+ * Copyright (C) 2025 Fabian Bormann
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.uverify.backend.service;
+
+import io.uverify.backend.util.StringBloomFilter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Bloom filter over a table column that is rebuilt from scratch, because
+ * rolled back rows cannot be removed from a Bloom filter. Until the first
+ * build completes every lookup is passed through.
+ * <p>
+ * Values written while a rebuild streams the table may be missed by the
+ * stream, so they are buffered and replayed into the new filter. A value
+ * added in a transaction is buffered again once it commits, in case the
+ * rebuild started streaming before the commit. Outside of rebuilds nothing
+ * is buffered.
+ */
+@Slf4j
+public final class RebuildableBloomFilter {
+
+    private final String name;
+    private final TransactionTemplate readOnlyTransaction;
+    private final boolean enabled;
+    private final long minimumCapacity;
+    private final double falsePositiveProbability;
+
+    private final Queue<String> addedDuringRebuild = new ConcurrentLinkedQueue<>();
+    private volatile boolean rebuilding;
+    private volatile StringBloomFilter filter;
+
+    public RebuildableBloomFilter(String name, PlatformTransactionManager transactionManager, boolean enabled,
+                                  long minimumCapacity, double falsePositiveProbability) {
+        this.name = name;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.enabled = enabled;
+        this.minimumCapacity = minimumCapacity;
+        this.falsePositiveProbability = falsePositiveProbability;
+    }
+
+    public boolean isBuilt() {
+        return filter != null;
+    }
+
+    public boolean mightContain(String value) {
+        StringBloomFilter current = filter;
+        return current == null || current.mightContain(value);
+    }
+
+    public void addAll(Collection<String> values) {
+        if (!enabled) {
+            return;
+        }
+        add(values);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    add(values);
+                }
+            });
+        }
+    }
+
+    private void add(Collection<String> values) {
+        // Buffer before reading the filter: a value buffered after the replay
+        // started is put into the new filter directly.
+        if (rebuilding) {
+            addedDuringRebuild.addAll(values);
+        }
+        StringBloomFilter current = filter;
+        if (current != null) {
+            values.forEach(current::put);
+        }
+    }
+
+    /**
+     * Builds a new filter sized for {@code rows} from the streamed
+     * {@code values} and swaps it in. Keeps the current filter if the build
+     * fails.
+     */
+    public synchronized void rebuild(LongSupplier rows, Supplier<Stream<String>> values) {
+        if (!enabled) {
+            return;
+        }
+        addedDuringRebuild.clear();
+        rebuilding = true;
+        try {
+            long started = System.currentTimeMillis();
+            StringBloomFilter fresh = StringBloomFilter.create(
+                    Math.max(minimumCapacity, rows.getAsLong() * 2), falsePositiveProbability);
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<String> stream = values.get()) {
+                    stream.forEach(fresh::put);
+                }
+            });
+            filter = fresh;
+            addedDuringRebuild.forEach(fresh::put);
+            log.info("Built {} over {} values ({} KiB) in {} ms",
+                    name, fresh.insertions(), fresh.sizeInBytes() / 1024, System.currentTimeMillis() - started);
+        } catch (RuntimeException exception) {
+            log.warn("Failed to build {}: {}", name, exception.getMessage());
+        } finally {
+            rebuilding = false;
+            addedDuringRebuild.clear();
+        }
+    }
+
+    public double expectedFalsePositiveProbability() {
+        StringBloomFilter current = filter;
+        return current == null ? 0 : current.expectedFalsePositiveProbability();
+    }
+
+    public long sizeInBytes() {
+        StringBloomFilter current = filter;
+        return current == null ? 0 : current.sizeInBytes();
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * UVerify Backend
+ * Copyright (C) 2025 Fabian Bormann
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.uverify.backend.service;
+
+import com.bloxbean.cardano.client.api.exception.ApiException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Serializes transaction builds that spend the same state UTxO.
+ * <p>
+ * A build reads the chained state UTxO from the {@link PendingTransactionCache},
+ * builds the transaction and populates the cache with its output. Two builds
+ * for the same state running this section concurrently would both spend the
+ * same UTxO and one of them fails at submission. Builds open a {@link Scope}
+ * around the whole section and lock the state unit as soon as it is known,
+ * the lock is held until the scope is closed after the cache is populated.
+ * <p>
+ * Locks are striped ({@code build.state-lock-stripes}) and fair, so builds
+ * for one state chain in arrival order while builds for other states only
+ * wait on the rare stripe collision.
+ */
+@Component
+@Slf4j
+public class StateBuildLocks {
+
+    private final ReentrantLock[] stripes;
+    private final Duration timeout;
+    private final ThreadLocal<Scope> currentScope = new ThreadLocal<>();
+
+    @Autowired
+    public StateBuildLocks(@Value("${build.state-lock-stripes:256}") int stripes,
+                           @Value("${build.state-lock-timeout-ms:30000}") long timeoutMillis) {
+        this(stripes, Duration.ofMillis(timeoutMillis));
+    }
+
+    StateBuildLocks(int stripes, Duration timeout) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("build.state-lock-stripes must be positive");
+        }
+        this.stripes = new ReentrantLock[stripes];
+        for (int index = 0; index < stripes; index++) {
+            this.stripes[index] = new ReentrantLock(true);
+        }
+        this.timeout = timeout;
+    }
+
+    /**
+     * Opens a build scope on the current thread. Nested calls share the
+     * outermost scope.
+     */
+    public Scope open() {
+        if (currentScope.get() != null) {
+            return Scope.NESTED;
+        }
+        Scope scope = new Scope(this);
+        currentScope.set(scope);
+        return scope;
+    }
+
+    /**
+     * Locks the given state unit until the build scope of the current thread
+     * is closed. Without an open scope, e.g. when a transaction is only
+     * built and never cached, nothing is locked.
+     */
+    public void lock(String unit) throws ApiException {
+        Scope scope = currentScope.get();
+        if (scope == null) {
+            return;
+        }
+        ReentrantLock lock = stripes[Math.floorMod(unit.hashCode(), stripes.length)];
+        try {
+            if (!lock.tryLock()) {
+                log.debug("Waiting for a concurrent build of state {}", unit);
+                if (!lock.tryLock(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                    throw new ApiException("Timed out after " + timeout.toMillis()
+                            + " ms waiting for a concurrent build of state " + unit);
+                }
+            }
+        } catch (InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+            throw new ApiException("Interrupted while waiting for a concurrent build of state " + unit, interruptedException);
+        }
+        scope.held.add(lock);
+    }
+
+    /**
+     * Locks the given state unit like {@link #lock} if no other build holds
+     * it, without waiting. Returns false if the state is busy.
+     */
+    public boolean tryLock(String unit) {
+        Scope scope = currentScope.get();
+        if (scope == null) {
+            return true;
+        }
+        ReentrantLock lock = stripes[Math.floorMod(unit.hashCode(), stripes.length)];
+        if (!lock.tryLock()) {
+            return false;
+        }
+        scope.held.add(lock);
+        return true;
+    }
+
+    public static final class Scope implements AutoCloseable {
+        private static final Scope NESTED = new Scope(null);
+
+        private final StateBuildLocks owner;
+        private final List<ReentrantLock> held = new ArrayList<>();
+
+        private Scope(StateBuildLocks owner) {
+            this.owner = owner;
+        }
+
+        @Override
+        public void close() {
+            if (owner == null) {
+                return;
+            }
+            owner.currentScope.remove();
+            for (int index = held.size() - 1; index >= 0; index--) {
+                held.get(index).unlock();
+            }
+            held.clear();
+        }
+    }
+}
@@ -23,9 +23,12 @@ import com.bloxbean.cardano.yaci.store.common.domain.AddressUtxo;
 import io.uverify.backend.entity.StateDatumEntity;
 import io.uverify.backend.entity.StateDatumUpdateEntity;
 import io.uverify.backend.model.StateDatum;
+import io.uverify.backend.repository.IndexBulkWriter;
 import io.uverify.backend.repository.StateDatumRepository;
 import io.uverify.backend.repository.StateDatumUpdateRepository;
 import io.uverify.backend.util.CardanoUtils;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import jakarta.transaction.Transactional;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -37,6 +40,7 @@ import java.util.Optional;
 @Service
 @Slf4j
 public class StateDatumService {
+    private static final int ROLLBACK_CHUNK_SIZE = 1000;
 
     @Autowired
     private final StateDatumRepository stateDatumRepository;
@@ -44,10 +48,17 @@ public class StateDatumService {
     @Autowired
     private final StateDatumUpdateRepository stateDatumUpdateRepository;
 
+    private final IndexBulkWriter indexBulkWriter;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
     @Autowired
-    public StateDatumService(StateDatumRepository stateDatumRepository, StateDatumUpdateRepository stateDatumUpdateRepository) {
+    public StateDatumService(StateDatumRepository stateDatumRepository, StateDatumUpdateRepository stateDatumUpdateRepository,
+                             IndexBulkWriter indexBulkWriter) {
         this.stateDatumRepository = stateDatumRepository;
         this.stateDatumUpdateRepository = stateDatumUpdateRepository;
+        this.indexBulkWriter = indexBulkWriter;
     }
 
     public StateDatumEntity selectCheapestStateDatum(List<StateDatumEntity> stateDatums) {
@@ -96,8 +107,19 @@ public class StateDatumService {
                 .slot(slot)
                 .build();
 
-        stateDatumEntity.addUpdate(stateDatumUpdateEntity);
-        stateDatumRepository.save(stateDatumEntity);
+        // Existing states only move their countdown and transaction id, the
+        // history is appended without hydrating the aggregate. A loaded state
+        // is detached first, otherwise its changes are flushed a second time.
+        if (entityManager.contains(stateDatumEntity)) {
+            entityManager.detach(stateDatumEntity);
+        }
+        int updated = stateDatumRepository.updateLatestState(
+                stateDatumEntity.getId(), stateDatumEntity.getCountdown(), stateDatumEntity.getTransactionId());
+        if (updated == 0) {
+            stateDatumEntity = stateDatumRepository.save(stateDatumEntity);
+        }
+        stateDatumUpdateEntity.setStateDatum(stateDatumEntity);
+        indexBulkWriter.insertStateDatumUpdates(List.of(stateDatumUpdateEntity));
     }
 
     public Optional<StateDatumEntity> findByAddressUtxo(AddressUtxo addressUtxo) {
@@ -115,17 +137,25 @@ public class StateDatumService {
     }
 
     public Optional<StateDatumEntity> findByUserAndBootstrapToken(String address, String bootstrapTokenName) {
-        List<StateDatumEntity> results = stateDatumRepository.findByUserAndBootstrapToken(
-                HexUtil.encodeHexString(CardanoUtils.extractCredentialFromAddress(address)), bootstrapTokenName);
+        List<StateDatumEntity> results = findAllByUserAndBootstrapToken(address, bootstrapTokenName);
         if (results.isEmpty()) return Optional.empty();
         if (results.size() == 1) return Optional.of(results.get(0));
         return Optional.of(selectCheapestStateDatum(results));
     }
 
+    public List<StateDatumEntity> findAllByUserAndBootstrapToken(String address, String bootstrapTokenName) {
+        return stateDatumRepository.findByUserAndBootstrapToken(
+                HexUtil.encodeHexString(CardanoUtils.extractCredentialFromAddress(address)), bootstrapTokenName);
+    }
+
     @Transactional
     public void handleRollbackToSlot(long slot) {
+        List<String> affectedStateDatums = stateDatumUpdateRepository.findStateDatumIdsAfterSlot(slot);
         stateDatumUpdateRepository.deleteAllAfterSlot(slot);
         stateDatumRepository.deleteAllAfterSlot(slot);
-        stateDatumRepository.handleRollback();
+        for (int offset = 0; offset < affectedStateDatums.size(); offset += ROLLBACK_CHUNK_SIZE) {
+            stateDatumRepository.handleRollback(affectedStateDatums.subList(offset,
+                    Math.min(affectedStateDatums.size(), offset + ROLLBACK_CHUNK_SIZE)));
+        }
     }
 }
@@ -0,0 +1,133 @@
+/*
+ * UVerify Backend
+ * Copyright (C) 2025 Fabian Bormann
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.uverify.backend.service;
+
+import io.uverify.backend.entity.StateDatumEntity;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Spreads the builds of one issuer over parallel states.
+ * <p>
+ * Every update spends and recreates the state UTxO, so a single state only
+ * advances once per block. With {@code build.state-stripes} above one, an
+ * issuer keeps up to that many states forked from the same bootstrap datum
+ * and each build takes the state with the fewest pending transactions, the
+ * least recently used one first. Only when every state is busy and fewer
+ * stripes exist than configured does the build fork another one.
+ */
+@Component
+@Slf4j
+public class StateStripeSelector {
+
+    private final int stripes;
+    private final PendingTransactionCache pendingTransactionCache;
+    private final StateBuildLocks stateBuildLocks;
+
+    private record Stripe(StateDatumEntity state, String unit, int pending, Instant lastUse) {
+    }
+
+    @Autowired
+    public StateStripeSelector(@Value("${build.state-stripes:1}") int stripes,
+                               PendingTransactionCache pendingTransactionCache,
+                               StateBuildLocks stateBuildLocks) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("build.state-stripes must be positive");
+        }
+        this.stripes = stripes;
+        this.pendingTransactionCache = pendingTransactionCache;
+        this.stateBuildLocks = stateBuildLocks;
+    }
+
+    public boolean isEnabled() {
+        return stripes > 1;
+    }
+
+    /**
+     * Picks the state to update among the usable {@code states} that share the
+     * bootstrap datum of {@code preferred}. The picked state is locked for the
+     * current build scope if it is idle. Returns empty if the caller should
+     * fork a new stripe instead, which is never the case without
+     * {@code allowFork}.
+     */
+    public Optional<StateDatumEntity> select(String proxyScriptHash, StateDatumEntity preferred,
+                                             List<StateDatumEntity> states, boolean allowFork) {
+        if (!isEnabled()) {
+            return Optional.of(preferred);
+        }
+        String bootstrapTokenName = preferred.getBootstrapDatum().getTokenName();
+        List<Stripe> candidates = states.stream()
+                .filter(state -> state.getInvalidationSlot() == null
+                        && state.getCountdown() > 0
+                        && state.getVersion() > 1
+                        && bootstrapTokenName.equals(state.getBootstrapDatum().getTokenName()))
+                .map(state -> {
+                    String unit = proxyScriptHash + state.getId();
+                    return new Stripe(state, unit, pendingTransactionCache.getPendingTransactionCount(unit),
+                            pendingTransactionCache.getLastStateUse(unit));
+                })
+                .sorted(Comparator.comparingInt(Stripe::pending).thenComparing(Stripe::lastUse))
+                .toList();
+        if (candidates.isEmpty()) {
+            return Optional.of(preferred);
+        }
+
+        for (Stripe candidate : candidates) {
+            if (candidate.pending() == 0 && stateBuildLocks.tryLock(candidate.unit())) {
+                return Optional.of(candidate.state());
+            }
+        }
+
+        Set<String> units = candidates.stream().map(Stripe::unit).collect(Collectors.toSet());
+        int pendingForks = pendingTransactionCache.countPendingForks(group(preferred), units);
+        if (allowFork && candidates.size() + pendingForks < stripes) {
+            log.debug("All {} states of {} are busy, forking another one", candidates.size() + pendingForks, group(preferred));
+            return Optional.empty();
+        }
+
+        for (Stripe candidate : candidates) {
+            if (stateBuildLocks.tryLock(candidate.unit())) {
+                return Optional.of(candidate.state());
+            }
+        }
+        // Every state is being built right now, wait for the least busy one.
+        return Optional.of(candidates.get(0).state());
+    }
+
+    /**
+     * Counts a fork of a new state of the group of {@code preferred} towards
+     * the stripes until the new state is indexed.
+     */
+    public void recordFork(StateDatumEntity preferred, String unit) {
+        pendingTransactionCache.putPendingFork(group(preferred), unit);
+    }
+
+    private static String group(StateDatumEntity state) {
+        return state.getOwner() + ":" + state.getBootstrapDatum().getTokenName();
+    }
+}
@@ -29,6 +29,7 @@ import io.uverify.backend.repository.StatisticRepository;
 import io.uverify.backend.repository.TransactionRepository;
 import io.uverify.backend.util.TemplateIdResolver;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
@@ -37,74 +38,125 @@ import org.springframework.transaction.annotation.Transactional;
 import java.math.BigInteger;
 import java.time.Instant;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.stream.Stream;
 
 @Service
 @Slf4j
 public class StatisticsService {
 
-    private static final String TOTAL_FEES_KEY = "total_fees_lovelace";
-    private static final String CATEGORY_KEY_PREFIX = "category_count:";
+    static final String TOTAL_FEES_KEY = "total_fees_lovelace";
+    static final String CATEGORY_KEY_PREFIX = "category_count:";
+    static final String EXTENSION_FEES_KEY = "extension_fees_lovelace";
+    static final String EXTENSION_CATEGORY_KEY_PREFIX = "extension_category_count:";
 
     private final CertificateRepository certificateRepository;
     private final ExtensionManager extensionManager;
     private final TransactionRepository transactionRepository;
     private final StatisticRepository statisticRepository;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final UsageStatisticsRecorder usageStatisticsRecorder;
 
     public StatisticsService(CertificateRepository certificateRepository,
                              ExtensionManager extensionManager,
                              TransactionRepository transactionRepository,
-                             StatisticRepository statisticRepository) {
+                             StatisticRepository statisticRepository,
+                             UsageStatisticsRecorder usageStatisticsRecorder) {
         this.certificateRepository = certificateRepository;
         this.extensionManager = extensionManager;
         this.transactionRepository = transactionRepository;
         this.statisticRepository = statisticRepository;
+        this.usageStatisticsRecorder = usageStatisticsRecorder;
     }
 
     public Map<String, Integer> getTotalUVerifyCertificates() {
         Map<String, Integer> result = new HashMap<>();
-        for (StatisticEntity entity : statisticRepository.findByStatisticKeyStartingWith(CATEGORY_KEY_PREFIX)) {
-            String displayName = entity.getStatisticKey().substring(CATEGORY_KEY_PREFIX.length());
-            result.put(displayName, entity.getStatisticValue().intValue());
+        for (String prefix : List.of(CATEGORY_KEY_PREFIX, EXTENSION_CATEGORY_KEY_PREFIX)) {
+            for (StatisticEntity entity : statisticRepository.findByStatisticKeyStartingWith(prefix)) {
+                String displayName = entity.getStatisticKey().substring(prefix.length());
+                result.merge(displayName, entity.getStatisticValue().intValue(), Integer::sum);
+            }
         }
         return result;
     }
 
     public Long getTransactionFees() {
-        return statisticRepository.findById(TOTAL_FEES_KEY)
-                .map(StatisticEntity::getStatisticValue)
-                .orElse(0L);
+        return statisticRepository.findById(TOTAL_FEES_KEY).map(StatisticEntity::getStatisticValue).orElse(0L)
+                + statisticRepository.findById(EXTENSION_FEES_KEY).map(StatisticEntity::getStatisticValue).orElse(0L);
+    }
+
+    /**
+     * Seeds the aggregates on a fresh database. From then on they are kept up
+     * to date by {@link UsageStatisticsRecorder} while indexing.
+     * <p>
+     * Databases written before the extension rows existed hold the extension
+     * totals in the core rows, so they are recomputed once as well.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void seedStatistics() {
+        if (statisticRepository.findById(EXTENSION_FEES_KEY).isEmpty()) {
+            recomputeStatistics();
+        } else {
+            refreshExtensionStatistics();
+        }
     }
 
-    @Scheduled(
-            fixedDelayString = "${statistics.recompute-interval-ms:600000}",
-            initialDelayString = "${statistics.recompute-initial-delay-ms:15000}")
+    /**
+     * Full reconciliation from the certificate and transaction tables.
+     * Disabled by default, enable with {@code statistics.reconcile-cron}.
+     */
+    @Scheduled(cron = "${statistics.reconcile-cron:-}")
     @Transactional
     public void recomputeStatistics() {
         Instant now = Instant.now();
         recomputeCategories(now);
         recomputeFees(now);
+        refreshExtensionStatistics();
+    }
+
+    /**
+     * Extensions only report totals, so their share is kept in separate rows
+     * that are replaced periodically instead of being tracked per block.
+     */
+    @Scheduled(fixedDelayString = "${statistics.extension-refresh-interval-ms:600000}",
+            initialDelayString = "${statistics.extension-refresh-interval-ms:600000}")
+    @Transactional
+    public void refreshExtensionStatistics() {
+        Instant now = Instant.now();
+        UsageStatistics usageStatistics = new UsageStatistics();
+        extensionManager.addUsageStatistics(usageStatistics);
+        Map<String, Integer> categoryCounts = usageStatistics.getUseCaseStatistics();
+        for (StatisticEntity entity : statisticRepository.findByStatisticKeyStartingWith(EXTENSION_CATEGORY_KEY_PREFIX)) {
+            if (!categoryCounts.containsKey(entity.getStatisticKey().substring(EXTENSION_CATEGORY_KEY_PREFIX.length()))) {
+                upsert(entity.getStatisticKey(), 0L, now);
+            }
+        }
+        for (Map.Entry<String, Integer> entry : categoryCounts.entrySet()) {
+            upsert(EXTENSION_CATEGORY_KEY_PREFIX + entry.getKey(), entry.getValue().longValue(), now);
+        }
+        upsert(EXTENSION_FEES_KEY, extensionManager.addTransactionFees(BigInteger.ZERO).longValue(), now);
     }
 
     private void recomputeCategories(Instant now) {
         UsageStatistics usageStatistics = new UsageStatistics();
-        try (Stream<String> extras = certificateRepository.streamAllExtra()) {
-            extras.forEach(extra -> usageStatistics.addCertificateToCategory(categorize(extra, objectMapper)));
+        for (Object[] row : certificateRepository.countByUseCaseCategory()) {
+            UseCaseCategory category = row[0] == null ? UseCaseCategory.NOTARY : (UseCaseCategory) row[0];
+            usageStatistics.addCertificatesToCategory(category, ((Number) row[1]).intValue());
         }
-        extensionManager.addUsageStatistics(usageStatistics);
 
         Map<String, Integer> categoryCounts = usageStatistics.getUseCaseStatistics();
+        for (StatisticEntity entity : statisticRepository.findByStatisticKeyStartingWith(CATEGORY_KEY_PREFIX)) {
+            if (!categoryCounts.containsKey(entity.getStatisticKey().substring(CATEGORY_KEY_PREFIX.length()))) {
+                upsert(entity.getStatisticKey(), 0L, now);
+            }
+        }
         for (Map.Entry<String, Integer> entry : categoryCounts.entrySet()) {
             upsert(CATEGORY_KEY_PREFIX + entry.getKey(), entry.getValue().longValue(), now);
         }
     }
 
     private void recomputeFees(Instant now) {
-        BigInteger totalFees = transactionRepository.sumUVerifyCertificateFees();
-        totalFees = extensionManager.addTransactionFees(totalFees);
-        upsert(TOTAL_FEES_KEY, totalFees.longValue(), now);
+        upsert(TOTAL_FEES_KEY, transactionRepository.sumUVerifyCertificateFees().longValue(), now);
     }
 
     private void upsert(String key, long value, Instant now) {
@@ -120,17 +172,7 @@ public class StatisticsService {
             return UseCaseCategory.NOTARY;
         }
         try {
-            String templateId = TemplateIdResolver.resolveTemplateId(mapper.readTree(extra));
-            if (templateId == null) {
-                return UseCaseCategory.NOTARY;
-            }
-            return switch (templateId) {
-                case "tadamon" -> UseCaseCategory.IDENTITY;
-                case "socialHub", "linktree", "productVerification" -> UseCaseCategory.CONNECTED_GOODS;
-                case "diploma" -> UseCaseCategory.STUDENT_CERTIFICATION;
-                case "blockforce" -> UseCaseCategory.CROSS_CHAIN_ATTESTATION;
-                default -> UseCaseCategory.NOTARY;
-            };
+            return UseCaseCategory.fromTemplateId(TemplateIdResolver.resolveTemplateId(mapper.readTree(extra)));
         } catch (Exception exception) {
             return UseCaseCategory.NOTARY;
         }
@@ -140,6 +182,8 @@ public class StatisticsService {
     @Transactional
     @SuppressWarnings({"unused", "rawtypes"})
     public void reactOnCommitEvent(CommitEvent commitEvent) {
+        usageStatisticsRecorder.recordPendingFees();
         transactionRepository.deleteIrrelevantTransactions();
+        usageStatisticsRecorder.pruneJournal(commitEvent.getMetadata().getSlot());
     }
 }
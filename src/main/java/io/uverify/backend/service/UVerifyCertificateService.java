@@ -18,30 +18,71 @@
 
 package io.uverify.backend.service;
 
+import io.uverify.backend.dto.CertificateResponse;
+import io.uverify.backend.dto.CertificateView;
 import io.uverify.backend.entity.UVerifyCertificateEntity;
 import io.uverify.backend.repository.CertificateRepository;
+import io.uverify.backend.repository.IndexBulkWriter;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.function.Function;
 
 @Service
 public class UVerifyCertificateService {
     @Autowired
     private final CertificateRepository certificateRepository;
 
+    private final IndexBulkWriter indexBulkWriter;
+
     private final IdentityIndexerService identityIndexerService;
 
+    private final CertificateResponseCache certificateResponseCache;
+
+    private final CertificateHashFilter certificateHashFilter;
+
+    private final PendingMerkleTrees pendingMerkleTrees;
+
     @Autowired
     public UVerifyCertificateService(CertificateRepository certificateRepository,
-                                     IdentityIndexerService identityIndexerService) {
+                                     IndexBulkWriter indexBulkWriter,
+                                     IdentityIndexerService identityIndexerService,
+                                     CertificateResponseCache certificateResponseCache,
+                                     CertificateHashFilter certificateHashFilter,
+                                     PendingMerkleTrees pendingMerkleTrees) {
         this.certificateRepository = certificateRepository;
+        this.indexBulkWriter = indexBulkWriter;
         this.identityIndexerService = identityIndexerService;
+        this.certificateResponseCache = certificateResponseCache;
+        this.certificateHashFilter = certificateHashFilter;
+        this.pendingMerkleTrees = pendingMerkleTrees;
+    }
+
+    public List<CertificateView> getCertificateViewsByHash(String hash) {
+        return filteredLookup(hash, certificateRepository::findViewsByHash);
+    }
+
+    public List<CertificateResponse> getCertificateResponsesByHash(String hash) {
+        // Misses are answered by the filter and do not take cache slots
+        if (!certificateHashFilter.mightContain(hash)) {
+            return List.of();
+        }
+        return certificateResponseCache.get(hash, key -> lookup(key, certificateRepository::findViewsByHash));
+    }
+
+    private <T> List<T> filteredLookup(String hash, Function<String, List<T>> query) {
+        if (!certificateHashFilter.mightContain(hash)) {
+            return List.of();
+        }
+        return lookup(hash, query);
     }
 
-    public List<UVerifyCertificateEntity> getCertificatesByHash(String hash) {
-        return certificateRepository.findAllByHash(hash);
+    private <T> List<T> lookup(String hash, Function<String, List<T>> query) {
+        List<T> result = query.apply(hash);
+        certificateHashFilter.recordLookup(!result.isEmpty());
+        return result;
     }
 
     public List<UVerifyCertificateEntity> getCertificatesByCredential(String credential) {
@@ -50,13 +91,21 @@ public class UVerifyCertificateService {
 
     @Transactional
     public void deleteAllCertificatesAfterSlot(long slot) {
+        certificateResponseCache.invalidate(certificateRepository.findHashesAfterSlot(slot));
         certificateRepository.deleteAllAfterSlot(slot);
         identityIndexerService.deleteCredentialsAfterSlot(slot);
+        pendingMerkleTrees.rollbackToSlot(slot);
     }
 
     public void saveAllCertificates(List<UVerifyCertificateEntity> UVerifyCertificateEntities) {
-        certificateRepository.saveAll(UVerifyCertificateEntities);
+        indexBulkWriter.insertCertificates(UVerifyCertificateEntities);
+        List<String> hashes = UVerifyCertificateEntities.stream()
+                .map(UVerifyCertificateEntity::getHash)
+                .toList();
+        certificateHashFilter.addAll(hashes);
+        certificateResponseCache.invalidate(hashes);
         identityIndexerService.processNewCertificates(UVerifyCertificateEntities);
+        pendingMerkleTrees.persistIndexed(UVerifyCertificateEntities);
     }
 
     public UVerifyCertificateEntity getCertificateByTransactionHash(String transactionHash, String dataHash) {
@@ -28,17 +28,22 @@ import com.bloxbean.cardano.client.transaction.spec.Transaction;
 import com.bloxbean.cardano.client.transaction.spec.TransactionWitnessSet;
 import com.bloxbean.cardano.client.util.HexUtil;
 import io.uverify.backend.dto.*;
+import io.uverify.backend.entity.BootstrapDatumEntity;
 import io.uverify.backend.enums.BuildStatusCode;
 import io.uverify.backend.enums.TransactionType;
 import io.uverify.backend.exception.UVerifyTransactionException;
 import io.uverify.backend.model.BootstrapDatum;
 import io.uverify.backend.model.UVerifyCertificate;
 import io.uverify.backend.repository.TransactionRepository;
+import io.uverify.backend.util.CardanoUtils;
+import io.uverify.backend.util.MerkleTree;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 @Service
@@ -50,6 +55,14 @@ public class UVerifyTransactionService {
     private final CardanoBlockchainService cardanoBlockchainService;
     @Autowired
     private final TransactionRepository transactionRepository;
+    @Autowired
+    private final CertificateBatcher certificateBatcher;
+    @Autowired
+    private final StateDatumService stateDatumService;
+    @Autowired
+    private final BootstrapDatumService bootstrapDatumService;
+    @Autowired
+    private final MerkleBatchService merkleBatchService;
 
     public Result<String> submit(String transactionHex, String witnessSetHex) throws CborDeserializationException, CborSerializationException, ApiException {
         Transaction transaction = Transaction.deserialize(HexUtil.decodeHexString(transactionHex));
@@ -70,6 +83,15 @@ public class UVerifyTransactionService {
         List<UVerifyCertificate> uVerifyCertificates = certificates.stream()
                 .map(certificate -> UVerifyCertificate.fromCertificateData(certificate, address))
                 .toList();
+        if (!certificateBatcher.isEnabled()) {
+            return buildUVerifyTransaction(address, uVerifyCertificates, bootstrapDatumName);
+        }
+        return certificateBatcher.submit(batchKey(TransactionType.DEFAULT, address, bootstrapDatumName),
+                uVerifyCertificates, maxCertificatesPerTransaction(address, bootstrapDatumName),
+                batch -> buildUVerifyTransaction(address, batch, bootstrapDatumName));
+    }
+
+    private BuildTransactionResponse buildUVerifyTransaction(String address, List<UVerifyCertificate> uVerifyCertificates, String bootstrapDatumName) {
         try {
             Transaction transaction = bootstrapDatumName != null && !bootstrapDatumName.isEmpty()
                     ? cardanoBlockchainService.persistUVerifyCertificates(address, uVerifyCertificates, bootstrapDatumName)
@@ -148,32 +170,12 @@ public class UVerifyTransactionService {
                 .map(certificate -> UVerifyCertificate.fromCertificateData(certificate, address))
                 .toList();
         if (bootstrapDatumName != null && !bootstrapDatumName.isEmpty()) {
-            try {
-                Transaction transaction = cardanoBlockchainService.updateStateDatum(address, uVerifyCertificates, bootstrapDatumName);
-                return BuildTransactionResponse.builder()
-                        .unsignedTransaction(transaction.serializeToHex())
-                        .status(BuildStatus.builder()
-                                .code(BuildStatusCode.SUCCESS)
-                                .build())
-                        .type(TransactionType.CUSTOM)
-                        .build();
-            } catch (UVerifyTransactionException exception) {
-                return BuildTransactionResponse.builder()
-                        .status(BuildStatus.builder()
-                                .code(exception.getStatusCode())
-                                .message(exception.getMessage())
-                                .build())
-                        .type(TransactionType.CUSTOM)
-                        .build();
-            } catch (Exception exception) {
-                return BuildTransactionResponse.builder()
-                        .status(BuildStatus.builder()
-                                .code(BuildStatusCode.UNKNOWN_ERROR)
-                                .message(exception.getMessage())
-                                .build())
-                        .type(TransactionType.CUSTOM)
-                        .build();
+            if (!certificateBatcher.isEnabled()) {
+                return buildCustomTransaction(address, uVerifyCertificates, bootstrapDatumName);
             }
+            return certificateBatcher.submit(batchKey(TransactionType.CUSTOM, address, bootstrapDatumName),
+                    uVerifyCertificates, maxCertificatesPerTransaction(address, bootstrapDatumName),
+                    batch -> buildCustomTransaction(address, batch, bootstrapDatumName));
         }
 
         try {
@@ -190,4 +192,93 @@ public class UVerifyTransactionService {
                     .build();
         }
     }
+
+    private BuildTransactionResponse buildCustomTransaction(String address, List<UVerifyCertificate> uVerifyCertificates, String bootstrapDatumName) {
+        try {
+            Transaction transaction = cardanoBlockchainService.updateStateDatum(address, uVerifyCertificates, bootstrapDatumName);
+            return BuildTransactionResponse.builder()
+                    .unsignedTransaction(transaction.serializeToHex())
+                    .status(BuildStatus.builder()
+                            .code(BuildStatusCode.SUCCESS)
+                            .build())
+                    .type(TransactionType.CUSTOM)
+                    .build();
+        } catch (UVerifyTransactionException exception) {
+            return BuildTransactionResponse.builder()
+                    .status(BuildStatus.builder()
+                            .code(exception.getStatusCode())
+                            .message(exception.getMessage())
+                            .build())
+                    .type(TransactionType.CUSTOM)
+                    .build();
+        } catch (Exception exception) {
+            return BuildTransactionResponse.builder()
+                    .status(BuildStatus.builder()
+                            .code(BuildStatusCode.UNKNOWN_ERROR)
+                            .message(exception.getMessage())
+                            .build())
+                    .type(TransactionType.CUSTOM)
+                    .build();
+        }
+    }
+
+    /**
+     * Anchors the certificate hashes as the root of a Merkle tree, which goes
+     * on chain as a single certificate. Leaf metadata is not anchored.
+     */
+    public BuildTransactionResponse buildMerkleTransaction(List<CertificateData> certificates, String address, String bootstrapDatumName) {
+        MerkleBatchService.MerkleBatch batch;
+        try {
+            batch = merkleBatchService.build(certificates == null ? List.of()
+                    : certificates.stream().map(CertificateData::getHash).toList());
+        } catch (IllegalArgumentException exception) {
+            return BuildTransactionResponse.builder()
+                    .status(BuildStatus.builder()
+                            .code(BuildStatusCode.ERROR)
+                            .message(exception.getMessage())
+                            .build())
+                    .type(TransactionType.MERKLE)
+                    .build();
+        }
+
+        MerkleTree tree = batch.tree();
+        CertificateData root = CertificateData.builder()
+                .hash(tree.getRootHex())
+                .algorithm(MerkleTree.ALGORITHM)
+                .build();
+        BuildTransactionResponse buildTransactionResponse = buildUVerifyTransaction(List.of(root), address, bootstrapDatumName);
+        buildTransactionResponse.setType(TransactionType.MERKLE);
+        buildTransactionResponse.setMerkleRoot(tree.getRootHex());
+        if (buildTransactionResponse.getStatus() != null
+                && buildTransactionResponse.getStatus().getCode() == BuildStatusCode.SUCCESS
+                && buildTransactionResponse.getUnsignedTransaction() != null) {
+            merkleBatchService.awaitIndexing(buildTransactionResponse.getUnsignedTransaction(), batch);
+        }
+        return buildTransactionResponse;
+    }
+
+    private static String batchKey(TransactionType type, String address, String bootstrapDatumName) {
+        return type + "|" + address + "|" + (bootstrapDatumName == null ? "" : bootstrapDatumName);
+    }
+
+    /**
+     * Certificates a single update may carry for the state the build will
+     * use. Without a name the build may pick any state of the user or fork
+     * from the cheapest bootstrap datum, so the smallest batch size applies.
+     */
+    public int maxCertificatesPerTransaction(String address, String bootstrapDatumName) {
+        List<Integer> batchSizes = new ArrayList<>();
+        if (bootstrapDatumName != null && !bootstrapDatumName.isEmpty()) {
+            stateDatumService.findByUserAndBootstrapToken(address, bootstrapDatumName)
+                    .map(stateDatum -> stateDatum.getBootstrapDatum().getBatchSize())
+                    .or(() -> bootstrapDatumService.getBootstrapDatum(bootstrapDatumName, 2).map(BootstrapDatumEntity::getBatchSize))
+                    .ifPresent(batchSizes::add);
+        } else {
+            stateDatumService.findByOwner(address, 2)
+                    .forEach(stateDatum -> batchSizes.add(stateDatum.getBootstrapDatum().getBatchSize()));
+            bootstrapDatumService.selectCheapestBootstrapDatum(CardanoUtils.extractCredentialFromAddress(address))
+                    .ifPresent(bootstrapDatum -> batchSizes.add(bootstrapDatum.getBatchSize()));
+        }
+        return batchSizes.isEmpty() ? 1 : Collections.min(batchSizes);
+    }
 }
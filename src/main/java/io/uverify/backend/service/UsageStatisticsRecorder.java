@@ -0,0 +1,154 @@
+/*
+ * UVerify Backend
+ * Copyright (C) 2025 Fabian Bormann
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.uverify.backend.service;
+
+import com.bloxbean.cardano.yaci.store.transaction.storage.impl.model.TxnEntity;
+import io.uverify.backend.entity.StatisticDeltaEntity;
+import io.uverify.backend.entity.StatisticEntity;
+import io.uverify.backend.entity.UVerifyCertificateEntity;
+import io.uverify.backend.repository.StatisticDeltaRepository;
+import io.uverify.backend.repository.StatisticRepository;
+import io.uverify.backend.repository.TransactionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigInteger;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the usage statistics up to date while indexing. Every change is
+ * applied to the aggregate rows in uverify_statistic and journaled per slot,
+ * so a rollback can subtract exactly what the rolled back blocks added.
+ */
+@Service
+@Slf4j
+public class UsageStatisticsRecorder {
+
+    // Rollbacks never go deeper than the security parameter (2160 blocks,
+    // ~43200 slots on mainnet). Keep a generous margin before pruning.
+    private static final long JOURNAL_RETENTION_SLOTS = 129_600L;
+
+    private final StatisticRepository statisticRepository;
+    private final StatisticDeltaRepository statisticDeltaRepository;
+    private final TransactionRepository transactionRepository;
+
+    // Legacy transactions are indexed from their address UTxOs, which carry no
+    // fee. Their fee is read from the transaction table once the batch commits.
+    private final Map<String, Long> pendingFees = new ConcurrentHashMap<>();
+
+    public UsageStatisticsRecorder(StatisticRepository statisticRepository,
+                                   StatisticDeltaRepository statisticDeltaRepository,
+                                   TransactionRepository transactionRepository) {
+        this.statisticRepository = statisticRepository;
+        this.statisticDeltaRepository = statisticDeltaRepository;
+        this.transactionRepository = transactionRepository;
+    }
+
+    /**
+     * Adds the certificates of one transaction to the category counts and,
+     * if known, its fee to the fee total.
+     */
+    @Transactional
+    public void recordCertificates(List<UVerifyCertificateEntity> certificates, BigInteger fee, long slot) {
+        if (certificates.isEmpty()) {
+            return;
+        }
+        Map<String, Long> deltas = new HashMap<>();
+        for (UVerifyCertificateEntity certificate : certificates) {
+            String key = StatisticsService.CATEGORY_KEY_PREFIX
+                    + certificate.getExtraFields().getUseCaseCategory().getDisplayName();
+            deltas.merge(key, 1L, Long::sum);
+        }
+        if (fee != null && fee.signum() > 0) {
+            deltas.merge(StatisticsService.TOTAL_FEES_KEY, fee.longValue(), Long::sum);
+        }
+
+        apply(deltas, slot);
+    }
+
+    /**
+     * Records the certificates of a legacy transaction. Its fee is added by
+     * {@link #recordPendingFees()} once the transaction is stored.
+     */
+    @Transactional
+    public void recordLegacyCertificates(List<UVerifyCertificateEntity> certificates, String transactionId, long slot) {
+        recordCertificates(certificates, null, slot);
+        if (!certificates.isEmpty()) {
+            pendingFees.put(transactionId, slot);
+        }
+    }
+
+    @Transactional
+    public void recordPendingFees() {
+        for (String transactionId : List.copyOf(pendingFees.keySet())) {
+            Long slot = pendingFees.remove(transactionId);
+            if (slot == null) {
+                continue;
+            }
+            Optional<BigInteger> fee = transactionRepository.findById(transactionId).map(TxnEntity::getFee);
+            if (fee.isEmpty()) {
+                log.warn("Transaction {} not found, its fee is missing from the statistics", transactionId);
+            } else if (fee.get().signum() > 0) {
+                apply(Map.of(StatisticsService.TOTAL_FEES_KEY, fee.get().longValue()), slot);
+            }
+        }
+    }
+
+    private void apply(Map<String, Long> deltas, long slot) {
+        Instant now = Instant.now();
+        for (Map.Entry<String, Long> delta : deltas.entrySet()) {
+            statisticDeltaRepository.save(StatisticDeltaEntity.builder()
+                    .slot(slot)
+                    .statisticKey(delta.getKey())
+                    .statisticDelta(delta.getValue())
+                    .build());
+            increment(delta.getKey(), delta.getValue(), now);
+        }
+    }
+
+    @Transactional
+    public void rollbackToSlot(long slot) {
+        pendingFees.values().removeIf(pendingSlot -> pendingSlot > slot);
+        Instant now = Instant.now();
+        for (Object[] row : statisticDeltaRepository.sumDeltasAfterSlot(slot)) {
+            increment((String) row[0], -((Number) row[1]).longValue(), now);
+        }
+        statisticDeltaRepository.deleteAllAfterSlot(slot);
+    }
+
+    @Transactional
+    public void pruneJournal(long currentSlot) {
+        statisticDeltaRepository.deleteAllBeforeSlot(currentSlot - JOURNAL_RETENTION_SLOTS);
+    }
+
+    private void increment(String key, long delta, Instant now) {
+        if (statisticRepository.increment(key, delta, now) == 0) {
+            statisticRepository.save(StatisticEntity.builder()
+                    .statisticKey(key)
+                    .statisticValue(delta)
+                    .updatedAt(now)
+                    .build());
+        }
+    }
+}
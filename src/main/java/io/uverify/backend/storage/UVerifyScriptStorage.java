@@ -19,6 +19,7 @@
 package io.uverify.backend.storage;
 
 import com.bloxbean.cardano.yaci.store.events.TransactionEvent;
+import com.bloxbean.cardano.yaci.store.events.internal.CommitEvent;
 import com.bloxbean.cardano.yaci.store.script.domain.TxScript;
 import com.bloxbean.cardano.yaci.store.script.storage.impl.TxScriptStorageImpl;
 import com.bloxbean.cardano.yaci.store.script.storage.impl.mapper.ScriptMapper;
@@ -56,4 +57,10 @@ public class UVerifyScriptStorage extends TxScriptStorageImpl {
     public void handleScriptTransactionEvent(TransactionEvent transactionEvent) {
         cardanoBlockchainService.processTransactionEvent(transactionEvent);
     }
+
+    @EventListener
+    @Transactional
+    public void handleCommitEvent(CommitEvent commitEvent) {
+        cardanoBlockchainService.applyBufferedTransactions();
+    }
 }
@@ -20,6 +20,7 @@ package io.uverify.backend.storage;
 
 import com.bloxbean.cardano.yaci.store.common.domain.AddressUtxo;
 import com.bloxbean.cardano.yaci.store.common.domain.TxInput;
+import com.bloxbean.cardano.yaci.store.events.BlockHeaderEvent;
 import com.bloxbean.cardano.yaci.store.utxo.storage.impl.UtxoCache;
 import com.bloxbean.cardano.yaci.store.utxo.storage.impl.UtxoStorageImpl;
 import com.bloxbean.cardano.yaci.store.utxo.storage.impl.repository.TxInputRepository;
@@ -32,14 +33,18 @@ import lombok.extern.slf4j.Slf4j;
 import org.jooq.DSLContext;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 @Component
 @Slf4j
@@ -61,6 +66,7 @@ public class UVerifyStorage extends UtxoStorageImpl {
 
     private String proxyContractAddress;
     private String proxyPolicyId;
+    private volatile boolean parallelSync;
 
     public UVerifyStorage(UtxoRepository utxoRepository, TxInputRepository spentOutputRepository, DSLContext dsl, UtxoCache utxoCache, PlatformTransactionManager transactionManager, CardanoBlockchainService cardanoBlockchainService, ExtensionManager extensionManager, ValidatorHelper validatorHelper) {
         super(utxoRepository, spentOutputRepository, dsl, utxoCache, transactionManager);
@@ -69,8 +75,32 @@ public class UVerifyStorage extends UtxoStorageImpl {
         this.validatorHelper = validatorHelper;
     }
 
+    /**
+     * The header of a block is published before its transactions, so the
+     * outputs stored next belong to a block synced in this mode.
+     */
+    @EventListener
+    public void trackSyncMode(BlockHeaderEvent blockHeaderEvent) {
+        parallelSync = blockHeaderEvent.getMetadata().isParallelMode();
+    }
+
+    /**
+     * Parallel sync stores blocks out of order and from several threads, but
+     * legacy state updates build on the previous one. Their blocks are kept
+     * until the batch commits and processed in chain order.
+     */
     @Override
     public void saveUnspent(List<AddressUtxo> addressUtxoList) {
+        if (!parallelSync) {
+            processUnspent(addressUtxoList);
+            return;
+        }
+        Map<Long, List<AddressUtxo>> blocks = addressUtxoList.stream()
+                .collect(Collectors.groupingBy(AddressUtxo::getSlot, LinkedHashMap::new, Collectors.toList()));
+        blocks.forEach((slot, addressUtxos) -> cardanoBlockchainService.bufferUntilCommit(slot, () -> processUnspent(addressUtxos)));
+    }
+
+    private void processUnspent(List<AddressUtxo> addressUtxoList) {
         List<AddressUtxo> processedByUVerifyCore = cardanoBlockchainService.processAddressUtxos(addressUtxoList);
         List<AddressUtxo> processedByExtensions = extensionManager.processAddressUtxos(addressUtxoList);
 
@@ -0,0 +1,80 @@
+/*
+ * UVerify Backend
+ * Copyright (C) 2025 Fabian Bormann
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.uverify.backend.util;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.uverify.backend.entity.CertificateExtraFields;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Read-only metadata map of a certificate that answers the policy, template
+ * and OG keys from the columns derived at index time. The {@code extra} JSON
+ * is only parsed if any other key, or the full key set, is requested.
+ */
+public final class CertificateMetadataView extends AbstractMap<String, Object> {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final CertificateExtraFields fields;
+    private final String extra;
+    private Map<String, Object> parsed;
+
+    public CertificateMetadataView(CertificateExtraFields fields, String extra) {
+        this.fields = fields;
+        this.extra = extra;
+    }
+
+    @Override
+    public Object get(Object key) {
+        if (key instanceof String name && CertificateExtraFields.isDerivedKey(name)) {
+            return fields.metadataValue(name);
+        }
+        return parsed().get(key);
+    }
+
+    @Override
+    public Object getOrDefault(Object key, Object defaultValue) {
+        if (key instanceof String name && CertificateExtraFields.isDerivedKey(name)) {
+            Object value = fields.metadataValue(name);
+            return value != null ? value : defaultValue;
+        }
+        return parsed().getOrDefault(key, defaultValue);
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return parsed().entrySet();
+    }
+
+    private Map<String, Object> parsed() {
+        if (parsed == null) {
+            try {
+                parsed = Collections.unmodifiableMap(MAPPER.readValue(extra, new TypeReference<Map<String, Object>>() {
+                }));
+            } catch (Exception exception) {
+                parsed = Map.of();
+            }
+        }
+        return parsed;
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * UVerify Backend
+ * Copyright (C) 2025 Fabian Bormann
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.uverify.backend.util;
+
+import com.bloxbean.cardano.client.api.model.Result;
+import com.bloxbean.cardano.client.backend.api.BackendService;
+import com.bloxbean.cardano.client.backend.api.TransactionService;
+import com.bloxbean.cardano.client.backend.api.UtxoService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Caches provider queries whose answers never change once a transaction is
+ * on chain: {@code TransactionService.getTransactionUtxos(txHash)} and
+ * {@code UtxoService.getTxOutput(txHash, index)}.
+ * <p>
+ * Successful results are kept until they are evicted by size or the chain
+ * rolls back, see {@link #invalidateAll()}. Unsuccessful results, usually a
+ * transaction that is not on chain yet, are kept for a short time only.
+ * Exceptions are never cached. All other calls go straight to the wrapped
+ * backend.
+ */
+public final class ImmutableQueryCache {
+
+    private static final Set<String> CACHED_METHODS = Set.of("getTransactionUtxos", "getTxOutput");
+
+    private record Key(String method, List<Object> arguments) {
+    }
+
+    private final Cache<Key, Result<?>> results;
+
+    ImmutableQueryCache(long maximumSize, Duration negativeTtl, Ticker ticker) {
+        long negativeTtlNanos = negativeTtl.toNanos();
+        this.results = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .ticker(ticker)
+                .expireAfter(new Expiry<Key, Result<?>>() {
+                    @Override
+                    public long expireAfterCreate(Key key, Result<?> result, long currentTime) {
+                        return result.isSuccessful() ? Long.MAX_VALUE : negativeTtlNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Key key, Result<?> result, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, result, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(Key key, Result<?> result, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    public static ImmutableQueryCache create(long maximumSize, Duration negativeTtl, MeterRegistry meterRegistry) {
+        ImmutableQueryCache cache = new ImmutableQueryCache(maximumSize, negativeTtl, Ticker.systemTicker());
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.results, "provider-immutable-queries");
+        return cache;
+    }
+
+    /**
+     * Drops every cached result. A rolled back transaction is no longer on
+     * chain, and the cache does not know which transactions were affected.
+     */
+    public void invalidateAll() {
+        results.invalidateAll();
+    }
+
+    public BackendService wrap(BackendService delegate) {
+        return proxy(BackendService.class, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return objectMethod(proxy, delegate, method, args);
+            }
+            Object result = invoke(delegate, method, args);
+            if (result instanceof TransactionService transactionService && method.getReturnType() == TransactionService.class) {
+                return proxy(TransactionService.class, cachingHandler(transactionService));
+            }
+            if (result instanceof UtxoService utxoService && method.getReturnType() == UtxoService.class) {
+                return proxy(UtxoService.class, cachingHandler(utxoService));
+            }
+            return result;
+        });
+    }
+
+    private InvocationHandler cachingHandler(Object delegate) {
+        return (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return objectMethod(proxy, delegate, method, args);
+            }
+            if (!CACHED_METHODS.contains(method.getName()) || args == null) {
+                return invoke(delegate, method, args);
+            }
+            Key key = new Key(method.getName(), Arrays.asList(args.clone()));
+            Result<?> cached = results.getIfPresent(key);
+            if (cached != null) {
+                return cached;
+            }
+            Object result = invoke(delegate, method, args);
+            if (result instanceof Result<?> providerResult) {
+                results.put(key, providerResult);
+            }
+            return result;
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private static Object objectMethod(Object proxy, Object delegate, Method method, Object[] args) throws Throwable {
+        return switch (method.getName()) {
+            case "equals" -> proxy == args[0];
+            case "hashCode" -> System.identityHashCode(proxy);
+            default -> invoke(delegate, method, args);
+        };
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException invocationTargetException) {
+            throw invocationTargetException.getCause();
+        }
+    }
+}
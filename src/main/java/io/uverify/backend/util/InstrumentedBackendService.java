@@ -0,0 +1,138 @@
+/*
+ * UVerify Backend
+ * Copyright (C) 2025 Fabian Bormann
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.uverify.backend.util;
+
+import com.bloxbean.cardano.client.api.model.Result;
+import com.bloxbean.cardano.client.backend.api.BackendService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * Wraps a {@link BackendService} so every provider call is measured.
+ * <p>
+ * The sub-services handed out by the backend ({@code getUtxoService()},
+ * {@code getEpochService()}, ...) are wrapped as well. Each of their methods
+ * records {@code uverify.provider.requests} timings and counts failures in
+ * {@code uverify.provider.errors}, tagged with the backend, service and
+ * method. Unsuccessful {@link Result}s count as errors, just like thrown
+ * exceptions.
+ */
+public final class InstrumentedBackendService {
+
+    public static final String REQUESTS_METRIC = "uverify.provider.requests";
+    public static final String ERRORS_METRIC = "uverify.provider.errors";
+
+    private InstrumentedBackendService() {
+    }
+
+    public static BackendService wrap(BackendService delegate, MeterRegistry meterRegistry, String backend) {
+        return proxy(BackendService.class, new BackendHandler(delegate, meterRegistry, backend));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException invocationTargetException) {
+            throw invocationTargetException.getCause();
+        }
+    }
+
+    // Proxies are compared by identity, caches key on the backend instance.
+    private static Object objectMethod(Object proxy, Object delegate, Method method, Object[] args) throws Throwable {
+        return switch (method.getName()) {
+            case "equals" -> proxy == args[0];
+            case "hashCode" -> System.identityHashCode(proxy);
+            default -> invoke(delegate, method, args);
+        };
+    }
+
+    private record BackendHandler(BackendService delegate, MeterRegistry meterRegistry,
+                                  String backend) implements InvocationHandler {
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                return objectMethod(proxy, delegate, method, args);
+            }
+            Object result = InstrumentedBackendService.invoke(delegate, method, args);
+            Class<?> returnType = method.getReturnType();
+            if (result == null || !returnType.isInterface() || !method.getName().endsWith("Service")) {
+                return result;
+            }
+            String service = serviceName(method.getName());
+            return proxy(returnType, new ServiceHandler(result, meterRegistry, backend, service));
+        }
+
+        // getUtxoService -> utxo
+        private static String serviceName(String methodName) {
+            String name = methodName.startsWith("get") ? methodName.substring(3) : methodName;
+            name = name.substring(0, name.length() - "Service".length());
+            return name.isEmpty() ? methodName : Character.toLowerCase(name.charAt(0)) + name.substring(1);
+        }
+    }
+
+    private record ServiceHandler(Object delegate, MeterRegistry meterRegistry, String backend,
+                                  String service) implements InvocationHandler {
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                return objectMethod(proxy, delegate, method, args);
+            }
+            Timer.Sample sample = Timer.start(meterRegistry);
+            String outcome = "success";
+            try {
+                Object result = InstrumentedBackendService.invoke(delegate, method, args);
+                if (result instanceof Result<?> providerResult && !providerResult.isSuccessful()) {
+                    outcome = "unsuccessful";
+                    error(method, "unsuccessful");
+                }
+                return result;
+            } catch (Throwable throwable) {
+                outcome = "exception";
+                error(method, throwable.getClass().getSimpleName());
+                throw throwable;
+            } finally {
+                sample.stop(Timer.builder(REQUESTS_METRIC)
+                        .description("Latency of Cardano provider calls")
+                        .tags("backend", backend, "service", service, "method", method.getName(), "outcome", outcome)
+                        .register(meterRegistry));
+            }
+        }
+
+        private void error(Method method, String reason) {
+            Counter.builder(ERRORS_METRIC)
+                    .description("Failed Cardano provider calls")
+                    .tags("backend", backend, "service", service, "method", method.getName(), "reason", reason)
+                    .register(meterRegistry)
+                    .increment();
+        }
+    }
+}
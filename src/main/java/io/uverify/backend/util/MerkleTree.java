@@ -0,0 +1,160 @@
+/*
+ * UVerify Backend
+ * Copyright (C) 2025 Fabian Bormann
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.uverify.backend.util;
+
+import com.bloxbean.cardano.client.util.HexUtil;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Binary SHA-256 Merkle tree over certificate hashes.
+ * <p>
+ * Leaves are hashed as {@code SHA-256(0x00 || leaf)} and inner nodes as
+ * {@code SHA-256(0x01 || left || right)}, so a leaf can never be passed off
+ * as an inner node. The last node of a level with an odd number of nodes is
+ * promoted unchanged. Every level is kept as one array of concatenated
+ * 32 byte nodes, level 0 holding the hashed leaves and the last level the
+ * root.
+ */
+public final class MerkleTree {
+    public static final String ALGORITHM = "MERKLE-SHA-256";
+    public static final int NODE_SIZE = 32;
+
+    private static final byte LEAF_PREFIX = 0x00;
+    private static final byte NODE_PREFIX = 0x01;
+
+    private final List<byte[]> levels;
+
+    private MerkleTree(List<byte[]> levels) {
+        this.levels = levels;
+    }
+
+    public static MerkleTree build(List<byte[]> leaves) {
+        if (leaves.isEmpty()) {
+            throw new IllegalArgumentException("A Merkle tree needs at least one leaf");
+        }
+        List<byte[]> levels = new ArrayList<>();
+        byte[] level = new byte[leaves.size() * NODE_SIZE];
+        for (int index = 0; index < leaves.size(); index++) {
+            System.arraycopy(hashLeaf(leaves.get(index)), 0, level, index * NODE_SIZE, NODE_SIZE);
+        }
+        levels.add(level);
+
+        while (level.length > NODE_SIZE) {
+            int nodes = level.length / NODE_SIZE;
+            byte[] parent = new byte[levelSize(nodes, 1) * NODE_SIZE];
+            for (int index = 0; index < nodes; index += 2) {
+                byte[] node = index + 1 < nodes
+                        ? hashNode(Arrays.copyOfRange(level, index * NODE_SIZE, (index + 1) * NODE_SIZE),
+                        Arrays.copyOfRange(level, (index + 1) * NODE_SIZE, (index + 2) * NODE_SIZE))
+                        : Arrays.copyOfRange(level, index * NODE_SIZE, (index + 1) * NODE_SIZE);
+                System.arraycopy(node, 0, parent, (index / 2) * NODE_SIZE, NODE_SIZE);
+            }
+            levels.add(parent);
+            level = parent;
+        }
+        return new MerkleTree(levels);
+    }
+
+    public List<byte[]> getLevels() {
+        return levels;
+    }
+
+    public int getLeafCount() {
+        return levels.get(0).length / NODE_SIZE;
+    }
+
+    public byte[] getRoot() {
+        return levels.get(levels.size() - 1).clone();
+    }
+
+    public String getRootHex() {
+        return HexUtil.encodeHexString(levels.get(levels.size() - 1));
+    }
+
+    /**
+     * Returns the number of nodes on {@code level} of a tree with
+     * {@code leafCount} leaves.
+     */
+    public static int levelSize(int leafCount, int level) {
+        int size = leafCount;
+        for (int i = 0; i < level; i++) {
+            size = (size + 1) / 2;
+        }
+        return size;
+    }
+
+    /**
+     * Returns the number of levels, including the leaf level and the root, of
+     * a tree with {@code leafCount} leaves.
+     */
+    public static int levelCount(int leafCount) {
+        int count = 1;
+        for (int size = leafCount; size > 1; size = (size + 1) / 2) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the position of the sibling of the node at {@code index} on a
+     * level of {@code size} nodes, or -1 if the node is promoted without one.
+     */
+    public static int siblingIndex(int index, int size) {
+        int sibling = index ^ 1;
+        return sibling < size ? sibling : -1;
+    }
+
+    public static byte[] hashLeaf(byte[] leaf) {
+        MessageDigest digest = sha256();
+        digest.update(LEAF_PREFIX);
+        return digest.digest(leaf);
+    }
+
+    public static byte[] hashNode(byte[] left, byte[] right) {
+        MessageDigest digest = sha256();
+        digest.update(NODE_PREFIX);
+        digest.update(left);
+        return digest.digest(right);
+    }
+
+    /**
+     * Recomputes the root from a leaf and its siblings, listed from the leaf
+     * level upwards. A sibling with {@code left} set is the left operand.
+     */
+    public static byte[] computeRoot(byte[] leaf, List<byte[]> siblings, List<Boolean> left) {
+        byte[] node = hashLeaf(leaf);
+        for (int i = 0; i < siblings.size(); i++) {
+            node = left.get(i) ? hashNode(siblings.get(i), node) : hashNode(node, siblings.get(i));
+        }
+        return node;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * UVerify Backend
+ * Copyright (C) 2025 Fabian Bormann
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.uverify.backend.util;
+
+import com.bloxbean.cardano.client.address.AddressProvider;
+import com.bloxbean.cardano.client.common.model.Network;
+import com.bloxbean.cardano.client.plutus.spec.PlutusData;
+import com.bloxbean.cardano.client.plutus.spec.PlutusScript;
+import com.bloxbean.cardano.client.plutus.spec.PlutusV3Script;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import scalus.bloxbean.ScalusScriptUtils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide memo of parameterized Plutus scripts.
+ * <p>
+ * Applying parameters to a blueprint is pure and deterministic, but it
+ * deserializes the embedded compiled code and re-runs the UPLC application on
+ * every call. Entries are keyed by the base script name plus the serialized
+ * parameter bytes and carry the script hash and the derived addresses, so
+ * repeated lookups for the same proxy, state or library script are map hits.
+ * Some parameters come from requests, e.g. the init UTxO of an extension
+ * script, so the memo is bounded and evicts the least used entries.
+ */
+public final class ParameterizedScriptRegistry {
+
+    static final int MAXIMUM_SIZE = 1_024;
+
+    private static final Cache<Key, ParameterizedScript> SCRIPTS = Caffeine.newBuilder()
+            .maximumSize(MAXIMUM_SIZE)
+            .build();
+
+    private record Key(String baseScript, String parameters) {
+    }
+
+    private ParameterizedScriptRegistry() {
+    }
+
+    /**
+     * Returns the script obtained by applying {@code parameters} to the base
+     * script registered under {@code baseScriptName}. The base script supplier
+     * is only invoked on a miss.
+     */
+    public static ParameterizedScript resolve(String baseScriptName, Supplier<PlutusScript> baseScript,
+                                              PlutusData... parameters) {
+        StringBuilder parameterBytes = new StringBuilder();
+        for (PlutusData parameter : parameters) {
+            parameterBytes.append(parameter.serializeToHex()).append(':');
+        }
+        Key key = new Key(baseScriptName, parameterBytes.toString());
+
+        // Not a loading get: parameterizing the state script resolves the
+        // proxy script first, and recursive updates of the same map are not
+        // allowed. Racing threads compute the same value, the first one wins.
+        ParameterizedScript cached = SCRIPTS.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        String cborHex = ScalusScriptUtils.applyParamsToScript(baseScript.get().getCborHex(), parameters);
+        ParameterizedScript parameterized = new ParameterizedScript(PlutusV3Script.builder().cborHex(cborHex).build());
+        ParameterizedScript existing = SCRIPTS.asMap().putIfAbsent(key, parameterized);
+        return existing != null ? existing : parameterized;
+    }
+
+    static long size() {
+        SCRIPTS.cleanUp();
+        return SCRIPTS.estimatedSize();
+    }
+
+    public static final class ParameterizedScript {
+        private final PlutusScript script;
+        private final String scriptHash;
+        private final Map<String, String> enterpriseAddresses = new ConcurrentHashMap<>();
+        private final Map<String, String> rewardAddresses = new ConcurrentHashMap<>();
+
+        private ParameterizedScript(PlutusScript script) {
+            this.script = script;
+            this.scriptHash = ValidatorUtils.validatorToScriptHash(script);
+        }
+
+        public PlutusScript getScript() {
+            return script;
+        }
+
+        public String getScriptHash() {
+            return scriptHash;
+        }
+
+        public String getEnterpriseAddress(Network network) {
+            return enterpriseAddresses.computeIfAbsent(networkKey(network),
+                    ignored -> AddressProvider.getEntAddress(script, network).toBech32());
+        }
+
+        public String getRewardAddress(Network network) {
+            return rewardAddresses.computeIfAbsent(networkKey(network),
+                    ignored -> AddressProvider.getRewardAddress(script, network).toBech32());
+        }
+
+        private static String networkKey(Network network) {
+            return network.getNetworkId() + "/" + network.getProtocolMagic();
+        }
+    }
+}
@@ -0,0 +1,413 @@
+/*
+ * UVerify Backend
+ * Copyright (C) 2025 Fabian Bormann
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.uverify.backend.util;
+
+import com.bloxbean.cardano.client.api.exception.ApiException;
+import com.bloxbean.cardano.client.api.model.Result;
+import com.bloxbean.cardano.client.backend.api.BackendService;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Routes provider calls across several backends.
+ * <p>
+ * Reads go to the healthy provider with the lowest latency, weighted by its
+ * error rate, both tracked as exponentially weighted moving averages. If the
+ * chosen provider has not answered after its estimated p95 latency, the read
+ * is hedged to the next provider and the first answer wins. A failed read
+ * fails over to the next provider right away. Providers that fail
+ * {@code failureThreshold} times in a row are skipped for {@code openDuration}
+ * and then get a single trial call.
+ * <p>
+ * Submits are not idempotent from the caller's point of view and always go
+ * to the first provider only.
+ */
+@Slf4j
+public final class RoutingBackendService {
+
+    private static final double P95_Z_SCORE = 1.645;
+
+    public record Settings(double alpha, Duration minHedgeDelay, Duration maxHedgeDelay,
+                           int failureThreshold, Duration openDuration) {
+        public static Settings defaults() {
+            return new Settings(0.2, Duration.ofMillis(50), Duration.ofSeconds(2), 5, Duration.ofSeconds(30));
+        }
+    }
+
+    private final List<ProviderHealth> providers;
+    private final Settings settings;
+    private final LongSupplier nanoTime;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    RoutingBackendService(Map<String, BackendService> providers, Settings settings, LongSupplier nanoTime) {
+        if (providers.isEmpty()) {
+            throw new IllegalArgumentException("At least one provider is required");
+        }
+        this.settings = settings;
+        this.nanoTime = nanoTime;
+        this.providers = new ArrayList<>();
+        providers.forEach((name, backend) -> this.providers.add(new ProviderHealth(name, backend)));
+    }
+
+    /**
+     * Creates a routing backend over the given providers. The first provider
+     * receives all submits.
+     */
+    public static BackendService create(Map<String, BackendService> providers, Settings settings) {
+        return new RoutingBackendService(new LinkedHashMap<>(providers), settings, System::nanoTime).backendService();
+    }
+
+    BackendService backendService() {
+        return proxy(BackendService.class, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return objectMethod(proxy, method, args);
+            }
+            Class<?> returnType = method.getReturnType();
+            if (!returnType.isInterface() || !method.getName().endsWith("Service")) {
+                return invoke(providers.get(0).backend, method, args);
+            }
+            return proxy(returnType, new RoutingHandler(method));
+        });
+    }
+
+    List<String> ranking() {
+        return rankedProviders().stream().map(provider -> provider.name).toList();
+    }
+
+    private final class RoutingHandler implements InvocationHandler {
+        private final Method serviceGetter;
+
+        private RoutingHandler(Method serviceGetter) {
+            this.serviceGetter = serviceGetter;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                return objectMethod(proxy, method, args);
+            }
+            try {
+                if (method.getName().startsWith("submit")) {
+                    return call(providers.get(0), false, serviceGetter, method, args);
+                }
+                return routeRead(serviceGetter, method, args);
+            } catch (ProviderErrorResult providerErrorResult) {
+                return providerErrorResult.result;
+            }
+        }
+    }
+
+    private Object routeRead(Method serviceGetter, Method method, Object[] args) throws Throwable {
+        ReadAttempt attempt = new ReadAttempt(rankedProviders(), serviceGetter, method, args);
+        Throwable lastFailure = null;
+        try {
+            if (!attempt.dispatchNext()) {
+                // Every circuit is open, the first provider is still the best guess.
+                attempt.dispatch(providers.get(0), false);
+            }
+            int pending = 1;
+            while (pending > 0) {
+                Future<Object> completed;
+                if (attempt.hasNext()) {
+                    completed = attempt.completionService.poll(attempt.lastDispatched.hedgeDelayNanos(), TimeUnit.NANOSECONDS);
+                    if (completed == null) {
+                        if (attempt.dispatchNext()) {
+                            log.debug("Hedged {} to {}", method.getName(), attempt.lastDispatched.name);
+                            pending++;
+                        }
+                        continue;
+                    }
+                } else {
+                    completed = attempt.completionService.take();
+                }
+                pending--;
+                try {
+                    return completed.get();
+                } catch (ExecutionException executionException) {
+                    lastFailure = executionException.getCause();
+                    if (pending == 0 && attempt.dispatchNext()) {
+                        pending++;
+                    }
+                }
+            }
+            throw lastFailure;
+        } catch (InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+            throw new ApiException("Interrupted while waiting for provider", interruptedException);
+        } finally {
+            attempt.inFlight.forEach(future -> future.cancel(true));
+        }
+    }
+
+    /**
+     * The providers of one read in rank order. A provider is only claimed,
+     * which takes the trial call of a half open circuit, once the read is
+     * actually dispatched to it.
+     */
+    private final class ReadAttempt {
+        private final List<ProviderHealth> ranked;
+        private final Method serviceGetter;
+        private final Method method;
+        private final Object[] args;
+        private final CompletionService<Object> completionService = new ExecutorCompletionService<>(executor);
+        private final List<Future<Object>> inFlight = new ArrayList<>();
+        private ProviderHealth lastDispatched;
+        private int next;
+
+        private ReadAttempt(List<ProviderHealth> ranked, Method serviceGetter, Method method, Object[] args) {
+            this.ranked = ranked;
+            this.serviceGetter = serviceGetter;
+            this.method = method;
+            this.args = args;
+        }
+
+        private boolean hasNext() {
+            return next < ranked.size();
+        }
+
+        private boolean dispatchNext() {
+            while (hasNext()) {
+                ProviderHealth provider = ranked.get(next++);
+                Claim claim = provider.tryAcquire(nanoTime.getAsLong());
+                if (claim != Claim.REJECTED) {
+                    dispatch(provider, claim == Claim.TRIAL);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void dispatch(ProviderHealth provider, boolean trial) {
+            inFlight.add(completionService.submit(callable(provider, trial, serviceGetter, method, args)));
+            lastDispatched = provider;
+        }
+    }
+
+    private Callable<Object> callable(ProviderHealth provider, boolean trial, Method serviceGetter, Method method, Object[] args) {
+        return () -> {
+            try {
+                return call(provider, trial, serviceGetter, method, args);
+            } catch (Exception | Error throwable) {
+                throw throwable;
+            } catch (Throwable throwable) {
+                throw new ApiException(throwable.getMessage(), throwable);
+            }
+        };
+    }
+
+    private Object call(ProviderHealth provider, boolean trial, Method serviceGetter, Method method, Object[] args) throws Throwable {
+        long start = nanoTime.getAsLong();
+        Object result;
+        try {
+            Object service = invoke(provider.backend, serviceGetter, null);
+            result = invoke(service, method, args);
+        } catch (Throwable throwable) {
+            if (isInterruption(throwable)) {
+                // A hedge that lost the race says nothing about the provider.
+                if (trial) {
+                    provider.release();
+                }
+            } else {
+                provider.record(nanoTime.getAsLong() - start, false);
+            }
+            throw throwable;
+        }
+        boolean providerError = isProviderError(result);
+        provider.record(nanoTime.getAsLong() - start, !providerError);
+        if (providerError) {
+            // Let the router try another provider, the caller gets this
+            // answer if every provider fails.
+            throw new ProviderErrorResult((Result<?>) result);
+        }
+        return result;
+    }
+
+    private static boolean isInterruption(Throwable throwable) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof InterruptedException || cause instanceof InterruptedIOException) {
+                return true;
+            }
+        }
+        return Thread.currentThread().isInterrupted();
+    }
+
+    private static boolean isProviderError(Object result) {
+        if (result instanceof Result<?> providerResult && !providerResult.isSuccessful()) {
+            int code = providerResult.code();
+            return code == 429 || code >= 500;
+        }
+        return false;
+    }
+
+    /**
+     * Providers that may take a call, best first. Providers that are due for
+     * a trial call go first, otherwise a faster provider would always answer
+     * before the trial is dispatched. Ranking does not claim the trial call.
+     */
+    private List<ProviderHealth> rankedProviders() {
+        long now = nanoTime.getAsLong();
+        List<ProviderHealth> available = new ArrayList<>();
+        for (ProviderHealth provider : providers) {
+            if (provider.isAvailable(now)) {
+                available.add(provider);
+            }
+        }
+        available.sort(Comparator.comparing((ProviderHealth provider) -> !provider.needsTrial())
+                .thenComparingDouble(ProviderHealth::score));
+        return available;
+    }
+
+    private static final class ProviderErrorResult extends ApiException {
+        private final transient Result<?> result;
+
+        private ProviderErrorResult(Result<?> result) {
+            super("Provider error " + result.code() + ": " + result.getResponse());
+            this.result = result;
+        }
+    }
+
+    private enum Claim {
+        REJECTED, CALL, TRIAL
+    }
+
+    private final class ProviderHealth {
+        private final String name;
+        private final BackendService backend;
+        private double latencyEwmaNanos = Double.NaN;
+        private double latencyVarianceNanos;
+        private double errorEwma;
+        private int consecutiveFailures;
+        private long openUntil;
+        private boolean trialInFlight;
+
+        private ProviderHealth(String name, BackendService backend) {
+            this.name = name;
+            this.backend = backend;
+        }
+
+        synchronized void record(long latencyNanos, boolean success) {
+            double alpha = settings.alpha();
+            if (Double.isNaN(latencyEwmaNanos)) {
+                latencyEwmaNanos = latencyNanos;
+            } else {
+                double deviation = latencyNanos - latencyEwmaNanos;
+                latencyEwmaNanos += alpha * deviation;
+                latencyVarianceNanos = (1 - alpha) * (latencyVarianceNanos + alpha * deviation * deviation);
+            }
+            errorEwma = alpha * (success ? 0 : 1) + (1 - alpha) * errorEwma;
+            trialInFlight = false;
+            if (success) {
+                consecutiveFailures = 0;
+                openUntil = 0;
+            } else if (++consecutiveFailures >= settings.failureThreshold()) {
+                openUntil = nanoTime.getAsLong() + settings.openDuration().toNanos();
+                log.warn("Provider {} failed {} times in a row, skipping it for {}",
+                        name, consecutiveFailures, settings.openDuration());
+            }
+        }
+
+        /**
+         * Releases a trial call that was cancelled before it reported back.
+         */
+        synchronized void release() {
+            trialInFlight = false;
+        }
+
+        synchronized boolean needsTrial() {
+            return consecutiveFailures >= settings.failureThreshold();
+        }
+
+        synchronized boolean isAvailable(long now) {
+            return consecutiveFailures < settings.failureThreshold() || (now >= openUntil && !trialInFlight);
+        }
+
+        /**
+         * Claims a call right before it is dispatched. Once the circuit is
+         * open, a single trial call goes through after the open period and
+         * everyone else is turned away until it reports back.
+         */
+        synchronized Claim tryAcquire(long now) {
+            if (consecutiveFailures < settings.failureThreshold()) {
+                return Claim.CALL;
+            }
+            if (now < openUntil || trialInFlight) {
+                return Claim.REJECTED;
+            }
+            trialInFlight = true;
+            return Claim.TRIAL;
+        }
+
+        synchronized double score() {
+            double latency = Double.isNaN(latencyEwmaNanos) ? 0 : latencyEwmaNanos;
+            return latency * (1 + 10 * errorEwma);
+        }
+
+        synchronized long hedgeDelayNanos() {
+            long min = settings.minHedgeDelay().toNanos();
+            long max = settings.maxHedgeDelay().toNanos();
+            if (Double.isNaN(latencyEwmaNanos)) {
+                return max;
+            }
+            long p95 = (long) (latencyEwmaNanos + P95_Z_SCORE * Math.sqrt(latencyVarianceNanos));
+            return Math.max(min, Math.min(max, p95));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private Object objectMethod(Object proxy, Method method, Object[] args) throws Throwable {
+        return switch (method.getName()) {
+            case "equals" -> proxy == args[0];
+            case "hashCode" -> System.identityHashCode(proxy);
+            case "toString" -> "RoutingBackendService" + providers.stream().map(provider -> provider.name).toList();
+            default -> invoke(providers.get(0).backend, method, args);
+        };
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException invocationTargetException) {
+            throw invocationTargetException.getCause();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * UVerify Backend
+ * Copyright (C) 2025 Fabian Bormann
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.uverify.backend.util;
+
+import com.bloxbean.cardano.client.crypto.Blake2bUtil;
+import com.bloxbean.cardano.client.util.HexUtil;
+import com.bloxbean.cardano.yaci.core.model.Amount;
+import com.bloxbean.cardano.yaci.core.model.TransactionOutput;
+import com.bloxbean.cardano.yaci.helper.model.Transaction;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Immutable snapshot of everything the block processor matches transactions
+ * against: the proxy policy id, the library address, the reward addresses of
+ * every deployed state script version and the service user's payment
+ * credential. It is built once per proxy/library version so the per
+ * transaction checks are plain set probes and byte comparisons.
+ */
+@Getter
+public final class UVerifyMatchContext {
+    private final String proxyTransactionHash;
+    private final Integer proxyOutputIndex;
+    private final String proxyPolicyId;
+    private final String proxyContractAddress;
+    private final String libraryAddress;
+    private final Set<String> stateRewardAddresses;
+    @Getter(AccessLevel.NONE)
+    private final byte[] serviceCredential;
+
+    public UVerifyMatchContext(String proxyTransactionHash, Integer proxyOutputIndex, String proxyPolicyId,
+                               String proxyContractAddress, String libraryAddress,
+                               Set<String> stateRewardAddresses, byte[] serviceCredential) {
+        this.proxyTransactionHash = proxyTransactionHash;
+        this.proxyOutputIndex = proxyOutputIndex;
+        this.proxyPolicyId = proxyPolicyId;
+        this.proxyContractAddress = proxyContractAddress;
+        this.libraryAddress = libraryAddress;
+        this.stateRewardAddresses = Set.copyOf(stateRewardAddresses);
+        this.serviceCredential = serviceCredential.clone();
+    }
+
+    public boolean isForProxy(String proxyTransactionHash, Integer proxyOutputIndex) {
+        return Objects.equals(this.proxyTransactionHash, proxyTransactionHash)
+                && Objects.equals(this.proxyOutputIndex, proxyOutputIndex);
+    }
+
+    /**
+     * Cheap pre-filter run before any redeemer or datum decoding. A transaction
+     * is relevant if it pays to the library, mints under the proxy policy or
+     * withdraws from one of the state scripts.
+     */
+    public boolean isRelevant(Transaction transaction) {
+        return touchesLibrary(transaction)
+                || mintsProxyPolicy(transaction.getBody().getMint())
+                || matchStateRewardAddress(transaction.getBody().getWithdrawals()).isPresent();
+    }
+
+    public boolean touchesLibrary(Transaction transaction) {
+        List<TransactionOutput> outputs = transaction.getBody().getOutputs();
+        if (outputs == null) {
+            return false;
+        }
+        for (TransactionOutput output : outputs) {
+            if (libraryAddress.equals(output.getAddress())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public Optional<String> matchStateRewardAddress(Map<String, BigInteger> withdrawals) {
+        if (withdrawals == null || withdrawals.isEmpty()) {
+            return Optional.empty();
+        }
+        for (String rewardAddress : withdrawals.keySet()) {
+            String normalized = rewardAddress.toLowerCase();
+            if (stateRewardAddresses.contains(normalized)) {
+                return Optional.of(normalized);
+            }
+        }
+        return Optional.empty();
+    }
+
+    public boolean isSignedByServiceUser(Transaction transaction) {
+        if (transaction.getWitnesses().getVkeyWitnesses() == null) {
+            return false;
+        }
+        return transaction.getWitnesses().getVkeyWitnesses().stream()
+                .anyMatch(vkeyWitness -> Arrays.equals(serviceCredential,
+                        Blake2bUtil.blake2bHash224(HexUtil.decodeHexString(vkeyWitness.getKey()))));
+    }
+
+    private boolean mintsProxyPolicy(List<Amount> mints) {
+        if (mints == null) {
+            return false;
+        }
+        for (Amount mint : mints) {
+            if (proxyPolicyId.equals(mint.getPolicyId())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
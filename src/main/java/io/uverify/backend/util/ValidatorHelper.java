@@ -20,23 +20,34 @@ package io.uverify.backend.util;
 
 import com.bloxbean.cardano.client.address.AddressProvider;
 import com.bloxbean.cardano.client.api.exception.ApiException;
+import com.bloxbean.cardano.client.api.model.Amount;
 import com.bloxbean.cardano.client.api.model.Result;
 import com.bloxbean.cardano.client.api.model.Utxo;
 import com.bloxbean.cardano.client.backend.api.BackendService;
+import com.bloxbean.cardano.client.common.model.Network;
 import com.bloxbean.cardano.client.common.model.Networks;
 import com.bloxbean.cardano.client.plutus.spec.PlutusScript;
 import com.bloxbean.cardano.client.plutus.spec.PlutusV3Script;
+import com.bloxbean.cardano.client.util.HexUtil;
+import com.bloxbean.cardano.yaci.core.model.TransactionInput;
+import com.bloxbean.cardano.yaci.core.model.TransactionOutput;
+import com.bloxbean.cardano.yaci.helper.model.Transaction;
 import io.uverify.backend.entity.LibraryEntity;
 import io.uverify.backend.enums.CardanoNetwork;
 import io.uverify.backend.repository.LibraryRepository;
+import io.uverify.backend.util.ParameterizedScriptRegistry.ParameterizedScript;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static io.uverify.backend.util.ValidatorUtils.getProxyStateTokenName;
 
@@ -48,6 +59,8 @@ public class ValidatorHelper {
     private final LibraryRepository libraryRepository;
     private String proxyTransactionHash;
     private Integer proxyOutputIndex;
+    @Getter(AccessLevel.NONE)
+    private final AtomicReference<Utxo> proxyStateUtxo = new AtomicReference<>();
 
     @Autowired
     public ValidatorHelper(@Value("${proxy.transaction-hash}") String proxyTransactionHash,
@@ -67,7 +80,7 @@ public class ValidatorHelper {
      * entry exists.
      */
     public PlutusScript getParameterizedUVerifyStateContract() {
-        String proxyScriptHash = ValidatorUtils.validatorToScriptHash(getParameterizedProxyContract());
+        String proxyScriptHash = getProxyScriptHash();
         Optional<LibraryEntity> latestScript = libraryRepository.getLatestScript(proxyScriptHash);
         if (latestScript.isPresent()) {
             return PlutusV3Script.builder().cborHex(latestScript.get().getCompiledCode()).build();
@@ -76,47 +89,116 @@ public class ValidatorHelper {
     }
 
     public PlutusScript getParameterizedProxyContract() {
-        return ValidatorUtils.getUverifyProxyContract(proxyTransactionHash, proxyOutputIndex);
+        return getProxyScript().getScript();
+    }
+
+    public String getProxyScriptHash() {
+        return getProxyScript().getScriptHash();
+    }
+
+    private ParameterizedScript getProxyScript() {
+        return ValidatorUtils.getUverifyProxyScript(proxyTransactionHash, proxyOutputIndex);
     }
 
     public void setProxy(String proxyTransactionHash, Integer proxyOutputIndex) {
         this.proxyTransactionHash = proxyTransactionHash;
         this.proxyOutputIndex = proxyOutputIndex;
+        proxyStateUtxo.set(null);
     }
 
     public String getProxyContractAddress() {
-        PlutusScript uverifyProxyContract = ValidatorUtils.getUverifyProxyContract(proxyTransactionHash, proxyOutputIndex);
-
-        if (network.equals(CardanoNetwork.MAINNET)) {
-            return AddressProvider.getEntAddress(uverifyProxyContract, Networks.mainnet()).toBech32();
-        }
-
-        return AddressProvider.getEntAddress(uverifyProxyContract, Networks.preprod()).toBech32();
+        return getProxyScript().getEnterpriseAddress(addressNetwork());
     }
 
     public String getStateContractAddress() {
         PlutusScript stateContract = getParameterizedUVerifyStateContract();
+        return AddressProvider.getRewardAddress(stateContract, addressNetwork()).toBech32();
+    }
 
-        if (network.equals(CardanoNetwork.MAINNET)) {
-            return AddressProvider.getRewardAddress(stateContract, Networks.mainnet()).toBech32();
+    /**
+     * Returns the UTxO holding the proxy state token. The provider is only
+     * asked on the first call and after a rollback or proxy change, moves of
+     * the token are followed through {@link #trackProxyStateUtxo}.
+     */
+    public Utxo resolveProxyStateUtxo(BackendService backendService) throws ApiException {
+        Utxo cached = proxyStateUtxo.get();
+        if (cached != null) {
+            return cached;
+        }
+        Utxo fetched = fetchProxyStateUtxo(backendService);
+        // Keep a successor an indexed transaction installed meanwhile.
+        proxyStateUtxo.compareAndSet(null, fetched);
+        return fetched;
+    }
+
+    /**
+     * Follows the proxy state token when a transaction spends the known proxy
+     * state UTxO, e.g. a proxy upgrade. Transactions have to be passed in chain
+     * order.
+     */
+    public void trackProxyStateUtxo(Transaction transaction) {
+        Utxo cached = proxyStateUtxo.get();
+        if (cached == null || !spends(transaction.getBody().getInputs(), cached)) {
+            return;
         }
 
-        return AddressProvider.getRewardAddress(stateContract, Networks.preprod()).toBech32();
+        String stateTokenUnit = getProxyScript().getScriptHash() + getProxyStateTokenName(proxyTransactionHash, proxyOutputIndex);
+        List<TransactionOutput> outputs = transaction.getBody().getOutputs();
+        Utxo successor = null;
+        for (int index = 0; outputs != null && index < outputs.size(); index++) {
+            TransactionOutput output = outputs.get(index);
+            List<Amount> amounts = toAmounts(output.getAmounts());
+            if (amounts.stream().anyMatch(amount -> stateTokenUnit.equals(amount.getUnit()))) {
+                successor = Utxo.builder()
+                        .txHash(transaction.getTxHash())
+                        .outputIndex(index)
+                        .address(output.getAddress())
+                        .amount(amounts)
+                        .dataHash(output.getDatumHash())
+                        .inlineDatum(output.getInlineDatum())
+                        .build();
+                break;
+            }
+        }
+        if (proxyStateUtxo.compareAndSet(cached, successor)) {
+            log.info("Proxy state UTxO moved to {}", successor == null
+                    ? "an unknown output" : successor.getTxHash() + "#" + successor.getOutputIndex());
+        }
     }
 
-    public Utxo resolveProxyStateUtxo(BackendService backendService) throws ApiException {
-        String stateTokenName = getProxyStateTokenName(proxyTransactionHash, proxyOutputIndex);
-        PlutusScript proxyContract = ValidatorUtils.getUverifyProxyContract(proxyTransactionHash, proxyOutputIndex);
+    public void invalidateProxyStateUtxo() {
+        proxyStateUtxo.set(null);
+    }
 
-        String proxyScriptAddress;
-        if (network.equals(CardanoNetwork.MAINNET)) {
-            proxyScriptAddress = AddressProvider.getEntAddress(proxyContract, Networks.mainnet()).toBech32();
-        } else {
-            proxyScriptAddress = AddressProvider.getEntAddress(proxyContract, Networks.preprod()).toBech32();
+    private static boolean spends(Set<TransactionInput> inputs, Utxo utxo) {
+        if (inputs == null) {
+            return false;
         }
+        return inputs.stream().anyMatch(input -> input.getIndex() == utxo.getOutputIndex()
+                && utxo.getTxHash().equalsIgnoreCase(input.getTransactionId()));
+    }
 
-        String proxyScriptHash = ValidatorUtils.validatorToScriptHash(proxyContract);
-        String stateTokenUnit = proxyScriptHash + stateTokenName;
+    private static List<Amount> toAmounts(List<com.bloxbean.cardano.yaci.core.model.Amount> amounts) {
+        List<Amount> converted = new ArrayList<>();
+        if (amounts == null) {
+            return converted;
+        }
+        for (com.bloxbean.cardano.yaci.core.model.Amount amount : amounts) {
+            if (amount.getPolicyId() == null) {
+                converted.add(Amount.lovelace(amount.getQuantity()));
+            } else {
+                String assetName = amount.getAssetNameBytes() == null ? "" : HexUtil.encodeHexString(amount.getAssetNameBytes());
+                converted.add(Amount.asset(amount.getPolicyId() + assetName, amount.getQuantity()));
+            }
+        }
+        return converted;
+    }
+
+    private Utxo fetchProxyStateUtxo(BackendService backendService) throws ApiException {
+        String stateTokenName = getProxyStateTokenName(proxyTransactionHash, proxyOutputIndex);
+        ParameterizedScript proxyScript = getProxyScript();
+        String proxyScriptAddress = proxyScript.getEnterpriseAddress(addressNetwork());
+        String stateTokenUnit = proxyScript.getScriptHash() + stateTokenName;
 
         // Providers that filter by asset before paginating (e.g. Blockfrost)
         // return the state UTxO on the first filtered page. Providers that
@@ -145,6 +227,10 @@ public class ValidatorHelper {
         }
     }
 
+    private Network addressNetwork() {
+        return network.equals(CardanoNetwork.MAINNET) ? Networks.mainnet() : Networks.preprod();
+    }
+
     private static Optional<Utxo> firstUtxoHoldingToken(List<Utxo> utxos, String unit) {
         if (utxos == null) {
             return Optional.empty();
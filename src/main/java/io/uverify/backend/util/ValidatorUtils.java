@@ -33,10 +33,10 @@ import com.bloxbean.cardano.client.util.HexUtil;
 import com.bloxbean.cardano.yaci.store.common.domain.AddressUtxo;
 import com.bloxbean.cardano.yaci.store.common.domain.Amt;
 import io.uverify.backend.enums.CardanoNetwork;
+import io.uverify.backend.util.ParameterizedScriptRegistry.ParameterizedScript;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.codec.digest.DigestUtils;
-import scalus.bloxbean.ScalusScriptUtils;
 
 import java.math.BigInteger;
 import java.nio.charset.StandardCharsets;
@@ -94,25 +94,26 @@ public class ValidatorUtils {
     }
 
     public static PlutusScript getLibraryContract(byte[] paymentCredential) {
-        PlutusScript plainScript = getLibraryContract();
+        return getLibraryScript(paymentCredential).getScript();
+    }
 
-        String parameterizedScript = ScalusScriptUtils.applyParamsToScript(plainScript.getCborHex(),
+    public static ParameterizedScript getLibraryScript(byte[] paymentCredential) {
+        return ParameterizedScriptRegistry.resolve("library", ValidatorUtils::getLibraryContract,
                 BytesPlutusData.of(paymentCredential));
-        return PlutusV3Script.builder().cborHex(parameterizedScript).build();
     }
 
     public static PlutusScript getUVerifyStateContract(String scriptHash, String proxyTokenName) {
-        PlutusScript plainScript = getUVerifyStateContract();
-
-        String parameterizedScript = ScalusScriptUtils.applyParamsToScript(plainScript.getCborHex(),
+        return ParameterizedScriptRegistry.resolve("state", ValidatorUtils::getUVerifyStateContract,
                 BytesPlutusData.of(HexUtil.decodeHexString(scriptHash)),
-                BytesPlutusData.of(HexUtil.decodeHexString(proxyTokenName)));
-        return PlutusV3Script.builder().cborHex(parameterizedScript).build();
+                BytesPlutusData.of(HexUtil.decodeHexString(proxyTokenName))).getScript();
     }
 
     public static PlutusScript getUVerifyStateContract(String txHash, int outputIndex) {
-        PlutusScript proxyContract = getUverifyProxyContract(txHash, outputIndex);
-        String proxyScriptHash = validatorToScriptHash(proxyContract);
+        return getUVerifyStateScript(txHash, outputIndex).getScript();
+    }
+
+    public static ParameterizedScript getUVerifyStateScript(String txHash, int outputIndex) {
+        String proxyScriptHash = getUverifyProxyScript(txHash, outputIndex).getScriptHash();
 
         if (proxyScriptHash == null) {
             throw new IllegalArgumentException("Script hash of proxy contract is null");
@@ -120,12 +121,9 @@ public class ValidatorUtils {
 
         String proxyTokenName = getProxyStateTokenName(txHash, outputIndex);
 
-        PlutusScript plainScript = getUVerifyStateContract();
-
-        String parameterizedScript = ScalusScriptUtils.applyParamsToScript(plainScript.getCborHex(),
+        return ParameterizedScriptRegistry.resolve("state", ValidatorUtils::getUVerifyStateContract,
                 BytesPlutusData.of(HexUtil.decodeHexString(proxyScriptHash)),
                 BytesPlutusData.of(HexUtil.decodeHexString(proxyTokenName)));
-        return PlutusV3Script.builder().cborHex(parameterizedScript).build();
     }
 
     // ── Tokenizable Certificate ───────────────────────────────────────────────
@@ -140,12 +138,9 @@ public class ValidatorUtils {
      * given one-shot {@code init_utxo: OutputReference}.
      */
     public static PlutusScript getTokenizableCertificateContract(String txHash, int outputIndex) {
-        PlutusScript plainScript = getTokenizableCertificateBaseContract();
-        PlutusData outputReference = ConstrPlutusData.of(0,
-                BytesPlutusData.of(HexUtil.decodeHexString(txHash)),
-                BigIntPlutusData.of(outputIndex));
-        String parameterizedScript = ScalusScriptUtils.applyParamsToScript(plainScript.getCborHex(), outputReference);
-        return PlutusV3Script.builder().cborHex(parameterizedScript).build();
+        return ParameterizedScriptRegistry.resolve("tokenizable-certificate",
+                ValidatorUtils::getTokenizableCertificateBaseContract,
+                outputReference(txHash, outputIndex)).getScript();
     }
 
     // ── Fractionized Certificate ──────────────────────────────────────────────
@@ -163,12 +158,9 @@ public class ValidatorUtils {
      * given one-shot {@code init_utxo: OutputReference}.
      */
     public static PlutusScript getFractionizedCertificateContract(String txHash, int outputIndex) {
-        PlutusScript plainScript = getFractionizedCertificateBaseContract();
-        PlutusData outputReference = ConstrPlutusData.of(0,
-                BytesPlutusData.of(HexUtil.decodeHexString(txHash)),
-                BigIntPlutusData.of(outputIndex));
-        String parameterizedScript = ScalusScriptUtils.applyParamsToScript(plainScript.getCborHex(), outputReference);
-        return PlutusV3Script.builder().cborHex(parameterizedScript).build();
+        return ParameterizedScriptRegistry.resolve("fractionized-certificate",
+                ValidatorUtils::getFractionizedCertificateBaseContract,
+                outputReference(txHash, outputIndex)).getScript();
     }
 
     // ─────────────────────────────────────────────────────────────────────────
@@ -178,15 +170,18 @@ public class ValidatorUtils {
     }
 
     public static PlutusScript getUverifyProxyContract(String txHash, int outputIndex) {
-        PlutusScript plainScript = getUVerifyProxyContract();
+        return getUverifyProxyScript(txHash, outputIndex).getScript();
+    }
 
-        PlutusData outputReference = ConstrPlutusData.of(0,
+    public static ParameterizedScript getUverifyProxyScript(String txHash, int outputIndex) {
+        return ParameterizedScriptRegistry.resolve("proxy", ValidatorUtils::getUVerifyProxyContract,
+                outputReference(txHash, outputIndex));
+    }
+
+    private static PlutusData outputReference(String txHash, int outputIndex) {
+        return ConstrPlutusData.of(0,
                 BytesPlutusData.of(HexUtil.decodeHexString(txHash)),
                 BigIntPlutusData.of(outputIndex));
-
-
-        String parameterizedScript = ScalusScriptUtils.applyParamsToScript(plainScript.getCborHex(), outputReference);
-        return PlutusV3Script.builder().cborHex(parameterizedScript).build();
     }
 
     public static String getMintOrBurnAuthTokenHash(CardanoNetwork network) {
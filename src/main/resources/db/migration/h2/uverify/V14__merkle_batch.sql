@@ -0,0 +1,27 @@
+CREATE TABLE merkle_tree (
+    root_hash        VARCHAR(64) NOT NULL,
+    transaction_id   VARCHAR(64) NOT NULL,
+    leaf_count       INTEGER     NOT NULL,
+    valid_until_slot BIGINT,
+    slot             BIGINT,
+    created_at       TIMESTAMP   NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (root_hash, transaction_id)
+);
+
+CREATE INDEX idx_merkle_tree_transaction ON merkle_tree (transaction_id);
+CREATE INDEX idx_merkle_tree_slot ON merkle_tree (slot);
+CREATE INDEX idx_merkle_tree_valid_until ON merkle_tree (valid_until_slot);
+
+CREATE TABLE merkle_level (
+    root_hash  VARCHAR(64) NOT NULL,
+    tree_level INTEGER     NOT NULL,
+    nodes      VARBINARY   NOT NULL,
+    PRIMARY KEY (root_hash, tree_level)
+);
+
+CREATE TABLE merkle_leaf (
+    leaf_hash  VARCHAR(128) NOT NULL,
+    root_hash  VARCHAR(64)  NOT NULL,
+    leaf_index INTEGER      NOT NULL,
+    PRIMARY KEY (leaf_hash, root_hash)
+);
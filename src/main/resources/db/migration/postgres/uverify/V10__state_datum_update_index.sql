@@ -0,0 +1,5 @@
+CREATE INDEX idx_state_datum_update_state_slot
+    ON state_datum_update (state_datum_id, slot);
+
+CREATE INDEX idx_state_datum_update_slot
+    ON state_datum_update (slot);
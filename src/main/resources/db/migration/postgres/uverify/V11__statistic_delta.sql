@@ -0,0 +1,9 @@
+CREATE TABLE uverify_statistic_delta (
+    id          BIGSERIAL PRIMARY KEY,
+    slot        BIGINT      NOT NULL,
+    stat_key    VARCHAR(64) NOT NULL,
+    stat_delta  BIGINT      NOT NULL
+);
+
+CREATE INDEX idx_uverify_statistic_delta_slot
+    ON uverify_statistic_delta (slot);
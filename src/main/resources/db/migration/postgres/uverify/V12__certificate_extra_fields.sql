@@ -0,0 +1,13 @@
+ALTER TABLE uverify_certificate ADD COLUMN template_id VARCHAR(255);
+ALTER TABLE uverify_certificate ADD COLUMN use_case_category VARCHAR(32);
+ALTER TABLE uverify_certificate ADD COLUMN update_policy VARCHAR;
+ALTER TABLE uverify_certificate ADD COLUMN update_policy_alias VARCHAR;
+ALTER TABLE uverify_certificate ADD COLUMN update_owner VARCHAR;
+ALTER TABLE uverify_certificate ADD COLUMN update_whitelist VARCHAR;
+ALTER TABLE uverify_certificate ADD COLUMN transfer_ownership VARCHAR;
+ALTER TABLE uverify_certificate ADD COLUMN whitelist_add VARCHAR;
+ALTER TABLE uverify_certificate ADD COLUMN whitelist_remove VARCHAR;
+ALTER TABLE uverify_certificate ADD COLUMN update_freeze BOOLEAN NOT NULL DEFAULT FALSE;
+ALTER TABLE uverify_certificate ADD COLUMN og_title VARCHAR;
+ALTER TABLE uverify_certificate ADD COLUMN og_description VARCHAR;
+ALTER TABLE uverify_certificate ADD COLUMN og_image VARCHAR;
@@ -0,0 +1,4 @@
+ALTER TABLE library ADD COLUMN address VARCHAR(255);
+ALTER TABLE library ADD COLUMN lovelace BIGINT;
+ALTER TABLE library ADD COLUMN datum_hash VARCHAR(64);
+ALTER TABLE library ADD COLUMN inline_datum TEXT;
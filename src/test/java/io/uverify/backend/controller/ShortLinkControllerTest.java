@@ -18,7 +18,8 @@
 
 package io.uverify.backend.controller;
 
-import io.uverify.backend.entity.UVerifyCertificateEntity;
+import io.uverify.backend.dto.CertificateView;
+import io.uverify.backend.entity.CertificateExtraFields;
 import io.uverify.backend.service.ShortLinkService;
 import io.uverify.backend.service.UVerifyCertificateService;
 import org.junit.jupiter.api.BeforeEach;
@@ -53,14 +54,10 @@ class ShortLinkControllerTest {
 
     private ShortLinkController controller;
 
-    private UVerifyCertificateEntity certificate(String extra, long slot) {
-        return UVerifyCertificateEntity.builder()
-                .hash(HASH)
-                .paymentCredential("3f9ff01fd67fcf42cb64f004f13306bd4bfd651154aedcb0dd68dd87")
-                .extra(extra)
-                .slot(slot)
-                .creationTime(new Date(1745006677000L))
-                .build();
+    private CertificateView certificate(String extra, long slot) {
+        return new CertificateView(HASH, "3f9ff01fd67fcf42cb64f004f13306bd4bfd651154aedcb0dd68dd87",
+                "block", 1L, "tx", new Date(1745006677000L), slot, extra,
+                CertificateExtraFields.fromExtra(extra), null);
     }
 
     @BeforeEach
@@ -82,7 +79,7 @@ class ShortLinkControllerTest {
     @Test
     void resolvedCodeRendersOgTagsAndRedirect() {
         given(shortLinkService.resolve(CODE)).willReturn(Optional.of(HASH));
-        given(certificateService.getCertificatesByHash(HASH)).willReturn(List.of(
+        given(certificateService.getCertificateViewsByHash(HASH)).willReturn(List.of(
                 certificate("{\"uv_tid\":\"diploma\",\"title\":\"Certified Cardano Developer\"}", 100)));
 
         ResponseEntity<String> response = controller.resolve(CODE, new MockHttpServletRequest());
@@ -101,7 +98,7 @@ class ShortLinkControllerTest {
     @Test
     void queryStringIsPassedThroughToTheRedirect() {
         given(shortLinkService.resolve(CODE)).willReturn(Optional.of(HASH));
-        given(certificateService.getCertificatesByHash(HASH)).willReturn(List.of(certificate("{}", 100)));
+        given(certificateService.getCertificateViewsByHash(HASH)).willReturn(List.of(certificate("{}", 100)));
 
         MockHttpServletRequest request = new MockHttpServletRequest();
         request.setQueryString("name=Jane%20Doe~x7Rk2p");
@@ -114,7 +111,7 @@ class ShortLinkControllerTest {
     @Test
     void metadataValuesAreHtmlEscaped() {
         given(shortLinkService.resolve(CODE)).willReturn(Optional.of(HASH));
-        given(certificateService.getCertificatesByHash(HASH)).willReturn(List.of(
+        given(certificateService.getCertificateViewsByHash(HASH)).willReturn(List.of(
                 certificate("{\"uv_og_title\":\"<script>alert(1)</script>\"}", 100)));
 
         String html = controller.resolve(CODE, new MockHttpServletRequest()).getBody();
@@ -128,7 +125,7 @@ class ShortLinkControllerTest {
         String commitment = HexFormat.of().formatHex(
                 MessageDigest.getInstance("SHA-256").digest(saltedName.getBytes(StandardCharsets.UTF_8)));
         given(shortLinkService.resolve(CODE)).willReturn(Optional.of(HASH));
-        given(certificateService.getCertificatesByHash(HASH)).willReturn(List.of(
+        given(certificateService.getCertificateViewsByHash(HASH)).willReturn(List.of(
                 certificate("{\"uv_url_name\":\"" + commitment + "\"}", 100)));
 
         MockHttpServletRequest request = new MockHttpServletRequest();
@@ -149,7 +146,7 @@ class ShortLinkControllerTest {
     @Test
     void policyOverrideSelectsTheLatestContentSubmission() {
         given(shortLinkService.resolve(CODE)).willReturn(Optional.of(HASH));
-        given(certificateService.getCertificatesByHash(HASH)).willReturn(List.of(
+        given(certificateService.getCertificateViewsByHash(HASH)).willReturn(List.of(
                 certificate("{\"uv_og_title\":\"Corrected Title\",\"v\":\"2\"}", 200),
                 certificate("{\"uverify_update_policy\":\"override\",\"uv_og_title\":\"Old Title\",\"v\":\"1\"}", 100)));
 
@@ -0,0 +1,224 @@
+/*
+ * UVerify Backend
+ * Copyright (C) 2025 Fabian Bormann
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.uverify.backend.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.uverify.backend.dto.BuildJobStatus;
+import io.uverify.backend.enums.BuildJobState;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BuildJobServiceTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private BuildJobService buildJobService;
+
+    private BuildJobService service(int concurrency, int queueLimit) {
+        buildJobService = new BuildJobService(concurrency, queueLimit, Duration.ofMinutes(1), Duration.ofSeconds(7), meterRegistry);
+        return buildJobService;
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (buildJobService != null) {
+            buildJobService.shutdown();
+        }
+    }
+
+    private static BuildJobStatus awaitFinished(BuildJobService service, String id) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            BuildJobStatus status = service.getStatus(id).orElseThrow();
+            if (status.getState().isFinished()) {
+                return status;
+            }
+            Thread.sleep(5);
+        }
+        throw new AssertionError("Job " + id + " did not finish");
+    }
+
+    @Test
+    void runsJobsAndKeepsTheirResult() throws Exception {
+        BuildJobService service = service(2, 4);
+        BuildJobStatus queued = service.submit(() -> ResponseEntity.ok("unsigned-tx")).orElseThrow();
+
+        BuildJobStatus finished = awaitFinished(service, queued.getId());
+
+        assertEquals(BuildJobState.SUCCEEDED, finished.getState());
+        assertEquals("unsigned-tx", finished.getResult());
+        assertEquals(200, finished.getStatusCode());
+        assertNull(finished.getError());
+        assertEquals(1, meterRegistry.get(BuildJobService.DURATION_METRIC).tag("outcome", "succeeded").timer().count());
+        assertEquals(1, meterRegistry.get(BuildJobService.WAIT_METRIC).timer().count());
+    }
+
+    @Test
+    void reportsFailedJobs() throws Exception {
+        BuildJobService service = service(2, 4);
+        BuildJobStatus queued = service.submit(() -> {
+            throw new IllegalStateException("provider unavailable");
+        }).orElseThrow();
+
+        BuildJobStatus finished = awaitFinished(service, queued.getId());
+
+        assertEquals(BuildJobState.FAILED, finished.getState());
+        assertEquals("provider unavailable", finished.getError());
+        assertEquals(1, meterRegistry.get(BuildJobService.DURATION_METRIC).tag("outcome", "failed").timer().count());
+    }
+
+    @Test
+    void failsJobsWhoseBuildIsNotSuccessful() throws Exception {
+        BuildJobService service = service(2, 4);
+        BuildJobStatus queued = service.submit(() -> ResponseEntity.badRequest().body("collateral required")).orElseThrow();
+
+        BuildJobStatus finished = awaitFinished(service, queued.getId());
+
+        assertEquals(BuildJobState.FAILED, finished.getState());
+        assertEquals(400, finished.getStatusCode());
+        assertEquals("collateral required", finished.getResult());
+        assertNotNull(finished.getError());
+        assertEquals(1, meterRegistry.get(BuildJobService.DURATION_METRIC).tag("outcome", "failed").timer().count());
+    }
+
+    @Test
+    void rejectsJobsOnceTheQueueIsFull() throws Exception {
+        BuildJobService service = service(1, 1);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        BuildJobStatus first = service.submit(() -> {
+            running.countDown();
+            release.await();
+            return ResponseEntity.ok("first");
+        }).orElseThrow();
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        BuildJobStatus second = service.submit(() -> ResponseEntity.ok("second")).orElseThrow();
+
+        Optional<BuildJobStatus> third = service.submit(() -> ResponseEntity.ok("third"));
+
+        assertTrue(third.isEmpty());
+        assertEquals(1.0, meterRegistry.get(BuildJobService.REJECTED_METRIC).counter().count());
+        assertEquals(1.0, meterRegistry.get(BuildJobService.QUEUED_METRIC).gauge().value());
+        assertEquals(BuildJobState.QUEUED, service.getStatus(second.getId()).orElseThrow().getState());
+        assertEquals(Duration.ofSeconds(7), service.getRetryAfter());
+
+        release.countDown();
+        assertEquals("first", awaitFinished(service, first.getId()).getResult());
+        assertEquals("second", awaitFinished(service, second.getId()).getResult());
+    }
+
+    @Test
+    void listenersSeeEveryStateInOrder() throws Exception {
+        BuildJobService service = service(1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        BuildJobStatus queued = service.submit(() -> {
+            release.await();
+            return ResponseEntity.ok("done");
+        }).orElseThrow();
+        List<BuildJobState> states = new CopyOnWriteArrayList<>();
+        CountDownLatch finished = new CountDownLatch(1);
+
+        assertTrue(service.subscribe(queued.getId(), status -> {
+            if (states.isEmpty() || states.get(states.size() - 1) != status.getState()) {
+                states.add(status.getState());
+            }
+            if (status.getState().isFinished()) {
+                finished.countDown();
+            }
+        }).isPresent());
+        release.countDown();
+
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        assertEquals(BuildJobState.SUCCEEDED, states.get(states.size() - 1));
+        assertTrue(states.indexOf(BuildJobState.SUCCEEDED) > states.indexOf(BuildJobState.RUNNING));
+        assertFalse(service.subscribe("unknown", status -> {
+        }).isPresent());
+    }
+
+    @Test
+    void slowListenersDoNotHoldUpTheBuild() throws Exception {
+        BuildJobService service = service(1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch listenerBlocked = new CountDownLatch(1);
+        CountDownLatch unblockListener = new CountDownLatch(1);
+        BuildJobStatus queued = service.submit(() -> {
+            release.await();
+            return ResponseEntity.ok("done");
+        }).orElseThrow();
+        service.subscribe(queued.getId(), status -> {
+            listenerBlocked.countDown();
+            try {
+                unblockListener.await();
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+        }).orElseThrow();
+        assertTrue(listenerBlocked.await(5, TimeUnit.SECONDS));
+
+        release.countDown();
+
+        assertEquals(BuildJobState.SUCCEEDED, awaitFinished(service, queued.getId()).getState());
+        assertEquals("second", awaitFinished(service,
+                service.submit(() -> ResponseEntity.ok("second")).orElseThrow().getId()).getResult());
+        unblockListener.countDown();
+    }
+
+    @Test
+    void unsubscribedListenersReceiveNoFurtherEvents() throws Exception {
+        BuildJobService service = service(1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        BuildJobStatus queued = service.submit(() -> {
+            release.await();
+            return ResponseEntity.ok("done");
+        }).orElseThrow();
+        List<BuildJobState> states = new CopyOnWriteArrayList<>();
+        CountDownLatch snapshot = new CountDownLatch(1);
+        Runnable unsubscribe = service.subscribe(queued.getId(), status -> {
+            states.add(status.getState());
+            snapshot.countDown();
+        }).orElseThrow();
+        assertTrue(snapshot.await(5, TimeUnit.SECONDS));
+
+        unsubscribe.run();
+        release.countDown();
+        awaitFinished(service, queued.getId());
+
+        assertFalse(states.contains(BuildJobState.SUCCEEDED));
+    }
+
+    @Test
+    void rejectsInvalidLimits() {
+        assertThrows(IllegalArgumentException.class, () -> service(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> service(1, 0));
+    }
+}
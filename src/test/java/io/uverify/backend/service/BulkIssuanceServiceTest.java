@@ -0,0 +1,226 @@
+/*
+ * UVerify Backend
+ * Copyright (C) 2025 Fabian Bormann
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.uverify.backend.service;
+
+import com.bloxbean.cardano.client.account.Account;
+import com.bloxbean.cardano.client.common.model.Networks;
+import com.bloxbean.cardano.client.transaction.spec.Transaction;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.uverify.backend.entity.StateDatumEntity;
+import io.uverify.backend.enums.BuildStatusCode;
+import io.uverify.backend.enums.BulkInputFormat;
+import io.uverify.backend.exception.UVerifyTransactionException;
+import io.uverify.backend.model.UVerifyCertificate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BulkIssuanceServiceTest {
+
+    private static final String ADDRESS = new Account(Networks.testnet()).baseAddress();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final CardanoBlockchainService cardanoBlockchainService = mock(CardanoBlockchainService.class);
+    private final UVerifyTransactionService transactionService = mock(UVerifyTransactionService.class);
+    private final StateDatumService stateDatumService = mock(StateDatumService.class);
+    private final StateDatumEntity state = mock(StateDatumEntity.class);
+    private final StateBuildLocks stateBuildLocks = new StateBuildLocks(16, Duration.ofMillis(50));
+    private final List<Integer> builtSizes = new ArrayList<>();
+    private BulkIssuanceService bulkIssuanceService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(state.getVersion()).thenReturn(2);
+        when(stateDatumService.findByOwner(ADDRESS, 2)).thenReturn(List.of(state));
+        when(stateDatumService.selectCheapestStateDatum(anyList())).thenReturn(state);
+        when(transactionService.maxCertificatesPerTransaction(eq(ADDRESS), any())).thenReturn(2);
+        when(cardanoBlockchainService.updateStateDatumChained(eq(ADDRESS), eq(state), anyList())).thenAnswer(invocation -> {
+            List<UVerifyCertificate> certificates = invocation.getArgument(2);
+            builtSizes.add(certificates.size());
+            return transaction("tx-" + builtSizes.size());
+        });
+        bulkIssuanceService = new BulkIssuanceService(cardanoBlockchainService, transactionService, stateDatumService,
+                stateBuildLocks, 1_024);
+    }
+
+    // Answers serializeToHex without stubbing, so it can be created inside other answers.
+    private static Transaction transaction(String hex) {
+        return mock(Transaction.class, invocation ->
+                invocation.getMethod().getName().equals("serializeToHex") ? hex : null);
+    }
+
+    private static String ndjson(int certificates) {
+        return IntStream.range(0, certificates)
+                .mapToObj(index -> "{\"hash\":\"" + String.format("%064x", index) + "\",\"algorithm\":\"SHA-256\"}")
+                .collect(Collectors.joining("\n"));
+    }
+
+    private List<JsonNode> plan(String input, BulkInputFormat format) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        bulkIssuanceService.plan(ADDRESS, null, format,
+                new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), output);
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : output.toString(StandardCharsets.UTF_8).split("\n")) {
+            lines.add(objectMapper.readTree(line));
+        }
+        return lines;
+    }
+
+    @Test
+    void splitsTheStreamIntoChainedTransactionsOfTheBatchSize() throws Exception {
+        List<JsonNode> lines = plan(ndjson(5), BulkInputFormat.NDJSON);
+
+        assertEquals(List.of(2, 2, 1), builtSizes);
+        assertEquals(3, lines.size());
+        assertEquals(List.of(0, 2, 4), lines.stream().map(line -> line.get("offset").asInt()).toList());
+        assertEquals("tx-3", lines.get(2).get("unsignedTransaction").asText());
+        assertEquals("SUCCESS", lines.get(2).get("status").get("code").asText());
+    }
+
+    @Test
+    void halvesTransactionsThatExceedTheProtocolLimits() throws Exception {
+        when(transactionService.maxCertificatesPerTransaction(eq(ADDRESS), any())).thenReturn(4);
+        when(cardanoBlockchainService.updateStateDatumChained(eq(ADDRESS), eq(state), anyList())).thenAnswer(invocation -> {
+            List<UVerifyCertificate> certificates = invocation.getArgument(2);
+            if (certificates.size() > 2) {
+                throw new UVerifyTransactionException(BuildStatusCode.TRANSACTION_TOO_LARGE, "too large");
+            }
+            builtSizes.add(certificates.size());
+            return transaction("tx-" + builtSizes.size());
+        });
+
+        List<JsonNode> lines = plan(ndjson(5), BulkInputFormat.NDJSON);
+
+        assertEquals(List.of(2, 2, 1), builtSizes);
+        assertEquals(List.of(2, 2, 1), lines.stream().map(line -> line.get("count").asInt()).toList());
+    }
+
+    @Test
+    void readsCsvWithQuotedMetadata() throws Exception {
+        String csv = "hash,algorithm,metadata\n"
+                + "%064x,SHA-256,\"{\"\"title\"\"\": \"\"a, b\"\"}\"\n".formatted(1)
+                + "%064x,SHA-256,\n".formatted(2);
+        List<UVerifyCertificate> built = new ArrayList<>();
+        when(cardanoBlockchainService.updateStateDatumChained(eq(ADDRESS), eq(state), anyList())).thenAnswer(invocation -> {
+            built.addAll(invocation.getArgument(2));
+            return transaction("tx");
+        });
+
+        plan(csv, BulkInputFormat.CSV);
+
+        assertEquals(2, built.size());
+        assertEquals("{\"title\": \"a, b\"}", built.get(0).getExtra());
+        assertEquals("SHA-256", built.get(1).getAlgorithm());
+    }
+
+    @Test
+    void stopsAfterTheForkOfANewState() throws Exception {
+        when(stateDatumService.findByOwner(ADDRESS, 2)).thenReturn(List.of());
+        Transaction fork = transaction("fork");
+        when(cardanoBlockchainService.persistUVerifyCertificates(eq(ADDRESS), anyList())).thenReturn(fork);
+
+        List<JsonNode> lines = plan(ndjson(3), BulkInputFormat.NDJSON);
+
+        assertEquals(2, lines.size());
+        assertEquals("fork", lines.get(0).get("unsignedTransaction").asText());
+        assertEquals("PENDING_TRANSACTION", lines.get(1).get("status").get("code").asText());
+        assertEquals(2, lines.get(1).get("offset").asInt());
+        verify(cardanoBlockchainService, never()).updateStateDatumChained(anyString(), any(), anyList());
+    }
+
+    @Test
+    void reportsInvalidLinesAndStops() throws Exception {
+        List<JsonNode> lines = plan(ndjson(2) + "\n{\"algorithm\":\"SHA-256\"}\n" + ndjson(2), BulkInputFormat.NDJSON);
+
+        assertEquals(2, lines.size());
+        assertEquals("ERROR", lines.get(1).get("status").get("code").asText());
+        assertEquals(2, lines.get(1).get("offset").asInt());
+    }
+
+    @Test
+    void keepsTheStateLockedForTheWholePlan() throws Exception {
+        List<Boolean> lockedByOthers = new ArrayList<>();
+        when(cardanoBlockchainService.updateStateDatumChained(eq(ADDRESS), eq(state), anyList())).thenAnswer(invocation -> {
+            CompletableFuture<Boolean> concurrentBuild = CompletableFuture.supplyAsync(() -> {
+                try (StateBuildLocks.Scope ignored = stateBuildLocks.open()) {
+                    return stateBuildLocks.tryLock("state");
+                }
+            });
+            lockedByOthers.add(!concurrentBuild.get(5, TimeUnit.SECONDS));
+            // Builds lock the state unit inside the scope they share with the plan.
+            try (StateBuildLocks.Scope ignored = stateBuildLocks.open()) {
+                stateBuildLocks.lock("state");
+            }
+            return transaction("tx");
+        });
+
+        plan(ndjson(5), BulkInputFormat.NDJSON);
+
+        assertEquals(List.of(false, true, true), lockedByOthers);
+        try (StateBuildLocks.Scope ignored = stateBuildLocks.open()) {
+            assertTrue(stateBuildLocks.tryLock("state"));
+        }
+    }
+
+    @Test
+    void rejectsLinesLongerThanTheMaximum() throws Exception {
+        String tooLong = "{\"hash\":\"" + "a".repeat(64) + "\",\"metadata\":\"" + "x".repeat(2_000) + "\"}";
+        List<JsonNode> lines = plan(ndjson(2) + "\n" + tooLong + "\n" + ndjson(2), BulkInputFormat.NDJSON);
+
+        assertEquals(List.of(2), builtSizes);
+        assertEquals(2, lines.size());
+        assertEquals("ERROR", lines.get(1).get("status").get("code").asText());
+        assertTrue(lines.get(1).get("status").get("message").asText().contains("Line 3"));
+    }
+
+    @Test
+    void readsWindowsLineEndings() throws Exception {
+        plan(ndjson(3).replace("\n", "\r\n"), BulkInputFormat.NDJSON);
+
+        assertEquals(List.of(2, 1), builtSizes);
+    }
+
+    @Test
+    void parsesQuotedCsvFields() {
+        assertEquals(List.of("a", "b,c", "d\"e", ""), BulkIssuanceService.parseCsvLine("a,\"b,c\",\"d\"\"e\","));
+        assertEquals(List.of("x"), BulkIssuanceService.parseCsvLine("x"));
+    }
+}
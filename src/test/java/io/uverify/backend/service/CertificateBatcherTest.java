@@ -0,0 +1,171 @@
+/*
+ * UVerify Backend
+ * Copyright (C) 2025 Fabian Bormann
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.uverify.backend.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.uverify.backend.dto.BuildStatus;
+import io.uverify.backend.dto.BuildTransactionResponse;
+import io.uverify.backend.enums.BuildStatusCode;
+import io.uverify.backend.model.UVerifyCertificate;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CertificateBatcherTest {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final List<List<UVerifyCertificate>> builds = new CopyOnWriteArrayList<>();
+
+    private BuildTransactionResponse build(List<UVerifyCertificate> certificates) {
+        builds.add(certificates);
+        return BuildTransactionResponse.builder()
+                .unsignedTransaction("tx-" + builds.size())
+                .status(BuildStatus.builder().code(BuildStatusCode.SUCCESS).build())
+                .build();
+    }
+
+    private static List<UVerifyCertificate> certificates(String... hashes) {
+        return Arrays.stream(hashes)
+                .map(hash -> UVerifyCertificate.builder().hash(hash).build())
+                .toList();
+    }
+
+    @Test
+    void buildsDirectlyWhenDisabled() {
+        CertificateBatcher batcher = new CertificateBatcher(false, 1000, 60_000, new SimpleMeterRegistry());
+
+        BuildTransactionResponse response = batcher.submit("key", certificates("a"), 10, this::build);
+
+        assertEquals("tx-1", response.getUnsignedTransaction());
+        assertNull(response.getBatch());
+    }
+
+    @Test
+    void combinesRequestsWithinTheWindow() throws Exception {
+        CertificateBatcher batcher = new CertificateBatcher(true, 200, 60_000, new SimpleMeterRegistry());
+
+        Future<BuildTransactionResponse> first = executor.submit(() -> batcher.submit("key", certificates("a"), 10, this::build));
+        Thread.sleep(20);
+        Future<BuildTransactionResponse> second = executor.submit(() -> batcher.submit("key", certificates("b", "c"), 10, this::build));
+
+        BuildTransactionResponse firstResponse = first.get(5, TimeUnit.SECONDS);
+        BuildTransactionResponse secondResponse = second.get(5, TimeUnit.SECONDS);
+
+        assertEquals(1, builds.size());
+        assertEquals(List.of("a", "b", "c"), builds.get(0).stream().map(UVerifyCertificate::getHash).toList());
+        assertEquals(firstResponse.getUnsignedTransaction(), secondResponse.getUnsignedTransaction());
+        assertEquals(0, firstResponse.getBatch().getOffset());
+        assertEquals(1, firstResponse.getBatch().getCount());
+        assertEquals(1, secondResponse.getBatch().getOffset());
+        assertEquals(2, secondResponse.getBatch().getCount());
+        assertEquals(2, secondResponse.getBatch().getRequests());
+        assertEquals(3, secondResponse.getBatch().getCertificates());
+    }
+
+    @Test
+    void flushesAsSoonAsTheBatchIsFull() {
+        CertificateBatcher batcher = new CertificateBatcher(true, 60_000, 60_000, new SimpleMeterRegistry());
+
+        executor.submit(() -> batcher.submit("key", certificates("a"), 2, this::build));
+        long start = System.nanoTime();
+        BuildTransactionResponse response = batcher.submit("key", certificates("b"), 2, this::build);
+
+        assertEquals(2, response.getBatch().getCertificates());
+        assertEquals(1, builds.size());
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(30));
+    }
+
+    @Test
+    void keepsDifferentKeysApart() throws Exception {
+        CertificateBatcher batcher = new CertificateBatcher(true, 50, 60_000, new SimpleMeterRegistry());
+
+        Future<BuildTransactionResponse> first = executor.submit(() -> batcher.submit("alice", certificates("a"), 10, this::build));
+        Future<BuildTransactionResponse> second = executor.submit(() -> batcher.submit("bob", certificates("b"), 10, this::build));
+
+        assertEquals(1, first.get(5, TimeUnit.SECONDS).getBatch().getRequests());
+        assertEquals(1, second.get(5, TimeUnit.SECONDS).getBatch().getRequests());
+        assertEquals(2, builds.size());
+    }
+
+    @Test
+    void reportsBuildFailuresToEveryCaller() throws Exception {
+        CertificateBatcher batcher = new CertificateBatcher(true, 100, 60_000, new SimpleMeterRegistry());
+        CertificateBatcher.BatchBuild failing = certificates -> {
+            throw new IllegalStateException("on-chain state exhausted");
+        };
+
+        Future<BuildTransactionResponse> first = executor.submit(() -> batcher.submit("key", certificates("a"), 10, failing));
+        Future<BuildTransactionResponse> second = executor.submit(() -> batcher.submit("key", certificates("b"), 10, failing));
+
+        assertEquals(BuildStatusCode.UNKNOWN_ERROR, first.get(5, TimeUnit.SECONDS).getStatus().getCode());
+        assertEquals(BuildStatusCode.UNKNOWN_ERROR, second.get(5, TimeUnit.SECONDS).getStatus().getCode());
+    }
+
+    @Test
+    void dropsCallersWhoseBatchDidNotStartInTime() throws Exception {
+        CertificateBatcher batcher = new CertificateBatcher(true, 60_000, 100, new SimpleMeterRegistry());
+
+        BuildTransactionResponse timedOut = batcher.submit("key", certificates("a"), 2, this::build);
+        assertEquals(BuildStatusCode.ERROR, timedOut.getStatus().getCode());
+        assertNull(timedOut.getUnsignedTransaction());
+
+        Future<BuildTransactionResponse> first = executor.submit(() -> batcher.submit("key", certificates("b"), 2, this::build));
+        Future<BuildTransactionResponse> second = executor.submit(() -> batcher.submit("key", certificates("c"), 2, this::build));
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+
+        assertEquals(1, builds.size());
+        assertEquals(List.of("b", "c"), builds.get(0).stream().map(UVerifyCertificate::getHash).sorted().toList());
+    }
+
+    @Test
+    void waitsForTheResultOnceTheBuildStarted() throws Exception {
+        CertificateBatcher batcher = new CertificateBatcher(true, 10, 100, new SimpleMeterRegistry());
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CertificateBatcher.BatchBuild slow = certificates -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+            return build(certificates);
+        };
+
+        Future<BuildTransactionResponse> response = executor.submit(() -> batcher.submit("key", certificates("a"), 10, slow));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Thread.sleep(200);
+        release.countDown();
+
+        assertEquals(BuildStatusCode.SUCCESS, response.get(5, TimeUnit.SECONDS).getStatus().getCode());
+        assertEquals("tx-1", response.get().getUnsignedTransaction());
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * UVerify Backend
+ * Copyright (C) 2025 Fabian Bormann
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.uverify.backend.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.uverify.backend.repository.CertificateRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CertificateHashFilterTest {
+
+    private CertificateRepository certificateRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private CertificateHashFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        certificateRepository = mock(CertificateRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new CertificateHashFilter(certificateRepository, mock(PlatformTransactionManager.class),
+                meterRegistry, true, 1_000, 0.01);
+    }
+
+    @Test
+    void passesEverythingThroughUntilBuilt() {
+        assertTrue(filter.mightContain("never-certified"));
+    }
+
+    @Test
+    void answersAbsentHashesAfterBuild() {
+        when(certificateRepository.count()).thenReturn(2L);
+        when(certificateRepository.streamAllHashes()).thenReturn(Stream.of("hash-a", "hash-b"));
+
+        filter.rebuild();
+
+        assertTrue(filter.mightContain("hash-a"));
+        assertTrue(filter.mightContain("hash-b"));
+        assertFalse(filter.mightContain("never-certified"));
+        assertEquals(1.0, meterRegistry.get("uverify.certificate.bloom.lookups")
+                .tag("result", "absent").counter().count());
+        assertTrue(meterRegistry.get("uverify.certificate.bloom.memory").gauge().value() > 0);
+    }
+
+    @Test
+    void keepsIndexedHashesTheTableScanDidNotSee() {
+        when(certificateRepository.count()).thenReturn(0L);
+        when(certificateRepository.streamAllHashes()).thenReturn(Stream.empty());
+        filter.rebuild();
+
+        // Added by the indexer but only committed after the next rebuild streamed the table
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            filter.addAll(List.of("hash-uncommitted"));
+            when(certificateRepository.streamAllHashes()).thenAnswer(invocation -> {
+                TransactionSynchronizationManager.getSynchronizations()
+                        .forEach(TransactionSynchronization::afterCommit);
+                return Stream.empty();
+            });
+            filter.rebuild();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertTrue(filter.mightContain("hash-uncommitted"));
+    }
+
+    @Test
+    void dropsHashesMissingFromTheTableOnRebuild() {
+        when(certificateRepository.count()).thenReturn(0L);
+        when(certificateRepository.streamAllHashes()).thenReturn(Stream.empty(), Stream.empty());
+        filter.rebuild();
+
+        // Indexed outside of a rebuild and rolled back before the next one
+        filter.addAll(List.of("hash-rolled-back"));
+        assertTrue(filter.mightContain("hash-rolled-back"));
+        filter.rebuild();
+
+        assertFalse(filter.mightContain("hash-rolled-back"));
+    }
+
+    @Test
+    void reportsObservedFalsePositiveRate() {
+        when(certificateRepository.count()).thenReturn(0L);
+        when(certificateRepository.streamAllHashes()).thenReturn(Stream.empty());
+        filter.rebuild();
+
+        filter.mightContain("absent");
+        filter.recordLookup(false);
+
+        assertEquals(0.5, meterRegistry.get("uverify.certificate.bloom.false.positive.rate").gauge().value());
+    }
+}
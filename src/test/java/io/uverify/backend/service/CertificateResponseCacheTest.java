@@ -0,0 +1,93 @@
+/*
+ * UVerify Backend
+ * Copyright (C) 2025 Fabian Bormann
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.uverify.backend.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.uverify.backend.dto.CertificateResponse;
+import io.uverify.backend.dto.CertificateView;
+import io.uverify.backend.entity.CertificateExtraFields;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CertificateResponseCacheTest {
+
+    private static final String HASH = "a591a6d40bf420404a011733cfb7b190d62c65bf0bcda32b57b277d9ad9f146e";
+
+    private SimpleMeterRegistry meterRegistry;
+    private CertificateResponseCache cache;
+    private AtomicInteger loads;
+    private Function<String, List<CertificateView>> loader;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new CertificateResponseCache("PREPROD", 100, meterRegistry);
+        loads = new AtomicInteger();
+        loader = hash -> {
+            loads.incrementAndGet();
+            return List.of(new CertificateView(hash, "3f9ff01fd67fcf42cb64f004f13306bd4bfd651154aedcb0dd68dd87",
+                    "block", 1L, "tx", new Date(1745006677000L), 1L, "{}",
+                    CertificateExtraFields.fromExtra("{}"), "bootstrap"));
+        };
+    }
+
+    @Test
+    void servesRepeatedLookupsFromTheCache() {
+        List<CertificateResponse> first = cache.get(HASH, loader);
+        List<CertificateResponse> second = cache.get(HASH, loader);
+
+        assertEquals(1, loads.get());
+        assertEquals(first, second);
+        assertTrue(first.get(0).getIssuer().startsWith("addr_test"));
+        assertEquals("bootstrap", first.get(0).getBootstrapTokenName());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "certificate-responses")
+                .tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    void invalidationForcesReload() {
+        cache.get(HASH, loader);
+        cache.invalidate(List.of(HASH));
+        cache.get(HASH, loader);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void unknownHashesAreCachedUntilInvalidated() {
+        Function<String, List<CertificateView>> emptyLoader = hash -> {
+            loads.incrementAndGet();
+            return List.of();
+        };
+        assertTrue(cache.get("unknown", emptyLoader).isEmpty());
+        assertTrue(cache.get("unknown", emptyLoader).isEmpty());
+        assertEquals(1, loads.get());
+
+        cache.invalidate(List.of("unknown"));
+        assertEquals(1, cache.get("unknown", loader).size());
+    }
+}
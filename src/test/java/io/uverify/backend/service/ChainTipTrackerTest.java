@@ -0,0 +1,105 @@
+/*
+ * UVerify Backend
+ * Copyright (C) 2025 Fabian Bormann
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.uverify.backend.service;
+
+import com.bloxbean.cardano.client.api.model.Result;
+import com.bloxbean.cardano.client.backend.api.BackendService;
+import com.bloxbean.cardano.client.backend.api.BlockService;
+import com.bloxbean.cardano.client.backend.model.Block;
+import com.bloxbean.cardano.yaci.core.protocol.chainsync.messages.Point;
+import com.bloxbean.cardano.yaci.store.events.RollbackEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ChainTipTrackerTest {
+
+    private static final long NOW = 1_750_000_000L;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ChainTipTracker tracker;
+    private BackendService backendService;
+    private BlockService blockService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        meterRegistry = new SimpleMeterRegistry();
+        tracker = new ChainTipTracker(300, meterRegistry,
+                Clock.fixed(Instant.ofEpochSecond(NOW), ZoneOffset.UTC));
+        backendService = mock(BackendService.class);
+        blockService = mock(BlockService.class);
+        when(backendService.getBlockService()).thenReturn(blockService);
+        Block providerTip = new Block();
+        providerTip.setSlot(999L);
+        Result<Block> result = Result.success("ok").withValue(providerTip);
+        when(blockService.getLatestBlock()).thenReturn(result);
+    }
+
+    @Test
+    void servesRecentTipFromMemory() throws Exception {
+        tracker.update(500L, NOW - 20);
+
+        assertEquals(500L, tracker.getLatestSlot(backendService));
+        verify(blockService, never()).getLatestBlock();
+        assertEquals(20.0, meterRegistry.get("uverify.chain.tip.age").gauge().value());
+    }
+
+    @Test
+    void fallsBackToProviderWithoutTip() throws Exception {
+        assertEquals(999L, tracker.getLatestSlot(backendService));
+        assertTrue(Double.isNaN(meterRegistry.get("uverify.chain.tip.age").gauge().value()));
+    }
+
+    @Test
+    void fallsBackToProviderWhenIndexerIsBehind() throws Exception {
+        tracker.update(500L, NOW - 3600);
+
+        assertEquals(999L, tracker.getLatestSlot(backendService));
+    }
+
+    @Test
+    void ignoresOlderBlocks() throws Exception {
+        tracker.update(500L, NOW - 20);
+        tracker.update(400L, NOW - 40);
+
+        assertEquals(500L, tracker.getLatestSlot(backendService));
+    }
+
+    @Test
+    void rollbackLowersTip() throws Exception {
+        tracker.update(500L, NOW - 20);
+        RollbackEvent rollbackEvent = mock(RollbackEvent.class);
+        when(rollbackEvent.getRollbackTo()).thenReturn(new Point(450L, "hash"));
+
+        tracker.onRollback(rollbackEvent);
+
+        assertEquals(450L, tracker.getLatestSlot(backendService));
+    }
+}
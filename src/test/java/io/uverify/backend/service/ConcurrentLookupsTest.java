@@ -0,0 +1,109 @@
+/*
+ * UVerify Backend
+ * Copyright (C) 2025 Fabian Bormann
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.uverify.backend.service;
+
+import com.bloxbean.cardano.client.api.exception.ApiException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrentLookupsTest {
+
+    private final ConcurrentLookups concurrentLookups = new ConcurrentLookups(Duration.ofSeconds(5));
+
+    @Test
+    void runsLookupsConcurrently() throws ApiException {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        ConcurrentLookups.Lookup<String> waitForSibling = () -> {
+            bothStarted.countDown();
+            // Only completes if the sibling lookup runs at the same time.
+            if (!bothStarted.await(2, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("lookups ran sequentially");
+            }
+            return "done";
+        };
+
+        try (ConcurrentLookups.Phase phase = concurrentLookups.open("test")) {
+            ConcurrentLookups.Forked<String> first = phase.fork(waitForSibling);
+            ConcurrentLookups.Forked<String> second = phase.fork(waitForSibling);
+            phase.join();
+
+            assertEquals("done", first.get());
+            assertEquals("done", second.get());
+        }
+    }
+
+    @Test
+    void failureCancelsSiblings() throws InterruptedException {
+        CountDownLatch siblingStarted = new CountDownLatch(1);
+        CountDownLatch siblingInterrupted = new CountDownLatch(1);
+
+        try (ConcurrentLookups.Phase phase = concurrentLookups.open("test")) {
+            phase.fork(() -> {
+                siblingStarted.countDown();
+                try {
+                    Thread.sleep(Duration.ofSeconds(30));
+                } catch (InterruptedException interruptedException) {
+                    siblingInterrupted.countDown();
+                }
+                return null;
+            });
+            phase.fork(() -> {
+                siblingStarted.await();
+                throw new IllegalStateException("on-chain state exhausted");
+            });
+
+            IllegalStateException exception = assertThrows(IllegalStateException.class, phase::join);
+            assertEquals("on-chain state exhausted", exception.getMessage());
+        }
+        assertTrue(siblingInterrupted.await(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void checkedFailuresSurfaceAsApiException() {
+        try (ConcurrentLookups.Phase phase = concurrentLookups.open("test")) {
+            phase.fork(() -> {
+                throw new ApiException("provider unavailable");
+            });
+
+            ApiException exception = assertThrows(ApiException.class, phase::join);
+            assertEquals("provider unavailable", exception.getMessage());
+        }
+    }
+
+    @Test
+    void phaseTimesOut() {
+        ConcurrentLookups shortTimeout = new ConcurrentLookups(Duration.ofMillis(50));
+
+        try (ConcurrentLookups.Phase phase = shortTimeout.open("slow")) {
+            phase.fork(() -> {
+                Thread.sleep(Duration.ofSeconds(30));
+                return null;
+            });
+
+            assertThrows(ApiException.class, phase::join);
+        }
+    }
+}
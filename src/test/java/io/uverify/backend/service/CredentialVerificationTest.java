@@ -22,6 +22,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import io.uverify.backend.config.AsyncConfig;
 import io.uverify.backend.dto.CredentialResponse;
+import io.uverify.backend.entity.CertificateExtraFields;
 import io.uverify.backend.entity.UVerifyCertificateEntity;
 import io.uverify.backend.entity.UVerifyCredentialEntity;
 import io.uverify.backend.repository.CredentialRepository;
@@ -283,6 +284,7 @@ class CredentialVerificationTest {
         return UVerifyCertificateEntity.builder()
                 .hash("cert-" + System.nanoTime())
                 .extra(extra)
+                .extraFields(CertificateExtraFields.fromExtra(extra))
                 .paymentCredential(PAYMENT_CREDENTIAL)
                 .transactionId("tx-hash")
                 .slot(200L)
@@ -0,0 +1,126 @@
+/*
+ * UVerify Backend
+ * Copyright (C) 2025 Fabian Bormann
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.uverify.backend.service;
+
+import com.bloxbean.cardano.client.account.Account;
+import com.bloxbean.cardano.client.api.exception.ApiException;
+import com.bloxbean.cardano.client.api.model.Amount;
+import com.bloxbean.cardano.client.api.model.Result;
+import com.bloxbean.cardano.client.api.model.Utxo;
+import com.bloxbean.cardano.client.backend.api.BackendService;
+import com.bloxbean.cardano.client.backend.api.UtxoService;
+import com.bloxbean.cardano.client.common.model.Networks;
+import io.uverify.backend.entity.LibraryEntity;
+import io.uverify.backend.repository.LibraryRepository;
+import io.uverify.backend.util.ValidatorHelper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class LibraryServiceTest {
+
+    private static final String PROXY_SCRIPT_HASH = "1".repeat(56);
+    private static final String STATE_SCRIPT_HASH = "2".repeat(56);
+
+    private LibraryRepository libraryRepository;
+    private BackendService backendService;
+    private LibraryService libraryService;
+
+    @BeforeEach
+    void setUp() {
+        libraryRepository = mock(LibraryRepository.class);
+        ValidatorHelper validatorHelper = mock(ValidatorHelper.class);
+        when(validatorHelper.getProxyScriptHash()).thenReturn(PROXY_SCRIPT_HASH);
+
+        backendService = mock(BackendService.class);
+        libraryService = new LibraryService(new Account(Networks.preprod()).baseAddress(), "PREPROD", backendService,
+                validatorHelper, libraryRepository, mock(ProtocolParamsCache.class));
+    }
+
+    @Test
+    void buildsReferenceUtxosFromTheLibraryTable() {
+        givenEntries(entry(PROXY_SCRIPT_HASH, "a".repeat(64), 0, true),
+                entry(STATE_SCRIPT_HASH, "b".repeat(64), 1, true));
+
+        Utxo proxyUtxo = libraryService.getProxyLibraryUtxo();
+        Utxo stateUtxo = libraryService.getStateLibraryUtxo();
+
+        assertEquals("a".repeat(64), proxyUtxo.getTxHash());
+        assertEquals(0, proxyUtxo.getOutputIndex());
+        assertEquals(PROXY_SCRIPT_HASH, proxyUtxo.getReferenceScriptHash());
+        assertEquals("addr_test1library", proxyUtxo.getAddress());
+        assertEquals(List.of(Amount.lovelace(BigInteger.valueOf(12_000_000))), proxyUtxo.getAmount());
+        assertEquals("d87980", proxyUtxo.getInlineDatum());
+        assertEquals(STATE_SCRIPT_HASH, stateUtxo.getReferenceScriptHash());
+        verifyNoInteractions(backendService);
+    }
+
+    @Test
+    void completesLegacyEntriesOnceThroughTheProvider() throws ApiException {
+        LibraryEntity legacyProxy = entry(PROXY_SCRIPT_HASH, "a".repeat(64), 0, false);
+        givenEntries(legacyProxy, entry(STATE_SCRIPT_HASH, "b".repeat(64), 1, true));
+        Utxo onChain = Utxo.builder()
+                .txHash("a".repeat(64))
+                .outputIndex(0)
+                .address("addr_test1library")
+                .amount(List.of(Amount.lovelace(BigInteger.valueOf(15_000_000))))
+                .inlineDatum("d87980")
+                .referenceScriptHash(PROXY_SCRIPT_HASH)
+                .build();
+        UtxoService utxoService = mock(UtxoService.class);
+        when(backendService.getUtxoService()).thenReturn(utxoService);
+        when(utxoService.getTxOutput("a".repeat(64), 0)).thenReturn(Result.success("ok").withValue(onChain));
+
+        assertSame(onChain, libraryService.getProxyLibraryUtxo());
+        assertEquals("addr_test1library", legacyProxy.getAddress());
+        assertEquals(15_000_000L, legacyProxy.getLovelace());
+        verify(libraryRepository).save(legacyProxy);
+    }
+
+    private void givenEntries(LibraryEntity proxyEntry, LibraryEntity stateEntry) {
+        when(libraryRepository.findFirstByHash(PROXY_SCRIPT_HASH)).thenReturn(Optional.of(proxyEntry));
+        when(libraryRepository.getLatestScript(anyString())).thenReturn(Optional.of(stateEntry));
+    }
+
+    private static LibraryEntity entry(String hash, String transactionId, int outputIndex, boolean withOutput) {
+        LibraryEntity.LibraryEntityBuilder builder = LibraryEntity.builder()
+                .hash(hash)
+                .compiledCode("4e4d01000033222220051200120011")
+                .slot(1L)
+                .transactionId(transactionId)
+                .outputIndex(outputIndex);
+        if (withOutput) {
+            builder.address("addr_test1library")
+                    .lovelace(12_000_000L)
+                    .inlineDatum("d87980");
+        }
+        return builder.build();
+    }
+}
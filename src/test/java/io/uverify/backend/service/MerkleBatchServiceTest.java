@@ -0,0 +1,213 @@
+/*
+ * UVerify Backend
+ * Copyright (C) 2025 Fabian Bormann
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.uverify.backend.service;
+
+import com.bloxbean.cardano.client.util.HexUtil;
+import com.bloxbean.cardano.yaci.store.events.EventMetadata;
+import com.bloxbean.cardano.yaci.store.events.internal.CommitEvent;
+import io.uverify.backend.dto.CertificateResponse;
+import io.uverify.backend.dto.InclusionProof;
+import io.uverify.backend.entity.UVerifyCertificateEntity;
+import io.uverify.backend.repository.MerkleTreeRepository;
+import io.uverify.backend.repository.MerkleTreeRepository.LeafPosition;
+import io.uverify.backend.repository.MerkleTreeRepository.StoredTree;
+import io.uverify.backend.util.MerkleTree;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MerkleBatchServiceTest {
+
+    private static final List<String> LEAVES = IntStream.range(0, 11)
+            .mapToObj(i -> String.format("%064X", i + 1))
+            .toList();
+
+    private final MerkleTreeRepository merkleTreeRepository = mock(MerkleTreeRepository.class);
+    private final UVerifyCertificateService uVerifyCertificateService = mock(UVerifyCertificateService.class);
+    private final AtomicReference<MerkleTree> stored = new AtomicReference<>();
+    private final MerkleLeafFilter merkleLeafFilter = mock(MerkleLeafFilter.class);
+    private PendingMerkleTrees pendingMerkleTrees;
+    private MerkleBatchService merkleBatchService;
+
+    @BeforeEach
+    void setUp() {
+        doAnswer(invocation -> {
+            stored.set(invocation.getArgument(0));
+            return null;
+        }).when(merkleTreeRepository).savePending(any(), anyList(), anyString(), any());
+        when(merkleTreeRepository.findNodes(anyString(), any())).thenAnswer(invocation -> {
+            int[] indexes = invocation.getArgument(1);
+            List<byte[]> nodes = new ArrayList<>();
+            for (int level = 0; level < indexes.length; level++) {
+                byte[] nodesOfLevel = stored.get().getLevels().get(level);
+                nodes.add(indexes[level] < 0 ? null : Arrays.copyOfRange(nodesOfLevel,
+                        indexes[level] * MerkleTree.NODE_SIZE, (indexes[level] + 1) * MerkleTree.NODE_SIZE));
+            }
+            return nodes;
+        });
+        when(merkleLeafFilter.mightContain(anyString())).thenReturn(true);
+        pendingMerkleTrees = new PendingMerkleTrees(merkleTreeRepository, merkleLeafFilter);
+        merkleBatchService = new MerkleBatchService(merkleTreeRepository, uVerifyCertificateService, pendingMerkleTrees, merkleLeafFilter);
+    }
+
+    private MerkleTree anchor(List<String> leaves) {
+        MerkleBatchService.MerkleBatch batch = merkleBatchService.build(leaves);
+        pendingMerkleTrees.register("tx", 200L, batch.tree(), batch.leaves());
+        return batch.tree();
+    }
+
+    private static UVerifyCertificateEntity rootCertificate(String hash, String transactionId, long slot) {
+        UVerifyCertificateEntity certificate = new UVerifyCertificateEntity();
+        certificate.setHash(hash);
+        certificate.setTransactionId(transactionId);
+        certificate.setSlot(slot);
+        return certificate;
+    }
+
+    private static byte[] recompute(InclusionProof proof) {
+        return MerkleTree.computeRoot(HexUtil.decodeHexString(proof.getLeaf()),
+                proof.getPath().stream().map(step -> HexUtil.decodeHexString(step.getHash())).toList(),
+                proof.getPath().stream().map(step -> step.getPosition() == InclusionProof.Position.LEFT).toList());
+    }
+
+    @Test
+    void resolvesEveryLeafToTheRootCertificateWithAValidProof() {
+        MerkleTree tree = anchor(LEAVES);
+        String root = tree.getRootHex();
+        CertificateResponse rootCertificate = new CertificateResponse();
+        rootCertificate.setHash(root);
+        rootCertificate.setTransactionHash("tx");
+        when(uVerifyCertificateService.getCertificateResponsesByHash(root)).thenReturn(List.of(rootCertificate));
+
+        for (int index = 0; index < LEAVES.size(); index++) {
+            String leaf = LEAVES.get(index).toLowerCase();
+            when(merkleTreeRepository.findLeafPositions(leaf))
+                    .thenReturn(List.of(new LeafPosition(root, index, LEAVES.size())));
+
+            List<CertificateResponse> responses = merkleBatchService.getCertificateResponsesByLeafHash(LEAVES.get(index));
+
+            assertEquals(1, responses.size());
+            CertificateResponse response = responses.get(0);
+            assertEquals(root, response.getHash());
+            assertEquals("tx", response.getTransactionHash());
+            InclusionProof proof = response.getInclusionProof();
+            assertEquals(leaf, proof.getLeaf());
+            assertEquals(index, proof.getLeafIndex());
+            assertArrayEquals(tree.getRoot(), recompute(proof));
+        }
+        // The cached root certificate is left untouched.
+        assertNull(rootCertificate.getInclusionProof());
+    }
+
+    @Test
+    void skipsRootsThatAreNotIndexed() {
+        MerkleTree tree = anchor(LEAVES);
+        String leaf = LEAVES.get(0).toLowerCase();
+        when(merkleTreeRepository.findLeafPositions(leaf))
+                .thenReturn(List.of(new LeafPosition(tree.getRootHex(), 0, LEAVES.size())));
+        when(uVerifyCertificateService.getCertificateResponsesByHash(anyString())).thenReturn(List.of());
+
+        assertTrue(merkleBatchService.getCertificateResponsesByLeafHash(leaf).isEmpty());
+    }
+
+    @Test
+    void skipsTheLeafQueryForHashesTheFilterRulesOut() {
+        when(merkleLeafFilter.mightContain("ab01")).thenReturn(false);
+
+        assertTrue(merkleBatchService.getCertificateResponsesByLeafHash("AB01").isEmpty());
+        verify(merkleTreeRepository, never()).findLeafPositions(anyString());
+    }
+
+    @Test
+    void buildNormalizesAndDeduplicatesLeaves() {
+        List<String> leaves = List.of("AB01", "ab01", "cd02");
+        MerkleTree tree = merkleBatchService.build(leaves).tree();
+
+        assertEquals(2, tree.getLeafCount());
+        assertEquals(List.of("ab01", "cd02"), MerkleBatchService.normalize(leaves));
+    }
+
+    @Test
+    void buildRejectsInvalidHashes() {
+        assertThrows(IllegalArgumentException.class, () -> merkleBatchService.build(List.of()));
+        assertThrows(IllegalArgumentException.class, () -> merkleBatchService.build(List.of("not-hex")));
+        assertThrows(IllegalArgumentException.class, () -> merkleBatchService.build(List.of("abc")));
+    }
+
+    @Test
+    void storesTheTreeAsPendingWhenItIsBuilt() {
+        MerkleBatchService.MerkleBatch batch = merkleBatchService.build(LEAVES);
+
+        pendingMerkleTrees.register("tx", 200L, batch.tree(), batch.leaves());
+
+        verify(merkleTreeRepository).savePending(batch.tree(), batch.leaves(), "tx", 200L);
+        verify(merkleLeafFilter).addAll(batch.leaves());
+    }
+
+    @Test
+    void anchorsEveryPendingRootOfAnIndexedTransaction() {
+        String first = merkleBatchService.build(LEAVES).tree().getRootHex();
+        String second = merkleBatchService.build(LEAVES.subList(0, 5)).tree().getRootHex();
+        when(merkleTreeRepository.findPendingTrees(anyCollection())).thenReturn(List.of(
+                new StoredTree(first, "tx"), new StoredTree(second, "tx"), new StoredTree(first, "other")));
+
+        pendingMerkleTrees.persistIndexed(List.of(
+                rootCertificate(first.toUpperCase(), "tx", 100L),
+                rootCertificate(second, "tx", 100L),
+                rootCertificate("ab01", "other", 100L)));
+
+        verify(merkleTreeRepository).findPendingTrees(List.of("tx", "other"));
+        verify(merkleTreeRepository).markAnchored(first, "tx", 100L);
+        verify(merkleTreeRepository).markAnchored(second, "tx", 100L);
+        verify(merkleTreeRepository, never()).markAnchored(first, "other", 100L);
+    }
+
+    @Test
+    void rolledBackTreesBecomePendingAgain() {
+        pendingMerkleTrees.rollbackToSlot(50L);
+
+        verify(merkleTreeRepository).unanchorAfterSlot(50L);
+    }
+
+    @Test
+    void deletesExpiredPendingTreesOnCommit() {
+        CommitEvent commitEvent = mock(CommitEvent.class);
+        when(commitEvent.getMetadata()).thenReturn(EventMetadata.builder().slot(300L).build());
+
+        pendingMerkleTrees.deleteExpiredTrees(commitEvent);
+
+        verify(merkleTreeRepository).deleteExpiredPending(300L);
+    }
+}
@@ -0,0 +1,451 @@
+/*
+ * UVerify Backend
+ * Copyright (C) 2025 Fabian Bormann
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.uverify.backend.service;
+
+import com.bloxbean.cardano.client.account.Account;
+import com.bloxbean.cardano.client.backend.api.BackendService;
+import com.bloxbean.cardano.client.common.model.Networks;
+import com.bloxbean.cardano.client.crypto.Blake2bUtil;
+import com.bloxbean.cardano.client.plutus.spec.BigIntPlutusData;
+import com.bloxbean.cardano.client.plutus.spec.BytesPlutusData;
+import com.bloxbean.cardano.client.plutus.spec.ConstrPlutusData;
+import com.bloxbean.cardano.client.plutus.spec.ListPlutusData;
+import com.bloxbean.cardano.client.util.HexUtil;
+import com.bloxbean.cardano.yaci.core.model.Amount;
+import com.bloxbean.cardano.yaci.core.model.Datum;
+import com.bloxbean.cardano.yaci.core.model.Redeemer;
+import com.bloxbean.cardano.yaci.core.model.RedeemerTag;
+import com.bloxbean.cardano.yaci.core.model.TransactionBody;
+import com.bloxbean.cardano.yaci.core.model.TransactionOutput;
+import com.bloxbean.cardano.yaci.core.model.VkeyWitness;
+import com.bloxbean.cardano.yaci.core.model.Witnesses;
+import com.bloxbean.cardano.yaci.helper.model.Transaction;
+import com.bloxbean.cardano.yaci.helper.model.Utxo;
+import com.bloxbean.cardano.yaci.store.common.domain.AddressUtxo;
+import com.bloxbean.cardano.yaci.store.events.BlockHeaderEvent;
+import com.bloxbean.cardano.yaci.store.events.EventMetadata;
+import com.bloxbean.cardano.yaci.store.events.TransactionEvent;
+import com.bloxbean.cardano.yaci.store.utxo.storage.impl.UtxoCache;
+import com.bloxbean.cardano.yaci.store.utxo.storage.impl.repository.TxInputRepository;
+import com.bloxbean.cardano.yaci.store.utxo.storage.impl.repository.UtxoRepository;
+import io.uverify.backend.entity.BootstrapDatumEntity;
+import io.uverify.backend.entity.StateDatumEntity;
+import io.uverify.backend.enums.CardanoNetwork;
+import io.uverify.backend.enums.UVerifyScriptPurpose;
+import io.uverify.backend.extension.ExtensionManager;
+import io.uverify.backend.model.StateDatum;
+import io.uverify.backend.model.StateRedeemer;
+import io.uverify.backend.model.UVerifyCertificate;
+import io.uverify.backend.simulation.SimulationUtils;
+import io.uverify.backend.storage.UVerifyStorage;
+import io.uverify.backend.util.ImmutableQueryCache;
+import io.uverify.backend.util.UVerifyMatchContext;
+import io.uverify.backend.util.ValidatorHelper;
+import io.uverify.backend.util.ValidatorUtils;
+import jakarta.persistence.EntityManager;
+import org.jooq.DSLContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Replays the same chain segment through the sequential and the parallel
+ * indexing path and compares the rows both leave behind. The segment mixes
+ * proxy transactions, a library upgrade that changes which later blocks
+ * match, and legacy state outputs stored through {@link UVerifyStorage}.
+ */
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = "store.sync-auto-start=false")
+@ActiveProfiles("h2")
+class ParallelIndexingReplayTest {
+
+    private static final String PROXY_POLICY = "aa".repeat(28);
+    private static final String PROXY_ADDRESS = "addr_test1proxy";
+    private static final String LIBRARY_ADDRESS = "addr_test1library";
+    private static final String LEGACY_ADDRESS = "addr_test1legacy";
+    private static final String STATE_REWARD_V1 = "f0" + "11".repeat(28);
+    private static final String STATE_REWARD_V2 = "f0" + "22".repeat(28);
+    private static final String SERVICE_VKEY = "33".repeat(32);
+    private static final String OWNER = "44".repeat(28);
+
+    private static final String PROXY_BOOTSTRAP = "replay-proxy";
+    private static final String LEGACY_BOOTSTRAP = "replay-legacy";
+    private static final String PROXY_STATE = "55".repeat(32);
+    private static final String LEGACY_STATE = "66".repeat(32);
+
+    private final Account serviceAccount = new Account(Networks.testnet());
+
+    @Autowired
+    private UVerifyCertificateService uVerifyCertificateService;
+    @Autowired
+    private BootstrapDatumService bootstrapDatumService;
+    @Autowired
+    private StateDatumService stateDatumService;
+    @Autowired
+    private UtxoRepository utxoRepository;
+    @Autowired
+    private TxInputRepository txInputRepository;
+    @Autowired
+    private DSLContext dsl;
+    @Autowired
+    private UtxoCache utxoCache;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void parallelReplayMatchesSequentialSync() {
+        Map<String, List<Map<String, Object>>> sequential = replay((service, storage) -> {
+            storage.trackSyncMode(header(false));
+            for (Block block : chainSegment(false)) {
+                storage.saveUnspent(block.addressUtxos());
+                service.processTransactionEvent(block.transactionEvent());
+            }
+        });
+
+        List<Block> parallelBlocks = new ArrayList<>(chainSegment(true));
+        Collections.reverse(parallelBlocks);
+        Map<String, List<Map<String, Object>>> parallel = replay((service, storage) -> {
+            storage.trackSyncMode(header(true));
+            ExecutorService executor = Executors.newFixedThreadPool(parallelBlocks.size() * 2);
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (Block block : parallelBlocks) {
+                    futures.add(executor.submit(() -> storage.saveUnspent(block.addressUtxos())));
+                    futures.add(executor.submit(() -> service.processTransactionEvent(block.transactionEvent())));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            } finally {
+                executor.shutdown();
+            }
+            service.applyBufferedTransactions();
+        });
+
+        assertEquals(List.of(
+                Map.of("ID", LEGACY_STATE, "COUNTDOWN", 3, "TRANSACTION_ID", "legacy40"),
+                Map.of("ID", PROXY_STATE, "COUNTDOWN", 7, "TRANSACTION_ID", "tx30b")), sequential.get("state_datum"));
+        assertEquals(List.of(hash(10), hash(20), hash(21), hash(30), hash(31), hash(40)),
+                sequential.get("uverify_certificate").stream().map(row -> row.get("HASH")).toList());
+        assertEquals(sequential, parallel);
+    }
+
+    @Test
+    void rollbackDropsBufferedWritesAfterTheSlot() {
+        Map<String, List<Map<String, Object>>> rows = replay((service, storage) -> {
+            storage.trackSyncMode(header(true));
+            for (Block block : chainSegment(true)) {
+                storage.saveUnspent(block.addressUtxos());
+                service.processTransactionEvent(block.transactionEvent());
+            }
+            service.handleRollbackToSlot(15);
+            service.applyBufferedTransactions();
+        });
+
+        assertEquals(List.of(Map.of("ID", PROXY_STATE, "COUNTDOWN", 9, "TRANSACTION_ID", "tx10")), rows.get("state_datum"));
+        assertEquals(List.of(hash(10)), rows.get("uverify_certificate").stream().map(row -> row.get("HASH")).toList());
+        assertEquals(List.of(LEGACY_BOOTSTRAP, PROXY_BOOTSTRAP),
+                rows.get("bootstrap_datum").stream().map(row -> row.get("TOKEN_NAME")).toList());
+    }
+
+    private interface Feed {
+        void accept(CardanoBlockchainService service, UVerifyStorage storage);
+    }
+
+    private record Block(List<AddressUtxo> addressUtxos, TransactionEvent transactionEvent) {
+    }
+
+    /**
+     * Runs the feed in a transaction that is rolled back afterwards, so every
+     * replay starts from the same tables, and returns the rows it wrote.
+     */
+    private Map<String, List<Map<String, Object>>> replay(Feed feed) {
+        UVerifyMatchContext initial = matchContext(Set.of(STATE_REWARD_V1));
+        UVerifyMatchContext upgraded = matchContext(Set.of(STATE_REWARD_V1, STATE_REWARD_V2));
+        AtomicReference<UVerifyMatchContext> current = new AtomicReference<>(initial);
+
+        LibraryService libraryService = mock(LibraryService.class);
+        when(libraryService.getMatchContext()).thenAnswer(invocation -> current.get());
+        doAnswer(invocation -> {
+            current.set(upgraded);
+            return null;
+        }).when(libraryService).deployToLibrary(any(), any());
+
+        CardanoBlockchainService service = new CardanoBlockchainService(
+                serviceAccount.baseAddress(), "PREPROD", mock(BackendService.class), mock(BackendService.class),
+                uVerifyCertificateService, mock(ValidatorHelper.class),
+                bootstrapDatumService, stateDatumService,
+                libraryService, new PendingTransactionCache(Duration.ofMinutes(15)),
+                mock(UsageStatisticsRecorder.class), mock(ChainTipTracker.class),
+                mock(ProtocolParamsCache.class), mock(ConcurrentLookups.class),
+                mock(StateBuildLocks.class), mock(StateStripeSelector.class),
+                mock(ImmutableQueryCache.class));
+        UVerifyStorage storage = new UVerifyStorage(utxoRepository, txInputRepository, dsl, utxoCache, transactionManager,
+                service, mock(ExtensionManager.class), mock(ValidatorHelper.class));
+
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            seedProxyState();
+            feed.accept(service, storage);
+            entityManager.flush();
+            Map<String, List<Map<String, Object>>> rows = new LinkedHashMap<>();
+            rows.put("bootstrap_datum", jdbcTemplate.queryForList(
+                    "SELECT token_name, transaction_id, creation_slot, version FROM bootstrap_datum " +
+                    "WHERE token_name IN (?, ?) ORDER BY token_name", LEGACY_BOOTSTRAP, PROXY_BOOTSTRAP));
+            rows.put("state_datum", jdbcTemplate.queryForList(
+                    "SELECT id, countdown, transaction_id FROM state_datum WHERE id IN (?, ?) ORDER BY id",
+                    LEGACY_STATE, PROXY_STATE));
+            rows.put("state_datum_update", jdbcTemplate.queryForList(
+                    "SELECT state_datum_id, slot, countdown, transaction_id FROM state_datum_update " +
+                    "WHERE state_datum_id IN (?, ?) ORDER BY state_datum_id, slot", LEGACY_STATE, PROXY_STATE));
+            rows.put("uverify_certificate", jdbcTemplate.queryForList(
+                    "SELECT hash, transaction_id, slot, state_datum_id FROM uverify_certificate " +
+                    "WHERE state_datum_id IN (?, ?) ORDER BY hash", LEGACY_STATE, PROXY_STATE));
+            status.setRollbackOnly();
+            return rows;
+        });
+    }
+
+    private void seedProxyState() {
+        BootstrapDatumEntity bootstrapDatum = BootstrapDatumEntity.builder()
+                .allowedCredentials(new ArrayList<>())
+                .feeReceivers(new ArrayList<>())
+                .tokenName(PROXY_BOOTSTRAP)
+                .fee(0)
+                .feeInterval(1)
+                .ttl(0L)
+                .transactionLimit(10)
+                .creationSlot(1L)
+                .transactionId("tx1")
+                .batchSize(1)
+                .version(2)
+                .build();
+        bootstrapDatumService.save(bootstrapDatum);
+        stateDatumService.updateStateDatum(StateDatumEntity.builder()
+                .id(PROXY_STATE)
+                .owner(OWNER)
+                .countdown(10)
+                .creationSlot(5L)
+                .transactionId("tx5")
+                .bootstrapDatum(bootstrapDatum)
+                .version(2)
+                .build(), 5L);
+    }
+
+    private UVerifyMatchContext matchContext(Set<String> stateRewardAddresses) {
+        return new UVerifyMatchContext("", 0, PROXY_POLICY, PROXY_ADDRESS, LIBRARY_ADDRESS,
+                stateRewardAddresses, Blake2bUtil.blake2bHash224(HexUtil.decodeHexString(SERVICE_VKEY)));
+    }
+
+    private List<Block> chainSegment(boolean parallelMode) {
+        return List.of(
+                new Block(List.of(legacyBootstrap("legacy10", 10)),
+                        event(10, parallelMode, stateUpdate("tx10", STATE_REWARD_V1, 9, hash(10)))),
+                new Block(List.of(), event(15, parallelMode, libraryDeployment("tx15"))),
+                new Block(List.of(legacyState("legacy20", 20, 5, hash(21))),
+                        event(20, parallelMode, stateUpdate("tx20", STATE_REWARD_V2, 8, hash(20)))),
+                new Block(List.of(legacyState("legacy30", 30, 4, hash(31))),
+                        event(30, parallelMode, unrelated("tx30a"), stateUpdate("tx30b", STATE_REWARD_V1, 7, hash(30)))),
+                new Block(List.of(legacyState("legacy40", 40, 3, hash(40))), event(40, parallelMode)));
+    }
+
+    private static BlockHeaderEvent header(boolean parallelMode) {
+        BlockHeaderEvent blockHeaderEvent = mock(BlockHeaderEvent.class);
+        when(blockHeaderEvent.getMetadata()).thenReturn(EventMetadata.builder().parallelMode(parallelMode).build());
+        return blockHeaderEvent;
+    }
+
+    private static TransactionEvent event(long slot, boolean parallelMode, Transaction... transactions) {
+        return TransactionEvent.builder()
+                .metadata(EventMetadata.builder()
+                        .slot(slot)
+                        .blockHash("block" + slot)
+                        .blockTime(slot)
+                        .parallelMode(parallelMode)
+                        .build())
+                .transactions(List.of(transactions))
+                .build();
+    }
+
+    private static String hash(int value) {
+        return String.format("%064x", value);
+    }
+
+    private static UVerifyCertificate certificate(String hash) {
+        return UVerifyCertificate.builder()
+                .hash(hash)
+                .algorithm("SHA-256")
+                .issuer(OWNER)
+                .extra("")
+                .build();
+    }
+
+    private static AddressUtxo legacyBootstrap(String txHash, long slot) {
+        String policyId = ValidatorUtils.getMintOrBurnAuthTokenHash(CardanoNetwork.PREPROD);
+        String datum = ConstrPlutusData.of(0,
+                ListPlutusData.of(),
+                BytesPlutusData.of(new byte[0]),
+                BytesPlutusData.of(LEGACY_BOOTSTRAP),
+                BytesPlutusData.of(new byte[0]),
+                BigIntPlutusData.of(0),
+                BigIntPlutusData.of(1),
+                ListPlutusData.of(),
+                BigIntPlutusData.of(0),
+                BigIntPlutusData.of(10),
+                BigIntPlutusData.of(1)).serializeToHex();
+        return legacyUtxo(txHash, slot, LEGACY_BOOTSTRAP, policyId, datum);
+    }
+
+    private static AddressUtxo legacyState(String txHash, long slot, int countdown, String certificateHash) {
+        String policyId = ValidatorUtils.getMintStateTokenHash(CardanoNetwork.PREPROD);
+        String datum = ConstrPlutusData.of(0,
+                BytesPlutusData.of(HexUtil.decodeHexString(LEGACY_STATE)),
+                BytesPlutusData.of(HexUtil.decodeHexString(OWNER)),
+                BytesPlutusData.of(new byte[0]),
+                BytesPlutusData.of(new byte[0]),
+                BigIntPlutusData.of(0),
+                BigIntPlutusData.of(1),
+                ListPlutusData.of(),
+                BigIntPlutusData.of(0),
+                BigIntPlutusData.of(countdown),
+                ListPlutusData.of(certificate(certificateHash).toPlutusData()),
+                BigIntPlutusData.of(1),
+                BytesPlutusData.of(LEGACY_BOOTSTRAP)).serializeToHex();
+        return legacyUtxo(txHash, slot, "state", policyId, datum);
+    }
+
+    private static AddressUtxo legacyUtxo(String txHash, long slot, String assetName, String policyId, String datum) {
+        String unit = policyId + HexUtil.encodeHexString(assetName.getBytes(StandardCharsets.UTF_8));
+        AddressUtxo addressUtxo = SimulationUtils.simulateAddressUtxo(txHash, 0, slot, OWNER, assetName, policyId, unit, datum);
+        addressUtxo.setOwnerAddr(LEGACY_ADDRESS);
+        addressUtxo.setBlockHash("block" + slot);
+        addressUtxo.setBlockTime(slot);
+        return addressUtxo;
+    }
+
+    private static Transaction stateUpdate(String txHash, String rewardAddress, int countdown, String certificateHash) {
+        List<UVerifyCertificate> certificates = List.of(certificate(certificateHash));
+        String stateRedeemer = StateRedeemer.builder()
+                .purpose(UVerifyScriptPurpose.UPDATE_STATE)
+                .certificates(certificates)
+                .build()
+                .toPlutusData()
+                .serializeToHex();
+
+        StateDatum stateDatum = new StateDatum();
+        stateDatum.setId(PROXY_STATE);
+        stateDatum.setOwner(OWNER);
+        stateDatum.setFee(0);
+        stateDatum.setFeeInterval(1);
+        stateDatum.setFeeReceivers(List.of());
+        stateDatum.setTtl(0L);
+        stateDatum.setCountdown(countdown);
+        stateDatum.setCertificates(certificates);
+        stateDatum.setBatchSize(1);
+        stateDatum.setBootstrapDatumName(PROXY_BOOTSTRAP);
+        stateDatum.setKeepAsOracle(false);
+
+        return Transaction.builder()
+                .txHash(txHash)
+                .body(TransactionBody.builder()
+                        .outputs(List.of(TransactionOutput.builder()
+                                .address(PROXY_ADDRESS)
+                                .amounts(List.of(Amount.builder()
+                                        .policyId(PROXY_POLICY)
+                                        .quantity(BigInteger.ONE)
+                                        .build()))
+                                .inlineDatum(stateDatum.toPlutusData().serializeToHex())
+                                .build()))
+                        .withdrawals(Map.of(rewardAddress, BigInteger.ZERO))
+                        .mint(List.of())
+                        .fee(BigInteger.ZERO)
+                        .build())
+                .witnesses(Witnesses.builder()
+                        .redeemers(List.of(Redeemer.builder()
+                                .tag(RedeemerTag.Reward)
+                                .index(0)
+                                .data(Datum.builder().cbor(stateRedeemer).build())
+                                .build()))
+                        .build())
+                .build();
+    }
+
+    private static Transaction libraryDeployment(String txHash) {
+        return Transaction.builder()
+                .txHash(txHash)
+                .slot(15)
+                .body(TransactionBody.builder()
+                        .outputs(List.of(TransactionOutput.builder()
+                                .address(LIBRARY_ADDRESS)
+                                .amounts(List.of())
+                                .build()))
+                        .mint(List.of())
+                        .build())
+                .witnesses(Witnesses.builder()
+                        .vkeyWitnesses(List.of(VkeyWitness.builder().key(SERVICE_VKEY).build()))
+                        .redeemers(List.of())
+                        .build())
+                .utxos(List.of(Utxo.builder().txHash(txHash).index(0).address(LIBRARY_ADDRESS).build()))
+                .build();
+    }
+
+    private static Transaction unrelated(String txHash) {
+        return Transaction.builder()
+                .txHash(txHash)
+                .body(TransactionBody.builder()
+                        .outputs(List.of(TransactionOutput.builder()
+                                .address("addr_test1someone")
+                                .amounts(List.of())
+                                .build()))
+                        .mint(List.of())
+                        .build())
+                .witnesses(Witnesses.builder().redeemers(List.of()).build())
+                .build();
+    }
+}
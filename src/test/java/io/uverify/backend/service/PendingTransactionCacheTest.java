@@ -18,8 +18,18 @@
 
 package io.uverify.backend.service;
 
+import com.bloxbean.cardano.client.account.Account;
+import com.bloxbean.cardano.client.api.UtxoSupplier;
+import com.bloxbean.cardano.client.api.common.OrderEnum;
 import com.bloxbean.cardano.client.api.model.Amount;
 import com.bloxbean.cardano.client.api.model.Utxo;
+import com.bloxbean.cardano.client.common.model.Networks;
+import com.bloxbean.cardano.client.transaction.spec.Transaction;
+import com.bloxbean.cardano.client.transaction.spec.TransactionBody;
+import com.bloxbean.cardano.client.transaction.spec.TransactionInput;
+import com.bloxbean.cardano.client.transaction.spec.TransactionOutput;
+import com.bloxbean.cardano.client.transaction.spec.Value;
+import com.bloxbean.cardano.client.transaction.util.TransactionUtil;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -29,6 +39,8 @@ import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 class PendingTransactionCacheTest {
 
@@ -222,4 +234,37 @@ class PendingTransactionCacheTest {
         assertEquals("hashB", cache.getPendingStateUtxo("unitB").orElseThrow().getTxHash());
         assertTrue(cache.getPendingStateUtxo("unitC").isEmpty());
     }
+
+    @Test
+    void chainingUtxoSupplier_hidesSpentInputsAndOffersPendingChange() throws Exception {
+        String wallet = new Account(Networks.testnet()).baseAddress();
+        String spentTxHash = "aa".repeat(32);
+        String unspentTxHash = "bb".repeat(32);
+        Transaction transaction = Transaction.builder()
+                .body(TransactionBody.builder()
+                        .inputs(List.of(new TransactionInput(spentTxHash, 0)))
+                        .outputs(List.of(TransactionOutput.builder()
+                                .address(wallet)
+                                .value(Value.builder().coin(BigInteger.valueOf(5_000_000)).build())
+                                .build()))
+                        .fee(BigInteger.valueOf(200_000))
+                        .build())
+                .build();
+        String txHash = TransactionUtil.getTxHash(transaction);
+        cache.populate(transaction, "addr_test_proxy", "policy");
+
+        UtxoSupplier onChain = mock(UtxoSupplier.class);
+        when(onChain.getPage(wallet, 100, 0, OrderEnum.asc)).thenReturn(List.of(
+                Utxo.builder().txHash(spentTxHash).outputIndex(0).address(wallet).amount(List.of()).build(),
+                Utxo.builder().txHash(unspentTxHash).outputIndex(1).address(wallet).amount(List.of()).build()));
+        UtxoSupplier chaining = cache.chainingUtxoSupplier(onChain);
+
+        List<Utxo> utxos = chaining.getPage(wallet, 100, 0, OrderEnum.asc);
+
+        assertEquals(List.of(unspentTxHash, txHash), utxos.stream().map(Utxo::getTxHash).toList());
+        assertTrue(chaining.getTxOutput(txHash, 0).isPresent());
+
+        cache.clearLocksForTransaction(txHash);
+        assertFalse(cache.getPendingWalletOutputs(wallet).stream().anyMatch(utxo -> utxo.getTxHash().equals(txHash)));
+    }
 }
@@ -0,0 +1,146 @@
+/*
+ * UVerify Backend
+ * Copyright (C) 2025 Fabian Bormann
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.uverify.backend.service;
+
+import com.bloxbean.cardano.client.api.exception.ApiException;
+import com.bloxbean.cardano.client.api.model.ProtocolParams;
+import com.bloxbean.cardano.client.api.model.Result;
+import com.bloxbean.cardano.client.backend.api.BackendService;
+import com.bloxbean.cardano.client.backend.api.EpochService;
+import com.bloxbean.cardano.client.backend.model.EpochContent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProtocolParamsCacheTest {
+
+    private static final long NOW = 1_750_000_000L;
+
+    private final AtomicLong now = new AtomicLong(NOW);
+    private ProtocolParamsCache cache;
+    private BackendService backendService;
+    private EpochService epochService;
+
+    @BeforeEach
+    void setUp() {
+        Clock clock = new Clock() {
+            @Override
+            public ZoneId getZone() {
+                return ZoneOffset.UTC;
+            }
+
+            @Override
+            public Clock withZone(ZoneId zone) {
+                return this;
+            }
+
+            @Override
+            public Instant instant() {
+                return Instant.ofEpochSecond(now.get());
+            }
+        };
+        cache = new ProtocolParamsCache(3600, clock, mock(LibraryScriptSupplier.class));
+        backendService = mock(BackendService.class);
+        epochService = mock(EpochService.class);
+        when(backendService.getEpochService()).thenReturn(epochService);
+    }
+
+    @Test
+    void reusesParametersWithinEpoch() throws ApiException {
+        ProtocolParams params = new ProtocolParams();
+        givenEpoch(500, NOW + 600, params);
+
+        assertSame(params, cache.getProtocolParams(backendService));
+        now.addAndGet(599);
+        assertSame(params, cache.supplierFor(backendService).getProtocolParams());
+
+        verify(epochService, times(1)).getProtocolParameters(anyInt());
+    }
+
+    @Test
+    void reloadsAfterEpochBoundary() throws ApiException {
+        ProtocolParams first = new ProtocolParams();
+        givenEpoch(500, NOW + 600, first);
+        assertSame(first, cache.getProtocolParams(backendService));
+
+        ProtocolParams second = new ProtocolParams();
+        givenEpoch(501, NOW + 600 + 432000, second);
+        now.addAndGet(600);
+        cache.refreshExpired();
+
+        assertSame(second, cache.getProtocolParams(backendService));
+        verify(epochService, times(2)).getProtocolParameters(anyInt());
+    }
+
+    @Test
+    void retriesSoonWhenTheReportedEpochHasEnded() throws ApiException {
+        ProtocolParams stale = new ProtocolParams();
+        givenEpoch(500, NOW - 10, stale);
+        assertSame(stale, cache.getProtocolParams(backendService));
+
+        ProtocolParams current = new ProtocolParams();
+        givenEpoch(501, NOW + 432000, current);
+        now.addAndGet(59);
+        assertSame(stale, cache.getProtocolParams(backendService));
+        now.addAndGet(1);
+
+        assertSame(current, cache.getProtocolParams(backendService));
+    }
+
+    @Test
+    void keepsLastParametersWhenReloadFails() throws ApiException {
+        ProtocolParams params = new ProtocolParams();
+        givenEpoch(500, NOW + 600, params);
+        cache.getProtocolParams(backendService);
+
+        when(epochService.getLatestEpoch()).thenReturn(Result.error("provider down"));
+        now.addAndGet(600);
+
+        assertSame(params, cache.getProtocolParams(backendService));
+    }
+
+    @Test
+    void failsWithoutCachedParameters() throws ApiException {
+        when(epochService.getLatestEpoch()).thenReturn(Result.error("provider down"));
+
+        assertThrows(RuntimeException.class, () -> cache.getProtocolParams(backendService));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void givenEpoch(int epoch, long endTime, ProtocolParams params) throws ApiException {
+        EpochContent epochContent = new EpochContent();
+        epochContent.setEpoch(epoch);
+        epochContent.setEndTime(endTime);
+        when(epochService.getLatestEpoch()).thenReturn(Result.success("ok").withValue(epochContent));
+        when(epochService.getProtocolParameters(epoch)).thenReturn(Result.success("ok").withValue(params));
+    }
+}
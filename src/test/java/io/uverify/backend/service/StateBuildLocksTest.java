@@ -0,0 +1,159 @@
+/*
+ * UVerify Backend
+ * Copyright (C) 2025 Fabian Bormann
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.uverify.backend.service;
+
+import com.bloxbean.cardano.client.api.exception.ApiException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StateBuildLocksTest {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Test
+    void serializesBuildsOfTheSameState() throws Exception {
+        StateBuildLocks locks = new StateBuildLocks(16, Duration.ofSeconds(5));
+        CountDownLatch firstLocked = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        List<String> events = new CopyOnWriteArrayList<>();
+
+        Future<?> first = executor.submit(() -> {
+            try (StateBuildLocks.Scope ignored = locks.open()) {
+                locks.lock("unit");
+                events.add("first-read");
+                firstLocked.countDown();
+                releaseFirst.await();
+                events.add("first-populate");
+            }
+            return null;
+        });
+        assertTrue(firstLocked.await(5, TimeUnit.SECONDS));
+        Future<?> second = executor.submit(() -> {
+            try (StateBuildLocks.Scope ignored = locks.open()) {
+                locks.lock("unit");
+                events.add("second-read");
+            }
+            return null;
+        });
+
+        Thread.sleep(50);
+        assertFalse(second.isDone());
+        releaseFirst.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of("first-read", "first-populate", "second-read"), events);
+    }
+
+    @Test
+    void buildsOfOtherStatesDoNotWait() throws Exception {
+        StateBuildLocks locks = new StateBuildLocks(1024, Duration.ofMillis(100));
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch locked = new CountDownLatch(1);
+        executor.submit(() -> {
+            try (StateBuildLocks.Scope ignored = locks.open()) {
+                locks.lock("a");
+                locked.countDown();
+                release.await();
+            }
+            return null;
+        });
+        assertTrue(locked.await(5, TimeUnit.SECONDS));
+
+        try (StateBuildLocks.Scope ignored = locks.open()) {
+            locks.lock("b");
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void timesOutWhileAnotherBuildHoldsTheState() throws Exception {
+        StateBuildLocks locks = new StateBuildLocks(16, Duration.ofMillis(50));
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch locked = new CountDownLatch(1);
+        executor.submit(() -> {
+            try (StateBuildLocks.Scope ignored = locks.open()) {
+                locks.lock("unit");
+                locked.countDown();
+                release.await();
+            }
+            return null;
+        });
+        assertTrue(locked.await(5, TimeUnit.SECONDS));
+
+        try (StateBuildLocks.Scope ignored = locks.open()) {
+            assertThrows(ApiException.class, () -> locks.lock("unit"));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void nestedScopesReleaseWithTheOutermostScope() throws Exception {
+        StateBuildLocks locks = new StateBuildLocks(16, Duration.ofMillis(50));
+        Callable<Void> otherBuild = () -> {
+            try (StateBuildLocks.Scope ignored = locks.open()) {
+                locks.lock("unit");
+            }
+            return null;
+        };
+
+        try (StateBuildLocks.Scope outer = locks.open()) {
+            try (StateBuildLocks.Scope inner = locks.open()) {
+                locks.lock("unit");
+            }
+            ExecutionException stillHeld = assertThrows(ExecutionException.class,
+                    () -> executor.submit(otherBuild).get(5, TimeUnit.SECONDS));
+            assertInstanceOf(ApiException.class, stillHeld.getCause());
+        }
+
+        executor.submit(otherBuild).get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void locksNothingOutsideABuildScope() throws Exception {
+        StateBuildLocks locks = new StateBuildLocks(16, Duration.ofMillis(50));
+        locks.lock("unit");
+
+        Future<?> other = executor.submit(() -> {
+            try (StateBuildLocks.Scope ignored = locks.open()) {
+                locks.lock("unit");
+            }
+            return null;
+        });
+        other.get(5, TimeUnit.SECONDS);
+    }
+}
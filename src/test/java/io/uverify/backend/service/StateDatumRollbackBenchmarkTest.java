@@ -0,0 +1,166 @@
+/*
+ * UVerify Backend
+ * Copyright (C) 2025 Fabian Bormann
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.uverify.backend.service;
+
+import io.uverify.backend.repository.StateDatumRepository;
+import io.uverify.backend.repository.StateDatumUpdateRepository;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Rolls back the same tip against a small and a much larger history. The
+ * rollback only ever touches the states updated after the rollback slot, so
+ * the rows it rewrites (and its cost) do not grow with the history. Either
+ * way every rolled back state has to end up at its latest remaining update.
+ * Excluded from the default build, run it with
+ * {@code mvn test -Dgroups=benchmark -Dtest.excludedGroups=}.
+ */
+@Slf4j
+@Tag("benchmark")
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = "store.sync-auto-start=false")
+@ActiveProfiles("h2")
+class StateDatumRollbackBenchmarkTest {
+
+    private static final long ROLLBACK_SLOT = 1_000_000L;
+    private static final int STATES_AT_TIP = 10;
+    private static final int UPDATES_PER_STATE = 5;
+
+    @Autowired
+    private StateDatumRepository stateDatumRepository;
+
+    @Autowired
+    private StateDatumUpdateRepository stateDatumUpdateRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private long bootstrapDatumId;
+
+    @Test
+    @Transactional
+    void restoresTheLatestRemainingUpdateOfEveryRolledBackState() {
+        seedBootstrapDatum();
+
+        seedHistory("small", 1_000);
+        long smallNanos = rollbackTip("small");
+
+        seedHistory("large", 50_000);
+        long largeNanos = rollbackTip("large");
+
+        log.info("Rollback of {} states took {} µs with {} and {} µs with {} historic states",
+                STATES_AT_TIP, smallNanos / 1_000, 1_000, largeNanos / 1_000, 51_000);
+    }
+
+    private long rollbackTip(String prefix) {
+        seedTip(prefix);
+
+        long start = System.nanoTime();
+        List<String> affected = stateDatumUpdateRepository.findStateDatumIdsAfterSlot(ROLLBACK_SLOT);
+        stateDatumUpdateRepository.deleteAllAfterSlot(ROLLBACK_SLOT);
+        int rewritten = stateDatumRepository.handleRollback(affected);
+        long elapsed = System.nanoTime() - start;
+
+        assertEquals(STATES_AT_TIP, affected.size());
+        assertEquals(STATES_AT_TIP, rewritten);
+        assertEquals(0, count("SELECT COUNT(*) FROM state_datum_update WHERE slot > :value", ROLLBACK_SLOT));
+        assertEquals(0, count("""
+                SELECT COUNT(*) FROM state_datum s
+                WHERE s.id LIKE :value || '-%'
+                  AND NOT EXISTS (
+                    SELECT 1 FROM state_datum_update u
+                    WHERE u.state_datum_id = s.id
+                      AND u.countdown = s.countdown
+                      AND u.transaction_id = s.transaction_id
+                      AND u.slot = (SELECT MAX(m.slot) FROM state_datum_update m WHERE m.state_datum_id = s.id)
+                )
+                """, prefix));
+
+        Object[] state = (Object[]) entityManager.createNativeQuery(
+                        "SELECT countdown, transaction_id FROM state_datum WHERE id = :id")
+                .setParameter("id", prefix + "-1")
+                .getSingleResult();
+        assertEquals(100 - UPDATES_PER_STATE, ((Number) state[0]).intValue());
+        assertEquals("tx-" + UPDATES_PER_STATE, state[1]);
+        return elapsed;
+    }
+
+    private long count(String sql, Object value) {
+        return ((Number) entityManager.createNativeQuery(sql)
+                .setParameter("value", value)
+                .getSingleResult()).longValue();
+    }
+
+    private void seedBootstrapDatum() {
+        entityManager.createNativeQuery(
+                        "INSERT INTO bootstrap_datum (token_name, fee, fee_interval, ttl, creation_slot, " +
+                        "transaction_limit, transaction_id, batch_size) VALUES ('benchmark', 0, 1, 0, 0, 0, 'tx', 1)")
+                .executeUpdate();
+        bootstrapDatumId = ((Number) entityManager.createNativeQuery(
+                        "SELECT MAX(id) FROM bootstrap_datum WHERE token_name = 'benchmark'")
+                .getSingleResult()).longValue();
+    }
+
+    private void seedHistory(String prefix, int states) {
+        entityManager.createNativeQuery(
+                        "INSERT INTO state_datum (id, owner, creation_slot, countdown, transaction_id, bootstrap_datum_id) " +
+                        "SELECT :prefix || '-' || X, 'owner', 0, :countdown, :transactionId, :bootstrapDatumId " +
+                        "FROM SYSTEM_RANGE(1, :states)")
+                .setParameter("prefix", prefix)
+                .setParameter("countdown", 100 - UPDATES_PER_STATE)
+                .setParameter("transactionId", "tx-" + UPDATES_PER_STATE)
+                .setParameter("bootstrapDatumId", bootstrapDatumId)
+                .setParameter("states", states)
+                .executeUpdate();
+        entityManager.createNativeQuery(
+                        "INSERT INTO state_datum_update (slot, countdown, transaction_id, state_datum_id) " +
+                        "SELECT S.X * 10 + U.X, 100 - U.X, 'tx-' || U.X, :prefix || '-' || S.X " +
+                        "FROM SYSTEM_RANGE(1, :states) S CROSS JOIN SYSTEM_RANGE(1, :updates) U")
+                .setParameter("prefix", prefix)
+                .setParameter("states", states)
+                .setParameter("updates", UPDATES_PER_STATE)
+                .executeUpdate();
+    }
+
+    private void seedTip(String prefix) {
+        entityManager.createNativeQuery(
+                        "INSERT INTO state_datum_update (slot, countdown, transaction_id, state_datum_id) " +
+                        "SELECT :slot + X, 0, 'tip', :prefix || '-' || X FROM SYSTEM_RANGE(1, :states)")
+                .setParameter("slot", ROLLBACK_SLOT)
+                .setParameter("prefix", prefix)
+                .setParameter("states", STATES_AT_TIP)
+                .executeUpdate();
+        entityManager.createNativeQuery(
+                        "UPDATE state_datum SET countdown = 0, transaction_id = 'tip' " +
+                        "WHERE id IN (SELECT state_datum_id FROM state_datum_update WHERE slot > :slot)")
+                .setParameter("slot", ROLLBACK_SLOT)
+                .executeUpdate();
+    }
+}
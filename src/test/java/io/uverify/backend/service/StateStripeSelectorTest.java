@@ -0,0 +1,147 @@
+/*
+ * UVerify Backend
+ * Copyright (C) 2025 Fabian Bormann
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.uverify.backend.service;
+
+import com.bloxbean.cardano.client.api.model.Utxo;
+import io.uverify.backend.entity.BootstrapDatumEntity;
+import io.uverify.backend.entity.StateDatumEntity;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StateStripeSelectorTest {
+
+    private static final String PROXY = "proxy";
+
+    private final PendingTransactionCache pendingTransactionCache = new PendingTransactionCache(Duration.ofMinutes(15));
+    private final StateBuildLocks stateBuildLocks = new StateBuildLocks(1024, Duration.ofSeconds(5));
+    private final BootstrapDatumEntity bootstrap = BootstrapDatumEntity.builder().tokenName("partner").build();
+    private final StateDatumEntity first = state("a");
+    private final StateDatumEntity second = state("b");
+    private final List<StateDatumEntity> states = List.of(first, second);
+
+    private StateDatumEntity state(String id) {
+        return StateDatumEntity.builder()
+                .id(id)
+                .owner("owner")
+                .countdown(10)
+                .version(2)
+                .bootstrapDatum(bootstrap)
+                .build();
+    }
+
+    private void pending(StateDatumEntity state, String txHash) {
+        pendingTransactionCache.putPendingStateUtxo(PROXY + state.getId(), Utxo.builder().txHash(txHash).outputIndex(0).build());
+    }
+
+    private StateStripeSelector selector(int stripes) {
+        return new StateStripeSelector(stripes, pendingTransactionCache, stateBuildLocks);
+    }
+
+    @Test
+    void singleStripeKeepsThePreferredState() {
+        pending(first, "tx1");
+        assertEquals(Optional.of(first), selector(1).select(PROXY, first, states, true));
+    }
+
+    @Test
+    void prefersIdleAndLeastRecentlyUsedStates() {
+        StateStripeSelector selector = selector(4);
+        pending(first, "tx1");
+        assertEquals(Optional.of(second), selector.select(PROXY, first, states, true));
+
+        // Both idle again, the first state was used most recently.
+        pendingTransactionCache.clearLocksForTransaction("tx1");
+        assertEquals(Optional.of(second), selector.select(PROXY, first, states, true));
+        pending(second, "tx2");
+        pendingTransactionCache.clearLocksForTransaction("tx2");
+        assertEquals(Optional.of(first), selector.select(PROXY, first, states, true));
+    }
+
+    @Test
+    void forksUntilTheConfiguredStripesExist() {
+        StateStripeSelector selector = selector(3);
+        pending(first, "tx1");
+        pending(second, "tx2");
+        pending(second, "tx3");
+
+        assertEquals(Optional.empty(), selector.select(PROXY, first, states, true));
+        assertEquals(Optional.of(first), selector.select(PROXY, first, states, false));
+
+        selector.recordFork(first, PROXY + "c");
+        assertEquals(Optional.of(first), selector.select(PROXY, first, states, true));
+
+        // Once indexed, the fork is a regular stripe.
+        StateDatumEntity third = state("c");
+        pending(third, "tx4");
+        assertEquals(Optional.of(first), selector.select(PROXY, first, List.of(first, second, third), true));
+    }
+
+    @Test
+    void ignoresStatesOfOtherBootstrapDatumsAndExhaustedStates() {
+        StateStripeSelector selector = selector(4);
+        StateDatumEntity other = state("d");
+        other.setBootstrapDatum(BootstrapDatumEntity.builder().tokenName("other").build());
+        StateDatumEntity exhausted = state("e");
+        exhausted.setCountdown(0);
+        pending(first, "tx1");
+
+        assertEquals(Optional.empty(), selector.select(PROXY, first, List.of(first, other, exhausted), true));
+    }
+
+    @Test
+    void skipsStatesAnotherBuildHolds() throws Exception {
+        StateStripeSelector selector = selector(4);
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<?> other = executor.submit(() -> {
+            try (StateBuildLocks.Scope ignored = stateBuildLocks.open()) {
+                stateBuildLocks.lock(PROXY + first.getId());
+                locked.countDown();
+                release.await();
+            }
+            return null;
+        });
+        assertTrue(locked.await(5, TimeUnit.SECONDS));
+
+        try (StateBuildLocks.Scope ignored = stateBuildLocks.open()) {
+            assertEquals(Optional.of(second), selector.select(PROXY, first, states, true));
+        }
+        release.countDown();
+        other.get(5, TimeUnit.SECONDS);
+        executor.shutdown();
+    }
+
+    @Test
+    void rejectsInvalidStripeCounts() {
+        assertThrows(IllegalArgumentException.class, () -> selector(0));
+    }
+}
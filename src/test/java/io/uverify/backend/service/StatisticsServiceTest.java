@@ -18,7 +18,9 @@
 
 package io.uverify.backend.service;
 
+import io.uverify.backend.dto.UsageStatistics;
 import io.uverify.backend.entity.StatisticEntity;
+import io.uverify.backend.enums.UseCaseCategory;
 import io.uverify.backend.extension.ExtensionManager;
 import io.uverify.backend.repository.CertificateRepository;
 import io.uverify.backend.repository.StatisticRepository;
@@ -32,12 +34,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -56,17 +60,17 @@ class StatisticsServiceTest {
         transactionRepository = mock(TransactionRepository.class);
         statisticRepository = mock(StatisticRepository.class);
         service = new StatisticsService(
-                certificateRepository, extensionManager, transactionRepository, statisticRepository);
+                certificateRepository, extensionManager, transactionRepository, statisticRepository,
+                mock(UsageStatisticsRecorder.class));
         when(extensionManager.addTransactionFees(any()))
                 .thenAnswer(invocation -> invocation.getArgument(0));
     }
 
     @Test
     void recomputeWritesFeesAndCategoryCounts() {
-        when(certificateRepository.streamAllExtra()).thenReturn(Stream.of(
-                "{\"uverify_template_id\":\"diploma\"}",
-                "{\"uverify_template_id\":\"diploma\"}",
-                "{}"));
+        when(certificateRepository.countByUseCaseCategory()).thenReturn(List.<Object[]>of(
+                new Object[]{UseCaseCategory.STUDENT_CERTIFICATION, 2L},
+                new Object[]{UseCaseCategory.NOTARY, 1L}));
         when(transactionRepository.sumUVerifyCertificateFees()).thenReturn(BigInteger.valueOf(500000L));
 
         service.recomputeStatistics();
@@ -77,6 +81,88 @@ class StatisticsServiceTest {
         assertEquals(1L, written.get("category_count:Notary"));
     }
 
+    @Test
+    void extensionStatisticsAreKeptInSeparateRows() {
+        doAnswer(invocation -> {
+            UsageStatistics usageStatistics = invocation.getArgument(0);
+            usageStatistics.addCertificatesToCategory(UseCaseCategory.CONNECTED_GOODS, 5);
+            return null;
+        }).when(extensionManager).addUsageStatistics(any());
+        when(extensionManager.addTransactionFees(any())).thenReturn(BigInteger.valueOf(300000L));
+
+        service.refreshExtensionStatistics();
+
+        Map<String, Long> written = writtenRows();
+        assertEquals(300000L, written.get("extension_fees_lovelace"));
+        assertEquals(5L, written.get("extension_category_count:" + UseCaseCategory.CONNECTED_GOODS.getDisplayName()));
+        assertFalse(written.containsKey("total_fees_lovelace"));
+    }
+
+    @Test
+    void recomputesBaselineRowsThatStillContainExtensionTotals() {
+        // Written before the extension rows existed: Notary holds 1 core and
+        // 2 extension certificates, Connected Goods only extension ones.
+        when(statisticRepository.findByStatisticKeyStartingWith("category_count:")).thenReturn(List.of(
+                StatisticEntity.builder().statisticKey("category_count:Notary").statisticValue(3L)
+                        .updatedAt(Instant.EPOCH).build(),
+                StatisticEntity.builder().statisticKey("category_count:" + UseCaseCategory.CONNECTED_GOODS.getDisplayName())
+                        .statisticValue(5L).updatedAt(Instant.EPOCH).build()));
+        when(statisticRepository.findById("total_fees_lovelace")).thenReturn(Optional.of(
+                StatisticEntity.builder().statisticKey("total_fees_lovelace").statisticValue(800L)
+                        .updatedAt(Instant.EPOCH).build()));
+        when(certificateRepository.countByUseCaseCategory()).thenReturn(List.<Object[]>of(
+                new Object[]{UseCaseCategory.NOTARY, 1L}));
+        when(transactionRepository.sumUVerifyCertificateFees()).thenReturn(BigInteger.valueOf(500L));
+        doAnswer(invocation -> {
+            UsageStatistics usageStatistics = invocation.getArgument(0);
+            usageStatistics.addCertificatesToCategory(UseCaseCategory.NOTARY, 2);
+            usageStatistics.addCertificatesToCategory(UseCaseCategory.CONNECTED_GOODS, 5);
+            return null;
+        }).when(extensionManager).addUsageStatistics(any());
+        when(extensionManager.addTransactionFees(any())).thenReturn(BigInteger.valueOf(300L));
+
+        service.seedStatistics();
+
+        Map<String, Long> written = writtenRows();
+        assertEquals(500L, written.get("total_fees_lovelace"));
+        assertEquals(1L, written.get("category_count:Notary"));
+        assertEquals(0L, written.get("category_count:" + UseCaseCategory.CONNECTED_GOODS.getDisplayName()));
+        assertEquals(300L, written.get("extension_fees_lovelace"));
+        assertEquals(2L, written.get("extension_category_count:Notary"));
+        assertEquals(5L, written.get("extension_category_count:" + UseCaseCategory.CONNECTED_GOODS.getDisplayName()));
+    }
+
+    @Test
+    void seedOnlyRefreshesExtensionRowsOnceTheyExist() {
+        when(statisticRepository.findById("extension_fees_lovelace")).thenReturn(Optional.of(
+                StatisticEntity.builder().statisticKey("extension_fees_lovelace").statisticValue(300L)
+                        .updatedAt(Instant.EPOCH).build()));
+
+        service.seedStatistics();
+
+        verify(certificateRepository, never()).countByUseCaseCategory();
+        assertFalse(writtenRows().containsKey("total_fees_lovelace"));
+    }
+
+    @Test
+    void readsSumCoreAndExtensionRows() {
+        when(statisticRepository.findById("total_fees_lovelace")).thenReturn(Optional.of(
+                StatisticEntity.builder().statisticKey("total_fees_lovelace").statisticValue(700L)
+                        .updatedAt(Instant.EPOCH).build()));
+        when(statisticRepository.findById("extension_fees_lovelace")).thenReturn(Optional.of(
+                StatisticEntity.builder().statisticKey("extension_fees_lovelace").statisticValue(77L)
+                        .updatedAt(Instant.EPOCH).build()));
+        when(statisticRepository.findByStatisticKeyStartingWith("category_count:")).thenReturn(List.of(
+                StatisticEntity.builder().statisticKey("category_count:Notary").statisticValue(3L)
+                        .updatedAt(Instant.EPOCH).build()));
+        when(statisticRepository.findByStatisticKeyStartingWith("extension_category_count:")).thenReturn(List.of(
+                StatisticEntity.builder().statisticKey("extension_category_count:Notary").statisticValue(2L)
+                        .updatedAt(Instant.EPOCH).build()));
+
+        assertEquals(777L, service.getTransactionFees());
+        assertEquals(5, service.getTotalUVerifyCertificates().get("Notary"));
+    }
+
     @Test
     void getTransactionFeesReadsRowOrZero() {
         when(statisticRepository.findById("total_fees_lovelace")).thenReturn(Optional.of(
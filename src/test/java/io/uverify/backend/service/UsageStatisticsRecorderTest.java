@@ -0,0 +1,137 @@
+/*
+ * UVerify Backend
+ * Copyright (C) 2025 Fabian Bormann
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.uverify.backend.service;
+
+import com.bloxbean.cardano.yaci.store.transaction.storage.impl.model.TxnEntity;
+import io.uverify.backend.entity.CertificateExtraFields;
+import io.uverify.backend.entity.StatisticDeltaEntity;
+import io.uverify.backend.entity.UVerifyCertificateEntity;
+import io.uverify.backend.repository.StatisticDeltaRepository;
+import io.uverify.backend.repository.StatisticRepository;
+import io.uverify.backend.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UsageStatisticsRecorderTest {
+
+    private StatisticRepository statisticRepository;
+    private StatisticDeltaRepository statisticDeltaRepository;
+    private TransactionRepository transactionRepository;
+    private UsageStatisticsRecorder recorder;
+
+    @BeforeEach
+    void setUp() {
+        statisticRepository = mock(StatisticRepository.class);
+        statisticDeltaRepository = mock(StatisticDeltaRepository.class);
+        transactionRepository = mock(TransactionRepository.class);
+        recorder = new UsageStatisticsRecorder(statisticRepository, statisticDeltaRepository, transactionRepository);
+        when(statisticRepository.increment(anyString(), anyLong(), any())).thenReturn(1);
+    }
+
+    @Test
+    void recordJournalsCategoryAndFeeDeltas() {
+        recorder.recordCertificates(List.of(
+                certificate("{\"uverify_template_id\":\"diploma\"}"),
+                certificate("{\"uverify_template_id\":\"diploma\"}"),
+                certificate("{}")), BigInteger.valueOf(180000L), 42L);
+
+        var captor = org.mockito.ArgumentCaptor.forClass(StatisticDeltaEntity.class);
+        verify(statisticDeltaRepository, atLeastOnce()).save(captor.capture());
+        Map<String, Long> journaled = captor.getAllValues().stream()
+                .collect(Collectors.toMap(StatisticDeltaEntity::getStatisticKey, StatisticDeltaEntity::getStatisticDelta));
+
+        assertEquals(Map.of(
+                "category_count:Student Certification", 2L,
+                "category_count:Notary", 1L,
+                "total_fees_lovelace", 180000L), journaled);
+        verify(statisticRepository).increment(eq("category_count:Student Certification"), eq(2L), any());
+        verify(statisticRepository).increment(eq("total_fees_lovelace"), eq(180000L), any());
+    }
+
+    @Test
+    void rollbackSubtractsJournaledDeltas() {
+        when(statisticDeltaRepository.sumDeltasAfterSlot(10L)).thenReturn(List.<Object[]>of(
+                new Object[]{"category_count:Notary", 3L},
+                new Object[]{"total_fees_lovelace", 500000L}));
+
+        recorder.rollbackToSlot(10L);
+
+        verify(statisticRepository).increment(eq("category_count:Notary"), eq(-3L), any());
+        verify(statisticRepository).increment(eq("total_fees_lovelace"), eq(-500000L), any());
+        verify(statisticDeltaRepository).deleteAllAfterSlot(10L);
+    }
+
+    @Test
+    void legacyFeesAreRecordedOnceTheTransactionIsStored() {
+        TxnEntity transaction = new TxnEntity();
+        transaction.setTxHash("legacy");
+        transaction.setFee(BigInteger.valueOf(170000L));
+        when(transactionRepository.findById("legacy")).thenReturn(Optional.of(transaction));
+
+        recorder.recordLegacyCertificates(List.of(certificate("{}")), "legacy", 42L);
+        verify(statisticRepository, never()).increment(eq("total_fees_lovelace"), anyLong(), any());
+
+        recorder.recordPendingFees();
+        recorder.recordPendingFees();
+
+        verify(statisticRepository).increment(eq("total_fees_lovelace"), eq(170000L), any());
+    }
+
+    @Test
+    void rolledBackLegacyFeesAreDropped() {
+        recorder.recordLegacyCertificates(List.of(certificate("{}")), "legacy", 42L);
+        recorder.rollbackToSlot(10L);
+
+        recorder.recordPendingFees();
+
+        verify(transactionRepository, never()).findById(anyString());
+    }
+
+    @Test
+    void transactionsWithoutCertificatesAreIgnored() {
+        recorder.recordCertificates(List.of(), BigInteger.TEN, 1L);
+
+        verify(statisticRepository, never()).increment(anyString(), anyLong(), any());
+    }
+
+    private static UVerifyCertificateEntity certificate(String extra) {
+        return UVerifyCertificateEntity.builder()
+                .hash("hash")
+                .extra(extra)
+                .extraFields(CertificateExtraFields.fromExtra(extra))
+                .build();
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * UVerify Backend
+ * Copyright (C) 2025 Fabian Bormann
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.uverify.backend.util;
+
+import io.uverify.backend.entity.CertificateExtraFields;
+import io.uverify.backend.enums.UseCaseCategory;
+import io.uverify.backend.util.UpdatePolicyResolver.PolicyCertificate;
+import io.uverify.backend.util.UpdatePolicyResolver.PolicyMode;
+import io.uverify.backend.util.UpdatePolicyResolver.ResolvedPolicy;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CertificateMetadataViewTest {
+
+    private static final String OWNER = "addr1owner";
+    private static final String OTHER = "addr1other";
+
+    private static CertificateMetadataView view(String extra) {
+        return new CertificateMetadataView(CertificateExtraFields.fromExtra(extra), extra);
+    }
+
+    @Test
+    void extractsTypedFieldsOnce() {
+        CertificateExtraFields fields = CertificateExtraFields.fromExtra(
+                "{\"uv_tid\":\"diploma\",\"uverify_update_policy\":\"restricted\",\"uverify_freeze\":\"true\","
+                        + "\"uv_og_title\":\"Hello\",\"uv_og_img\":42}");
+        assertEquals("diploma", fields.getTemplateId());
+        assertEquals(UseCaseCategory.STUDENT_CERTIFICATION, fields.getUseCaseCategory());
+        assertEquals("restricted", fields.getUpdatePolicy());
+        assertTrue(fields.isFreeze());
+        assertEquals("Hello", fields.getOgTitle());
+        assertNull(fields.getOgImage());
+    }
+
+    @Test
+    void invalidExtraFallsBackToNotary() {
+        CertificateExtraFields fields = CertificateExtraFields.fromExtra("not-json");
+        assertNull(fields.getTemplateId());
+        assertEquals(UseCaseCategory.NOTARY, fields.getUseCaseCategory());
+        assertFalse(fields.isFreeze());
+    }
+
+    @Test
+    void derivedKeysAreAnsweredWithoutParsingExtra() {
+        CertificateExtraFields fields = CertificateExtraFields.fromExtra(
+                "{\"uverify_template_id\":\"diploma\",\"uverify_owner\":\"" + OWNER + "\"}");
+        // The stored JSON is unreadable, so every hit below comes from the columns.
+        CertificateMetadataView metadata = new CertificateMetadataView(fields, "not-json");
+
+        assertEquals("diploma", TemplateIdResolver.resolveTemplateId(metadata));
+        assertEquals(OWNER, metadata.get("uverify_owner"));
+        assertEquals("fallback", metadata.getOrDefault("uverify_transfer_ownership", "fallback"));
+        assertNull(metadata.get("title"));
+    }
+
+    @Test
+    void resolvesTheSamePolicyAsTheParsedMetadata() {
+        List<PolicyCertificate> certs = List.of(
+                new PolicyCertificate(OWNER, view("{\"uverify_update_policy\":\"whitelist\","
+                        + "\"uverify_update_whitelist\":\"" + OTHER + "\",\"title\":\"v1\"}")),
+                new PolicyCertificate(OTHER, view("{\"title\":\"v2\"}")),
+                new PolicyCertificate(OWNER, view("{\"uverify_freeze\":true}")));
+
+        ResolvedPolicy policy = UpdatePolicyResolver.resolvePolicy(certs);
+
+        assertEquals(PolicyMode.FROZEN, policy.mode());
+        assertEquals(OWNER, policy.owner());
+        assertEquals(List.of(OTHER), policy.whitelist());
+        assertEquals("v1", UpdatePolicyResolver.applyPolicy(certs, policy).get(0).metadata().get("title"));
+    }
+
+    @Test
+    void accumulateMergesContentFromTheStoredJson() {
+        List<PolicyCertificate> certs = List.of(
+                new PolicyCertificate(OWNER, view("{\"uverify_update_policy\":\"accumulate\",\"title\":\"v1\"}")),
+                new PolicyCertificate(OWNER, view("{\"grade\":\"A\"}")));
+
+        List<PolicyCertificate> displayed =
+                UpdatePolicyResolver.applyPolicy(certs, UpdatePolicyResolver.resolvePolicy(certs));
+
+        assertEquals(1, displayed.size());
+        assertEquals("v1", displayed.get(0).metadata().get("title"));
+        assertEquals("A", displayed.get(0).metadata().get("grade"));
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * UVerify Backend
+ * Copyright (C) 2025 Fabian Bormann
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.uverify.backend.util;
+
+import com.bloxbean.cardano.client.api.exception.ApiException;
+import com.bloxbean.cardano.client.api.model.Result;
+import com.bloxbean.cardano.client.api.model.Utxo;
+import com.bloxbean.cardano.client.backend.api.BackendService;
+import com.bloxbean.cardano.client.backend.api.TransactionService;
+import com.bloxbean.cardano.client.backend.api.UtxoService;
+import com.bloxbean.cardano.client.backend.model.TxContentUtxo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ImmutableQueryCacheTest {
+
+    private static final String TX_HASH = "c".repeat(64);
+
+    private final AtomicLong nanos = new AtomicLong();
+    private TransactionService transactionService;
+    private UtxoService utxoService;
+    private ImmutableQueryCache cache;
+    private BackendService cached;
+
+    @BeforeEach
+    void setUp() {
+        BackendService delegate = mock(BackendService.class);
+        transactionService = mock(TransactionService.class);
+        utxoService = mock(UtxoService.class);
+        when(delegate.getTransactionService()).thenReturn(transactionService);
+        when(delegate.getUtxoService()).thenReturn(utxoService);
+        cache = new ImmutableQueryCache(100, Duration.ofSeconds(10), nanos::get);
+        cached = cache.wrap(delegate);
+    }
+
+    @Test
+    void servesConfirmedTransactionsFromCache() throws ApiException {
+        Result<TxContentUtxo> utxos = Result.success("ok").withValue(new TxContentUtxo());
+        when(transactionService.getTransactionUtxos(TX_HASH)).thenReturn(utxos);
+
+        assertSame(utxos, cached.getTransactionService().getTransactionUtxos(TX_HASH));
+        nanos.addAndGet(Duration.ofDays(1).toNanos());
+        assertSame(utxos, cached.getTransactionService().getTransactionUtxos(TX_HASH));
+
+        verify(transactionService, times(1)).getTransactionUtxos(TX_HASH);
+    }
+
+    @Test
+    void forgetsConfirmedTransactionsAfterRollback() throws ApiException {
+        Result<TxContentUtxo> utxos = Result.success("ok").withValue(new TxContentUtxo());
+        when(transactionService.getTransactionUtxos(TX_HASH)).thenReturn(utxos);
+
+        cached.getTransactionService().getTransactionUtxos(TX_HASH);
+        cache.invalidateAll();
+        cached.getTransactionService().getTransactionUtxos(TX_HASH);
+
+        verify(transactionService, times(2)).getTransactionUtxos(TX_HASH);
+    }
+
+    @Test
+    void keysOnAllArguments() throws ApiException {
+        when(utxoService.getTxOutput(anyString(), anyInt())).thenReturn(Result.success("ok").withValue(new Utxo()));
+
+        cached.getUtxoService().getTxOutput(TX_HASH, 0);
+        cached.getUtxoService().getTxOutput(TX_HASH, 1);
+        cached.getUtxoService().getTxOutput(TX_HASH, 0);
+
+        verify(utxoService, times(1)).getTxOutput(TX_HASH, 0);
+        verify(utxoService, times(1)).getTxOutput(TX_HASH, 1);
+    }
+
+    @Test
+    void expiresMissesAfterNegativeTtl() throws ApiException {
+        when(transactionService.getTransactionUtxos(TX_HASH)).thenReturn(Result.error("Not found"));
+
+        cached.getTransactionService().getTransactionUtxos(TX_HASH);
+        nanos.addAndGet(Duration.ofSeconds(5).toNanos());
+        cached.getTransactionService().getTransactionUtxos(TX_HASH);
+        verify(transactionService, times(1)).getTransactionUtxos(TX_HASH);
+
+        nanos.addAndGet(Duration.ofSeconds(6).toNanos());
+        cached.getTransactionService().getTransactionUtxos(TX_HASH);
+        verify(transactionService, times(2)).getTransactionUtxos(TX_HASH);
+    }
+
+    @Test
+    void doesNotCacheExceptions() throws ApiException {
+        when(transactionService.getTransactionUtxos(TX_HASH)).thenThrow(new ApiException("timeout"));
+
+        assertThrows(ApiException.class, () -> cached.getTransactionService().getTransactionUtxos(TX_HASH));
+        assertThrows(ApiException.class, () -> cached.getTransactionService().getTransactionUtxos(TX_HASH));
+
+        verify(transactionService, times(2)).getTransactionUtxos(TX_HASH);
+    }
+
+    @Test
+    void passesOtherCallsThrough() throws ApiException {
+        cached.getUtxoService().getUtxos("addr_test1", 100, 1);
+        cached.getUtxoService().getUtxos("addr_test1", 100, 1);
+
+        verify(utxoService, times(2)).getUtxos("addr_test1", 100, 1);
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * UVerify Backend
+ * Copyright (C) 2025 Fabian Bormann
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.uverify.backend.util;
+
+import com.bloxbean.cardano.client.api.exception.ApiException;
+import com.bloxbean.cardano.client.api.model.Result;
+import com.bloxbean.cardano.client.backend.api.BackendService;
+import com.bloxbean.cardano.client.backend.api.BlockService;
+import com.bloxbean.cardano.client.backend.model.Block;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class InstrumentedBackendServiceTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private BlockService blockService;
+    private BackendService instrumented;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        BackendService delegate = mock(BackendService.class);
+        blockService = mock(BlockService.class);
+        when(delegate.getBlockService()).thenReturn(blockService);
+        instrumented = InstrumentedBackendService.wrap(delegate, meterRegistry, "blockfrost");
+    }
+
+    @Test
+    void timesSuccessfulCalls() throws ApiException {
+        Result<Block> latest = Result.success("ok").withValue(new Block());
+        when(blockService.getLatestBlock()).thenReturn(latest);
+
+        assertSame(latest, instrumented.getBlockService().getLatestBlock());
+
+        assertEquals(1, meterRegistry.get(InstrumentedBackendService.REQUESTS_METRIC)
+                .tags("backend", "blockfrost", "service", "block", "method", "getLatestBlock", "outcome", "success")
+                .timer().count());
+        assertEquals(0, meterRegistry.find(InstrumentedBackendService.ERRORS_METRIC).counters().size());
+    }
+
+    @Test
+    void countsUnsuccessfulResultsAsErrors() throws ApiException {
+        when(blockService.getLatestBlock()).thenReturn(Result.error("quota exceeded"));
+
+        instrumented.getBlockService().getLatestBlock();
+
+        assertEquals(1.0, meterRegistry.get(InstrumentedBackendService.ERRORS_METRIC)
+                .tags("service", "block", "reason", "unsuccessful")
+                .counter().count());
+    }
+
+    @Test
+    void countsAndRethrowsExceptions() throws ApiException {
+        when(blockService.getLatestBlock()).thenThrow(new ApiException("timeout"));
+
+        ApiException exception = assertThrows(ApiException.class, () -> instrumented.getBlockService().getLatestBlock());
+
+        assertEquals("timeout", exception.getMessage());
+        assertEquals(1.0, meterRegistry.get(InstrumentedBackendService.ERRORS_METRIC)
+                .tags("reason", "ApiException")
+                .counter().count());
+        assertEquals(1, meterRegistry.get(InstrumentedBackendService.REQUESTS_METRIC)
+                .tags("outcome", "exception")
+                .timer().count());
+    }
+
+    @Test
+    void comparesByIdentity() {
+        BackendService other = InstrumentedBackendService.wrap(mock(BackendService.class), meterRegistry, "blockfrost");
+
+        assertEquals(instrumented, instrumented);
+        assertNotEquals(instrumented, other);
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * UVerify Backend
+ * Copyright (C) 2025 Fabian Bormann
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.uverify.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MerkleTreeTest {
+
+    private static List<byte[]> leaves(int count) {
+        List<byte[]> leaves = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            leaves.add(("leaf-" + i).getBytes(StandardCharsets.UTF_8));
+        }
+        return leaves;
+    }
+
+    private static byte[] node(byte[] level, int index) {
+        return Arrays.copyOfRange(level, index * MerkleTree.NODE_SIZE, (index + 1) * MerkleTree.NODE_SIZE);
+    }
+
+    @Test
+    void everyLeafProvesAgainstTheRoot() {
+        for (int count = 1; count <= 33; count++) {
+            List<byte[]> leaves = leaves(count);
+            MerkleTree tree = MerkleTree.build(leaves);
+            assertEquals(MerkleTree.levelCount(count), tree.getLevels().size());
+
+            for (int leafIndex = 0; leafIndex < count; leafIndex++) {
+                List<byte[]> siblings = new ArrayList<>();
+                List<Boolean> left = new ArrayList<>();
+                int index = leafIndex;
+                for (int level = 0; level < tree.getLevels().size() - 1; level++) {
+                    int sibling = MerkleTree.siblingIndex(index, MerkleTree.levelSize(count, level));
+                    if (sibling >= 0) {
+                        siblings.add(node(tree.getLevels().get(level), sibling));
+                        left.add(sibling < index);
+                    }
+                    index /= 2;
+                }
+                assertArrayEquals(tree.getRoot(), MerkleTree.computeRoot(leaves.get(leafIndex), siblings, left),
+                        "leaf " + leafIndex + " of " + count);
+                assertTrue(siblings.size() <= 6);
+            }
+        }
+    }
+
+    @Test
+    void levelsHaveTheExpectedSizes() {
+        MerkleTree tree = MerkleTree.build(leaves(5));
+        assertEquals(List.of(5, 3, 2, 1), tree.getLevels().stream()
+                .map(level -> level.length / MerkleTree.NODE_SIZE)
+                .toList());
+        // The fifth leaf has no sibling and is promoted to level 1.
+        assertArrayEquals(node(tree.getLevels().get(0), 4), node(tree.getLevels().get(1), 2));
+    }
+
+    @Test
+    void singleLeafIsItsOwnRoot() {
+        byte[] leaf = "only".getBytes(StandardCharsets.UTF_8);
+        MerkleTree tree = MerkleTree.build(List.of(leaf));
+        assertArrayEquals(MerkleTree.hashLeaf(leaf), tree.getRoot());
+        assertEquals(1, tree.getLeafCount());
+    }
+
+    @Test
+    void rootDependsOnLeafOrderAndIsDeterministic() {
+        List<byte[]> leaves = leaves(8);
+        List<byte[]> reversed = new ArrayList<>(leaves);
+        Collections.reverse(reversed);
+
+        assertEquals(MerkleTree.build(leaves).getRootHex(), MerkleTree.build(leaves(8)).getRootHex());
+        assertNotEquals(MerkleTree.build(leaves).getRootHex(), MerkleTree.build(reversed).getRootHex());
+    }
+
+    @Test
+    void innerNodeCannotPoseAsLeaf() {
+        List<byte[]> leaves = leaves(2);
+        MerkleTree tree = MerkleTree.build(leaves);
+        byte[] concatenated = tree.getLevels().get(0);
+        assertFalse(Arrays.equals(tree.getRoot(), MerkleTree.hashLeaf(concatenated)));
+    }
+
+    @Test
+    void rejectsEmptyTrees() {
+        assertThrows(IllegalArgumentException.class, () -> MerkleTree.build(List.of()));
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * UVerify Backend
+ * Copyright (C) 2025 Fabian Bormann
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.uverify.backend.util;
+
+import com.bloxbean.cardano.client.common.model.Networks;
+import io.uverify.backend.util.ParameterizedScriptRegistry.ParameterizedScript;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParameterizedScriptRegistryTest {
+
+    private static final String TX_HASH = "a".repeat(64);
+
+    @Test
+    void equalParametersResolveToTheSameInstance() {
+        ParameterizedScript first = ValidatorUtils.getUverifyProxyScript(TX_HASH, 0);
+        ParameterizedScript second = ValidatorUtils.getUverifyProxyScript(TX_HASH, 0);
+
+        assertSame(first, second);
+        assertEquals(ValidatorUtils.validatorToScriptHash(first.getScript()), first.getScriptHash());
+        assertSame(first.getEnterpriseAddress(Networks.preprod()), second.getEnterpriseAddress(Networks.preprod()));
+    }
+
+    @Test
+    void differentParametersResolveToDifferentScripts() {
+        ParameterizedScript first = ValidatorUtils.getUverifyProxyScript(TX_HASH, 0);
+        ParameterizedScript second = ValidatorUtils.getUverifyProxyScript(TX_HASH, 1);
+
+        assertNotEquals(first.getScriptHash(), second.getScriptHash());
+        assertNotEquals(first.getEnterpriseAddress(Networks.mainnet()), first.getEnterpriseAddress(Networks.preprod()));
+    }
+
+    @Test
+    void requestSuppliedParametersDoNotGrowTheRegistryUnbounded() {
+        for (int outputIndex = 0; outputIndex < ParameterizedScriptRegistry.MAXIMUM_SIZE + 100; outputIndex++) {
+            ValidatorUtils.getUverifyProxyScript("b".repeat(64), outputIndex);
+        }
+
+        assertTrue(ParameterizedScriptRegistry.size() <= ParameterizedScriptRegistry.MAXIMUM_SIZE);
+    }
+}
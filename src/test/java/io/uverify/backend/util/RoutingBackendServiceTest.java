@@ -0,0 +1,220 @@
+/*
+ * UVerify Backend
+ * Copyright (C) 2025 Fabian Bormann
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.uverify.backend.util;
+
+import com.bloxbean.cardano.client.api.exception.ApiException;
+import com.bloxbean.cardano.client.api.model.Result;
+import com.bloxbean.cardano.client.api.model.Utxo;
+import com.bloxbean.cardano.client.backend.api.BackendService;
+import com.bloxbean.cardano.client.backend.api.TransactionService;
+import com.bloxbean.cardano.client.backend.api.UtxoService;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RoutingBackendServiceTest {
+
+    private static final String TX_HASH = "d".repeat(64);
+
+    private final UtxoService primaryUtxos = mock(UtxoService.class);
+    private final UtxoService secondaryUtxos = mock(UtxoService.class);
+    private final TransactionService primaryTransactions = mock(TransactionService.class);
+    private final TransactionService secondaryTransactions = mock(TransactionService.class);
+
+    private RoutingBackendService router(RoutingBackendService.Settings settings, AtomicLong nanos) {
+        Map<String, BackendService> providers = new LinkedHashMap<>();
+        providers.put("primary", provider(primaryUtxos, primaryTransactions));
+        providers.put("secondary", provider(secondaryUtxos, secondaryTransactions));
+        return new RoutingBackendService(providers, settings, nanos == null ? System::nanoTime : nanos::get);
+    }
+
+    private static BackendService provider(UtxoService utxoService, TransactionService transactionService) {
+        BackendService backendService = mock(BackendService.class);
+        when(backendService.getUtxoService()).thenReturn(utxoService);
+        when(backendService.getTransactionService()).thenReturn(transactionService);
+        return backendService;
+    }
+
+    private static RoutingBackendService.Settings settings(Duration maxHedgeDelay, int failureThreshold) {
+        return new RoutingBackendService.Settings(0.5, Duration.ofMillis(10), maxHedgeDelay,
+                failureThreshold, Duration.ofSeconds(30));
+    }
+
+    @Test
+    void prefersTheFasterProvider() throws ApiException {
+        when(primaryUtxos.getTxOutput(anyString(), anyInt())).thenAnswer(invocation -> {
+            Thread.sleep(30);
+            return Result.success("ok").withValue(new Utxo());
+        });
+        when(secondaryUtxos.getTxOutput(anyString(), anyInt())).thenReturn(Result.success("ok").withValue(new Utxo()));
+        RoutingBackendService router = router(settings(Duration.ofSeconds(5), 5), null);
+        BackendService backendService = router.backendService();
+
+        for (int call = 0; call < 5; call++) {
+            assertTrue(backendService.getUtxoService().getTxOutput(TX_HASH, 0).isSuccessful());
+        }
+
+        assertEquals("secondary", router.ranking().get(0));
+        verify(secondaryUtxos, times(4)).getTxOutput(TX_HASH, 0);
+    }
+
+    @Test
+    void failsOverToTheNextProvider() throws ApiException {
+        Result<Utxo> answer = Result.success("ok").withValue(new Utxo());
+        when(primaryUtxos.getTxOutput(anyString(), anyInt())).thenThrow(new ApiException("connection reset"));
+        when(secondaryUtxos.getTxOutput(anyString(), anyInt())).thenReturn(answer);
+        BackendService backendService = router(settings(Duration.ofSeconds(5), 5), null).backendService();
+
+        assertSame(answer, backendService.getUtxoService().getTxOutput(TX_HASH, 0));
+    }
+
+    @Test
+    void hedgesSlowReadsAndCancelsTheLoser() throws Exception {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        when(primaryUtxos.getTxOutput(anyString(), anyInt())).thenAnswer(invocation -> {
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException interruptedException) {
+                interrupted.countDown();
+                throw interruptedException;
+            }
+            return Result.success("late").withValue(new Utxo());
+        });
+        Result<Utxo> answer = Result.success("ok").withValue(new Utxo());
+        when(secondaryUtxos.getTxOutput(anyString(), anyInt())).thenReturn(answer);
+        BackendService backendService = router(settings(Duration.ofMillis(50), 5), null).backendService();
+
+        long start = System.nanoTime();
+        assertSame(answer, backendService.getUtxoService().getTxOutput(TX_HASH, 0));
+
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void skipsProvidersWithAnOpenCircuit() throws ApiException {
+        AtomicLong nanos = new AtomicLong();
+        // Once the circuit opens, the failing provider scores worse than the
+        // healthy one, so its trial call only goes out if it is ranked first.
+        when(primaryUtxos.getTxOutput(anyString(), anyInt())).thenAnswer(invocation -> {
+            nanos.addAndGet(Duration.ofMillis(3).toNanos());
+            return Result.error("unavailable").code(503);
+        });
+        when(secondaryUtxos.getTxOutput(anyString(), anyInt())).thenAnswer(invocation -> {
+            nanos.addAndGet(Duration.ofMillis(20).toNanos());
+            return Result.success("ok").withValue(new Utxo());
+        });
+        RoutingBackendService router = router(settings(Duration.ofSeconds(5), 2), nanos);
+        BackendService backendService = router.backendService();
+
+        for (int call = 0; call < 4; call++) {
+            assertTrue(backendService.getUtxoService().getTxOutput(TX_HASH, 0).isSuccessful());
+        }
+        verify(primaryUtxos, times(2)).getTxOutput(TX_HASH, 0);
+
+        // After the open period a single trial call reaches the provider
+        // again. Ranking alone does not use it up.
+        nanos.addAndGet(Duration.ofSeconds(31).toNanos());
+        assertEquals("primary", router.ranking().get(0));
+        assertEquals("primary", router.ranking().get(0));
+        backendService.getUtxoService().getTxOutput(TX_HASH, 0);
+        backendService.getUtxoService().getTxOutput(TX_HASH, 0);
+        verify(primaryUtxos, times(3)).getTxOutput(TX_HASH, 0);
+        assertEquals(List.of("secondary"), router.ranking());
+    }
+
+    @Test
+    void cancelledHedgesDoNotResetTheFailureCount() throws Exception {
+        AtomicLong nanos = new AtomicLong();
+        AtomicInteger primaryCalls = new AtomicInteger();
+        CountDownLatch interrupted = new CountDownLatch(1);
+        when(primaryUtxos.getTxOutput(anyString(), anyInt())).thenAnswer(invocation -> {
+            nanos.addAndGet(Duration.ofMillis(1).toNanos());
+            if (primaryCalls.incrementAndGet() == 2) {
+                try {
+                    Thread.sleep(10_000);
+                } catch (InterruptedException interruptedException) {
+                    interrupted.countDown();
+                    throw interruptedException;
+                }
+            }
+            throw new ApiException("connection reset");
+        });
+        when(secondaryUtxos.getTxOutput(anyString(), anyInt())).thenAnswer(invocation -> {
+            nanos.addAndGet(Duration.ofMillis(10).toNanos());
+            return Result.success("ok").withValue(new Utxo());
+        });
+        BackendService backendService = router(settings(Duration.ofSeconds(5), 2), nanos).backendService();
+
+        // Fails over, then loses a hedge, then fails again.
+        for (int call = 0; call < 3; call++) {
+            assertTrue(backendService.getUtxoService().getTxOutput(TX_HASH, 0).isSuccessful());
+            if (call == 1) {
+                assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+            }
+        }
+        verify(primaryUtxos, times(3)).getTxOutput(TX_HASH, 0);
+
+        // Two failures in a row open the circuit.
+        assertTrue(backendService.getUtxoService().getTxOutput(TX_HASH, 0).isSuccessful());
+        verify(primaryUtxos, times(3)).getTxOutput(TX_HASH, 0);
+    }
+
+    @Test
+    void returnsTheProviderErrorWhenEveryProviderFails() throws ApiException {
+        when(primaryUtxos.getTxOutput(anyString(), anyInt())).thenReturn(Result.error("unavailable").code(503));
+        when(secondaryUtxos.getTxOutput(anyString(), anyInt())).thenReturn(Result.error("rate limited").code(429));
+        BackendService backendService = router(settings(Duration.ofSeconds(5), 5), null).backendService();
+
+        Result<Utxo> result = backendService.getUtxoService().getTxOutput(TX_HASH, 0);
+
+        assertFalse(result.isSuccessful());
+    }
+
+    @Test
+    void submitsOnlyToThePrimaryProvider() throws ApiException {
+        when(primaryTransactions.submitTransaction(any())).thenReturn(Result.error("unavailable").code(503));
+        BackendService backendService = router(settings(Duration.ofMillis(10), 5), null).backendService();
+
+        Result<String> result = backendService.getTransactionService().submitTransaction(new byte[]{1});
+
+        assertFalse(result.isSuccessful());
+        verify(secondaryTransactions, never()).submitTransaction(any());
+    }
+}
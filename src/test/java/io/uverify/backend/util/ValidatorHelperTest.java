@@ -0,0 +1,156 @@
+/*
+ * UVerify Backend
+ * Copyright (C) 2025 Fabian Bormann
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Affero General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Affero General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Affero General Public License
+ *  along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.uverify.backend.util;
+
+import com.bloxbean.cardano.client.api.exception.ApiException;
+import com.bloxbean.cardano.client.api.model.Amount;
+import com.bloxbean.cardano.client.api.model.Result;
+import com.bloxbean.cardano.client.api.model.Utxo;
+import com.bloxbean.cardano.client.backend.api.BackendService;
+import com.bloxbean.cardano.client.backend.api.UtxoService;
+import com.bloxbean.cardano.client.util.HexUtil;
+import com.bloxbean.cardano.yaci.core.model.TransactionBody;
+import com.bloxbean.cardano.yaci.core.model.TransactionInput;
+import com.bloxbean.cardano.yaci.core.model.TransactionOutput;
+import com.bloxbean.cardano.yaci.helper.model.Transaction;
+import io.uverify.backend.repository.LibraryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ValidatorHelperTest {
+
+    private static final String PROXY_TX_HASH = "a".repeat(64);
+    private static final String UPGRADE_TX_HASH = "b".repeat(64);
+
+    private ValidatorHelper validatorHelper;
+    private BackendService backendService;
+    private UtxoService utxoService;
+    private String proxyAddress;
+    private String proxyPolicy;
+    private String stateTokenName;
+    private Utxo initialStateUtxo;
+
+    @BeforeEach
+    void setUp() throws ApiException {
+        validatorHelper = new ValidatorHelper(PROXY_TX_HASH, 0, "PREPROD", mock(LibraryRepository.class));
+        proxyAddress = validatorHelper.getProxyContractAddress();
+        proxyPolicy = validatorHelper.getProxyScriptHash();
+        stateTokenName = ValidatorUtils.getProxyStateTokenName(PROXY_TX_HASH, 0);
+
+        initialStateUtxo = Utxo.builder()
+                .txHash(PROXY_TX_HASH)
+                .outputIndex(0)
+                .address(proxyAddress)
+                .amount(List.of(Amount.lovelace(BigInteger.valueOf(2_000_000)),
+                        Amount.asset(proxyPolicy + stateTokenName, BigInteger.ONE)))
+                .build();
+
+        backendService = mock(BackendService.class);
+        utxoService = mock(UtxoService.class);
+        when(backendService.getUtxoService()).thenReturn(utxoService);
+        when(utxoService.getUtxos(eq(proxyAddress), anyString(), anyInt(), anyInt()))
+                .thenReturn(Result.success("ok").withValue(List.of(initialStateUtxo)));
+    }
+
+    @Test
+    void queriesProviderOnlyOnce() throws ApiException {
+        assertSame(initialStateUtxo, validatorHelper.resolveProxyStateUtxo(backendService));
+        assertSame(initialStateUtxo, validatorHelper.resolveProxyStateUtxo(backendService));
+
+        verify(utxoService, times(1)).getUtxos(eq(proxyAddress), anyString(), anyInt(), anyInt());
+    }
+
+    @Test
+    void followsTheStateTokenWhenItMoves() throws ApiException {
+        validatorHelper.resolveProxyStateUtxo(backendService);
+
+        validatorHelper.trackProxyStateUtxo(Transaction.builder()
+                .txHash(UPGRADE_TX_HASH)
+                .body(TransactionBody.builder()
+                        .inputs(Set.of(new TransactionInput(PROXY_TX_HASH, 0)))
+                        .outputs(List.of(
+                                TransactionOutput.builder()
+                                        .address("addr_test1service")
+                                        .amounts(List.of(lovelace(1_000_000)))
+                                        .build(),
+                                TransactionOutput.builder()
+                                        .address(proxyAddress)
+                                        .amounts(List.of(lovelace(2_000_000), com.bloxbean.cardano.yaci.core.model.Amount.builder()
+                                                .policyId(proxyPolicy)
+                                                .assetNameBytes(HexUtil.decodeHexString(stateTokenName))
+                                                .quantity(BigInteger.ONE)
+                                                .build()))
+                                        .inlineDatum("d87980")
+                                        .build()))
+                        .build())
+                .build());
+
+        Utxo moved = validatorHelper.resolveProxyStateUtxo(backendService);
+        assertEquals(UPGRADE_TX_HASH, moved.getTxHash());
+        assertEquals(1, moved.getOutputIndex());
+        assertEquals("d87980", moved.getInlineDatum());
+        assertEquals(initialStateUtxo.getAmount(), moved.getAmount());
+        verify(utxoService, times(1)).getUtxos(eq(proxyAddress), anyString(), anyInt(), anyInt());
+    }
+
+    @Test
+    void ignoresTransactionsThatDoNotSpendTheStateUtxo() throws ApiException {
+        validatorHelper.resolveProxyStateUtxo(backendService);
+
+        validatorHelper.trackProxyStateUtxo(Transaction.builder()
+                .txHash(UPGRADE_TX_HASH)
+                .body(TransactionBody.builder()
+                        .inputs(Set.of(new TransactionInput(PROXY_TX_HASH, 1)))
+                        .outputs(List.of())
+                        .build())
+                .build());
+
+        assertSame(initialStateUtxo, validatorHelper.resolveProxyStateUtxo(backendService));
+    }
+
+    @Test
+    void queriesProviderAgainAfterInvalidation() throws ApiException {
+        validatorHelper.resolveProxyStateUtxo(backendService);
+        validatorHelper.invalidateProxyStateUtxo();
+        validatorHelper.resolveProxyStateUtxo(backendService);
+
+        verify(utxoService, times(2)).getUtxos(eq(proxyAddress), anyString(), anyInt(), anyInt());
+    }
+
+    private static com.bloxbean.cardano.yaci.core.model.Amount lovelace(long quantity) {
+        return com.bloxbean.cardano.yaci.core.model.Amount.builder()
+                .unit("lovelace")
+                .quantity(BigInteger.valueOf(quantity))
+                .build();
+    }
+}